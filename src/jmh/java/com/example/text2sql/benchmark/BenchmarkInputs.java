@@ -0,0 +1,112 @@
+package com.example.text2sql.benchmark;
+
+import java.util.StringJoiner;
+
+/**
+ * 基准测试输入数据
+ * 模拟真实请求中的 SQL、LLM 响应和数据库结构
+ */
+public final class BenchmarkInputs {
+
+    public static final String SIMPLE_SQL = "SELECT name, salary FROM employees WHERE department = '技术部' LIMIT 100";
+
+    public static final String JOIN_SQL = """
+            SELECT e.name, e.position, p.name AS project_name, pm.role, pm.join_date
+            FROM employees e
+            JOIN project_members pm ON pm.employee_id = e.id
+            JOIN projects p ON p.id = pm.project_id
+            WHERE p.status = '进行中' AND e.hire_date >= '2022-01-01' AND e.updated_at IS NOT NULL
+            GROUP BY e.name, e.position, p.name, pm.role, pm.join_date
+            HAVING COUNT(*) > 0
+            ORDER BY pm.join_date DESC
+            LIMIT 100""";
+
+    public static final String UNSAFE_SQL = "SELECT * FROM employees WHERE id = 1; DROP TABLE employees";
+
+    public static final String STEP4_RESPONSE = """
+            查询SQL生成，生成SQL查询语句为：
+
+            ```sql
+            %s
+            ```
+
+            **SQL智能注释**
+            > 1. **查询目的**: 查询进行中项目的成员及其角色
+            > 2. **字段说明**: 员工姓名、职位、项目名称、项目角色和加入日期
+            > 3. **表关联**: 通过 project_members 关联员工表和项目表
+            > 4. **条件筛选**: 只保留进行中的项目和 2022 年以后入职的员工
+            > 5. **分组聚合**: 去重
+            > 6. **排序逻辑**: 按加入日期倒序
+            > 7. **性能优化**: LIMIT 100
+            > 8. **业务价值**: 了解当前项目人员配置
+            """.formatted(JOIN_SQL);
+
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * 指定条目数的 IN 列表查询，用于模拟超长 SQL
+     */
+    public static String largeInListSql(int size) {
+        StringJoiner values = new StringJoiner(", ", "SELECT id, name FROM employees WHERE id IN (", ") LIMIT 1000");
+        for (int i = 0; i < size; i++) {
+            values.add(String.valueOf(i));
+        }
+        return values.toString();
+    }
+
+    /**
+     * 约指定大小的 LLM 响应：SQL 后跟大段解释文本
+     */
+    public static String largeLlmResponse(int targetBytes) {
+        StringBuilder content = new StringBuilder(STEP4_RESPONSE);
+        int paragraph = 0;
+        while (content.length() * 3 < targetBytes) {
+            content.append("\n> 补充说明 ").append(paragraph++)
+                    .append(": 该查询在 employees.hire_date 与 projects.status 上建议建立索引，")
+                    .append("以减少扫描行数；当数据量增大时应结合分页参数控制返回结果集大小。\n");
+        }
+        return content.toString();
+    }
+
+    /**
+     * 病态输入：大量 SELECT 关键字且没有空行结束符，正则需要扫描到文本末尾
+     */
+    public static String pathologicalResponse(int targetBytes) {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < targetBytes) {
+            content.append("select 字段 from 表 where 条件 select ");
+        }
+        return content.toString();
+    }
+
+    /**
+     * 病态输入：完全不包含 SQL 的大段文本，正则匹配必然失败
+     */
+    public static String responseWithoutSql(int targetBytes) {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < targetBytes) {
+            content.append("抱歉，我无法根据当前信息生成查询语句，请补充更多业务背景。\n");
+        }
+        return content.toString();
+    }
+
+    /**
+     * 生成指定表数量的 Schema 文本，格式与 DatabaseTool#getDatabaseSchema 一致
+     */
+    public static String schema(int tableCount) {
+        StringBuilder schema = new StringBuilder();
+        for (int t = 0; t < tableCount; t++) {
+            schema.append("-- 业务表").append(t).append("\n");
+            schema.append("CREATE TABLE `table_").append(t).append("` (\n");
+            schema.append("  `id` bigint NOT NULL COMMENT '主键',\n");
+            for (int c = 0; c < 20; c++) {
+                schema.append("  `column_").append(c).append("` varchar(64) DEFAULT NULL COMMENT '字段").append(c).append("',\n");
+            }
+            schema.append("  `created_at` datetime NOT NULL COMMENT '创建时间',\n");
+            schema.append("  PRIMARY KEY (`id`)\n");
+            schema.append(") COMMENT='业务表").append(t).append("' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;\n\n");
+        }
+        return schema.toString();
+    }
+}
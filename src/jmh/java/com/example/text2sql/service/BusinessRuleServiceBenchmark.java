@@ -0,0 +1,74 @@
+package com.example.text2sql.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.example.text2sql.config.BusinessRuleProperties;
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.service.rule.BusinessRuleRegistry;
+import com.example.text2sql.service.rule.RuleMatch;
+
+/**
+ * 业务规则推理基准测试
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BusinessRuleServiceBenchmark {
+
+    @Param({
+            "查询技术部员工的姓名和工资",
+            "统计近3年每个部门入职人数并按人数排序，取前5个",
+            "列出进行中的项目及其项目成员的姓名、职位和加入日期，按开始日期排序"
+    })
+    private String query;
+
+    private String selectedTables;
+    private List<String> tables;
+    private BusinessRuleService businessRuleService;
+
+    @Setup
+    public void setup() {
+        selectedTables = "employees, projects, project_members";
+        tables = List.of("employees", "projects", "project_members");
+        // Scope.Thread 的 Setup 在测量线程上执行，数据源上下文对基准方法可见
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+        businessRuleService = new BusinessRuleService(
+                new BusinessRuleRegistry(new BusinessRuleProperties(), new DefaultResourceLoader()));
+    }
+
+    @Benchmark
+    public String getBusinessLogic() {
+        return businessRuleService.getBusinessLogic(query, selectedTables);
+    }
+
+    @Benchmark
+    public String parseTimeExpression() {
+        return businessRuleService.parseTimeExpression(query);
+    }
+
+    /**
+     * 步骤3中的完整规则生成，包含规则扫描、时间解析和对每张选中表的字段推理
+     */
+    @Benchmark
+    public String generateBusinessRules() {
+        RuleMatch match = businessRuleService.evaluate(query);
+        return StepBasedText2SqlService.generateBusinessRules(match, tables, null, null);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.text2sql.service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.text2sql.service.federation.HashJoin;
+import com.example.text2sql.service.federation.JoinStats;
+import com.example.text2sql.service.federation.RowSource;
+
+/**
+ * 跨数据源哈希关联基准测试
+ * 构建侧 buildRows 行（客户），探测侧为其两倍（订单），按客户编号关联；两侧逐行生成，不预先放入内存，
+ * 与 JDBC 流式读取时的内存占用一致。对比不限内存和限制内存（溢写到磁盘）时的耗时、哈希表估算峰值、
+ * 溢写量和堆内存实际峰值（各堆内存池峰值之和，每次调用前重置）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class FederatedJoinBenchmark {
+
+    private static final long MB = 1024 * 1024;
+
+    @Param({"1000000", "4000000"})
+    private int buildRows;
+
+    /**
+     * 内存上限（MB），0 表示不限制
+     */
+    @Param({"0", "256", "32"})
+    private long budgetMb;
+
+    private HashJoin hashJoin;
+
+    private JoinStats stats;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long budget = budgetMb == 0 ? Long.MAX_VALUE : budgetMb * MB;
+        hashJoin = new HashJoin(budget, 16, 3, null);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetPeakUsage() {
+        System.gc();
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @Benchmark
+    public void join(Blackhole blackhole, MemoryCounters counters) {
+        stats = hashJoin.join(customers(), List.of("id"), orders(), List.of("customer_id"), HashJoin.Type.INNER,
+                (probe, build) -> {
+                    blackhole.consume(probe);
+                    blackhole.consume(build);
+                    return true;
+                });
+    }
+
+    /**
+     * 每轮迭代结束时记录最后一次关联的内存和溢写情况，跨迭代取平均
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MemoryCounters {
+
+        /**
+         * 哈希表估算占用的峰值（MB）
+         */
+        public long estimatedPeakMb;
+
+        /**
+         * 溢写到磁盘的数据量（MB）
+         */
+        public long spilledMb;
+
+        /**
+         * 堆内存实际峰值（MB），包括尚未回收的垃圾
+         */
+        public long heapPeakMb;
+
+        @TearDown(Level.Iteration)
+        public void measure(FederatedJoinBenchmark benchmark) {
+            JoinStats stats = benchmark.stats;
+            estimatedPeakMb = stats.peakMemoryBytes() / MB;
+            spilledMb = stats.spilledBytes() / MB;
+            heapPeakMb = heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum() / MB;
+        }
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    private RowSource customers() {
+        return handler -> {
+            handler.columns(List.of("id", "name", "level"));
+            for (long id = 0; id < buildRows; id++) {
+                handler.row(new Object[] {id, "客户" + id, (int) (id % 5)});
+            }
+        };
+    }
+
+    private RowSource orders() {
+        return handler -> {
+            handler.columns(List.of("order_id", "customer_id", "amount"));
+            long orders = buildRows * 2L;
+            for (long id = 0; id < orders; id++) {
+                handler.row(new Object[] {id, (id * 7919) % buildRows, BigDecimal.valueOf(id % 997, 1)});
+            }
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.text2sql.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.text2sql.service.intent.IntentIndex;
+import com.example.text2sql.service.intent.IntentVerdict;
+
+/**
+ * 问题意图预过滤基准测试
+ * 单次判断的耗时，Schema 术语按表数线性增长（每张表 20 列），验证大库下仍远低于 1 毫秒
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntentFilterBenchmark {
+
+    @Param({"10", "1000"})
+    private int tableCount;
+
+    @Param({
+            "你好",
+            "今天天气怎么样？",
+            "统计近3年每个部门入职人数并按人数排序，取前5个"
+    })
+    private String query;
+
+    private IntentIndex index;
+
+    @Setup
+    public void setup() {
+        List<String> terms = new ArrayList<>(List.of("employees", "员工", "部门", "入职"));
+        for (int t = 0; t < tableCount; t++) {
+            terms.add("table_" + t);
+            terms.add("业务表" + t);
+            for (int c = 0; c < 20; c++) {
+                terms.add("column_" + t + "_" + c);
+                terms.add("业务" + t + "字段" + c);
+            }
+        }
+        index = IntentIndex.build(terms, List.of(), List.of());
+    }
+
+    @Benchmark
+    public IntentVerdict evaluate() {
+        return index.evaluate(query, 0.2);
+    }
+}
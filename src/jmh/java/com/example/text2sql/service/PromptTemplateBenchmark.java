@@ -0,0 +1,104 @@
+package com.example.text2sql.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import com.example.text2sql.benchmark.BenchmarkInputs;
+import com.example.text2sql.service.prompt.CompiledPrompt;
+import com.example.text2sql.service.prompt.PromptTemplateRegistry;
+
+/**
+ * 提示词模板渲染基准测试
+ * 对比每次读取资源文件再渲染（引入模板注册表前步骤服务的做法）、复用已加载的 Spring AI 模板，
+ * 以及 {@link PromptTemplateRegistry} 使用的预编译模板三种方式
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromptTemplateBenchmark {
+
+    private static final String SCHEMA_PROMPT_FILE = "prompts/batch-sql-generation-prompt.txt";
+    private static final String STEP4_PROMPT_FILE = "prompts/step4-sql-generation-input.txt";
+
+    /**
+     * Schema 中的表数量，每张表约 1.2 KB
+     */
+    @Param({"10", "100", "500"})
+    private int tableCount;
+
+    private String schema;
+    private String schemaTemplateText;
+    private PromptTemplate schemaTemplate;
+    private CompiledPrompt compiledSchemaPrompt;
+    private CompiledPrompt compiledStep4Prompt;
+
+    @Setup
+    public void setup() throws IOException {
+        schema = BenchmarkInputs.schema(tableCount);
+        schemaTemplateText = load(SCHEMA_PROMPT_FILE);
+        schemaTemplate = new PromptTemplate(schemaTemplateText);
+        compiledSchemaPrompt = CompiledPrompt.compile("batch-sql-generation-prompt", schemaTemplateText);
+        compiledStep4Prompt = CompiledPrompt.compile("step4-sql-generation-input", load(STEP4_PROMPT_FILE));
+    }
+
+    @Benchmark
+    public String renderSchemaPrompt() {
+        return schemaTemplate.create(Map.of("schema", schema, "userQuery", "查询每个部门的平均工资")).getContents();
+    }
+
+    @Benchmark
+    public String renderCompiledSchemaPrompt() {
+        return compiledSchemaPrompt.render(Map.of("schema", schema, "userQuery", "查询每个部门的平均工资"));
+    }
+
+    @Benchmark
+    public String loadAndRenderSchemaPrompt() throws IOException {
+        PromptTemplate template = new PromptTemplate(load(SCHEMA_PROMPT_FILE).replaceAll("\\r\\n", "\n").trim());
+        return template.create(Map.of("schema", schema, "userQuery", "查询每个部门的平均工资")).getContents();
+    }
+
+    @Benchmark
+    public String loadAndRenderStep4Prompt() throws IOException {
+        PromptTemplate template = new PromptTemplate(load(STEP4_PROMPT_FILE).replaceAll("\\r\\n", "\n").trim());
+        return template.create(step4Variables()).getContents();
+    }
+
+    @Benchmark
+    public String renderCompiledStep4Prompt() {
+        return compiledStep4Prompt.render(step4Variables());
+    }
+
+    private Map<String, Object> step4Variables() {
+        return Map.of(
+                "rewrittenQuery", "查询进行中项目的成员及其角色",
+                "selectedTables", "employees, projects, project_members",
+                "inferenceResult", schema,
+                "timeCondition", "无",
+                "joinHints", "无",
+                "tableStatistics", "无");
+    }
+
+    private static String load(String path) throws IOException {
+        return StreamUtils.copyToString(new ClassPathResource(path).getInputStream(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.text2sql.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.text2sql.benchmark.BenchmarkInputs;
+
+/**
+ * 步骤4响应中提取 SQL 的基准测试
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqlExtractionBenchmark {
+
+    @Param({"step4", "large", "pathological", "noSql"})
+    private String responseType;
+
+    private String response;
+
+    @Setup
+    public void setup() {
+        response = switch (responseType) {
+            case "step4" -> BenchmarkInputs.STEP4_RESPONSE;
+            case "large" -> BenchmarkInputs.largeLlmResponse(50 * 1024);
+            case "pathological" -> BenchmarkInputs.pathologicalResponse(50 * 1024);
+            default -> BenchmarkInputs.responseWithoutSql(50 * 1024);
+        };
+    }
+
+    @Benchmark
+    public String extractSqlFromContent() {
+        return StepBasedText2SqlService.extractSqlFromContent(response);
+    }
+}
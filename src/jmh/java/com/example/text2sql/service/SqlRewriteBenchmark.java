@@ -0,0 +1,176 @@
+package com.example.text2sql.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.text2sql.config.SqlProperties;
+import com.example.text2sql.offline.EmbeddedMariaDb;
+import com.example.text2sql.service.sql.SqlAnalyzer;
+import com.example.text2sql.service.sql.SqlRewrite;
+import com.example.text2sql.service.sql.SqlRewriter;
+
+/**
+ * SQL 改写效果基准测试
+ * 在嵌入式 MariaDB 上对比模型常见写法与改写后 SQL 的执行耗时和存储引擎读取量，
+ * 读取量取自会话级 Handler_read_* 计数，即存储引擎读取的索引项和数据行数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SqlRewriteBenchmark {
+
+    private static final String DATABASE = "text2sql_db";
+
+    /**
+     * 测试表行数，created_at 每 15 分钟一行，覆盖约 5.7 年
+     */
+    private static final int ROW_COUNT = 200_000;
+
+    private static final Map<String, String> QUERIES = Map.of(
+            "DATE", "SELECT id, customer_name, amount FROM bench_orders WHERE DATE(created_at) = '2024-03-15'",
+            "DATE_FORMAT", "SELECT COUNT(*) FROM bench_orders WHERE DATE_FORMAT(created_at, '%Y-%m') = '2024-03'",
+            "YEAR_BETWEEN", "SELECT COUNT(*) FROM bench_orders WHERE YEAR(created_at) BETWEEN 2021 AND 2021",
+            "SELECT_ALL", "SELECT * FROM bench_orders WHERE DATE(created_at) BETWEEN '2024-03-01' AND '2024-03-07'");
+
+    /**
+     * 问题只关心这些列，用于展开 SELECT *
+     */
+    private static final Map<String, List<String>> COLUMNS = Map.of(
+            "bench_orders", List.of("id", "customer_name", "amount", "created_at"));
+
+    @Param({"DATE", "DATE_FORMAT", "YEAR_BETWEEN", "SELECT_ALL"})
+    private String query;
+
+    @Param({"original", "rewritten"})
+    private String variant;
+
+    private Connection connection;
+    private String sql;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        EmbeddedMariaDb mariaDb = EmbeddedMariaDb.start();
+        connection = DriverManager.getConnection(mariaDb.getJdbcUrl(DATABASE), "root", "");
+        createTable();
+
+        String original = QUERIES.get(query);
+        if ("original".equals(variant)) {
+            sql = original;
+        } else {
+            SqlProperties properties = new SqlProperties();
+            SqlAnalyzer analyzer = new SqlAnalyzer(null, properties);
+            SqlRewrite rewrite = new SqlRewriter(analyzer, null, properties).rewrite(new SqlRewrite(original), COLUMNS);
+            analyzer.shutdown();
+            sql = rewrite.getSql();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        EmbeddedMariaDb.stop();
+    }
+
+    @Benchmark
+    public void execute(Blackhole blackhole, IoCounters counters) throws SQLException {
+        consume(blackhole);
+    }
+
+    /**
+     * 每轮迭代结束后单独执行一次查询，记录该查询的读取量
+     * JMH 在迭代开始时清零计数、在迭代的 TearDown 之后读取，跨迭代取平均后即为单条查询的值
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class IoCounters {
+
+        /**
+         * 单条查询的 Handler_read_* 之和
+         */
+        public long handlerReads;
+
+        @TearDown(Level.Iteration)
+        public void measure(SqlRewriteBenchmark benchmark) throws SQLException {
+            try (Statement statement = benchmark.connection.createStatement()) {
+                statement.execute("FLUSH STATUS");
+                benchmark.consume(null);
+                handlerReads = 0;
+                try (ResultSet status = statement.executeQuery("SHOW SESSION STATUS LIKE 'Handler_read%'")) {
+                    while (status.next()) {
+                        handlerReads += status.getLong(2);
+                    }
+                }
+            }
+        }
+    }
+
+    private void consume(Blackhole blackhole) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            while (resultSet.next()) {
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    Object value = resultSet.getObject(i);
+                    if (blackhole != null) {
+                        blackhole.consume(value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 建测试表并用序列引擎批量生成数据，created_at 上有普通索引
+     */
+    private void createTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS bench_orders (
+                        id BIGINT PRIMARY KEY COMMENT '订单ID',
+                        customer_name VARCHAR(50) NOT NULL COMMENT '客户名称',
+                        amount DECIMAL(10, 2) NOT NULL COMMENT '订单金额',
+                        status VARCHAR(20) NOT NULL COMMENT '订单状态',
+                        remark VARCHAR(500) COMMENT '备注',
+                        created_at DATETIME NOT NULL COMMENT '下单时间',
+                        KEY idx_created_at (created_at)
+                    ) COMMENT='基准测试订单表'""");
+            try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM bench_orders")) {
+                count.next();
+                if (count.getLong(1) > 0) {
+                    return;
+                }
+            }
+            statement.execute("INSERT INTO bench_orders (id, customer_name, amount, status, remark, created_at) "
+                    + "SELECT seq, CONCAT('客户', seq % 1000), seq % 997 + 0.5, ELT(seq % 3 + 1, '已支付', '已发货', '已完成'), "
+                    + "REPEAT('备注', 100), TIMESTAMP '2020-01-01 00:00:00' + INTERVAL seq * 15 MINUTE "
+                    + "FROM seq_1_to_" + ROW_COUNT);
+            statement.execute("ANALYZE TABLE bench_orders");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.text2sql.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.text2sql.benchmark.BenchmarkInputs;
+
+/**
+ * SqlUtils 安全校验与清理基准测试
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlUtilsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SqlInput {
+        @Param({"simple", "join", "unsafe", "inList"})
+        private String sqlType;
+
+        private String sql;
+
+        @Setup
+        public void setup() {
+            sql = switch (sqlType) {
+                case "simple" -> BenchmarkInputs.SIMPLE_SQL;
+                case "join" -> BenchmarkInputs.JOIN_SQL;
+                case "unsafe" -> BenchmarkInputs.UNSAFE_SQL;
+                default -> BenchmarkInputs.largeInListSql(2000);
+            };
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ResponseInput {
+        @Param({"step4", "large", "pathological", "noSql"})
+        private String responseType;
+
+        private String response;
+
+        @Setup
+        public void setup() {
+            response = switch (responseType) {
+                case "step4" -> BenchmarkInputs.STEP4_RESPONSE;
+                case "large" -> BenchmarkInputs.largeLlmResponse(50 * 1024);
+                case "pathological" -> BenchmarkInputs.pathologicalResponse(50 * 1024);
+                default -> BenchmarkInputs.responseWithoutSql(50 * 1024);
+            };
+        }
+    }
+
+    @Benchmark
+    public boolean isSqlSafe(SqlInput input) {
+        return SqlUtils.isSqlSafe(input.sql);
+    }
+
+    @Benchmark
+    public String getSecurityError(SqlInput input) {
+        return SqlUtils.getSecurityError(input.sql);
+    }
+
+    @Benchmark
+    public String cleanSql(ResponseInput input) {
+        return SqlUtils.cleanSql(input.response);
+    }
+}
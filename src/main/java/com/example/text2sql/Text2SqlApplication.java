@@ -2,6 +2,8 @@ package com.example.text2sql;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Spring AI Text2SQL 应用主类
@@ -12,6 +14,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * - 提供 Web 界面进行交互
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class Text2SqlApplication {
 
     public static void main(String[] args) {
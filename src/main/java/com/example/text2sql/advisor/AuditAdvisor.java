@@ -0,0 +1,66 @@
+package com.example.text2sql.advisor;
+
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.core.Ordered;
+
+import com.example.text2sql.service.audit.AuditLog;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 审计 Advisor
+ * 把每次调用的提示词和回复交给 {@link AuditLog} 异步写入审计文件，请求线程上不做格式化
+ * 只在 text2sql.audit.enabled 开启时加入 Advisor 链，紧跟在指标 Advisor 之后
+ */
+public class AuditAdvisor implements CallAdvisor, StreamAdvisor {
+
+	private final String profile;
+
+	private final AuditLog auditLog;
+
+	public AuditAdvisor(String profile, AuditLog auditLog) {
+		this.profile = profile;
+		this.auditLog = auditLog;
+	}
+
+	@Override
+	public String getName() {
+		return this.getClass().getSimpleName();
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 1;
+	}
+
+	@Override
+	public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain chain) {
+		long start = System.nanoTime();
+		ChatClientResponse chatClientResponse;
+		try {
+			chatClientResponse = chain.nextCall(chatClientRequest);
+		} catch (RuntimeException e) {
+			auditLog.record(profile, chatClientRequest.prompt(), null, System.nanoTime() - start, e);
+			throw e;
+		}
+		auditLog.record(profile, chatClientRequest.prompt(), chatClientResponse.chatResponse(),
+				System.nanoTime() - start, null);
+		return chatClientResponse;
+	}
+
+	@Override
+	public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain chain) {
+		long start = System.nanoTime();
+		Flux<ChatClientResponse> chatClientResponseFlux = chain.nextStream(chatClientRequest)
+				.doOnError(e -> auditLog.record(profile, chatClientRequest.prompt(), null, System.nanoTime() - start, e));
+		return (new ChatClientMessageAggregator()).aggregateChatClientResponse(chatClientResponseFlux,
+				response -> auditLog.record(profile, chatClientRequest.prompt(), response.chatResponse(),
+						System.nanoTime() - start, null));
+	}
+}
@@ -15,7 +15,7 @@ import reactor.core.publisher.Flux;
 
 /**
  * 自定义日志 Advisor
- * 打印 info 级别日志、只输出单次用户提示词和 AI 回复的文本
+ * info 级别每次调用只打一行 Token 统计；提示词和回复全文只在 debug 级别输出，需要留存时使用审计日志（text2sql.audit）
  */
 @Slf4j
 public class MyLoggerAdvisor implements CallAdvisor, StreamAdvisor {
@@ -31,22 +31,26 @@ public class MyLoggerAdvisor implements CallAdvisor, StreamAdvisor {
 	}
 
 	private ChatClientRequest before(ChatClientRequest request) {
-		log.info("AI Request: {}", request.prompt());
+		if (log.isDebugEnabled()) {
+			log.debug("AI Request: {}", request.prompt());
+		}
 		return request;
 	}
 
 	private void observeAfter(ChatClientResponse chatClientResponse) {
-		log.info("AI Response: {}", chatClientResponse.chatResponse().getResult().getOutput().getText());
-		// 从响应中提取元数据
+		if (chatClientResponse.chatResponse() == null) {
+			return;
+		}
+		if (log.isDebugEnabled() && chatClientResponse.chatResponse().getResult() != null) {
+			log.debug("AI Response: {}", chatClientResponse.chatResponse().getResult().getOutput().getText());
+		}
+		// 从响应元数据中读取 Token 数量
 		ChatResponseMetadata metadata = chatClientResponse.chatResponse().getMetadata();
-
-		// 获取 Usage 对象（包含 Token 信息）
 		Usage usage = metadata.getUsage();
-
-		// 读取具体的 Token 数量
-		log.info("提示词 Token (Input): " + usage.getPromptTokens());
-		log.info("生成内容 Token (Output): " + usage.getCompletionTokens());
-		log.info("总 Token 消耗: " + usage.getTotalTokens());
+		if (usage != null && log.isInfoEnabled()) {
+			log.info("Token 消耗: 输入 {}，输出 {}，命中缓存 {}，合计 {}", usage.getPromptTokens(),
+					usage.getCompletionTokens(), ProfileMetricsAdvisor.cachedTokens(usage), usage.getTotalTokens());
+		}
 	}
 
 	@Override
@@ -0,0 +1,117 @@
+package com.example.text2sql.advisor;
+
+import org.springframework.ai.chat.client.ChatClientMessageAggregator;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.core.Ordered;
+
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+
+/**
+ * 按模型调用配置统计的指标 Advisor
+ * 排在 Advisor 链最外层，记录整次调用（含工具调用轮次）的耗时和 Token 消耗：
+ * text2sql.chat.duration（profile、success）和 text2sql.chat.tokens（profile、type 为 prompt / completion / cached）
+ * cached 为输入中命中模型服务前缀缓存的部分，已包含在 prompt 中
+ * 同步调用同时记为请求耗时追踪中的一个 llm 节点，工具调用和查询是它的子节点
+ */
+public class ProfileMetricsAdvisor implements CallAdvisor, StreamAdvisor {
+
+	public static final String DURATION_TIMER = "text2sql.chat.duration";
+
+	public static final String TOKEN_COUNTER = "text2sql.chat.tokens";
+
+	private final String profile;
+
+	private final MeterRegistry meterRegistry;
+
+	public ProfileMetricsAdvisor(String profile, MeterRegistry meterRegistry) {
+		this.profile = profile;
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public String getName() {
+		return this.getClass().getSimpleName();
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public ChatClientResponse adviseCall(ChatClientRequest chatClientRequest, CallAdvisorChain chain) {
+		Timer.Sample sample = Timer.start(meterRegistry);
+		try (TraceSpan span = RequestTrace.span("llm", profile)) {
+			ChatClientResponse chatClientResponse;
+			try {
+				chatClientResponse = chain.nextCall(chatClientRequest);
+			} catch (RuntimeException e) {
+				stop(sample, false);
+				span.attribute("error", e.getMessage());
+				throw e;
+			}
+			stop(sample, true);
+			recordUsage(chatClientResponse, span);
+			return chatClientResponse;
+		}
+	}
+
+	@Override
+	public Flux<ChatClientResponse> adviseStream(ChatClientRequest chatClientRequest, StreamAdvisorChain chain) {
+		Timer.Sample sample = Timer.start(meterRegistry);
+		Flux<ChatClientResponse> chatClientResponseFlux = chain.nextStream(chatClientRequest)
+				.doOnError(e -> stop(sample, false));
+		return (new ChatClientMessageAggregator()).aggregateChatClientResponse(chatClientResponseFlux, response -> {
+			stop(sample, true);
+			recordUsage(response, RequestTrace.current());
+		});
+	}
+
+	private void stop(Timer.Sample sample, boolean success) {
+		sample.stop(meterRegistry.timer(DURATION_TIMER, "profile", profile, "success", String.valueOf(success)));
+	}
+
+	private void recordUsage(ChatClientResponse chatClientResponse, TraceSpan span) {
+		if (chatClientResponse.chatResponse() == null) {
+			return;
+		}
+		Usage usage = chatClientResponse.chatResponse().getMetadata().getUsage();
+		if (usage == null) {
+			return;
+		}
+		increment("prompt", usage.getPromptTokens());
+		increment("completion", usage.getCompletionTokens());
+		increment("cached", cachedTokens(usage));
+		span.attribute("promptTokens", usage.getPromptTokens())
+				.attribute("completionTokens", usage.getCompletionTokens())
+				.attribute("cachedTokens", cachedTokens(usage));
+	}
+
+	/**
+	 * 命中前缀缓存的输入 Token，取自 OpenAI 兼容接口的 prompt_tokens_details.cached_tokens，DeepSeek 同样返回该字段
+	 */
+	public static Integer cachedTokens(Usage usage) {
+		if (usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage && nativeUsage.promptTokensDetails() != null) {
+			return nativeUsage.promptTokensDetails().cachedTokens();
+		}
+		return null;
+	}
+
+	private void increment(String type, Integer tokens) {
+		if (tokens != null && tokens > 0) {
+			meterRegistry.counter(TOKEN_COUNTER, "profile", profile, "type", type).increment(tokens);
+		}
+	}
+}
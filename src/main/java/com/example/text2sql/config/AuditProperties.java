@@ -0,0 +1,60 @@
+package com.example.text2sql.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * 模型调用审计日志配置
+ * 提示词和回复由后台线程写入单独的滚动文件（每行一条 JSON，可 gzip 压缩），不经过应用日志
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.audit")
+public class AuditProperties {
+
+	/**
+	 * 是否记录；关闭时不注册审计 Advisor，请求线程上没有任何开销
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * 审计文件目录
+	 */
+	private String directory = "logs/audit";
+
+	/**
+	 * 采样比例（0 ~ 1），失败的调用总是记录
+	 */
+	private double sampleRate = 1.0;
+
+	/**
+	 * 单条消息或回复保留的最大字符数，超出部分截断，并记录原长度和 SHA-256 摘要
+	 */
+	private int maxBodyChars = 4000;
+
+	/**
+	 * 只记录消息的长度和 SHA-256 摘要，不保存正文
+	 */
+	private boolean hashOnly = false;
+
+	/**
+	 * 是否以 gzip 压缩写入（.jsonl.gz）
+	 */
+	private boolean compress = true;
+
+	/**
+	 * 单个文件写入磁盘的数据量（开启压缩时为压缩后的大小）超过该值后切换到新文件
+	 */
+	private DataSize maxFileSize = DataSize.ofMegabytes(100);
+
+	/**
+	 * 最多保留的文件数，超出时删除最早的
+	 */
+	private int maxFiles = 10;
+
+	/**
+	 * 等待写入的记录数上限，写入跟不上时丢弃新记录并计入 text2sql.audit.dropped
+	 */
+	private int queueCapacity = 10000;
+}
@@ -0,0 +1,25 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 批量查询配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.batch")
+public class BatchProperties {
+
+	/**
+	 * 单次批量请求允许的最大问题数
+	 */
+	private int maxQueries = 500;
+
+	/**
+	 * 整个批量请求的超时时间
+	 */
+	private Duration timeout = Duration.ofMinutes(30);
+}
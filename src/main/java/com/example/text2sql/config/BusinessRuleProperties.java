@@ -0,0 +1,26 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 业务规则配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.rules")
+public class BusinessRuleProperties {
+
+	/**
+	 * 规则文件目录，目录下 default.yml 为通用规则，{数据源名称}.yml 为数据源专属规则；
+	 * 支持 classpath: 和 file: 前缀
+	 */
+	private String location = "classpath:rules/";
+
+	/**
+	 * 规则文件变更检查间隔，修改规则文件后无需重启
+	 */
+	private Duration reloadInterval = Duration.ofSeconds(10);
+}
@@ -1,13 +1,23 @@
 package com.example.text2sql.config;
 
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
-import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.tool.execution.ToolExecutionExceptionProcessor;
+import org.springframework.ai.tool.resolution.ToolCallbackResolver;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import com.example.text2sql.advisor.MyLoggerAdvisor;
+import com.example.text2sql.service.audit.AuditLog;
+import com.example.text2sql.service.chat.ChatClientProfiles;
 import com.example.text2sql.service.tool.DatabaseTool;
+import com.example.text2sql.service.tool.ParallelToolCallingManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 
 /**
  * ChatClient配置类
@@ -18,16 +28,30 @@ import com.example.text2sql.service.tool.DatabaseTool;
 @Configuration
 public class ChatClientConfig {
 	/**
-	 * 配置 ChatClient Bean
+	 * 按步骤和服务区分的 ChatClient，配置见 text2sql.chat.profiles
+	 * 原来所有调用共用的 mcpChatClient（全部工具 + MyLoggerAdvisor）即未配置名称时的默认配置
 	 */
 	@Bean
-	public ChatClient chatClient(OpenAiChatModel chatModel) {
-		return ChatClient.builder(chatModel).defaultAdvisors(new SimpleLoggerAdvisor()).build();
+	public ChatClientProfiles chatClientProfiles(ObjectProvider<ChatClient.Builder> chatClientBuilders,
+			DatabaseTool databaseTool, ChatProfileProperties properties, MeterRegistry meterRegistry,
+			AuditLog auditLog) {
+		return new ChatClientProfiles(chatClientBuilders, databaseTool, properties, meterRegistry, auditLog);
 	}
 
-	@Bean("mcpChatClient")
-	public ChatClient mcpChatClient(ChatClient.Builder chatClientBuilder, DatabaseTool databaseTool) {
-		//return chatClientBuilder.defaultAdvisors(new MyLoggerAdvisor(), new ReReadingAdvisor()).defaultTools(databaseTool).build();
-		return chatClientBuilder.defaultAdvisors(new MyLoggerAdvisor()).defaultTools(databaseTool).build();
+	/**
+	 * 替换 Spring AI 默认的 ToolCallingManager：同一轮的多个工具调用在 toolExecutor 中并发执行，
+	 * 单个调用的查找、观测和异常处理仍由默认实现完成
+	 */
+	@Bean
+	public ToolCallingManager toolCallingManager(ToolCallbackResolver toolCallbackResolver,
+			ToolExecutionExceptionProcessor toolExecutionExceptionProcessor,
+			ObjectProvider<ObservationRegistry> observationRegistry,
+			@Qualifier("toolExecutor") ThreadPoolTaskExecutor toolExecutor) {
+		ToolCallingManager delegate = DefaultToolCallingManager.builder()
+				.observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+				.toolCallbackResolver(toolCallbackResolver)
+				.toolExecutionExceptionProcessor(toolExecutionExceptionProcessor)
+				.build();
+		return new ParallelToolCallingManager(delegate, toolExecutor);
 	}
 }
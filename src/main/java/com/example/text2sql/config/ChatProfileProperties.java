@@ -0,0 +1,85 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 模型调用配置：每个步骤和服务使用一个命名配置，分别指定模型、温度、输出上限、工具和 Advisor 链
+ * 配置名为 step1 ~ step5、mcp、direct、batch、route、federation，未配置的名称沿用 {@link Profile} 的默认值
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.chat")
+public class ChatProfileProperties {
+
+	/**
+	 * 配置名 -> 模型调用配置
+	 */
+	private Map<String, Profile> profiles = new LinkedHashMap<>();
+
+	@Data
+	public static class Profile {
+
+		/**
+		 * 模型名称，为空时沿用 spring.ai.openai.chat.options.model
+		 */
+		private String model;
+
+		/**
+		 * 温度，为空时沿用全局配置
+		 */
+		private Double temperature;
+
+		/**
+		 * 单次回复最多生成的 Token 数，为空时不限制
+		 */
+		private Integer maxTokens;
+
+		/**
+		 * 可用的 DatabaseTool 工具名，* 表示全部，none 表示不注册工具
+		 */
+		private List<String> tools = new ArrayList<>(List.of("*"));
+
+		/**
+		 * 单次调用中工具调用的最大轮次，同一轮并发执行的多个调用算一轮；超过后中止本次调用
+		 */
+		private int maxToolIterations = 5;
+
+		/**
+		 * 单次调用的时间预算，从调用开始计算，执行或等待工具调用时超出即中止本次调用
+		 */
+		private Duration toolBudget = Duration.ofSeconds(60);
+
+		/**
+		 * Advisor 链，按顺序执行：logger（单行日志和 Token 统计）、simple-logger（Spring AI 调试日志）、
+		 * re2（重读问题，提示词长度翻倍）
+		 */
+		private List<String> advisors = new ArrayList<>(List.of("logger"));
+
+		/**
+		 * 结构化输出方式，只影响按类型返回结果的步骤
+		 */
+		private OutputFormat outputFormat = OutputFormat.TEXT;
+	}
+
+	public enum OutputFormat {
+		/**
+		 * 在提示词末尾附上 JSON Schema，模型按普通文本回复
+		 */
+		TEXT,
+		/**
+		 * 附上 JSON Schema 并开启 JSON 模式（response_format=json_object），DeepSeek 支持
+		 */
+		JSON_OBJECT,
+		/**
+		 * 由模型按 JSON Schema 约束输出（response_format=json_schema），提示词中不再附 Schema，需要模型支持
+		 */
+		JSON_SCHEMA
+	}
+}
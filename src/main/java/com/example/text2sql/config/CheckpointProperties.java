@@ -0,0 +1,25 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 分步流水线检查点配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.checkpoint")
+public class CheckpointProperties {
+
+	/**
+	 * 最多保留的运行记录数，超过后淘汰最久未使用的
+	 */
+	private long maxRuns = 1000;
+
+	/**
+	 * 运行记录在最后一次读写后的保留时间
+	 */
+	private Duration ttl = Duration.ofMinutes(30);
+}
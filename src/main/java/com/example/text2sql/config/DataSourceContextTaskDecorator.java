@@ -0,0 +1,26 @@
+package com.example.text2sql.config;
+
+import org.springframework.core.task.TaskDecorator;
+
+import com.example.text2sql.service.trace.RequestTrace;
+
+/**
+ * 数据源上下文传递装饰器
+ * 提交任务时捕获当前线程的数据源名称和请求耗时追踪的当前节点，在工作线程中执行时恢复
+ */
+public class DataSourceContextTaskDecorator implements TaskDecorator {
+
+	@Override
+	public Runnable decorate(Runnable runnable) {
+		Runnable traced = RequestTrace.wrap(runnable);
+		String dataSourceName = DataSourceRouter.getDataSource();
+		if (dataSourceName == null) {
+			return traced;
+		}
+		return () -> {
+			try (DataSourceRouter.DataSourceContext ignored = DataSourceRouter.withDataSource(dataSourceName)) {
+				traced.run();
+			}
+		};
+	}
+}
@@ -2,6 +2,11 @@ package com.example.text2sql.config;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -21,6 +26,10 @@ public class DataSourceRouter {
 	public static final String DATASOURCE_TEXT2SQL_DB = "text2sql-db";
 	public static final String DATASOURCE_READ = "read";
 
+	// 可按名称路由的数据源
+	public static final List<String> DATASOURCE_NAMES = List.of(DATASOURCE_TICKET_DISTRIBUTION, DATASOURCE_TICKET_BOOKING,
+			DATASOURCE_TEXT2SQL_DB);
+
 	// 数据源别名常量
 	public static final String ALIAS_DISTRIBUTION = "distribution";
 	public static final String ALIAS_PRIMARY = "primary";
@@ -53,10 +62,30 @@ public class DataSourceRouter {
 	 */
 	public static void setDataSource(String dataSourceName) {
 		dataSourceName = StringUtils.defaultIfBlank(dataSourceName, DATASOURCE_TEXT2SQL_DB);
-		log.info("查询数据源：{}", dataSourceName);
+		log.debug("查询数据源：{}", dataSourceName);
 		DATASOURCE_CONTEXT.set(dataSourceName);
 	}
 
+	/**
+	 * 校验一组数据源名称，去重并保持顺序；为空时返回全部数据源
+	 * 未知名称直接报错，不像单数据源查询那样回退到分销数据源
+	 */
+	public static List<String> requireDataSources(List<String> dataSourceNames) {
+		if (dataSourceNames == null || dataSourceNames.isEmpty()) {
+			return DATASOURCE_NAMES;
+		}
+		Set<String> names = new LinkedHashSet<>();
+		for (String dataSourceName : dataSourceNames) {
+			String name = StringUtils.trimToEmpty(dataSourceName).toLowerCase(Locale.ROOT);
+			if (!DATASOURCE_NAMES.contains(name)) {
+				throw new IllegalArgumentException("不支持的数据源: " + dataSourceName + "，可选 "
+						+ String.join(" / ", DATASOURCE_NAMES));
+			}
+			names.add(name);
+		}
+		return List.copyOf(names);
+	}
+
 	/**
 	 * 获取当前线程的数据源名称
 	 */
@@ -96,7 +125,7 @@ public class DataSourceRouter {
 	 */
 	public JdbcTemplate getCurrentDataSource() {
 		String dataSourceName = DATASOURCE_CONTEXT.get();
-		log.info("dataSourceName：{}", dataSourceName);
+		log.debug("dataSourceName：{}", dataSourceName);
 		if (dataSourceName == null || dataSourceName.trim().isEmpty()) {
 			// 如果没有设置数据源，默认使用分销数据源
 			return ticketDistributionJdbcTemplate;
@@ -0,0 +1,64 @@
+package com.example.text2sql.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 线程池配置类
+ * LLM 调用与 SQL 执行使用独立线程池，便于两类任务流水线式重叠执行
+ */
+@Configuration
+public class ExecutorConfig {
+
+	/**
+	 * LLM 调用线程池，并发度即允许同时在途的模型请求数
+	 */
+	@Bean("llmExecutor")
+	public ThreadPoolTaskExecutor llmExecutor(ExecutorProperties properties) {
+		return createExecutor("llm-", properties.getLlmConcurrency(), properties.getQueueCapacity());
+	}
+
+	/**
+	 * SQL 执行线程池
+	 */
+	@Bean("sqlExecutor")
+	public ThreadPoolTaskExecutor sqlExecutor(ExecutorProperties properties) {
+		return createExecutor("sql-", properties.getSqlConcurrency(), properties.getQueueCapacity());
+	}
+
+	/**
+	 * 工具调用线程池，执行模型同一轮返回的多个工具调用
+	 */
+	@Bean("toolExecutor")
+	public ThreadPoolTaskExecutor toolExecutor(ExecutorProperties properties) {
+		return createExecutor("tool-", properties.getToolConcurrency(), properties.getQueueCapacity());
+	}
+
+	/**
+	 * 流水线阶段线程池，阶段在其中等待模型调用或执行 SQL
+	 */
+	@Bean("stageExecutor")
+	public ThreadPoolTaskExecutor stageExecutor(ExecutorProperties properties) {
+		return createExecutor("stage-", properties.getStageConcurrency(), properties.getQueueCapacity());
+	}
+
+	/**
+	 * 多数据源分支线程池，分支在其中等待本数据源流水线的各阶段完成，与阶段线程池分开以免互相占满
+	 */
+	@Bean("fanOutExecutor")
+	public ThreadPoolTaskExecutor fanOutExecutor(ExecutorProperties properties) {
+		return createExecutor("fanout-", properties.getFanOutConcurrency(), properties.getQueueCapacity());
+	}
+
+	private ThreadPoolTaskExecutor createExecutor(String threadNamePrefix, int concurrency, int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix(threadNamePrefix);
+		executor.setCorePoolSize(concurrency);
+		executor.setMaxPoolSize(concurrency);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setTaskDecorator(new DataSourceContextTaskDecorator());
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		return executor;
+	}
+}
@@ -0,0 +1,44 @@
+package com.example.text2sql.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 线程池配置
+ * 控制 LLM 调用、SQL 执行、工具调用、流水线阶段和多数据源分支各自的并发度
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.executor")
+public class ExecutorProperties {
+
+	/**
+	 * 同时进行的 LLM 调用数量上限
+	 */
+	private int llmConcurrency = 4;
+
+	/**
+	 * 同时执行的 SQL 查询数量上限
+	 */
+	private int sqlConcurrency = 8;
+
+	/**
+	 * 同时执行的工具调用数量上限，模型同一轮返回的多个工具调用在该线程池中并发执行
+	 */
+	private int toolConcurrency = 4;
+
+	/**
+	 * 同时执行的流水线阶段数量上限，各请求中互不依赖的阶段在该线程池中并发执行
+	 */
+	private int stageConcurrency = 8;
+
+	/**
+	 * 同时执行的多数据源分支数量上限，每个分支在一个数据源上跑完整条流水线
+	 */
+	private int fanOutConcurrency = 4;
+
+	/**
+	 * 等待执行的任务队列容量
+	 */
+	private int queueCapacity = 1000;
+}
@@ -0,0 +1,20 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 多数据源并行查询配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.fan-out")
+public class FanOutProperties {
+
+	/**
+	 * 单个数据源分支的超时时间，超时的分支记为失败，不影响其他分支的结果
+	 */
+	private Duration branchTimeout = Duration.ofSeconds(120);
+}
@@ -0,0 +1,39 @@
+package com.example.text2sql.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * 跨数据源关联查询配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.federation")
+public class FederationProperties {
+
+	/**
+	 * 哈希关联构建侧在内存中占用的上限（按行估算），超出后把两侧按关联键分区写入临时文件，逐个分区关联
+	 */
+	private DataSize memoryBudget = DataSize.ofMegabytes(64);
+
+	/**
+	 * 溢写时的分区数
+	 */
+	private int spillPartitions = 16;
+
+	/**
+	 * 单个分区仍超出内存上限时重新分区的最大层数，超过后该分区直接在内存中关联
+	 */
+	private int maxSpillDepth = 3;
+
+	/**
+	 * 溢写文件目录，为空时使用系统临时目录
+	 */
+	private String spillDirectory;
+
+	/**
+	 * 子查询的 JDBC fetchSize；MySQL Connector/J 取 Integer.MIN_VALUE 时逐行流式读取，不把整个结果集读入内存
+	 */
+	private int fetchSize = Integer.MIN_VALUE;
+}
@@ -0,0 +1,83 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 模型调用对冲配置
+ * 调用超过该配置历史耗时的分位数仍未返回时，再发一次相同请求，先返回的结果生效，另一个取消
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.hedging")
+public class HedgingProperties {
+
+	/**
+	 * 是否开启对冲请求
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * 参与对冲的模型调用配置名
+	 */
+	private List<String> profiles = new ArrayList<>(List.of("step1", "step2", "step3", "step4"));
+
+	/**
+	 * 对冲阈值取该配置最近耗时的分位数，如 0.9 表示等待超过 P90 耗时后发出对冲请求
+	 */
+	private double percentile = 0.9;
+
+	/**
+	 * 每个配置保留的最近耗时样本数
+	 */
+	private int window = 200;
+
+	/**
+	 * 样本数达到该值后才按分位数计算阈值，之前使用 initial-delay
+	 */
+	private int minSamples = 20;
+
+	/**
+	 * 样本不足时的对冲阈值
+	 */
+	private Duration initialDelay = Duration.ofSeconds(10);
+
+	/**
+	 * 对冲阈值下限，避免耗时很短的调用频繁对冲
+	 */
+	private Duration minDelay = Duration.ofMillis(500);
+
+	/**
+	 * 额外请求预算：每次调用积累该比例的额度，每个对冲请求或推测候选消耗 1，如 0.1 表示额外请求不超过约 10%
+	 */
+	private double budgetRatio = 0.1;
+
+	/**
+	 * 额度上限，也是启动时的初始额度，允许短时间内集中对冲
+	 */
+	private double budgetBurst = 10;
+
+	/**
+	 * 步骤4推测生成
+	 */
+	private Speculative speculative = new Speculative();
+
+	@Data
+	public static class Speculative {
+
+		/**
+		 * 是否开启：步骤4同时生成多个 SQL 候选，取第一个通过校验和 EXPLAIN 的结果；
+		 * 候选之间的差异来自采样，step4 的 temperature 不宜为 0
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * 候选数，除第一个外每个候选消耗 1 个额度，额度不足时减少候选
+		 */
+		private int candidates = 3;
+	}
+}
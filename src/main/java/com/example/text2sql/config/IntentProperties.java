@@ -0,0 +1,36 @@
+package com.example.text2sql.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 问题意图预过滤配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.intent")
+public class IntentProperties {
+
+	/**
+	 * 是否在调用模型前用本地分类器拒绝明显的非数据库问题
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * 是数据库问题的置信度低于该值时直接拒绝，其余交给模型判断
+	 */
+	private double rejectBelow = 0.2;
+
+	/**
+	 * 额外的查询意图词，补充内置词表
+	 */
+	private List<String> intentKeywords = new ArrayList<>();
+
+	/**
+	 * 额外的闲聊、领域外词，补充内置词表
+	 */
+	private List<String> noiseKeywords = new ArrayList<>();
+}
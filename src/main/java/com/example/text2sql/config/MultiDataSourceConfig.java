@@ -58,7 +58,7 @@ public class MultiDataSourceConfig {
     @Bean
     @Primary
     public JdbcTemplate primaryJdbcTemplate() {
-        return new JdbcTemplate(primaryDataSource());
+        return new TracingJdbcTemplate(primaryDataSource());
     }
 
     /**
@@ -66,7 +66,7 @@ public class MultiDataSourceConfig {
      */
     @Bean(name = "ticketDistributionJdbcTemplate")
     public JdbcTemplate ticketDistributionJdbcTemplate() {
-        return new JdbcTemplate(ticketDistributionDataSource());
+        return new TracingJdbcTemplate(ticketDistributionDataSource());
     }
 
     /**
@@ -74,7 +74,7 @@ public class MultiDataSourceConfig {
      */
     @Bean(name = "ticketBookingJdbcTemplate")
     public JdbcTemplate ticketBookingJdbcTemplate() {
-        return new JdbcTemplate(ticketBookingDataSource());
+        return new TracingJdbcTemplate(ticketBookingDataSource());
     }
 
     /**
@@ -82,6 +82,6 @@ public class MultiDataSourceConfig {
      */
     @Bean(name = "text2sqlDbJdbcTemplate")
     public JdbcTemplate text2sqlDbJdbcTemplate() {
-        return new JdbcTemplate(text2sqlDbDataSource());
+        return new TracingJdbcTemplate(text2sqlDbDataSource());
     }
 }
\ No newline at end of file
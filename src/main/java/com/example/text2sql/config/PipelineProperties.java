@@ -0,0 +1,36 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 流水线阶段配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.pipeline")
+public class PipelineProperties {
+
+	/**
+	 * 阶段名 -> 阶段结果缓存，未配置的阶段不缓存；只有声明了缓存键的阶段可以缓存
+	 */
+	private Map<String, StageCache> cache = new LinkedHashMap<>();
+
+	@Data
+	public static class StageCache {
+
+		/**
+		 * 最多缓存的结果数，为 0 时不缓存
+		 */
+		private long maximumSize = 0;
+
+		/**
+		 * 结果写入后的保留时间
+		 */
+		private Duration ttl = Duration.ofMinutes(10);
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 提示词模板配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.prompt")
+public class PromptProperties {
+
+	/**
+	 * 提示词模板目录，启动时加载目录下全部 .txt 文件；支持 classpath: 和 file: 前缀
+	 * 开发时可指向 file:src/main/resources/prompts/，修改源文件即生效
+	 */
+	private String location = "classpath:prompts/";
+
+	/**
+	 * 是否检查模板文件变更并重新编译，生产环境模板随程序发布，默认关闭
+	 */
+	private boolean hotReload = false;
+
+	/**
+	 * 模板文件变更检查间隔
+	 */
+	private Duration reloadInterval = Duration.ofSeconds(2);
+}
@@ -0,0 +1,38 @@
+package com.example.text2sql.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 查询路由配置：简单问题走直连单次生成，复杂问题走分步流水线
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.routing")
+public class RoutingProperties {
+
+	/**
+	 * 是否按问题复杂度自动选择路径，关闭后全部走分步流水线
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * 复杂度得分达到该值时走分步流水线
+	 */
+	private int complexityThreshold = 3;
+
+	/**
+	 * 直连路径最多涉及的表数，超过时按多表关联计分
+	 */
+	private int maxDirectTables = 1;
+
+	/**
+	 * 直连路径失败时是否改走分步流水线
+	 */
+	private boolean fallbackToPipeline = true;
+
+	/**
+	 * 得分与阈值相差不超过 1 时是否再让模型判断一次
+	 */
+	private boolean modelClassifier = false;
+}
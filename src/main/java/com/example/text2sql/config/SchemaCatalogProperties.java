@@ -0,0 +1,59 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Schema 目录缓存与表统计配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.schema")
+public class SchemaCatalogProperties {
+
+	/**
+	 * 每个数据源表清单的缓存时间
+	 */
+	private Duration cacheTtl = Duration.ofMinutes(10);
+
+	/**
+	 * 表统计与取值字典
+	 */
+	private Statistics statistics = new Statistics();
+
+	@Data
+	public static class Statistics {
+
+		/**
+		 * 是否采集表统计并注入步骤3、4的提示词
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * 后台增量刷新间隔，只重新采样创建时间、更新时间或行数有变化的表
+		 */
+		private Duration refreshInterval = Duration.ofMinutes(10);
+
+		/**
+		 * 不同取值不超过该数量的列视为枚举类列，记录其全部取值
+		 */
+		private int maxDistinctValues = 20;
+
+		/**
+		 * 取值长度上限，超过的列视为自由文本不记录
+		 */
+		private int maxValueLength = 32;
+
+		/**
+		 * 每列采样的行数上限，大表只统计前若干行
+		 */
+		private int sampleRows = 10_000;
+
+		/**
+		 * 参与采样的字符列最大定义长度，如 varchar(64)
+		 */
+		private int maxColumnLength = 64;
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.text2sql.config;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 分片表配置：按数据源声明哪些逻辑表按日期水平拆分，以及各分片所在的数据源和表名
+ * 逻辑表需在所属数据源中存在同结构的表（可以是空的模板表），表结构、提示词和 SQL 校验都以它为准
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.sharding")
+public class ShardingProperties {
+
+	/**
+	 * 分片表
+	 */
+	private List<ShardedTable> tables = new ArrayList<>();
+
+	/**
+	 * 单条查询裁剪后最多访问的分片数，超出时拒绝执行，避免缺少时间条件的查询扫遍所有分片
+	 */
+	private int maxShards = 64;
+
+	/**
+	 * 等待分片返回下一行的超时
+	 */
+	private Duration queryTimeout = Duration.ofSeconds(60);
+
+	/**
+	 * 分片查询的 JDBC fetchSize；MySQL Connector/J 取 Integer.MIN_VALUE 时逐行流式读取
+	 */
+	private int fetchSize = Integer.MIN_VALUE;
+
+	@Data
+	public static class ShardedTable {
+
+		/**
+		 * 逻辑表所属的数据源，查询在该数据源上生成时才按分片执行
+		 */
+		private String dataSource;
+
+		/**
+		 * 逻辑表名
+		 */
+		private String table;
+
+		/**
+		 * 分片依据的日期列，WHERE 中该列的范围条件用于裁剪分片
+		 */
+		private String column;
+
+		/**
+		 * 分片范围，按时间顺序排列且互不重叠
+		 */
+		private List<ShardRange> shards = new ArrayList<>();
+	}
+
+	@Data
+	public static class ShardRange {
+
+		/**
+		 * 分片所在的数据源
+		 */
+		private String dataSource;
+
+		/**
+		 * 分片表名，可以包含 {yyyyMM}（按月分表）或 {yyyy}（按年分表），不含占位符时整个范围是一张表
+		 */
+		private String table;
+
+		/**
+		 * 起始月份（包含）
+		 */
+		private YearMonth from;
+
+		/**
+		 * 结束月份（包含）
+		 */
+		private YearMonth to;
+	}
+}
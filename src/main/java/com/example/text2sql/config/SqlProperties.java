@@ -0,0 +1,33 @@
+package com.example.text2sql.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * SQL 解析与改写配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.sql")
+public class SqlProperties {
+
+	/**
+	 * 解析结果缓存的最大条目数，按 SQL 指纹缓存
+	 */
+	private long parseCacheSize = 10_000;
+
+	/**
+	 * 单条查询允许返回的最大行数，未写 LIMIT 或 LIMIT 超出时自动改写
+	 */
+	private int maxRows = 1000;
+
+	/**
+	 * 单条 SQL 解析超时时间（毫秒），防止异常语句拖住线程
+	 */
+	private long parseTimeoutMillis = 2000;
+
+	/**
+	 * 是否把 SELECT * 展开为问题需要的列，只展开能确定列清单的表
+	 */
+	private boolean expandSelectAll = true;
+}
@@ -0,0 +1,18 @@
+package com.example.text2sql.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 时间表达式处理配置
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.temporal")
+public class TemporalProperties {
+
+	/**
+	 * 生成的 SQL 没有按选中表的任何日期列筛选时，是否在识别出的日期列上追加时间范围条件
+	 */
+	private boolean injectPredicate = true;
+}
@@ -0,0 +1,60 @@
+package com.example.text2sql.config;
+
+import java.util.Collection;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+
+/**
+ * 记录请求耗时追踪的 JdbcTemplate
+ * 各种 query / queryForList 最终经过静态 SQL 和预编译语句两个 query 方法，在这里把每次查询记为一个 jdbc 节点，
+ * 带上 SQL 和返回行数；应用只做查询，更新语句不记录
+ */
+public class TracingJdbcTemplate extends JdbcTemplate {
+
+	private static final int MAX_SQL_LENGTH = 500;
+
+	public TracingJdbcTemplate(DataSource dataSource) {
+		super(dataSource);
+	}
+
+	@Override
+	public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+		try (TraceSpan span = span(sql)) {
+			return rows(span, super.query(sql, rse));
+		}
+	}
+
+	@Override
+	public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse)
+			throws DataAccessException {
+		try (TraceSpan span = span(psc instanceof SqlProvider provider ? provider.getSql() : null)) {
+			return rows(span, super.query(psc, pss, rse));
+		}
+	}
+
+	private static TraceSpan span(String sql) {
+		TraceSpan span = RequestTrace.span("jdbc", "query");
+		if (sql != null) {
+			String text = sql.replaceAll("\\s+", " ").trim();
+			span.attribute("sql", text.length() > MAX_SQL_LENGTH ? text.substring(0, MAX_SQL_LENGTH) + "..." : text);
+		}
+		return span;
+	}
+
+	private static <T> T rows(TraceSpan span, T result) {
+		if (result instanceof Collection<?> rows) {
+			span.attribute("rows", rows.size());
+		}
+		return result;
+	}
+}
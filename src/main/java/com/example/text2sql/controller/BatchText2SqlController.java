@@ -0,0 +1,93 @@
+package com.example.text2sql.controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.text2sql.config.BatchProperties;
+import com.example.text2sql.service.BatchText2SqlService;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 批量 Text2SQL 控制器
+ * 以 Server-Sent Events 按完成顺序推送每个问题的结果
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class BatchText2SqlController {
+
+    private final BatchText2SqlService batchText2SqlService;
+    private final BatchProperties batchProperties;
+
+    /**
+     * 处理批量查询请求
+     * 每个问题完成后推送一个 item 事件，全部完成后推送 done 事件
+     *
+     * @param request 批量查询请求
+     * @return SSE 事件流
+     */
+    @PostMapping(value = "/api/batch/query", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter queryBatch(@RequestBody BatchQueryRequest request) {
+        List<String> queries = request.getQueries();
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("查询列表不能为空");
+        }
+        if (queries.size() > batchProperties.getMaxQueries()) {
+            throw new IllegalArgumentException("单次批量查询最多支持 " + batchProperties.getMaxQueries() + " 个问题");
+        }
+
+        SseEmitter emitter = new SseEmitter(batchProperties.getTimeout().toMillis());
+        AtomicInteger successCount = new AtomicInteger();
+
+        batchText2SqlService.processBatch(request.getDataSource(), queries, item -> {
+            if (item.isSuccess()) {
+                successCount.incrementAndGet();
+            }
+            send(emitter, "item", item);
+        }).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("批量 Text2SQL 查询处理失败", e);
+                emitter.completeWithError(e);
+                return;
+            }
+            send(emitter, "done", Map.of("total", queries.size(), "success", successCount.get(),
+                    "error", queries.size() - successCount.get()));
+            emitter.complete();
+        });
+        return emitter;
+    }
+
+    /**
+     * 推送事件，多个工作线程会并发调用，需要串行化写出
+     */
+    private void send(SseEmitter emitter, String name, Object data) {
+        synchronized (emitter) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                // 客户端断开连接时，后续结果直接丢弃
+                log.warn("推送批量查询结果失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 批量查询请求
+     */
+    @Data
+    public static class BatchQueryRequest {
+        private String dataSource;
+        private List<String> queries;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.text2sql.controller;
+
+import java.util.List;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.chat.ChatProfileUsage;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 模型调用配置控制器
+ */
+@Controller
+@RequiredArgsConstructor
+public class ChatProfileController {
+
+    private final ChatClientProfiles chatClientProfiles;
+
+    /**
+     * 各模型调用配置的设置和自启动以来的调用次数、平均耗时、Token 消耗
+     */
+    @GetMapping("/api/chat/profiles")
+    @ResponseBody
+    public List<ChatProfileUsage> profiles() {
+        return chatClientProfiles.report();
+    }
+}
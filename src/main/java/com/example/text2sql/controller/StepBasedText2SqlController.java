@@ -1,13 +1,27 @@
 package com.example.text2sql.controller;
 
+import com.example.text2sql.service.AdaptiveText2SqlService;
 import com.example.text2sql.service.StepBasedText2SqlService;
 import com.example.text2sql.service.Text2SqlStepResult;
+import com.example.text2sql.service.checkpoint.ResumeRequest;
+import com.example.text2sql.service.fanout.FanOutRequest;
+import com.example.text2sql.service.fanout.FanOutResult;
+import com.example.text2sql.service.fanout.FanOutText2SqlService;
+import com.example.text2sql.service.federation.FederatedQueryService;
+import com.example.text2sql.service.federation.FederatedRequest;
+import com.example.text2sql.service.federation.FederatedResult;
+import com.example.text2sql.service.route.QueryRoute;
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 基于步骤的 Text2SQL 控制器
@@ -18,8 +32,14 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class StepBasedText2SqlController {
 
+    private final AdaptiveText2SqlService adaptiveText2SqlService;
+
     private final StepBasedText2SqlService stepBasedText2SqlService;
 
+    private final FanOutText2SqlService fanOutText2SqlService;
+
+    private final FederatedQueryService federatedQueryService;
+
     /**
      * 显示步骤化 Text2SQL 页面
      *
@@ -32,24 +52,123 @@ public class StepBasedText2SqlController {
 
     /**
      * 处理步骤化查询请求
+     * 默认按问题复杂度自动选择直连或分步流水线，mode 为 direct / pipeline 时强制使用指定路径
      *
      * @param request 查询请求
-     * @return 包含5个步骤的查询结果
+     * @return 包含5个步骤的查询结果，直连路径只有步骤4和步骤5
      */
     @PostMapping("/api/steps/query")
     @ResponseBody
-    public Text2SqlStepResult queryWithSteps(@RequestBody Map<String, String> request) {
+    public Text2SqlStepResult queryWithSteps(@RequestBody Map<String, String> request, HttpServletResponse response) {
         String query = request.get("query");
 
         if (query == null || query.trim().isEmpty()) {
             throw new RuntimeException("查询内容不能为空");
         }
 
+        return traced("steps", response, () -> {
+            try {
+                return adaptiveText2SqlService.processQuery(query, parseMode(request.get("mode")));
+            } catch (Exception e) {
+                log.error("步骤化 Text2SQL 查询处理失败", e);
+                throw new RuntimeException("查询处理失败" + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 在多个数据源上并行处理同一个问题，每个数据源各跑一遍分步流水线
+     *
+     * @param request 查询请求，dataSources 为空时查询全部数据源
+     * @return 各数据源分支的结果
+     */
+    @PostMapping("/api/steps/fan-out")
+    @ResponseBody
+    public FanOutResult fanOut(@RequestBody FanOutRequest request, HttpServletResponse response) {
+        if (request.query() == null || request.query().trim().isEmpty()) {
+            throw new IllegalArgumentException("查询内容不能为空");
+        }
+        FanOutResult result;
+        TraceSpan trace = RequestTrace.start("fan-out");
+        try (trace) {
+            result = fanOutText2SqlService.processQuery(request.query(), request.dataSources());
+        }
+        result.setTiming(trace);
+        response.setHeader(RequestTrace.SERVER_TIMING_HEADER, RequestTrace.serverTiming(trace));
+        return result;
+    }
+
+    /**
+     * 跨数据源关联查询：模型为两个数据源各生成一条子查询，关联、聚合和排序在本地完成
+     *
+     * @param request 查询请求，dataSources 为空时提供全部数据源的表结构
+     * @return 查询计划、结果和关联统计
+     */
+    @PostMapping("/api/steps/federated")
+    @ResponseBody
+    public FederatedResult federated(@RequestBody FederatedRequest request, HttpServletResponse response) {
+        if (request.query() == null || request.query().trim().isEmpty()) {
+            throw new IllegalArgumentException("查询内容不能为空");
+        }
+        FederatedResult result;
+        TraceSpan trace = RequestTrace.start("federated");
+        try (trace) {
+            result = federatedQueryService.processQuery(request.query(), request.dataSources());
+        }
+        result.setTiming(trace);
+        response.setHeader(RequestTrace.SERVER_TIMING_HEADER, RequestTrace.serverTiming(trace));
+        return result;
+    }
+
+    /**
+     * 查询分步流水线的运行记录
+     *
+     * @param runId 运行编号
+     * @return 检查点中保存的各步骤结果
+     */
+    @GetMapping("/api/steps/runs/{runId}")
+    @ResponseBody
+    public Text2SqlStepResult getRun(@PathVariable String runId) {
+        return stepBasedText2SqlService.getRun(runId);
+    }
+
+    /**
+     * 从指定步骤续跑，可以替换改写后的问题、表清单或 SQL，之前的步骤不再调用模型
+     *
+     * @param runId   运行编号
+     * @param request 续跑请求
+     * @return 续跑后的各步骤结果
+     */
+    @PostMapping("/api/steps/runs/{runId}/resume")
+    @ResponseBody
+    public Text2SqlStepResult resume(@PathVariable String runId, @RequestBody ResumeRequest request,
+                                     HttpServletResponse response) {
+        return traced("resume", response, () -> stepBasedText2SqlService.resume(runId, request));
+    }
+
+    /**
+     * 追踪一次请求的耗时，耗时树放入结果的 timing 字段，同时写入 Server-Timing 响应头
+     */
+    private static Text2SqlStepResult traced(String name, HttpServletResponse response,
+                                             Supplier<Text2SqlStepResult> request) {
+        Text2SqlStepResult result;
+        TraceSpan trace = RequestTrace.start(name);
+        try (trace) {
+            result = request.get();
+        }
+        result.setTiming(trace);
+        response.setHeader(RequestTrace.SERVER_TIMING_HEADER, RequestTrace.serverTiming(trace));
+        return result;
+    }
+
+    private static QueryRoute parseMode(String mode) {
+        if (mode == null || mode.isBlank() || "auto".equalsIgnoreCase(mode)) {
+            return null;
+        }
         try {
-            return stepBasedText2SqlService.processQueryWithSteps(query);
-        } catch (Exception e) {
-            log.error("步骤化 Text2SQL 查询处理失败", e);
-            throw new RuntimeException("查询处理失败" + e.getMessage());
+            return QueryRoute.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的路由模式: " + mode + "，可选 auto / direct / pipeline");
         }
     }
 }
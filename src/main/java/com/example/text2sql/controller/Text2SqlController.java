@@ -16,6 +16,8 @@ import com.example.text2sql.config.DataSourceRouter;
 import com.example.text2sql.service.Text2SqlResult;
 import com.example.text2sql.service.Text2SqlService;
 import com.example.text2sql.service.tool.DatabaseTool;
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
 
 import lombok.RequiredArgsConstructor;
 
@@ -53,8 +55,12 @@ public class Text2SqlController {
             return ResponseEntity.badRequest().body(response);
         }
         DataSourceRouter.setDataSource(dataSource);
-        // 处理查询
-        Text2SqlResult result = text2SqlService.processQueryWithTableNames(query, tableNames);
+        // 处理查询，耗时树随结果返回并写入 Server-Timing 响应头
+        Text2SqlResult result;
+        TraceSpan trace = RequestTrace.start("query");
+        try (trace) {
+            result = text2SqlService.processQueryWithTableNames(query, tableNames);
+        }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", result.isSuccess());
@@ -66,8 +72,11 @@ public class Text2SqlController {
         } else {
             response.put("error", result.getError());
         }
+        response.put("timing", trace);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .header(RequestTrace.SERVER_TIMING_HEADER, RequestTrace.serverTiming(trace))
+                .body(response);
     }
 
     /**
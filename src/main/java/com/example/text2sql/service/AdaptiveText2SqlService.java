@@ -0,0 +1,118 @@
+package com.example.text2sql.service;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.RoutingProperties;
+import com.example.text2sql.service.intent.IntentFilterService;
+import com.example.text2sql.service.route.QueryComplexityClassifier;
+import com.example.text2sql.service.route.QueryRoute;
+import com.example.text2sql.service.route.RouteDecision;
+import com.example.text2sql.service.step.SqlExecution;
+import com.example.text2sql.service.step.SqlGeneration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 自适应 Text2SQL 服务
+ * 按问题复杂度在直连单次生成和分步流水线之间选择：简单的单表查询只带相关表的结构调用一次模型并直接执行，
+ * 多表关联、子查询等复杂问题走五步流水线；直连失败时可改走流水线
+ * 决策写入结果的 route 字段，并记录到指标 text2sql.route（次数）和 text2sql.route.duration（耗时）
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AdaptiveText2SqlService {
+
+    private static final String ROUTE_COUNTER = "text2sql.route";
+
+    private static final String ROUTE_TIMER = "text2sql.route.duration";
+
+    private final QueryComplexityClassifier classifier;
+
+    private final DirectText2SqlService directText2SqlService;
+
+    private final IntentFilterService intentFilterService;
+
+    private final StepBasedText2SqlService stepBasedText2SqlService;
+
+    private final RoutingProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 处理查询请求
+     *
+     * @param userQuery 用户问题
+     * @param mode      指定路径，为 null 时自动选择
+     */
+    public Text2SqlStepResult processQuery(String userQuery, QueryRoute mode) {
+        RouteDecision decision = decide(userQuery, mode);
+        log.info("问题路由为 {}（{}），得分 {}: {}", decision.route(), decision.decidedBy(), decision.score(),
+                decision.reasons());
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Text2SqlStepResult result = null;
+        if (decision.route() == QueryRoute.DIRECT) {
+            // 分步流水线自行做意图预过滤，直连路径在调用模型前在这里过滤
+            if (intentFilterService.evaluate(userQuery).rejected()) {
+                Text2SqlStepResult rejected = Text2SqlStepResult.create(Text2SqlStepResult.StepResult.error(
+                        StepBasedText2SqlService.NON_DATABASE_QUERY_MESSAGE), null, null, null, null);
+                rejected.setRoute(decision);
+                return rejected;
+            }
+            Text2SqlResult direct = directText2SqlService.processQueryWithTableNames(userQuery,
+                    String.join(",", decision.tables()));
+            if (direct.isSuccess() || !properties.isFallbackToPipeline()) {
+                result = toStepResult(direct);
+            } else {
+                log.warn("直连路径失败，改走分步流水线: {}", direct.getError());
+                record(decision, sample, false);
+                sample = Timer.start(meterRegistry);
+                decision = decision.fallback("直连失败: " + direct.getError());
+            }
+        }
+        if (result == null) {
+            result = stepBasedText2SqlService.processQueryWithSteps(userQuery);
+        }
+
+        result.setRoute(decision);
+        record(decision, sample, result.getStep5SqlExecution() != null && !result.getStep5SqlExecution().isError());
+        return result;
+    }
+
+    private RouteDecision decide(String userQuery, QueryRoute mode) {
+        if (mode == null && !properties.isEnabled()) {
+            return new RouteDecision(QueryRoute.PIPELINE, 0, List.of("自动路由已关闭"), List.of(),
+                    RouteDecision.BY_FORCED);
+        }
+        RouteDecision decision = classifier.classify(userQuery);
+        return mode == null ? decision : decision.forced(mode);
+    }
+
+    private void record(RouteDecision decision, Timer.Sample sample, boolean success) {
+        String route = decision.route().name().toLowerCase(Locale.ROOT);
+        meterRegistry.counter(ROUTE_COUNTER, "route", route, "decided.by", decision.decidedBy()).increment();
+        sample.stop(meterRegistry.timer(ROUTE_TIMER, "route", route, "success", String.valueOf(success)));
+    }
+
+    /**
+     * 把直连结果转成步骤结果，只有步骤4和步骤5，页面按 Markdown 表格展示执行结果
+     */
+    private static Text2SqlStepResult toStepResult(Text2SqlResult direct) {
+        if (!direct.isSuccess()) {
+            return Text2SqlStepResult.create(null, null, null, Text2SqlStepResult.StepResult.error(direct.getError()), null);
+        }
+        Text2SqlStepResult.StepResult step4 = Text2SqlStepResult.StepResult.success(
+                "查询SQL生成（直连），生成SQL查询语句为：\n\n```sql\n" + direct.getSql() + "\n```",
+                new SqlGeneration(direct.getSql(), null));
+        SqlExecution execution = SqlExecution.of(direct.getData());
+        Text2SqlStepResult.StepResult step5 = Text2SqlStepResult.StepResult.success(execution.describe(), execution);
+        return Text2SqlStepResult.create(null, null, null, step4, step5);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.text2sql.service;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量查询中单个问题的结果
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResult {
+    private static final String SUCCESS_STATUS = "success";
+    private static final String ERROR_STATUS = "error";
+
+    /**
+     * 问题在请求列表中的序号（从0开始）
+     */
+    private int index;
+
+    private String query;
+
+    /**
+     * 处理状态 (success, error)
+     */
+    private String status;
+
+    private String sql;
+    private List<Map<String, Object>> data;
+    private String error;
+
+    /**
+     * SQL 生成耗时（毫秒）
+     */
+    private long generationMillis;
+
+    /**
+     * SQL 执行耗时（毫秒）
+     */
+    private long executionMillis;
+
+    public boolean isSuccess() {
+        return SUCCESS_STATUS.equals(status);
+    }
+
+    public int getCount() {
+        return data != null ? data.size() : 0;
+    }
+
+    public static BatchItemResult success(int index, String query, String sql, List<Map<String, Object>> data,
+                                          long generationMillis, long executionMillis) {
+        return new BatchItemResult(index, query, SUCCESS_STATUS, sql, data, null, generationMillis, executionMillis);
+    }
+
+    public static BatchItemResult error(int index, String query, String sql, String error,
+                                        long generationMillis, long executionMillis) {
+        return new BatchItemResult(index, query, ERROR_STATUS, sql, null, error, generationMillis, executionMillis);
+    }
+}
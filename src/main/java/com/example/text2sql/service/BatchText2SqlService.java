@@ -0,0 +1,235 @@
+package com.example.text2sql.service;
+
+import static com.example.text2sql.util.SqlUtils.cleanSql;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.ExecutorProperties;
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.prompt.PromptTemplateRegistry;
+import com.example.text2sql.service.shard.ShardTopology;
+import com.example.text2sql.service.shard.ShardedTable;
+import com.example.text2sql.service.sql.SqlAnalyzer;
+import com.example.text2sql.service.sql.SqlValidation;
+import com.example.text2sql.service.tool.DatabaseTool;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 批量 Text2SQL 服务
+ * 同一批问题共享一次 Schema 获取，SQL 生成与 SQL 执行在两个线程池中流水线式重叠执行，
+ * 结果按完成顺序回调。每批同时处理的问题数不超过 LLM 并发度加少量余量，一个问题完成后再提交下一个，
+ * 大批量请求不会占满共享线程池的任务队列
+ */
+@Slf4j
+@Service
+public class BatchText2SqlService {
+
+    private static final String BATCH_PROMPT = "batch-sql-generation-prompt";
+
+    /**
+     * 在 LLM 并发度之外额外允许的在途问题数，部分问题执行 SQL 时 LLM 线程仍有问题可处理
+     */
+    private static final int IN_FLIGHT_MARGIN = 2;
+
+    private final ChatClientProfiles chatClientProfiles;
+
+    private final DatabaseTool databaseTool;
+
+    private final SqlAnalyzer sqlAnalyzer;
+
+    private final PromptTemplateRegistry promptTemplateRegistry;
+
+    private final ShardTopology shardTopology;
+
+    private final ExecutorProperties executorProperties;
+
+    private final ThreadPoolTaskExecutor llmExecutor;
+
+    private final ThreadPoolTaskExecutor sqlExecutor;
+
+    public BatchText2SqlService(ChatClientProfiles chatClientProfiles,
+                                DatabaseTool databaseTool,
+                                SqlAnalyzer sqlAnalyzer,
+                                PromptTemplateRegistry promptTemplateRegistry,
+                                ShardTopology shardTopology,
+                                ExecutorProperties executorProperties,
+                                @Qualifier("llmExecutor") ThreadPoolTaskExecutor llmExecutor,
+                                @Qualifier("sqlExecutor") ThreadPoolTaskExecutor sqlExecutor) {
+        this.chatClientProfiles = chatClientProfiles;
+        this.databaseTool = databaseTool;
+        this.sqlAnalyzer = sqlAnalyzer;
+        this.promptTemplateRegistry = promptTemplateRegistry;
+        this.shardTopology = shardTopology;
+        this.executorProperties = executorProperties;
+        this.llmExecutor = llmExecutor;
+        this.sqlExecutor = sqlExecutor;
+    }
+
+    /**
+     * 批量处理查询
+     *
+     * @param dataSource 数据源名称
+     * @param queries    自然语言问题列表
+     * @param listener   单个问题处理完成时的回调，按完成顺序调用，可能来自不同线程
+     * @return 全部问题处理完成时结束的 Future
+     */
+    public CompletableFuture<Void> processBatch(String dataSource, List<String> queries,
+                                                Consumer<BatchItemResult> listener) {
+        String dataSourceName = StringUtils.defaultIfBlank(dataSource, DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+        log.info("开始批量处理 Text2SQL 查询，数据源: {}，问题数: {}", dataSourceName, queries.size());
+
+        // 在数据源上下文中提交任务，线程池装饰器会把数据源传递到工作线程
+        try (DataSourceRouter.DataSourceContext ignored = DataSourceRouter.withDataSource(dataSourceName)) {
+            // 整批问题共享一次 Schema 获取
+            String schema = databaseTool.getDatabaseSchema();
+
+            if (queries.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Batch batch = new Batch(queries, schema, dataSourceName, listener);
+            int window = Math.min(queries.size(), Math.max(executorProperties.getLlmConcurrency(), 1) + IN_FLIGHT_MARGIN);
+            for (int i = 0; i < window; i++) {
+                submitNext(batch);
+            }
+            return batch.done;
+        }
+    }
+
+    /**
+     * 取下一个未处理的问题提交，完成后回调并接着提交下一个，使在途问题数保持在窗口大小
+     */
+    private void submitNext(Batch batch) {
+        int index = batch.next.getAndIncrement();
+        if (index >= batch.queries.size()) {
+            return;
+        }
+        CompletableFuture<Void> item;
+        try (DataSourceRouter.DataSourceContext ignored = DataSourceRouter.withDataSource(batch.dataSourceName)) {
+            item = processItem(index, batch.queries.get(index), batch.schema, batch.dataSourceName)
+                    .thenAccept(batch.listener);
+        }
+        item.whenComplete((result, e) -> {
+            if (e != null) {
+                batch.failure.compareAndSet(null, e);
+            }
+            if (batch.remaining.decrementAndGet() == 0) {
+                Throwable failure = batch.failure.get();
+                if (failure != null) {
+                    batch.done.completeExceptionally(failure);
+                } else {
+                    batch.done.complete(null);
+                }
+            } else {
+                submitNext(batch);
+            }
+        });
+    }
+
+    /**
+     * 单个问题的处理流水线：LLM 线程池生成 SQL，完成后交给 SQL 线程池执行，
+     * LLM 线程随即可以处理下一个问题
+     */
+    private CompletableFuture<BatchItemResult> processItem(int index, String query, String schema,
+                                                           String dataSourceName) {
+        if (query == null || query.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(BatchItemResult.error(index, query, null, "查询内容不能为空", 0, 0));
+        }
+
+        try {
+            return CompletableFuture
+                    .supplyAsync(() -> generateSql(query, schema), llmExecutor)
+                    .thenApplyAsync(generated -> executeSql(index, query, generated, dataSourceName), sqlExecutor)
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("批量查询第{}个问题处理失败", index, cause);
+                        return BatchItemResult.error(index, query, null, "处理查询时发生错误: " + cause.getMessage(), 0, 0);
+                    });
+        } catch (Exception e) {
+            // 任务队列已满等提交失败的情况
+            log.error("批量查询第{}个问题提交失败", index, e);
+            return CompletableFuture.completedFuture(BatchItemResult.error(index, query, null, "任务提交失败: " + e.getMessage(), 0, 0));
+        }
+    }
+
+    private GeneratedSql generateSql(String query, String schema) {
+        long start = System.currentTimeMillis();
+        String promptText = promptTemplateRegistry.render(BATCH_PROMPT, Map.of("schema", schema, "userQuery", query)).text();
+        String content = chatClientProfiles.prompt(ChatClientProfiles.BATCH).user(promptText).call().content();
+        return new GeneratedSql(cleanSql(content), System.currentTimeMillis() - start);
+    }
+
+    private BatchItemResult executeSql(int index, String query, GeneratedSql generated, String dataSourceName) {
+        String sql = generated.sql();
+        if (sql == null || sql.trim().isEmpty()) {
+            return BatchItemResult.error(index, query, sql, "无法生成有效的 SQL 查询", generated.millis(), 0);
+        }
+        SqlValidation validation = sqlAnalyzer.validate(sql, dataSourceName);
+        if (!validation.isValid()) {
+            return BatchItemResult.error(index, query, sql, validation.getMessage(), generated.millis(), 0);
+        }
+
+        // 批量查询已在 SQL 线程池中执行，不再嵌套提交分片查询；直接查询逻辑表只会得到空结果，明确报错
+        ShardedTable sharded = shardTopology.find(dataSourceName, validation.getAnalysis().getTables());
+        if (sharded != null) {
+            return BatchItemResult.error(index, query, sql, "分片表 " + sharded.table() + " 不支持批量查询，请使用分步查询",
+                    generated.millis(), 0);
+        }
+
+        sql = sqlAnalyzer.enforceLimit(validation.getAnalysis());
+        long start = System.currentTimeMillis();
+        try {
+            List<Map<String, Object>> data = databaseTool.executeQuery(sql);
+            return BatchItemResult.success(index, query, sql, data, generated.millis(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("批量查询第{}个问题 SQL 执行失败: {}", index, sql, e);
+            return BatchItemResult.error(index, query, sql, "SQL 执行失败: " + e.getMessage(), generated.millis(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private record GeneratedSql(String sql, long millis) {
+    }
+
+    /**
+     * 一批问题的提交进度
+     */
+    private static final class Batch {
+
+        private final List<String> queries;
+
+        private final String schema;
+
+        private final String dataSourceName;
+
+        private final Consumer<BatchItemResult> listener;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final AtomicInteger remaining;
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Batch(List<String> queries, String schema, String dataSourceName, Consumer<BatchItemResult> listener) {
+            this.queries = queries;
+            this.schema = schema;
+            this.dataSourceName = dataSourceName;
+            this.listener = listener;
+            this.remaining = new AtomicInteger(queries.size());
+        }
+    }
+}
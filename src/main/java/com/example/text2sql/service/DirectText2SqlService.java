@@ -1,47 +1,43 @@
 package com.example.text2sql.service;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
-
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.prompt.PromptTemplateRegistry;
+import com.example.text2sql.service.prompt.RenderedPrompt;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+import com.example.text2sql.service.schema.SchemaStatisticsService;
+import com.example.text2sql.service.shard.ShardedExecution;
+import com.example.text2sql.service.shard.ShardedQueryService;
+import com.example.text2sql.service.sql.SqlAnalyzer;
+import com.example.text2sql.service.sql.SqlValidation;
 import com.example.text2sql.service.tool.DatabaseTool;
-import com.example.text2sql.util.SqlUtils;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Text2SQL 核心服务
- * 使用 Spring AI 将自然语言转换为 SQL 查询
+ * 使用 Spring AI 将自然语言转换为 SQL 查询，一次模型调用、不走工具循环，
+ * 指定表名时只带这些表的结构和取值，作为简单问题的直连路径
  */
 @Slf4j
+@Service
 @RequiredArgsConstructor
 public class DirectText2SqlService implements Text2SqlService {
-    private final ChatClient chatClient;
+    private final ChatClientProfiles chatClientProfiles;
     private final DatabaseTool databaseTool;
+    private final SqlAnalyzer sqlAnalyzer;
+    private final SchemaStatisticsService schemaStatisticsService;
+    private final PromptTemplateRegistry promptTemplateRegistry;
+    private final ShardedQueryService shardedQueryService;
 
-    // SQL 生成提示模板
-    private static final String SQL_GENERATION_PROMPT = """
-            你是一个专业的 SQL 生成助手。基于以下数据库结构信息，将用户的自然语言查询转换为 SQL 语句。
-            
-            数据库结构信息：
-            {schema}
-            
-            请遵循以下规则：
-            1. 只生成 SELECT 查询语句
-            2. 使用正确的表名和字段名
-            3. 添加适当的 WHERE 条件
-            4. 使用 LIMIT 限制结果数量（最多 1000 条）
-            5. 确保 SQL 语法正确
-            6. 如果查询涉及多表，请使用适当的 JOIN
-            7. 只返回 SQL 语句，不要包含其他解释
-            
-            用户查询：{userQuery}
-            """;
+    private static final String DIRECT_PROMPT = "direct-sql-generation-prompt";
 
     /**
      * 将自然语言转换为 SQL 并执行查询
@@ -51,6 +47,26 @@ public class DirectText2SqlService implements Text2SqlService {
      */
     @Override
     public Text2SqlResult processQuery(String userQuery) {
+        return processQuery(userQuery, List.of());
+    }
+
+    /**
+     * 只带指定表的结构生成 SQL 并执行，未指定表时使用全库结构
+     *
+     * @param userQuery  用户自然语言查询
+     * @param tableNames 逗号分隔的表名
+     * @return 查询结果
+     */
+    @Override
+    public Text2SqlResult processQueryWithTableNames(String userQuery, String tableNames) {
+        List<String> tables = tableNames == null ? List.of() : Arrays.stream(tableNames.split(","))
+                .map(String::trim)
+                .filter(table -> !table.isEmpty())
+                .toList();
+        return processQuery(userQuery, tables);
+    }
+
+    private Text2SqlResult processQuery(String userQuery, List<String> tables) {
         try {
             // 1. 验证输入
             if (userQuery == null || userQuery.trim().isEmpty()) {
@@ -58,20 +74,24 @@ public class DirectText2SqlService implements Text2SqlService {
             }
 
             // 2. 生成 SQL
-            String sql = generateSql(userQuery);
+            String sql = generateSql(userQuery, tables);
             if (sql == null || sql.trim().isEmpty()) {
                 return Text2SqlResult.error("无法生成有效的SQL查询，请检查您的查询描述");
             }
 
-            // 3. 验证 SQL 安全性
-            if (!SqlUtils.isSqlSafe(sql)) {
-                return Text2SqlResult.error("生成的 SQL 包含不安全的操作，请重新描述您的查询需求");
+            // 3. 验证 SQL 安全性，并限制返回行数
+            SqlValidation validation = sqlAnalyzer.validate(sql);
+            if (!validation.isValid()) {
+                return Text2SqlResult.error("生成的 SQL 包含不安全的操作: " + validation.getMessage());
             }
+            sql = sqlAnalyzer.enforceLimit(validation.getAnalysis());
 
             log.info("sql: {}", sql);
 
-            // 4. 执行 SQL 查询
-            List<Map<String, Object>> results = databaseTool.executeQuery(sql);
+            // 4. 执行 SQL 查询，引用了分片表时在各分片上执行后合并，不能直接查询逻辑表
+            ShardedExecution sharded = shardedQueryService.execute(sql);
+            List<Map<String, Object>> results = sharded != null ? sharded.execution().rows()
+                    : databaseTool.executeQuery(sql);
 
             return Text2SqlResult.success(sql, results);
 
@@ -84,21 +104,29 @@ public class DirectText2SqlService implements Text2SqlService {
     /**
      * 生成 SQL 查询语句
      */
-    private String generateSql(String userQuery) {
-        // 获取数据库结构信息
-        String schema = databaseTool.getDatabaseSchema();
-
-        // 创建提示模板
-        PromptTemplate promptTemplate = new PromptTemplate(SQL_GENERATION_PROMPT);
+    private String generateSql(String userQuery, List<String> tables) {
+        // 获取数据库结构信息，指定表时只取这些表
+        String schema;
+        String tableStatistics;
+        if (tables.isEmpty()) {
+            schema = databaseTool.getDatabaseSchema();
+            tableStatistics = "无";
+        } else {
+            schema = databaseTool.getTablesSchema(tables);
+            tableStatistics = schemaStatisticsService.describe(SchemaCatalogService.currentDataSource(), tables);
+        }
 
-        // 构建提示
-        Prompt prompt = promptTemplate.create(Map.of(
+        // 渲染预编译的提示模板
+        RenderedPrompt rendered = promptTemplateRegistry.render(DIRECT_PROMPT, Map.of(
                 "schema", schema,
+                "tableStatistics", tableStatistics,
                 "userQuery", userQuery
         ));
+        log.info("提示词模板: {}", rendered.id());
 
         // 调用 AI 生成 SQL
-        ChatResponse response = chatClient.prompt(prompt).call().chatResponse();
+        ChatResponse response = chatClientProfiles.prompt(ChatClientProfiles.DIRECT).user(rendered.text()).call()
+                .chatResponse();
         String sql = response.getResult().getOutput().getText();
 
         // 清理 SQL 语句（移除可能的代码块标记）
@@ -106,9 +134,4 @@ public class DirectText2SqlService implements Text2SqlService {
 
         return sql;
     }
-
-	@Override
-	public Text2SqlResult processQueryWithTableNames(String userQuery, String tableNames) {
-		return null;
-	}
 }
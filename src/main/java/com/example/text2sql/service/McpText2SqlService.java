@@ -1,36 +1,49 @@
 package com.example.text2sql.service;
 
 import static com.example.text2sql.util.SqlUtils.cleanSql;
-import static com.example.text2sql.util.SqlUtils.isSqlSafe;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.intent.IntentFilterService;
+import com.example.text2sql.service.prompt.PromptTemplateRegistry;
+import com.example.text2sql.service.prompt.RenderedPrompt;
+import com.example.text2sql.service.shard.ShardedExecution;
+import com.example.text2sql.service.shard.ShardedQueryService;
+import com.example.text2sql.service.sql.SqlAnalyzer;
+import com.example.text2sql.service.sql.SqlValidation;
 import com.example.text2sql.service.tool.DatabaseTool;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * 基于工具调用的 Text2SQL 服务，模型自行查询表结构后生成 SQL
+ * 作为 {@link Text2SqlService} 的默认实现，/api/query 使用
+ */
 @Slf4j
 @Service
+@Primary
 @RequiredArgsConstructor
 public class McpText2SqlService implements Text2SqlService {
 
-    @Qualifier("mcpChatClient")
-    private final ChatClient mcpChatClient;
+    private final ChatClientProfiles chatClientProfiles;
 
     private final DatabaseTool databaseTool;
 
+    private final SqlAnalyzer sqlAnalyzer;
+
+    private final IntentFilterService intentFilterService;
+
+    private final PromptTemplateRegistry promptTemplateRegistry;
+
+    private final ShardedQueryService shardedQueryService;
+
     /**
      * 将自然语言转换为 SQL 并执行查询
      *
@@ -56,6 +69,9 @@ public class McpText2SqlService implements Text2SqlService {
             if (userQuery == null || userQuery.trim().isEmpty()) {
                 return Text2SqlResult.error("查询不能为空");
             }
+            if (intentFilterService.evaluate(userQuery).rejected()) {
+                return Text2SqlResult.error("非数据库查询，请输入与数据库相关的问题");
+            }
 
             if (tableNames != null && !tableNames.trim().isEmpty()) {
                 log.info("开始处理 MCP Text2SQL 查询: {}", userQuery);
@@ -71,10 +87,12 @@ public class McpText2SqlService implements Text2SqlService {
                 return Text2SqlResult.error("无法生成有效的 SQL 查询");
             }
 
-            // 3. 验证 SQL 安全性
-            if (!isSqlSafe(sql)) {
-                //return Text2SqlResult.error("生成的 SQL 不安全，包含危险操作");
+            // 3. 验证 SQL 安全性，并限制返回行数
+            SqlValidation validation = sqlAnalyzer.validate(sql);
+            if (!validation.isValid()) {
+                return Text2SqlResult.error("生成的 SQL 不安全: " + validation.getMessage());
             }
+            sql = sqlAnalyzer.enforceLimit(validation.getAnalysis());
 
             // 4. 执行查询
             List<Map<String, Object>> results = executeQuery(sql);
@@ -89,35 +107,24 @@ public class McpText2SqlService implements Text2SqlService {
         }
     }
 
-    /**
-     * 从文件加载提示词模板
-     */
-    private String loadPromptTemplate(String fileName) throws Exception {
-        ClassPathResource resource = new ClassPathResource("prompts/" + fileName);
-        return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
-    }
-
     /**
      * 使用 MCP 工具生成 SQL
      */
     private String generateSqlWithMcpTools(String userQuery, String tableNames) {
         try {
-            String promptTemplateStr;
-            PromptTemplate promptTemplate;
-            Prompt prompt;
+            RenderedPrompt rendered;
 
             if (tableNames != null && !tableNames.trim().isEmpty()) {
-                promptTemplateStr = loadPromptTemplate("sql-generation-with-tables-prompt.txt");
-                promptTemplate = new PromptTemplate(promptTemplateStr);
-                prompt = promptTemplate.create(Map.of("userQuery", userQuery, "tableNames", tableNames));
+                rendered = promptTemplateRegistry.render("sql-generation-with-tables-prompt",
+                        Map.of("userQuery", userQuery, "tableNames", tableNames));
                 log.info("tableNames: {}", tableNames);
             } else {
-                promptTemplateStr = loadPromptTemplate("sql-generation-prompt.txt");
-                promptTemplate = new PromptTemplate(promptTemplateStr);
-                prompt = promptTemplate.create(Map.of("userQuery", userQuery));
+                rendered = promptTemplateRegistry.render("sql-generation-prompt", Map.of("userQuery", userQuery));
             }
+            log.info("提示词模板: {}", rendered.id());
 
-            ChatResponse response = mcpChatClient.prompt(prompt).call().chatResponse();
+            ChatResponse response = chatClientProfiles.prompt(ChatClientProfiles.MCP).user(rendered.text()).call()
+                    .chatResponse();
             String sql = response.getResult().getOutput().getText();
 
             // 清理 SQL 语句，移除可能的解释文本
@@ -138,8 +145,9 @@ public class McpText2SqlService implements Text2SqlService {
     private List<Map<String, Object>> executeQuery(String sql) {
         log.info("执行 SQL 查询: {}", sql);
         
-        // 直接调用 DatabaseTool 执行查询
-        List<Map<String, Object>> result = databaseTool.executeQuery(sql);
+        // 直接调用 DatabaseTool 执行查询，引用了分片表时在各分片上执行后合并
+        ShardedExecution sharded = shardedQueryService.execute(sql);
+        List<Map<String, Object>> result = sharded != null ? sharded.execution().rows() : databaseTool.executeQuery(sql);
 
         log.info("查询执行完成，返回 {} 条记录", result.size());
         return result;
@@ -1,303 +1,654 @@
 package com.example.text2sql.service;
 
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.HedgingProperties;
+import com.example.text2sql.config.TemporalProperties;
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.chat.HedgedCallService;
+import com.example.text2sql.service.checkpoint.PipelineCheckpoint;
+import com.example.text2sql.service.checkpoint.PipelineCheckpointStore;
+import com.example.text2sql.service.checkpoint.ResumeRequest;
+import com.example.text2sql.service.intent.IntentFilterService;
+import com.example.text2sql.service.pipeline.PipelineDefinition;
+import com.example.text2sql.service.pipeline.PipelineEngine;
+import com.example.text2sql.service.pipeline.PipelineRun;
+import com.example.text2sql.service.pipeline.PipelineStage;
+import com.example.text2sql.service.prompt.CompiledPrompt;
+import com.example.text2sql.service.prompt.PromptTemplateRegistry;
+import com.example.text2sql.service.prompt.RenderedPrompt;
+import com.example.text2sql.service.rule.RuleMatch;
+import com.example.text2sql.service.schema.JoinGraphService;
+import com.example.text2sql.service.schema.JoinPlan;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+import com.example.text2sql.service.schema.SchemaSnapshot;
+import com.example.text2sql.service.schema.SchemaStatisticsService;
+import com.example.text2sql.service.shard.ShardedExecution;
+import com.example.text2sql.service.shard.ShardedQueryService;
+import com.example.text2sql.service.sql.SqlAnalyzer;
+import com.example.text2sql.service.sql.SqlRewrite;
+import com.example.text2sql.service.sql.SqlRewriter;
+import com.example.text2sql.service.sql.SqlValidation;
+import com.example.text2sql.service.step.InformationInference;
+import com.example.text2sql.service.step.QueryContext;
+import com.example.text2sql.service.step.QueryRewrite;
+import com.example.text2sql.service.step.SqlExecution;
+import com.example.text2sql.service.step.SqlGeneration;
+import com.example.text2sql.service.step.TableSelection;
+import com.example.text2sql.service.temporal.TemporalPredicate;
+import com.example.text2sql.service.temporal.TemporalPredicateService;
+import com.example.text2sql.service.tool.DatabaseTool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static com.example.text2sql.util.SqlUtils.isSqlSafe;
-
 /**
  * 基于步骤的 Text2SQL 服务
- * 实现5个步骤的结构化输出
+ * 实现5个步骤的结构化输出：步骤1到4由模型按 JSON Schema 返回类型化结果，后续步骤只取需要的字段，
+ * 不再传递上一步的整段回复，也不再从文本中解析表名和 SQL
+ * 步骤和辅助阶段声明为 {@link PipelineDefinition}，由 {@link PipelineEngine} 按依赖关系调度，互不依赖的阶段并发执行
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StepBasedText2SqlService {
 
-    @Qualifier("mcpChatClient")
-    private final ChatClient mcpChatClient;
+    private final ChatClientProfiles chatClientProfiles;
     
     private final BusinessRuleService businessRuleService;
 
-    /**
-     * 从资源文件读取提示词内容
-     */
-    private String loadPromptTemplate(String filePath) {
-        try {
-			ClassPathResource resource = new ClassPathResource(filePath);
-			return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8).replaceAll("\\r\\n", "\n") // 统一换行符
-					.trim();
-        } catch (IOException e) {
-            log.error("读取提示词文件失败: {}", filePath, e);
-            throw new RuntimeException("无法加载提示词文件: " + filePath, e);
-        }
-    }
+    private final IntentFilterService intentFilterService;
 
-    private static final String SQL_PATTERN = "(SELECT.*?)(?=\\n\\n|$)";
-    private static final String SQL_EXTRACTION_FAILED = "无法从内容中提取有效的SQL语句";
-    private static final String SQL_UNSAFE_MSG = "生成的 SQL 包含危险操作";
+    private final SqlAnalyzer sqlAnalyzer;
+
+    private final SqlRewriter sqlRewriter;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final JoinGraphService joinGraphService;
+
+    private final SchemaStatisticsService schemaStatisticsService;
+
+    private final TemporalPredicateService temporalPredicateService;
+
+    private final TemporalProperties temporalProperties;
+
+    private final DatabaseTool databaseTool;
+
+    private final ShardedQueryService shardedQueryService;
+
+    private final PromptTemplateRegistry promptTemplateRegistry;
 
-    // 提示词文件路径
-    private static final String STEP1_PROMPT_FILE = "prompts/step1-query-rewrite.txt";
-    private static final String STEP2_PROMPT_FILE = "prompts/step2-table-selection.txt";
-    private static final String STEP3_PROMPT_FILE = "prompts/step3-information-inference.txt";
-    private static final String STEP4_PROMPT_FILE = "prompts/step4-sql-generation.txt";
-    private static final String STEP5_PROMPT_FILE = "prompts/step5-sql-execution.txt";
+    private final HedgedCallService hedgedCallService;
+
+    private final HedgingProperties hedgingProperties;
+
+    private final PipelineCheckpointStore checkpointStore;
+
+    private final PipelineEngine pipelineEngine;
 
     /**
-     * 执行步骤的简化方法（无后处理函数）
+     * 分步流水线：步骤1到5，加上不调用模型的规则匹配、查询上下文、表统计和 SQL 改写
+     * 规则匹配只依赖步骤1，与步骤2的模型调用并发；表统计与规则匹配、查询上下文并发。模型步骤的缓存键取输入和表结构版本，
+     * 是否缓存由 text2sql.pipeline.cache 配置；SQL 改写和执行每次都重新进行
      */
-    private Text2SqlStepResult.StepResult executeStep(int stepNumber,
-                                                      String promptTemplate, Map<String, Object> variables) {
-        return executeStep(stepNumber, promptTemplate, variables, null);
-    }
+    private final PipelineDefinition pipeline = PipelineDefinition.of("step",
+            PipelineStage.of(STEP1, this::rewriteQuery)
+                    .cached(run -> schemaKey(run.input())),
+            PipelineStage.of(STEP2, this::selectTables, STEP1)
+                    .cached(run -> schemaKey(rewrittenQuery(run))),
+            PipelineStage.of(RULES_STAGE, this::matchRules, STEP1),
+            PipelineStage.of(STATISTICS_STAGE, this::describeStatistics, STEP2),
+            PipelineStage.of(CONTEXT_STAGE, this::buildContext, STEP1, STEP2, RULES_STAGE),
+            PipelineStage.of(STEP3, this::inferInformation, STEP1, STEP2, CONTEXT_STAGE, STATISTICS_STAGE)
+                    .cached(run -> schemaKey(rewrittenQuery(run), selectedTables(run),
+                            run.output(CONTEXT_STAGE, QueryContext.class), tableStatistics(run))),
+            PipelineStage.of(STEP4, this::generateSql, STEP1, STEP2, STEP3, CONTEXT_STAGE, STATISTICS_STAGE)
+                    .cached(run -> schemaKey(rewrittenQuery(run), selectedTables(run),
+                            run.output(STEP3, InformationInference.class), run.output(CONTEXT_STAGE, QueryContext.class),
+                            tableStatistics(run))),
+            PipelineStage.of(REWRITE_STAGE, this::rewriteGeneratedSql, STEP1, STEP2, RULES_STAGE, CONTEXT_STAGE, STEP4),
+            PipelineStage.of(STEP5, this::executeSql, REWRITE_STAGE));
+
+    private static final Pattern SQL_PATTERN = Pattern.compile("(SELECT.*?)(?=\\n\\n|$)",
+            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+    private static final String SQL_FENCE = "```sql";
+    private static final String CODE_FENCE = "```";
+    private static final String SQL_EXTRACTION_FAILED = "无法从内容中提取有效的SQL语句";
+    private static final String SQL_UNSAFE_MSG = "生成的 SQL 包含危险操作";
+    private static final String STRUCTURED_OUTPUT_MISSING = "模型没有返回结构化结果";
+    private static final String NO_TABLE_SELECTED = "未选出当前数据源中存在的数据表";
+
+    // 流水线阶段名，步骤1到5与各自的模型调用配置同名
+    private static final String STEP1 = "step1";
+    private static final String STEP2 = "step2";
+    private static final String STEP3 = "step3";
+    private static final String STEP4 = "step4";
+    private static final String STEP5 = "step5";
+    private static final String RULES_STAGE = "rules";
+    private static final String CONTEXT_STAGE = "context";
+    private static final String STATISTICS_STAGE = "statistics";
+    private static final String REWRITE_STAGE = "rewrite";
+
+    static final String NON_DATABASE_QUERY_MESSAGE = "非数据库查询，请输入与数据库相关的问题";
+
+    // 提示词模板名：步骤说明（系统消息，固定不变）和本次输入（用户消息）
+    private static final String STEP1_PROMPT = "step1-query-rewrite";
+    private static final String STEP1_INPUT = "step1-query-rewrite-input";
+    private static final String STEP2_PROMPT = "step2-table-selection";
+    private static final String STEP2_INPUT = "step2-table-selection-input";
+    private static final String STEP3_PROMPT = "step3-information-inference";
+    private static final String STEP3_INPUT = "step3-information-inference-input";
+    private static final String STEP4_PROMPT = "step4-sql-generation";
+    private static final String STEP4_INPUT = "step4-sql-generation-input";
 
     /**
-     * 执行步骤的通用方法
+     * 执行步骤的通用方法：按步骤的模型调用配置调用模型，回复按 JSON Schema 转换为 outputType，
+     * 结构化结果放入步骤结果的 data，describe 生成页面展示的文本
+     * 系统消息为当前数据源的表结构快照加步骤说明，同一数据源、同一表结构版本下逐字节相同，可命中模型服务的前缀缓存；
+     * 问题、选中表等每次请求不同的内容只放在用户消息中；所用模板的版本写入步骤结果的 promptVersion
+     * 模型调用按 text2sql.hedging 配置对冲；speculativeAccept 不为空且开启推测生成时同时生成多个候选，取第一个满足条件的
      */
-    private Text2SqlStepResult.StepResult executeStep(int stepNumber, String promptTemplate, Map<String, Object> variables, Function<String, String> function) {
+    private <T> Text2SqlStepResult.StepResult executeStep(int stepNumber, String instructionsName, String inputName,
+                                                          Map<String, Object> variables, Class<T> outputType,
+                                                          Function<T, String> describe, Predicate<T> speculativeAccept) {
+        CompiledPrompt instructions = promptTemplateRegistry.get(instructionsName);
+        String promptVersion = instructions.id();
+        Text2SqlStepResult.StepResult result;
         try {
-            System.out.println("执行步骤" + stepNumber);
-
-            PromptTemplate template = new PromptTemplate(promptTemplate);
-            String promptText = template.create(variables).getContents();
-
-            String result = mcpChatClient.prompt()
+            log.debug("执行步骤{}", stepNumber);
+
+            SchemaSnapshot schema = schemaCatalogService.getSchemaSnapshot(SchemaCatalogService.currentDataSource());
+            String systemText = schema.promptPrefix() + instructions.text();
+            RenderedPrompt input = promptTemplateRegistry.render(inputName, variables);
+            promptVersion += "," + input.id();
+            String promptText = input.text();
+
+            // 每个步骤使用各自的模型调用配置
+            String profile = ChatClientProfiles.step(stepNumber);
+            Supplier<T> call = () -> chatClientProfiles.prompt(profile)
+                    .system(systemText)
                     .user(promptText)
                     .call()
-                    .content();
-
-            if (function != null) {
-                result = function.apply(result);
+                    .entity(outputType);
+            HedgingProperties.Speculative speculative = hedgingProperties.getSpeculative();
+            T output = speculativeAccept != null && speculative.isEnabled() && speculative.getCandidates() > 1
+                    ? hedgedCallService.race(profile, speculative.getCandidates(), call, speculativeAccept)
+                    : hedgedCallService.call(profile, call);
+            if (output == null) {
+                result = Text2SqlStepResult.StepResult.error(STRUCTURED_OUTPUT_MISSING);
+            } else {
+                log.debug("步骤{}输出: {}", stepNumber, output);
+                result = Text2SqlStepResult.StepResult.success(describe.apply(output), output);
             }
-
-            System.out.println(result);
-
-            return Text2SqlStepResult.StepResult.success(result);
         } catch (Exception e) {
             log.error("步骤{}执行失败", stepNumber, e);
-            return Text2SqlStepResult.StepResult.error(e.getMessage());
+            result = Text2SqlStepResult.StepResult.error(e.getMessage());
         }
+        result.setPromptVersion(promptVersion);
+        return result;
     }
 
     /**
      * 处理查询请求，返回5个步骤的结果
+     * 每次运行分配一个编号，各步骤结果保存为检查点，之后可以用 {@link #resume} 从某一步续跑
      */
     public Text2SqlStepResult processQueryWithSteps(String userQuery) {
         log.info("开始处理步骤化 Text2SQL 查询: {}", userQuery);
 
-        // 步骤1: 问题改写
-        Text2SqlStepResult.StepResult step1 = executeStep1(userQuery);
-        if (step1.isError()) {
-            return Text2SqlStepResult.create(step1, null, null, null, null);
+        // 明显的闲聊和领域外问题在本地拒绝，不再调用模型
+        if (intentFilterService.evaluate(userQuery).rejected()) {
+            return Text2SqlStepResult.create(Text2SqlStepResult.StepResult.error(NON_DATABASE_QUERY_MESSAGE),
+                    null, null, null, null);
+        }
+
+        Text2SqlStepResult result = new Text2SqlStepResult();
+        result.setRunId(UUID.randomUUID().toString());
+        return run(userQuery, result);
+    }
+
+    /**
+     * 从检查点续跑：fromStep 之前的步骤沿用检查点中的结果，修改项替换对应步骤的输出，其余步骤重新执行
+     * 在原运行所用的数据源上执行，结果覆盖原检查点
+     *
+     * @param runId   运行编号
+     * @param request 续跑请求
+     */
+    public Text2SqlStepResult resume(String runId, ResumeRequest request) {
+        PipelineCheckpoint checkpoint = checkpointStore.get(runId)
+                .orElseThrow(() -> new IllegalArgumentException("运行记录不存在或已过期: " + runId));
+        int fromStep = request.fromStep() != null ? request.fromStep() : request.lastEditedStep() + 1;
+        if (fromStep < 1 || fromStep > 5) {
+            throw new IllegalArgumentException("续跑步骤应为 1 ~ 5，未指定时需要提供修改项");
         }
 
-        // 检查步骤1是否判断为数据库查询
-        if (isNonDatabaseQuery(step1.getContent())) {
-            // 将步骤1标记为失败
-            Text2SqlStepResult.StepResult failedStep1 = Text2SqlStepResult.StepResult.error(
-                    "非数据库查询，请输入与数据库相关的问题");
-            return Text2SqlStepResult.create(failedStep1, null, null, null, null);
+        Text2SqlStepResult previous = checkpoint.result();
+        Text2SqlStepResult result = new Text2SqlStepResult();
+        result.setRunId(runId);
+        result.setRoute(previous.getRoute());
+        for (int step = 1; step < fromStep; step++) {
+            Text2SqlStepResult.StepResult stepResult = previous.step(step);
+            if (stepResult == null || stepResult.isError()) {
+                throw new IllegalArgumentException("步骤" + step + "没有可用的结果，请从步骤" + step + "开始续跑");
+            }
+            result.putStage(stepResult.getStage(), stepResult);
         }
 
-        // 步骤2: 数据表选取
-        Text2SqlStepResult.StepResult step2 = executeStep2(step1.getContent());
-        if (step2.isError()) {
-            return Text2SqlStepResult.create(step1, step2, null, null, null);
+        try (DataSourceRouter.DataSourceContext ignored = DataSourceRouter.withDataSource(checkpoint.dataSource())) {
+            if (request.rewrittenQuery() != null && !request.rewrittenQuery().isBlank()) {
+                QueryRewrite rewrite = new QueryRewrite(QueryRewrite.Verdict.DATABASE_QUERY,
+                        request.rewrittenQuery().trim());
+                result.putStage(STEP1, edited(rewrite.describe(), rewrite));
+            }
+            if (request.tables() != null && !request.tables().isEmpty()) {
+                List<String> tables = resolveSelectedTables(request.tables());
+                if (tables.isEmpty()) {
+                    throw new IllegalArgumentException(NO_TABLE_SELECTED + ": " + request.tables());
+                }
+                TableSelection selection = new TableSelection(tables);
+                result.putStage(STEP2, edited(selection.describe(), selection));
+            }
+            if (request.sql() != null && !request.sql().isBlank()) {
+                SqlGeneration generation = new SqlGeneration(request.sql().trim(), null);
+                result.putStage(STEP4, edited(generation.describe(), generation));
+            }
+
+            log.info("续跑 {}：从步骤{}开始，沿用或替换阶段 {}", runId, fromStep,
+                    result.getStages().stream().map(Text2SqlStepResult.StepResult::getStage).toList());
+            return run(checkpoint.userQuery(), result);
         }
+    }
+
+    /**
+     * 查询运行记录
+     *
+     * @param runId 运行编号
+     */
+    public Text2SqlStepResult getRun(String runId) {
+        return checkpointStore.get(runId)
+                .map(PipelineCheckpoint::result)
+                .orElseThrow(() -> new IllegalArgumentException("运行记录不存在或已过期: " + runId));
+    }
+
+    /**
+     * 执行流水线中尚无结果的阶段，已有结果的阶段（续跑时沿用或人工修改的）直接使用；返回前保存检查点
+     */
+    private Text2SqlStepResult run(String userQuery, Text2SqlStepResult result) {
+        result.setStages(pipelineEngine.execute(pipeline, new PipelineRun(userQuery, result.getStages())));
+        Text2SqlStepResult.StepResult rewrite = result.stage(REWRITE_STAGE);
+        result.setSqlRewrite(rewrite != null && !rewrite.isError() ? rewrite.data(SqlRewrite.class) : null);
+        checkpointStore.save(new PipelineCheckpoint(result.getRunId(), SchemaCatalogService.currentDataSource(),
+                userQuery, result));
+        return result;
+    }
 
-        // 步骤3: 信息推理
-        Text2SqlStepResult.StepResult step3 = executeStep3(step1.getContent(), step2.getContent());
-        if (step3.isError()) {
-            return Text2SqlStepResult.create(step1, step2, step3, null, null);
+    /**
+     * 阶段 step1：问题改写，判断为非数据库查询时记为失败，后续阶段不再执行
+     */
+    private Text2SqlStepResult.StepResult rewriteQuery(PipelineRun run) {
+        Text2SqlStepResult.StepResult result = executeStep1(run.input());
+        if (!result.isError() && !result.data(QueryRewrite.class).accepted()) {
+            return Text2SqlStepResult.StepResult.error(NON_DATABASE_QUERY_MESSAGE);
         }
+        return result;
+    }
 
-        // 步骤4: SQL生成
-        Text2SqlStepResult.StepResult step4 = executeStep4(step1.getContent(), step2.getContent(),
-                step3.getContent());
-        if (step4.isError()) {
-            return Text2SqlStepResult.create(step1, step2, step3, step4, null);
+    /**
+     * 阶段 step2：数据表选取，选中的表按当前数据源的表清单过滤
+     */
+    private Text2SqlStepResult.StepResult selectTables(PipelineRun run) {
+        Text2SqlStepResult.StepResult result = executeStep2(rewrittenQuery(run));
+        if (result.isError()) {
+            return result;
+        }
+        List<String> selectedTables = resolveSelectedTables(result.data(TableSelection.class).tables());
+        if (selectedTables.isEmpty()) {
+            return Text2SqlStepResult.StepResult.error(NO_TABLE_SELECTED);
         }
+        TableSelection selection = new TableSelection(selectedTables);
+        Text2SqlStepResult.StepResult resolved = Text2SqlStepResult.StepResult.success(selection.describe(), selection);
+        resolved.setPromptVersion(result.getPromptVersion());
+        return resolved;
+    }
 
-        // 步骤5: SQL执行
-        Text2SqlStepResult.StepResult step5 = executeStep5(step4.getContent());
+    /**
+     * 阶段 rules：问题对业务规则集扫描一次，只依赖改写后的问题
+     */
+    private Text2SqlStepResult.StepResult matchRules(PipelineRun run) {
+        RuleMatch match = businessRuleService.evaluate(rewrittenQuery(run));
+        String logic = match.getBusinessLogic();
+        return Text2SqlStepResult.StepResult.success("业务规则匹配：" + (logic.isEmpty() ? "无" : "\n" + logic), match);
+    }
 
-        return Text2SqlStepResult.create(step1, step2, step3, step4, step5);
+    /**
+     * 阶段 context：时间条件、关联路径和业务规则参考
+     */
+    private Text2SqlStepResult.StepResult buildContext(PipelineRun run) {
+        String rewrittenQuery = rewrittenQuery(run);
+        List<String> selectedTables = selectedTables(run);
+        RuleMatch ruleMatch = run.output(RULES_STAGE, RuleMatch.class);
+        TemporalPredicate temporalPredicate = temporalPredicateService.resolve(ruleMatch.getTemporalRange(),
+                rewrittenQuery, selectedTables);
+        JoinPlan joinPlan = joinGraphService.plan(selectedTables);
+        QueryContext context = new QueryContext(temporalPredicate, joinPlan,
+                generateBusinessRules(ruleMatch, selectedTables, temporalPredicate, joinPlan));
+        return Text2SqlStepResult.StepResult.success(context.describe(), context);
+    }
 
+    /**
+     * 阶段 statistics：选中表的行数和列取值统计
+     */
+    private Text2SqlStepResult.StepResult describeStatistics(PipelineRun run) {
+        String tableStatistics = schemaStatisticsService.describe(SchemaCatalogService.currentDataSource(),
+                selectedTables(run));
+        return Text2SqlStepResult.StepResult.success("表统计：\n" + tableStatistics, tableStatistics);
     }
 
     /**
-     * 判断步骤1的结果是否为非数据库查询
+     * 阶段 step3：信息推理
      */
-    private boolean isNonDatabaseQuery(String step1Content) {
-        if (step1Content == null || step1Content.trim().isEmpty()) {
-            return true;
+    private Text2SqlStepResult.StepResult inferInformation(PipelineRun run) {
+        return executeStep3(rewrittenQuery(run), selectedTables(run),
+                run.output(CONTEXT_STAGE, QueryContext.class).businessRules(), tableStatistics(run));
+    }
+
+    /**
+     * 阶段 step4：SQL生成，只带步骤3的结构化摘要
+     */
+    private Text2SqlStepResult.StepResult generateSql(PipelineRun run) {
+        QueryContext context = run.output(CONTEXT_STAGE, QueryContext.class);
+        return executeStep4(rewrittenQuery(run), selectedTables(run),
+                run.output(STEP3, InformationInference.class).compact(), context.temporalPredicate(),
+                context.joinPlan(), tableStatistics(run));
+    }
+
+    /**
+     * 阶段 rewrite：执行前改写SQL，原始SQL和改写结果一并返回；未通过校验时记为失败，可修改 SQL 后续跑
+     */
+    private Text2SqlStepResult.StepResult rewriteGeneratedSql(PipelineRun run) {
+        try {
+            SqlRewrite rewrite = rewriteSql(run.output(STEP4, SqlGeneration.class).sql(), rewrittenQuery(run),
+                    run.output(RULES_STAGE, RuleMatch.class), selectedTables(run),
+                    run.output(CONTEXT_STAGE, QueryContext.class).temporalPredicate());
+            String content = rewrite.isRewritten()
+                    ? "SQL 改写：" + String.join("，", rewrite.getRewrites()) + "\n\n```sql\n" + rewrite.getSql() + "\n```"
+                    : "SQL 无需改写";
+            return Text2SqlStepResult.StepResult.success(content, rewrite);
+        } catch (IllegalArgumentException e) {
+            return Text2SqlStepResult.StepResult.error(e.getMessage());
         }
+    }
+
+    /**
+     * 阶段 step5：执行改写后的 SQL
+     */
+    private Text2SqlStepResult.StepResult executeSql(PipelineRun run) {
+        return executeStep5(run.output(REWRITE_STAGE, SqlRewrite.class).getSql());
+    }
 
-        String content = step1Content.trim().toLowerCase();
+    private static String rewrittenQuery(PipelineRun run) {
+        return run.output(STEP1, QueryRewrite.class).rewrittenQuery().trim();
+    }
 
-        // 检查是否包含非数据库查询的提示信息
-        return
-                content.contains("请输入与数据库查询相关的问题") ||
-                        content.contains("当前数据库中没有相关的业务表");
+    private static List<String> selectedTables(PipelineRun run) {
+        return run.output(STEP2, TableSelection.class).tables();
+    }
+
+    private static String tableStatistics(PipelineRun run) {
+        return run.output(STATISTICS_STAGE, String.class);
+    }
+
+    /**
+     * 阶段缓存键：当前表结构版本加上阶段的输入，表结构变化后不再命中
+     */
+    private List<Object> schemaKey(Object... inputs) {
+        List<Object> key = new ArrayList<>(inputs.length + 1);
+        key.add(schemaCatalogService.getSchemaSnapshot(SchemaCatalogService.currentDataSource()).version());
+        key.addAll(Arrays.asList(inputs));
+        return key;
+    }
+
+    /**
+     * 人工修改的步骤结果
+     */
+    private static Text2SqlStepResult.StepResult edited(String content, Object data) {
+        return Text2SqlStepResult.StepResult.success(content + "\n\n（人工修改）", data);
     }
 
     /**
      * 执行步骤1: 问题改写
      */
     private Text2SqlStepResult.StepResult executeStep1(String userQuery) {
-        String prompt = loadPromptTemplate(STEP1_PROMPT_FILE);
-        return executeStep(1, prompt, Map.of("userQuery", userQuery));
+        return executeStep(1, STEP1_PROMPT, STEP1_INPUT, Map.of("userQuery", userQuery), QueryRewrite.class,
+                QueryRewrite::describe, null);
     }
 
     /**
      * 执行步骤2: 数据表选取
      */
     private Text2SqlStepResult.StepResult executeStep2(String rewrittenQuery) {
-        String prompt = loadPromptTemplate(STEP2_PROMPT_FILE);
-        return executeStep(2, prompt, Map.of("rewrittenQuery", rewrittenQuery));
+        return executeStep(2, STEP2_PROMPT, STEP2_INPUT, Map.of("rewrittenQuery", rewrittenQuery),
+                TableSelection.class, TableSelection::describe, null);
     }
 
     /**
      * 执行步骤3: 信息推理
      */
-    private Text2SqlStepResult.StepResult executeStep3(String rewrittenQuery, String selectedTables) {
-        // 生成业务规则参考信息
-        String businessRules = generateBusinessRules(rewrittenQuery, selectedTables);
-        String prompt = loadPromptTemplate(STEP3_PROMPT_FILE);
-        
-        return executeStep(3, prompt,
+    private Text2SqlStepResult.StepResult executeStep3(String rewrittenQuery, List<String> selectedTables,
+                                                       String businessRules, String tableStatistics) {
+        return executeStep(3, STEP3_PROMPT, STEP3_INPUT,
                 Map.of("rewrittenQuery", rewrittenQuery, 
-                       "selectedTables", selectedTables,
-                       "businessRules", businessRules));
+                       "selectedTables", String.join(", ", selectedTables),
+                       "businessRules", businessRules,
+                       "tableStatistics", tableStatistics),
+                InformationInference.class, InformationInference::describe, null);
     }
     
+    /**
+     * 步骤2选中的表按当前数据源的表清单过滤，去掉不存在的表名；取不到表清单时原样使用
+     */
+    private List<String> resolveSelectedTables(List<String> selectedTables) {
+        if (selectedTables == null) {
+            return List.of();
+        }
+        Set<String> tableNames = schemaCatalogService.getTableNames();
+        return selectedTables.stream()
+                .filter(Objects::nonNull)
+                .map(table -> table.trim().toLowerCase(Locale.ROOT))
+                .filter(table -> !table.isEmpty() && (tableNames.isEmpty() || tableNames.contains(table)))
+                .distinct()
+                .toList();
+    }
+
     /**
      * 生成业务规则参考信息
+     * 问题只对规则集扫描一次，各类规则都从同一个命中结果中读取
      */
-    private String generateBusinessRules(String query, String selectedTables) {
-        StringBuilder rules = new StringBuilder();
-        
-        // 时间推理 - 简化输出
-        String timeLogic = businessRuleService.parseTimeExpression(query);
-        if (timeLogic != null && !timeLogic.contains("无法解析")) {
-            rules.append("时间范围: ").append(timeLogic.replace("时间范围: ", "")).append("; ");
+    static String generateBusinessRules(RuleMatch match, List<String> tables, TemporalPredicate temporalPredicate,
+                                        JoinPlan joinPlan) {
+        StringJoiner rules = new StringJoiner("; ");
+
+        // 时间推理：能确定日期列时直接给出可走索引的范围条件
+        if (temporalPredicate != null) {
+            rules.add("时间范围: " + temporalPredicate.range().describe() + "，筛选条件使用 " + temporalPredicate.toSql());
+        } else if (match.getTemporalRange() != null) {
+            rules.add("时间范围: " + match.getTemporalRange().describe());
         }
-        
-        // 业务逻辑推理 - 简化输出
-        String businessLogic = businessRuleService.getBusinessLogic(query, selectedTables);
-        if (!businessLogic.isEmpty()) {
-            // 提取关键信息，去掉"推理:"等前缀
-            String simplifiedLogic = businessLogic.replaceAll("(时间推理|状态推理|排序推理|分组推理|限制推理): ", "").trim();
-            if (!simplifiedLogic.isEmpty()) {
-                rules.append("业务规则: ").append(simplifiedLogic).append("; ");
-            }
+
+        // 业务术语
+        if (!match.getTermExplanations().isEmpty()) {
+            StringJoiner terms = new StringJoiner("，");
+            match.getTermExplanations().forEach((term, explanation) -> terms.add(term + "=" + explanation));
+            rules.add("业务术语: " + terms);
         }
-        
-        // 字段需求推理 - 简化输出
-        if (selectedTables != null && !selectedTables.isEmpty()) {
-            String[] tables = selectedTables.split(",");
-            for (String table : tables) {
-                String fieldRequirements = businessRuleService.getFieldRequirements(query, table.trim());
-                if (!fieldRequirements.isEmpty()) {
-                    // 提取字段名，去掉"需要"等前缀
-                    String fields = fieldRequirements.replaceAll("需要", "").replaceAll("字段", "").trim();
-                    if (!fields.isEmpty()) {
-                        rules.append("关键字段: ").append(fields).append("; ");
-                    }
-                }
+
+        // 业务逻辑推理
+        List<String> hints = match.getLogicHints();
+        if (!hints.isEmpty()) {
+            rules.add("业务规则: " + String.join("，", hints));
+        }
+
+        // 字段需求推理
+        for (String table : tables) {
+            List<String> columns = match.getRequiredColumns(table);
+            if (!columns.isEmpty()) {
+                rules.add("关键字段: " + table + "(" + String.join(", ", columns) + ")");
             }
         }
-        
-        // 表关联规则 - 简化输出
-        if (selectedTables != null && selectedTables.contains(",")) {
-            String[] tables = selectedTables.split(",");
-            if (tables.length >= 2) {
-                String joinRule = businessRuleService.getTableJoinRule(tables[0].trim(), tables[1].trim());
-                if (!joinRule.isEmpty() && !joinRule.contains("无法确定")) {
-                    rules.append("表关联: ").append(joinRule).append("; ");
+
+        // 表关联路径：外键关系求出的最小关联方案，再补充业务规则中的关联说明
+        if (joinPlan != null && !joinPlan.isEmpty()) {
+            rules.add("关联路径: " + joinPlan.describe());
+        }
+        for (int i = 0; i < tables.size(); i++) {
+            for (int j = i + 1; j < tables.size(); j++) {
+                String joinRule = match.getJoinRule(tables.get(i), tables.get(j));
+                if (joinRule != null) {
+                    rules.add("表关联: " + joinRule);
                 }
             }
         }
-        
-        // 聚合规则推理 - 简化输出
-        String aggregationRule = businessRuleService.getAggregationRule(query, selectedTables);
-        if (!aggregationRule.isEmpty() && !aggregationRule.contains("未指定指标")) {
-            rules.append("聚合方式: ").append(aggregationRule).append("; ");
-        }
-        
-        String result = rules.toString().trim();
-        // 去掉最后的分号
-        if (result.endsWith("; ")) {
-            result = result.substring(0, result.length() - 2);
+
+        // 聚合规则推理
+        String aggregationHint = match.getAggregationHint();
+        if (aggregationHint != null) {
+            rules.add("聚合方式: " + aggregationHint);
         }
-        
-        return result.isEmpty() ? "基于查询需求进行智能分析" : result;
+
+        return rules.length() == 0 ? "基于查询需求进行智能分析" : rules.toString();
     }
 
     /**
      * 执行步骤4: SQL生成
      */
-    private Text2SqlStepResult.StepResult executeStep4(String rewrittenQuery, String selectedTables,
-                                                       String inferenceResult) {
-        String prompt = loadPromptTemplate(STEP4_PROMPT_FILE);
+    private Text2SqlStepResult.StepResult executeStep4(String rewrittenQuery, List<String> selectedTables,
+                                                       String inferenceResult, TemporalPredicate temporalPredicate,
+                                                       JoinPlan joinPlan, String tableStatistics) {
         Map<String, Object> variables = Map.of(
                 "rewrittenQuery", rewrittenQuery,
-                "selectedTables", selectedTables,
-                "inferenceResult", inferenceResult
+                "selectedTables", String.join(", ", selectedTables),
+                "inferenceResult", inferenceResult,
+                "timeCondition", temporalPredicate != null ? temporalPredicate.toSql() : "无",
+                "joinHints", joinPlan.describe(),
+                "tableStatistics", tableStatistics
         );
-        return executeStep(4, prompt, variables);
+        return executeStep(4, STEP4_PROMPT, STEP4_INPUT, variables, SqlGeneration.class, SqlGeneration::describe,
+                this::isExecutable);
     }
 
     /**
-     * 执行步骤5: SQL执行
+     * 推测生成的候选是否可用：通过安全校验，且数据库能对其生成执行计划
      */
-    private Text2SqlStepResult.StepResult executeStep5(String sqlContent) {
-        // 从步骤4的内容中提取SQL语句
-        String sql = extractSqlFromContent(sqlContent);
+    private boolean isExecutable(SqlGeneration generation) {
+        String sql = generation.sql() != null && generation.sql().contains(CODE_FENCE)
+                ? extractSqlFromContent(generation.sql()) : generation.sql();
+        if (sql == null || sql.isBlank() || !sqlAnalyzer.validate(sql).isValid()) {
+            return false;
+        }
+        try {
+            databaseTool.explain(sql);
+            return true;
+        } catch (Exception e) {
+            log.info("SQL 候选未通过 EXPLAIN: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 改写步骤4生成的SQL：安全校验、补充时间条件、列展开、可索引化改写和行数限制
+     */
+    private SqlRewrite rewriteSql(String generatedSql, String rewrittenQuery, RuleMatch ruleMatch,
+                                  List<String> selectedTables, TemporalPredicate temporalPredicate) {
+        // 结构化输出的 sql 字段偶尔仍带代码块标记
+        String sql = generatedSql != null && generatedSql.contains(CODE_FENCE)
+                ? extractSqlFromContent(generatedSql) : generatedSql;
         if (sql == null || sql.trim().isEmpty()) {
             throw new IllegalArgumentException(SQL_EXTRACTION_FAILED);
         }
 
-        if (!isSqlSafe(sql)) {
-            throw new IllegalArgumentException(SQL_UNSAFE_MSG);
+        SqlValidation validation = sqlAnalyzer.validate(sql);
+        if (!validation.isValid()) {
+            throw new IllegalArgumentException(SQL_UNSAFE_MSG + ": " + validation.getMessage());
+        }
+
+        SqlRewrite rewrite = new SqlRewrite(validation.getAnalysis().getSql());
+        if (temporalPredicate != null && temporalProperties.isInjectPredicate()) {
+            // 模型没有按该表的任何日期列筛选时补上范围条件；已按其他日期列筛选时说明口径不同，不再叠加
+            rewrite.apply(sqlAnalyzer.addCondition(validation.getAnalysis(), temporalPredicate.table(),
+                            temporalPredicate.column(), temporalPredicate.temporalColumns(),
+                            temporalPredicate.range()::toPredicate),
+                    "补充时间条件: " + temporalPredicate.toSql());
         }
+        sqlRewriter.rewrite(rewrite, sqlRewriter.selectColumns(rewrittenQuery, ruleMatch, selectedTables));
+        rewrite.apply(sqlAnalyzer.enforceLimit(sqlAnalyzer.analyze(rewrite.getSql())), "限制返回行数");
 
-        String prompt = loadPromptTemplate(STEP5_PROMPT_FILE);
-        return executeStep(5, prompt, Map.of("sqlQuery", sql));
+        if (rewrite.isRewritten() || !rewrite.getWarnings().isEmpty()) {
+            log.info("SQL 改写: {} -> {}，改写: {}，提示: {}", rewrite.getOriginalSql(), rewrite.getSql(),
+                    rewrite.getRewrites(), rewrite.getWarnings());
+        }
+        return rewrite;
+    }
+
+    /**
+     * 执行步骤5: SQL执行
+     * 改写后的 SQL 已经过安全校验，直接在当前数据源执行，不再经模型调用工具再把结果排版成表格；
+     * 引用了分片表时改为在各分片上执行后合并
+     */
+    private Text2SqlStepResult.StepResult executeStep5(String sql) {
+        try {
+            ShardedExecution sharded = shardedQueryService.execute(sql);
+            if (sharded != null) {
+                return Text2SqlStepResult.StepResult.success(sharded.describe(), sharded.execution());
+            }
+            SqlExecution execution = SqlExecution.of(databaseTool.executeQuery(sql));
+            return Text2SqlStepResult.StepResult.success(execution.describe(), execution);
+        } catch (Exception e) {
+            log.error("步骤5执行失败", e);
+            return Text2SqlStepResult.StepResult.error("执行失败: " + e.getMessage());
+        }
     }
 
     /**
      * 从内容中提取SQL语句
      */
-    private String extractSqlFromContent(String content) {
+    static String extractSqlFromContent(String content) {
         if (content == null || content.trim().isEmpty()) {
             log.warn("内容为空，无法提取SQL语句");
             return null;
         }
 
         try {
-            // 查找SQL语句
-            Pattern pattern = Pattern.compile(SQL_PATTERN, Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-            Matcher matcher = pattern.matcher(content);
+            // 优先取 ```sql 代码块，语句边界由代码块给出，不需要正则猜测
+            int fence = content.indexOf(SQL_FENCE);
+            if (fence >= 0) {
+                int start = fence + SQL_FENCE.length();
+                int end = content.indexOf(CODE_FENCE, start);
+                String sql = (end >= 0 ? content.substring(start, end) : content.substring(start)).trim();
+                if (!sql.isEmpty()) {
+                    return sql;
+                }
+            }
 
+            // 没有代码块时退回到查找第一个 SELECT 段落
+            Matcher matcher = SQL_PATTERN.matcher(content);
             if (matcher.find()) {
                 String sql = matcher.group(1).trim();
                 // 清理SQL语句
-                sql = sql.replaceAll("```sql\\s*", "").replaceAll("```\\s*", "");
+                sql = sql.replace(CODE_FENCE, "").trim();
                 return sql;
             }
 
@@ -1,42 +1,149 @@
 package com.example.text2sql.service;
 
+import com.example.text2sql.service.route.RouteDecision;
+import com.example.text2sql.service.sql.SqlRewrite;
+import com.example.text2sql.service.trace.TraceSpan;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-
 /**
  * Text2SQL 步骤化结果封装类
- * 支持5个步骤的结构化输出
+ * 各阶段结果按流水线的声明顺序排列在 stages 中；步骤1到5的字段按阶段名 step1 ~ step5 读写，供页面按步骤展示
  */
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class Text2SqlStepResult {
+
+    private static final String STEP1 = "step1";
+    private static final String STEP2 = "step2";
+    private static final String STEP3 = "step3";
+    private static final String STEP4 = "step4";
+    private static final String STEP5 = "step5";
+
+    /**
+     * 各阶段结果，按流水线中的声明顺序排列；被跳过的阶段不在其中
+     */
+    private List<StepResult> stages = new ArrayList<>();
+
+    /**
+     * 执行前的 SQL 改写记录：原始 SQL、最终执行的 SQL 及改写说明
+     */
+    private SqlRewrite sqlRewrite;
+
+    /**
+     * 路由决策：直连单次生成或分步流水线，以及计分依据
+     */
+    private RouteDecision route;
+
+    /**
+     * 分步流水线的运行编号，可据此从某一步续跑；直连路径和本地拒绝的问题为 null
+     */
+    private String runId;
+
+    /**
+     * 本次请求的耗时树：各阶段、模型调用、工具调用和 JDBC 查询的耗时、Token 数、缓存命中和数据源
+     */
+    private TraceSpan timing;
+
+    /**
+     * 按阶段名读取结果，没有时为 null
+     */
+    public StepResult stage(String name) {
+        return stages.stream().filter(stage -> name.equals(stage.getStage())).findFirst().orElse(null);
+    }
+
+    /**
+     * 写入阶段结果，替换同名阶段，没有时追加到末尾；result 为 null 时移除该阶段
+     */
+    public void putStage(String name, StepResult result) {
+        List<StepResult> updated = new ArrayList<>(stages.size() + 1);
+        boolean replaced = false;
+        for (StepResult stage : stages) {
+            if (!name.equals(stage.getStage())) {
+                updated.add(stage);
+            } else if (result != null) {
+                updated.add(result);
+                replaced = true;
+            }
+        }
+        if (result != null) {
+            result.setStage(name);
+            if (!replaced) {
+                updated.add(result);
+            }
+        }
+        stages = updated;
+    }
+
+    /**
+     * 按步骤序号（1 ~ 5）读取结果
+     */
+    public StepResult step(int stepNumber) {
+        if (stepNumber < 1 || stepNumber > 5) {
+            throw new IllegalArgumentException("步骤序号应为 1 ~ 5: " + stepNumber);
+        }
+        return stage("step" + stepNumber);
+    }
+
     /**
      * 步骤1: 问题改写
      */
-    private StepResult step1ProblemRewriting;
+    public StepResult getStep1ProblemRewriting() {
+        return stage(STEP1);
+    }
+
+    public void setStep1ProblemRewriting(StepResult result) {
+        putStage(STEP1, result);
+    }
 
     /**
      * 步骤2: 数据表选取
      */
-    private StepResult step2TableSelection;
+    public StepResult getStep2TableSelection() {
+        return stage(STEP2);
+    }
+
+    public void setStep2TableSelection(StepResult result) {
+        putStage(STEP2, result);
+    }
 
     /**
      * 步骤3: 信息推理
      */
-    private StepResult step3InformationInference;
+    public StepResult getStep3InformationInference() {
+        return stage(STEP3);
+    }
+
+    public void setStep3InformationInference(StepResult result) {
+        putStage(STEP3, result);
+    }
 
     /**
      * 步骤4: 查询SQL生成
      */
-    private StepResult step4SqlGeneration;
+    public StepResult getStep4SqlGeneration() {
+        return stage(STEP4);
+    }
+
+    public void setStep4SqlGeneration(StepResult result) {
+        putStage(STEP4, result);
+    }
 
     /**
      * 步骤5: 执行SQL
      */
-    private StepResult step5SqlExecution;
+    public StepResult getStep5SqlExecution() {
+        return stage(STEP5);
+    }
+
+    public void setStep5SqlExecution(StepResult result) {
+        putStage(STEP5, result);
+    }
 
     /**
      * 单个步骤结果
@@ -48,6 +155,11 @@ public class Text2SqlStepResult {
         private static final String SUCCESS_STATUS = "success";
         private static final String ERROR_STATUS = "error";
 
+        /**
+         * 阶段名，如 step1、rules
+         */
+        private String stage;
+
         /**
          * 步骤详细内容
          */
@@ -58,6 +170,26 @@ public class Text2SqlStepResult {
          */
         private String status;
 
+        /**
+         * 步骤的结构化输出，如步骤2的选中表、步骤4的 SQL；后续步骤读取这里的字段，页面展示 content
+         */
+        private Object data;
+
+        /**
+         * 本步骤所用提示词模板的带版本标识，多个时以逗号分隔，如 step1-query-rewrite@1a2b3c4d；不调用模型的步骤为 null
+         */
+        private String promptVersion;
+
+        /**
+         * 本阶段耗时（毫秒），沿用检查点或人工修改的结果保留原值或为 null
+         */
+        private Long durationMillis;
+
+        /**
+         * 是否复用了缓存中的结果
+         */
+        private boolean cached;
+
         /**
          * 判断步骤是否完成
          */
@@ -65,13 +197,28 @@ public class Text2SqlStepResult {
             return ERROR_STATUS.equals(status);
         }
 
+        /**
+         * 按类型读取结构化输出
+         */
+        public <T> T data(Class<T> type) {
+            return type.cast(data);
+        }
+
         /**
          * 创建成功的步骤结果
          */
         public static Text2SqlStepResult.StepResult success(String content) {
+            return success(content, null);
+        }
+
+        /**
+         * 创建带结构化输出的成功步骤结果
+         */
+        public static Text2SqlStepResult.StepResult success(String content, Object data) {
             Text2SqlStepResult.StepResult stepResult = new Text2SqlStepResult.StepResult();
             stepResult.setContent(content != null ? content.trim() : "");
             stepResult.setStatus(SUCCESS_STATUS);
+            stepResult.setData(data);
             return stepResult;
         }
 
@@ -0,0 +1,333 @@
+package com.example.text2sql.service.audit;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.stereotype.Component;
+
+import com.example.text2sql.advisor.ProfileMetricsAdvisor;
+import com.example.text2sql.config.AuditProperties;
+import com.example.text2sql.config.DataSourceRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 模型调用审计日志
+ * 请求线程只做采样判断并把提示词、回复的引用放入有界队列；截断、摘要、JSON 序列化和写文件都在后台线程中完成，
+ * 队列满时丢弃新记录，不阻塞请求。文件按写入磁盘的字节数滚动，保留最近 max-files 个
+ */
+@Slf4j
+@Component
+public class AuditLog {
+
+    private static final String DROPPED_COUNTER = "text2sql.audit.dropped";
+
+    private static final String WRITTEN_COUNTER = "text2sql.audit.written";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final AuditProperties properties;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BlockingQueue<Event> queue;
+
+    private final Counter dropped;
+
+    private final Counter written;
+
+    private final Thread writer;
+
+    private volatile boolean running;
+
+    private OutputStream output;
+
+    /**
+     * 当前文件写入磁盘的字节数，位于压缩流之下，统计的是压缩后的大小
+     */
+    private CountingOutputStream outputBytes;
+
+    public AuditLog(AuditProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(Math.max(properties.getQueueCapacity(), 1));
+        this.dropped = meterRegistry.counter(DROPPED_COUNTER);
+        this.written = meterRegistry.counter(WRITTEN_COUNTER);
+        this.writer = new Thread(this::writeLoop, "audit-writer");
+        this.writer.setDaemon(true);
+        if (properties.isEnabled()) {
+            running = true;
+            writer.start();
+            log.info("模型调用审计日志写入 {}，采样比例 {}", Paths.get(properties.getDirectory()).toAbsolutePath(),
+                    properties.getSampleRate());
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * 记录一次模型调用；未开启或未被采样时直接返回
+     *
+     * @param profile  模型调用配置名
+     * @param prompt   发送的提示词
+     * @param response 模型回复，失败时为 null
+     * @param nanos    耗时（纳秒）
+     * @param error    失败原因，成功时为 null
+     */
+    public void record(String profile, Prompt prompt, ChatResponse response, long nanos, Throwable error) {
+        if (!running) {
+            return;
+        }
+        if (error == null && properties.getSampleRate() < 1.0
+                && ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            return;
+        }
+        Event event = new Event(System.currentTimeMillis(), profile, DataSourceRouter.getDataSource(), prompt,
+                response, nanos, error == null ? null : String.valueOf(error.getMessage()));
+        if (!queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 停止后台线程，写完队列中的记录并关闭文件
+     * 不中断后台线程：文件通道在写入时被中断会直接关闭，正在写的记录丢失，压缩文件也缺少结尾；
+     * 后台线程最多等待一个 poll 周期后发现已停止，写完队列再退出
+     */
+    @PreDestroy
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Event> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Event first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    write(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                // 只由 running 标志结束循环，被意外中断时继续把队列写完
+                log.debug("审计日志线程被中断，继续写入剩余记录");
+            }
+        }
+        closeOutput();
+    }
+
+    private void write(List<Event> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            for (Event event : batch) {
+                byte[] line = (objectMapper.writeValueAsString(toRecord(event)) + "\n").getBytes(StandardCharsets.UTF_8);
+                output().write(line);
+                written.increment();
+                if (outputBytes.count() >= properties.getMaxFileSize().toBytes()) {
+                    closeOutput();
+                }
+            }
+            if (output != null) {
+                output.flush();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("写入审计日志失败，丢弃 {} 条记录: {}", batch.size(), e.getMessage());
+            dropped.increment(batch.size());
+            closeOutput();
+        }
+    }
+
+    private Map<String, Object> toRecord(Event event) throws JsonProcessingException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("time", Instant.ofEpochMilli(event.timestamp()).toString());
+        record.put("profile", event.profile());
+        record.put("dataSource", event.dataSource());
+        record.put("durationMillis", TimeUnit.NANOSECONDS.toMillis(event.nanos()));
+        record.put("success", event.error() == null);
+        if (event.error() != null) {
+            record.put("error", event.error());
+        }
+        List<Map<String, Object>> messages = new ArrayList<>();
+        if (event.prompt() != null) {
+            for (Message message : event.prompt().getInstructions()) {
+                Map<String, Object> body = body(message.getText());
+                body.put("role", message.getMessageType().getValue());
+                messages.add(body);
+            }
+        }
+        record.put("messages", messages);
+        ChatResponse response = event.response();
+        if (response != null && response.getResult() != null && response.getResult().getOutput() != null) {
+            record.put("response", body(response.getResult().getOutput().getText()));
+        }
+        Usage usage = response == null || response.getMetadata() == null ? null : response.getMetadata().getUsage();
+        if (usage != null) {
+            record.put("promptTokens", usage.getPromptTokens());
+            record.put("completionTokens", usage.getCompletionTokens());
+            record.put("cachedTokens", ProfileMetricsAdvisor.cachedTokens(usage));
+        }
+        return record;
+    }
+
+    /**
+     * 正文超过上限时截断并附上原长度和摘要；只记摘要时不保存正文
+     */
+    private Map<String, Object> body(String text) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        String value = text == null ? "" : text;
+        boolean truncated = value.length() > properties.getMaxBodyChars();
+        if (properties.isHashOnly() || truncated) {
+            body.put("length", value.length());
+            body.put("sha256", sha256(value));
+        }
+        if (!properties.isHashOnly()) {
+            body.put("text", truncated ? value.substring(0, properties.getMaxBodyChars()) : value);
+            if (truncated) {
+                body.put("truncated", true);
+            }
+        }
+        return body;
+    }
+
+    private OutputStream output() throws IOException {
+        if (output == null) {
+            Path directory = Paths.get(properties.getDirectory());
+            Files.createDirectories(directory);
+            outputBytes = new CountingOutputStream(new BufferedOutputStream(newFile(directory)));
+            output = properties.isCompress() ? new GZIPOutputStream(outputBytes, true) : outputBytes;
+            removeOldFiles(directory);
+        }
+        return output;
+    }
+
+    /**
+     * 新建文件，名称为时间加序号；同一毫秒内滚动多次或其他实例写同一目录时序号递增，不覆盖已有文件
+     */
+    private OutputStream newFile(Path directory) throws IOException {
+        String prefix = "audit-" + LocalDateTime.now().format(FILE_TIME) + "-";
+        String suffix = properties.isCompress() ? ".jsonl.gz" : ".jsonl";
+        for (int sequence = 0; ; sequence++) {
+            Path file = directory.resolve(prefix + String.format("%03d", sequence) + suffix);
+            try {
+                return Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                log.debug("审计日志文件 {} 已存在，使用下一个序号", file.getFileName());
+            }
+        }
+    }
+
+    private void closeOutput() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.warn("关闭审计日志文件失败: {}", e.getMessage());
+        }
+        output = null;
+        outputBytes = null;
+    }
+
+    private void removeOldFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> auditFiles = files
+                    .filter(file -> file.getFileName().toString().startsWith("audit-"))
+                    .sorted()
+                    .toList();
+            for (int i = 0; i < auditFiles.size() - Math.max(properties.getMaxFiles(), 1); i++) {
+                Files.deleteIfExists(auditFiles.get(i));
+            }
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 统计写入下层的字节数；压缩器内部缓冲的数据在下一次输出时计入
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+
+    /**
+     * 请求线程放入队列的原始数据，只持有引用
+     */
+    private record Event(long timestamp, String profile, String dataSource, Prompt prompt, ChatResponse response,
+                         long nanos, String error) {
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.text2sql.service.chat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.ai.chat.client.AdvisorParams;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.ResponseFormat;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+
+import com.example.text2sql.advisor.AuditAdvisor;
+import com.example.text2sql.advisor.MyLoggerAdvisor;
+import com.example.text2sql.advisor.ProfileMetricsAdvisor;
+import com.example.text2sql.advisor.ReReadingAdvisor;
+import com.example.text2sql.config.ChatProfileProperties;
+import com.example.text2sql.service.audit.AuditLog;
+import com.example.text2sql.service.tool.DatabaseTool;
+import com.example.text2sql.service.tool.ParallelToolCallingManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 按名称提供 ChatClient
+ * 每个配置名对应一个 ChatClient，模型、温度、输出上限、工具和 Advisor 链取自 text2sql.chat.profiles，
+ * 让改写、选表这类简单步骤用小模型和短输出，SQL 生成用强模型加 Re2；各配置的耗时和 Token 分别统计
+ * 模型选项按 OpenAI 兼容接口构建，离线回放模型只读取其中的工具调用设置
+ * 开启审计日志时每个配置都在指标 Advisor 之后加上审计 Advisor
+ */
+@Slf4j
+public class ChatClientProfiles {
+
+    public static final String MCP = "mcp";
+
+    public static final String DIRECT = "direct";
+
+    public static final String BATCH = "batch";
+
+    public static final String ROUTE = "route";
+
+    public static final String FEDERATION = "federation";
+
+    private static final String ALL_TOOLS = "*";
+
+    private static final String NO_TOOLS = "none";
+
+    private final ObjectProvider<ChatClient.Builder> chatClientBuilders;
+
+    private final ToolCallback[] toolCallbacks;
+
+    private final ChatProfileProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AuditLog auditLog;
+
+    private final Map<String, ChatClient> clients = new ConcurrentHashMap<>();
+
+    public ChatClientProfiles(ObjectProvider<ChatClient.Builder> chatClientBuilders, DatabaseTool databaseTool,
+                              ChatProfileProperties properties, MeterRegistry meterRegistry, AuditLog auditLog) {
+        this.chatClientBuilders = chatClientBuilders;
+        this.toolCallbacks = ToolCallbacks.from(databaseTool);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.auditLog = auditLog;
+        // 启动时构建已配置的 ChatClient，工具名或 Advisor 名写错时尽早失败
+        properties.getProfiles().keySet().forEach(this::get);
+    }
+
+    /**
+     * 分步流水线中第 stepNumber 步的配置名
+     */
+    public static String step(int stepNumber) {
+        return "step" + stepNumber;
+    }
+
+    /**
+     * 获取指定配置的 ChatClient，未配置的名称使用默认配置（全部工具、logger）
+     * 直接使用时不限制工具调用轮次和时间，调用模型应通过 {@link #prompt(String)}
+     */
+    public ChatClient get(String profile) {
+        return clients.computeIfAbsent(profile, this::build);
+    }
+
+    /**
+     * 开始一次指定配置的调用；配置为 JSON_SCHEMA 时由模型原生约束 entity() 的输出结构
+     * 有工具的配置从此刻开始计算工具调用的轮次上限和时间预算
+     */
+    public ChatClient.ChatClientRequestSpec prompt(String profile) {
+        ChatProfileProperties.Profile settings = profile(profile);
+        ChatClient.ChatClientRequestSpec spec = get(profile).prompt();
+        if (settings.getOutputFormat() == ChatProfileProperties.OutputFormat.JSON_SCHEMA) {
+            spec.advisors(AdvisorParams.ENABLE_NATIVE_STRUCTURED_OUTPUT);
+        }
+        if (!toolNames(settings).isEmpty()) {
+            spec.toolContext(ParallelToolCallingManager.limits(settings.getMaxToolIterations(), settings.getToolBudget()));
+        }
+        return spec;
+    }
+
+    /**
+     * 各配置的调用次数、耗时和 Token 消耗，包括未配置但已使用过的名称
+     */
+    public List<ChatProfileUsage> report() {
+        Set<String> names = new TreeSet<>(properties.getProfiles().keySet());
+        names.addAll(clients.keySet());
+        List<ChatProfileUsage> report = new ArrayList<>(names.size());
+        for (String name : names) {
+            ChatProfileProperties.Profile profile = profile(name);
+            long calls = 0;
+            long failures = 0;
+            double totalMillis = 0;
+            double maxMillis = 0;
+            for (Timer timer : meterRegistry.find(ProfileMetricsAdvisor.DURATION_TIMER).tag("profile", name).timers()) {
+                calls += timer.count();
+                if ("false".equals(timer.getId().getTag("success"))) {
+                    failures += timer.count();
+                }
+                totalMillis += timer.totalTime(TimeUnit.MILLISECONDS);
+                maxMillis = Math.max(maxMillis, timer.max(TimeUnit.MILLISECONDS));
+            }
+            report.add(new ChatProfileUsage(name, profile.getModel(), profile.getMaxTokens(), toolNames(profile),
+                    List.copyOf(profile.getAdvisors()), calls, failures, calls == 0 ? 0 : Math.round(totalMillis / calls),
+                    Math.round(maxMillis), tokens(name, "prompt"), tokens(name, "completion"),
+                    tokens(name, "cached")));
+        }
+        return report;
+    }
+
+    private long tokens(String profile, String type) {
+        Counter counter = meterRegistry.find(ProfileMetricsAdvisor.TOKEN_COUNTER)
+                .tag("profile", profile)
+                .tag("type", type)
+                .counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    private ChatProfileProperties.Profile profile(String name) {
+        return properties.getProfiles().getOrDefault(name, new ChatProfileProperties.Profile());
+    }
+
+    private ChatClient build(String name) {
+        ChatProfileProperties.Profile profile = profile(name);
+        List<Advisor> advisors = new ArrayList<>();
+        advisors.add(new ProfileMetricsAdvisor(name, meterRegistry));
+        if (auditLog.isEnabled()) {
+            advisors.add(new AuditAdvisor(name, auditLog));
+        }
+        for (String advisor : profile.getAdvisors()) {
+            advisors.add(advisor(name, advisor));
+        }
+        OpenAiChatOptions.Builder options = OpenAiChatOptions.builder()
+                .model(profile.getModel())
+                .temperature(profile.getTemperature())
+                .maxTokens(profile.getMaxTokens());
+        if (profile.getOutputFormat() == ChatProfileProperties.OutputFormat.JSON_OBJECT) {
+            options.responseFormat(ResponseFormat.builder().type(ResponseFormat.Type.JSON_OBJECT).build());
+        }
+        ChatClient client = chatClientBuilders.getObject()
+                .defaultOptions(options.build())
+                .defaultAdvisors(advisors)
+                .defaultToolCallbacks(selectTools(name, profile))
+                .build();
+        log.info("模型调用配置 {}: 模型 {}，温度 {}，输出上限 {}，工具 {}，Advisor {}，结构化输出 {}", name,
+                profile.getModel() == null ? "默认" : profile.getModel(),
+                profile.getTemperature() == null ? "默认" : profile.getTemperature(),
+                profile.getMaxTokens() == null ? "不限" : profile.getMaxTokens(), toolNames(profile),
+                profile.getAdvisors(), profile.getOutputFormat());
+        return client;
+    }
+
+    private static Advisor advisor(String profile, String name) {
+        return switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "logger" -> new MyLoggerAdvisor();
+            case "simple-logger" -> new SimpleLoggerAdvisor();
+            case "re2" -> new ReReadingAdvisor();
+            default -> throw new IllegalStateException("模型调用配置 " + profile + " 中不支持的 Advisor: " + name
+                    + "，可选 logger / simple-logger / re2");
+        };
+    }
+
+    private List<ToolCallback> selectTools(String profile, ChatProfileProperties.Profile settings) {
+        List<String> names = settings.getTools();
+        if (names.contains(ALL_TOOLS)) {
+            return Arrays.asList(toolCallbacks);
+        }
+        List<ToolCallback> selected = new ArrayList<>();
+        for (String name : names) {
+            if (NO_TOOLS.equals(name)) {
+                continue;
+            }
+            ToolCallback tool = Arrays.stream(toolCallbacks)
+                    .filter(callback -> callback.getToolDefinition().name().equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("模型调用配置 " + profile + " 中不存在的工具: " + name
+                            + "，可选 " + toolNames(Arrays.asList(toolCallbacks))));
+            selected.add(tool);
+        }
+        return selected;
+    }
+
+    private List<String> toolNames(ChatProfileProperties.Profile profile) {
+        return profile.getTools().contains(ALL_TOOLS) ? toolNames(Arrays.asList(toolCallbacks))
+                : profile.getTools().stream().filter(name -> !NO_TOOLS.equals(name)).toList();
+    }
+
+    private static List<String> toolNames(List<ToolCallback> callbacks) {
+        return callbacks.stream().map(callback -> callback.getToolDefinition().name()).toList();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.text2sql.service.chat;
+
+import java.util.List;
+
+/**
+ * 单个模型调用配置的使用统计，耗时包含工具调用轮次
+ *
+ * @param profile          配置名
+ * @param model            模型名称，为 null 时沿用全局配置
+ * @param maxTokens        输出上限，为 null 时不限制
+ * @param tools            可用工具
+ * @param advisors         Advisor 链
+ * @param calls            调用次数
+ * @param failures         失败次数
+ * @param meanMillis       平均耗时（毫秒）
+ * @param maxMillis        最近一段时间内的最大耗时（毫秒）
+ * @param promptTokens     累计输入 Token
+ * @param completionTokens 累计输出 Token
+ * @param cachedTokens     累计命中前缀缓存的输入 Token
+ */
+public record ChatProfileUsage(String profile, String model, Integer maxTokens, List<String> tools,
+                               List<String> advisors, long calls, long failures, long meanMillis, long maxMillis,
+                               long promptTokens, long completionTokens, long cachedTokens) {
+}
@@ -0,0 +1,304 @@
+package com.example.text2sql.service.chat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.HedgingProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 对冲与推测模型调用
+ * 对冲：调用超过该配置最近耗时的分位数仍未返回时再发一次相同请求，先返回的生效，另一个中断取消；
+ * 推测：同时发出多个请求，取第一个通过校验的结果
+ * 两者都在 LLM 线程池中执行并受额外请求预算限制，结果记录到指标 text2sql.hedge.calls（profile、mode、outcome）
+ * 和 text2sql.hedge.saved（对冲请求胜出时估算节省的耗时）
+ * 取消通过中断工作线程实现，已发出的 HTTP 请求能否提前结束取决于客户端
+ */
+@Slf4j
+@Service
+public class HedgedCallService {
+
+    private static final String CALLS_COUNTER = "text2sql.hedge.calls";
+
+    private static final String SAVED_TIMER = "text2sql.hedge.saved";
+
+    private final HedgingProperties properties;
+
+    private final ThreadPoolTaskExecutor llmExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    public HedgedCallService(HedgingProperties properties,
+                             @Qualifier("llmExecutor") ThreadPoolTaskExecutor llmExecutor,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.llmExecutor = llmExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 按配置决定是否对冲地执行一次模型调用；未开启或该配置不参与时直接在当前线程调用
+     */
+    public <T> T call(String profile, Supplier<T> call) {
+        if (!properties.isEnabled() || !properties.getProfiles().contains(profile)) {
+            return call.get();
+        }
+        budget(profile).earn();
+        long delayMillis = latency(profile).hedgeDelayMillis();
+        CompletionService<Timed<T>> completion = new ExecutorCompletionService<>(llmExecutor);
+        List<Future<Timed<T>>> futures = new ArrayList<>(2);
+        long start = System.nanoTime();
+        if (!submit(completion, timed(call, value -> true), futures)) {
+            return call.get();
+        }
+        try {
+            Future<Timed<T>> done = completion.poll(delayMillis, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                if (budget(profile).tryAcquire(1) && submit(completion, timed(call, value -> true), futures)) {
+                    log.info("{} 超过 {} ms 未返回，发出对冲请求", profile, delayMillis);
+                } else {
+                    count(profile, "hedge", "no-budget");
+                }
+                done = completion.take();
+            }
+            Timed<T> result = result(done, completion, futures);
+            boolean hedgeWon = futures.size() > 1 && result.index() == 1;
+            count(profile, "hedge", futures.size() == 1 ? "not-hedged" : hedgeWon ? "hedge-won" : "primary-won");
+            if (hedgeWon) {
+                recordSaved(profile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            latency(profile).record(result.millis());
+            return result.value();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待模型调用结果时被中断", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * 推测执行：同时发出最多 candidates 个请求（受预算限制），返回第一个满足 accept 的结果，其余取消；
+     * accept 在工作线程中执行，可以包含数据库校验。没有结果满足时返回最先完成的结果，全部失败时抛出最先出现的异常
+     */
+    public <T> T race(String profile, int candidates, Supplier<T> call, Predicate<T> accept) {
+        budget(profile).earn();
+        int count = 1;
+        while (count < candidates && budget(profile).tryAcquire(1)) {
+            count++;
+        }
+        CompletionService<Timed<T>> completion = new ExecutorCompletionService<>(llmExecutor);
+        List<Future<Timed<T>>> futures = new ArrayList<>(count);
+        Callable<Timed<T>> candidate = timed(call, accept);
+        for (int i = 0; i < count; i++) {
+            submit(completion, candidate, futures);
+        }
+        if (futures.isEmpty()) {
+            return call.get();
+        }
+        log.info("{} 推测执行 {} 个候选", profile, futures.size());
+        RuntimeException failure = null;
+        Timed<T> first = null;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    Timed<T> result = completion.take().get();
+                    latency(profile).record(result.millis());
+                    if (result.accepted()) {
+                        count(profile, "speculative", "accepted");
+                        return result.value();
+                    }
+                    if (first == null) {
+                        first = result;
+                    }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = unwrap(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待模型调用结果时被中断", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        count(profile, "speculative", "none-accepted");
+        if (first == null) {
+            throw failure;
+        }
+        // 没有候选通过校验，返回最先完成的结果，由后续步骤报告具体问题
+        return first.value();
+    }
+
+    private <T> Timed<T> result(Future<Timed<T>> done, CompletionService<Timed<T>> completion,
+                                List<Future<Timed<T>>> futures) throws InterruptedException {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            if (futures.size() == 1) {
+                throw unwrap(e);
+            }
+            // 先结束的请求失败时等待另一个
+            try {
+                return completion.take().get();
+            } catch (ExecutionException other) {
+                throw unwrap(other);
+            }
+        }
+    }
+
+    private <T> boolean submit(CompletionService<Timed<T>> completion, Callable<Timed<T>> callable,
+                               List<Future<Timed<T>>> futures) {
+        int index = futures.size();
+        try {
+            futures.add(completion.submit(() -> callable.call().withIndex(index)));
+            return true;
+        } catch (TaskRejectedException e) {
+            log.warn("LLM 线程池已满，本次只发出 {} 个请求", index);
+            return false;
+        }
+    }
+
+    private static <T> Callable<Timed<T>> timed(Supplier<T> call, Predicate<T> accept) {
+        return () -> {
+            long start = System.nanoTime();
+            T value = call.get();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Timed<>(value, value != null && accept.test(value), millis, 0);
+        };
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+    }
+
+    /**
+     * 对冲请求胜出时，原请求至少还要耗时到最近样本中超过当前耗时部分的中位数，以此估算节省的时间
+     */
+    private void recordSaved(String profile, long elapsedMillis) {
+        long expected = latency(profile).medianAbove(elapsedMillis);
+        if (expected > elapsedMillis) {
+            meterRegistry.timer(SAVED_TIMER, "profile", profile).record(expected - elapsedMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void count(String profile, String mode, String outcome) {
+        meterRegistry.counter(CALLS_COUNTER, "profile", profile, "mode", mode, "outcome", outcome).increment();
+    }
+
+    private LatencyWindow latency(String profile) {
+        return latencies.computeIfAbsent(profile, name -> new LatencyWindow(properties));
+    }
+
+    private Budget budget(String profile) {
+        return budgets.computeIfAbsent(profile, name -> new Budget(properties.getBudgetRatio(), properties.getBudgetBurst()));
+    }
+
+    /**
+     * 一次请求的结果、是否通过校验、耗时（不含校验）和发出顺序
+     */
+    private record Timed<T>(T value, boolean accepted, long millis, int index) {
+
+        Timed<T> withIndex(int index) {
+            return new Timed<>(value, accepted, millis, index);
+        }
+    }
+
+    /**
+     * 最近若干次调用的耗时，环形缓冲
+     */
+    private static final class LatencyWindow {
+
+        private final HedgingProperties properties;
+
+        private final long[] samples;
+
+        private int size;
+
+        private int next;
+
+        LatencyWindow(HedgingProperties properties) {
+            this.properties = properties;
+            this.samples = new long[Math.max(properties.getWindow(), 1)];
+        }
+
+        synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        synchronized long hedgeDelayMillis() {
+            if (size < properties.getMinSamples()) {
+                return properties.getInitialDelay().toMillis();
+            }
+            long[] sorted = sorted();
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(properties.getPercentile() * sorted.length) - 1);
+            return Math.max(sorted[Math.max(index, 0)], properties.getMinDelay().toMillis());
+        }
+
+        synchronized long medianAbove(long millis) {
+            long[] above = Arrays.stream(sorted()).filter(sample -> sample > millis).toArray();
+            return above.length == 0 ? 0 : above[above.length / 2];
+        }
+
+        private long[] sorted() {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * 额外请求的令牌桶：每次调用积累 ratio，上限 burst
+     */
+    private static final class Budget {
+
+        private final double ratio;
+
+        private final double burst;
+
+        private double tokens;
+
+        Budget(double ratio, double burst) {
+            this.ratio = ratio;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        synchronized void earn() {
+            tokens = Math.min(burst, tokens + ratio);
+        }
+
+        synchronized boolean tryAcquire(double cost) {
+            if (tokens < cost) {
+                return false;
+            }
+            tokens -= cost;
+            return true;
+        }
+    }
+}
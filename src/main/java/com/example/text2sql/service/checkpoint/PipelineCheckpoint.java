@@ -0,0 +1,14 @@
+package com.example.text2sql.service.checkpoint;
+
+import com.example.text2sql.service.Text2SqlStepResult;
+
+/**
+ * 一次分步流水线运行的检查点：原始问题、所用数据源和已完成的步骤结果
+ *
+ * @param runId      运行编号
+ * @param dataSource 数据源名称，续跑时在同一数据源上执行
+ * @param userQuery  原始问题
+ * @param result     各步骤结果，失败或未执行的步骤为错误或 null
+ */
+public record PipelineCheckpoint(String runId, String dataSource, String userQuery, Text2SqlStepResult result) {
+}
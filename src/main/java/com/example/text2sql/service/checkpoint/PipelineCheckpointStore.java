@@ -0,0 +1,34 @@
+package com.example.text2sql.service.checkpoint;
+
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+
+import com.example.text2sql.config.CheckpointProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * 分步流水线检查点存储
+ * 保存在内存中，按条数和最后访问时间淘汰；重启后运行记录失效，需要重新提交问题
+ */
+@Component
+public class PipelineCheckpointStore {
+
+    private final Cache<String, PipelineCheckpoint> checkpoints;
+
+    public PipelineCheckpointStore(CheckpointProperties properties) {
+        this.checkpoints = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxRuns())
+                .expireAfterAccess(properties.getTtl())
+                .build();
+    }
+
+    public void save(PipelineCheckpoint checkpoint) {
+        checkpoints.put(checkpoint.runId(), checkpoint);
+    }
+
+    public Optional<PipelineCheckpoint> get(String runId) {
+        return Optional.ofNullable(checkpoints.getIfPresent(runId));
+    }
+}
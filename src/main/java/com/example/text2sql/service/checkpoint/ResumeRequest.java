@@ -0,0 +1,28 @@
+package com.example.text2sql.service.checkpoint;
+
+import java.util.List;
+
+/**
+ * 续跑请求：从指定步骤开始重新执行，之前的步骤沿用检查点中的结果
+ * 修改项直接替换对应步骤的输出且该步骤不再调用模型，例如修正表清单替换步骤2、手工修改的 SQL 替换步骤4
+ *
+ * @param fromStep       从第几步开始重新执行（1 ~ 5），为空时取最后一个修改项的下一步
+ * @param rewrittenQuery 替换步骤1的改写结果
+ * @param tables         替换步骤2选中的表
+ * @param sql            替换步骤4生成的 SQL
+ */
+public record ResumeRequest(Integer fromStep, String rewrittenQuery, List<String> tables, String sql) {
+
+    /**
+     * 最后一个修改项所在的步骤，没有修改项时为 0
+     */
+    public int lastEditedStep() {
+        if (sql != null && !sql.isBlank()) {
+            return 4;
+        }
+        if (tables != null && !tables.isEmpty()) {
+            return 2;
+        }
+        return rewrittenQuery != null && !rewrittenQuery.isBlank() ? 1 : 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.text2sql.service.fanout;
+
+import com.example.text2sql.service.Text2SqlStepResult;
+
+/**
+ * 单个数据源分支的结果
+ *
+ * @param dataSource     数据源名称
+ * @param result         该数据源上流水线的各步骤结果，分支超时或异常时为 null
+ * @param durationMillis 分支耗时（毫秒），从提交开始计算，包括排队时间
+ * @param error          分支超时或异常的原因，成功跑完流水线时为 null；某一步失败记录在 result 中
+ */
+public record FanOutBranch(String dataSource, Text2SqlStepResult result, long durationMillis, String error) {
+
+    /**
+     * 分支是否跑完流水线并成功执行了 SQL
+     */
+    public boolean isSuccess() {
+        return error == null && result != null && result.getStep5SqlExecution() != null
+                && !result.getStep5SqlExecution().isError();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.text2sql.service.fanout;
+
+import java.util.List;
+
+/**
+ * 多数据源查询请求
+ *
+ * @param query       用户问题
+ * @param dataSources 数据源名称，为空时查询全部数据源
+ */
+public record FanOutRequest(String query, List<String> dataSources) {
+}
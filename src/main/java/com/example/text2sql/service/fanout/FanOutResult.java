@@ -0,0 +1,34 @@
+package com.example.text2sql.service.fanout;
+
+import java.util.List;
+
+import com.example.text2sql.service.trace.TraceSpan;
+
+import lombok.Data;
+
+/**
+ * 多数据源查询结果，分支按请求中的数据源顺序排列
+ */
+@Data
+public class FanOutResult {
+
+    /**
+     * 用户问题
+     */
+    private String query;
+
+    /**
+     * 各数据源分支的结果
+     */
+    private List<FanOutBranch> branches;
+
+    /**
+     * 总耗时（毫秒），接近最慢分支的耗时
+     */
+    private long durationMillis;
+
+    /**
+     * 本次请求的耗时树，每个分支为一个 branch 节点
+     */
+    private TraceSpan timing;
+}
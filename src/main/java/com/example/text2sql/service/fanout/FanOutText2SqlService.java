@@ -0,0 +1,144 @@
+package com.example.text2sql.service.fanout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.FanOutProperties;
+import com.example.text2sql.service.StepBasedText2SqlService;
+import com.example.text2sql.service.Text2SqlStepResult;
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 多数据源并行查询服务
+ * 同一个问题在多个数据源上各跑一遍分步流水线：每个分支在自己的数据源上下文中选表、生成并执行 SQL，
+ * 分支之间并发执行，总耗时接近最慢的分支。单个分支失败或超时只记录在该分支的结果中，超时的分支被取消，不再占用线程池
+ * 各分支耗时记录在 text2sql.fanout.branch（dataSource、success）中
+ */
+@Slf4j
+@Service
+public class FanOutText2SqlService {
+
+    private static final String BRANCH_TIMER = "text2sql.fanout.branch";
+
+    private final StepBasedText2SqlService stepBasedText2SqlService;
+
+    private final FanOutProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolTaskExecutor fanOutExecutor;
+
+    public FanOutText2SqlService(StepBasedText2SqlService stepBasedText2SqlService,
+                                 FanOutProperties properties,
+                                 MeterRegistry meterRegistry,
+                                 @Qualifier("fanOutExecutor") ThreadPoolTaskExecutor fanOutExecutor) {
+        this.stepBasedText2SqlService = stepBasedText2SqlService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    /**
+     * 在指定的多个数据源上并行处理同一个问题
+     *
+     * @param query       用户问题
+     * @param dataSources 数据源名称，为空时查询全部数据源；重复的名称只查询一次
+     * @return 各数据源分支的结果，按请求中的顺序排列
+     */
+    public FanOutResult processQuery(String query, List<String> dataSources) {
+        List<String> names = DataSourceRouter.requireDataSources(dataSources);
+        log.info("开始多数据源查询，数据源: {}，问题: {}", names, query);
+        long start = System.nanoTime();
+
+        List<Future<FanOutBranch>> futures = new ArrayList<>(names.size());
+        for (String dataSource : names) {
+            futures.add(submit(query, dataSource, start));
+        }
+        // 各分支同时提交，共用同一个截止时间
+        long deadline = start + properties.getBranchTimeout().toNanos();
+        List<FanOutBranch> branches = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            branches.add(await(names.get(i), futures.get(i), start, deadline));
+        }
+
+        FanOutResult result = new FanOutResult();
+        result.setQuery(query);
+        result.setBranches(branches);
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("多数据源查询完成，耗时 {}ms，成功 {}/{}", result.getDurationMillis(),
+                branches.stream().filter(FanOutBranch::isSuccess).count(), branches.size());
+        return result;
+    }
+
+    /**
+     * 在数据源上下文中提交分支，线程池装饰器把数据源和耗时追踪节点传递到工作线程
+     * 线程池返回 FutureTask，超时后取消会中断分支线程
+     */
+    private Future<FanOutBranch> submit(String query, String dataSource, long start) {
+        try (DataSourceRouter.DataSourceContext ignored = DataSourceRouter.withDataSource(dataSource)) {
+            return fanOutExecutor.submit(() -> runBranch(query, dataSource, start));
+        } catch (RuntimeException e) {
+            // 任务队列已满等提交失败的情况
+            log.error("数据源 {} 的分支提交失败", dataSource, e);
+            return CompletableFuture.completedFuture(
+                    new FanOutBranch(dataSource, null, 0, "任务提交失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 等待分支完成，超过截止时间时取消分支：分支线程被中断，流水线中尚未开始的阶段不再执行
+     */
+    private FanOutBranch await(String dataSource, Future<FanOutBranch> future, long start, long deadline) {
+        String error;
+        try {
+            return record(future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("数据源 {} 的分支超过 {} 未完成，已取消", dataSource, properties.getBranchTimeout());
+            error = "分支超时: " + properties.getBranchTimeout().toSeconds() + " 秒内未完成";
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            error = "等待分支结果时被中断";
+        } catch (ExecutionException | CancellationException e) {
+            log.error("数据源 {} 的分支处理失败", dataSource, e);
+            error = "处理查询时发生错误: " + e.getMessage();
+        }
+        return record(new FanOutBranch(dataSource, null, millisSince(start), error));
+    }
+
+    private FanOutBranch runBranch(String query, String dataSource, long start) {
+        try (TraceSpan ignored = RequestTrace.span("branch", dataSource)) {
+            Text2SqlStepResult result = stepBasedText2SqlService.processQueryWithSteps(query);
+            return new FanOutBranch(dataSource, result, millisSince(start), null);
+        } catch (RuntimeException e) {
+            log.error("数据源 {} 的分支处理失败", dataSource, e);
+            return new FanOutBranch(dataSource, null, millisSince(start), "处理查询时发生错误: " + e.getMessage());
+        }
+    }
+
+    private FanOutBranch record(FanOutBranch branch) {
+        meterRegistry.timer(BRANCH_TIMER, "dataSource", branch.dataSource(), "success", String.valueOf(branch.isSuccess()))
+                .record(branch.durationMillis(), TimeUnit.MILLISECONDS);
+        return branch;
+    }
+
+    private static long millisSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.text2sql.service.federation;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * 跨数据源关联查询计划，由模型按 JSON Schema 返回
+ * 两个子查询分别在各自的数据源上执行，第一个为探测侧（LEFT JOIN 的左表），第二个为构建侧，应选行数较少的一侧；
+ * 关联、分组聚合、排序和条数限制在本地完成
+ *
+ * @param sources     两个子查询
+ * @param join        关联方式和关联列
+ * @param columns     不聚合时输出的列，写成 别名.列名，为空时输出两侧全部列
+ * @param groupBy     分组列，写成 别名.列名
+ * @param aggregates  聚合项
+ * @param orderBy     排序项
+ * @param limit       结果条数上限
+ * @param explanation 简短说明
+ */
+public record FederatedPlan(
+        @JsonPropertyDescription("恰好两个子查询：第一个为探测侧（左表），第二个为构建侧，取行数较少的一侧")
+        List<SubQuery> sources,
+        @JsonPropertyDescription("两个子查询结果之间的关联")
+        JoinSpec join,
+        @JsonPropertyDescription("不聚合时输出的列，写成 别名.列名；为空数组时输出全部列")
+        List<String> columns,
+        @JsonPropertyDescription("分组列，写成 别名.列名；不分组时为空数组")
+        List<String> groupBy,
+        @JsonPropertyDescription("聚合项；不聚合时为空数组")
+        List<Aggregate> aggregates,
+        @JsonPropertyDescription("排序项，列名为输出列或聚合项的 as；不排序时为空数组")
+        List<OrderItem> orderBy,
+        @JsonPropertyDescription("结果条数上限，最多 1000")
+        Integer limit,
+        @JsonPropertyDescription("一两句话说明两侧各取什么数据、如何关联")
+        String explanation) {
+
+    /**
+     * 在单个数据源上执行的子查询
+     *
+     * @param alias      结果别名，关联列和输出列用它限定
+     * @param dataSource 数据源名称
+     * @param sql        SELECT 语句，只选需要的列并带上本侧的筛选条件，不写 LIMIT
+     */
+    public record SubQuery(
+            @JsonPropertyDescription("结果别名，例如 e、d")
+            String alias,
+            @JsonPropertyDescription("数据源名称，取自给出的数据源列表")
+            String dataSource,
+            @JsonPropertyDescription("在该数据源上执行的一条 SELECT 语句，只选需要的列、带上本侧的筛选条件，不写 LIMIT")
+            String sql) {
+    }
+
+    /**
+     * 关联方式，leftKeys 与 rightKeys 按位置一一对应
+     *
+     * @param type      INNER 或 LEFT
+     * @param leftKeys  第一个子查询的关联列
+     * @param rightKeys 第二个子查询的关联列
+     */
+    public record JoinSpec(
+            @JsonPropertyDescription("INNER 或 LEFT")
+            String type,
+            @JsonPropertyDescription("第一个子查询结果中的关联列名，不带别名")
+            List<String> leftKeys,
+            @JsonPropertyDescription("第二个子查询结果中的关联列名，不带别名，与 leftKeys 按位置对应")
+            List<String> rightKeys) {
+    }
+
+    /**
+     * 聚合项
+     *
+     * @param function COUNT、SUM、AVG、MIN、MAX
+     * @param column   聚合的列，写成 别名.列名，COUNT 可用 *
+     * @param as       输出列名
+     */
+    public record Aggregate(
+            @JsonPropertyDescription("COUNT、SUM、AVG、MIN 或 MAX")
+            String function,
+            @JsonPropertyDescription("聚合的列，写成 别名.列名；COUNT 统计行数时为 *")
+            String column,
+            @JsonPropertyDescription("输出列名")
+            String as) {
+    }
+
+    /**
+     * 排序项
+     *
+     * @param column     输出列名
+     * @param descending 是否降序
+     */
+    public record OrderItem(
+            @JsonPropertyDescription("输出列名：别名.列名或聚合项的 as")
+            String column,
+            @JsonPropertyDescription("是否降序")
+            boolean descending) {
+    }
+
+    /**
+     * 页面展示的文本
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder("跨数据源关联计划：\n\n");
+        for (SubQuery source : sources) {
+            text.append("- ").append(source.alias()).append("（").append(source.dataSource()).append("）：")
+                    .append(source.sql()).append('\n');
+        }
+        if (join != null) {
+            text.append("- 关联：").append(join.type()).append(" JOIN ON ")
+                    .append(pairs(join.leftKeys(), join.rightKeys())).append('\n');
+        }
+        if (explanation != null && !explanation.isBlank()) {
+            text.append("- 说明：").append(explanation.trim());
+        }
+        return text.toString().trim();
+    }
+
+    private String pairs(List<String> leftKeys, List<String> rightKeys) {
+        StringJoiner joiner = new StringJoiner(" AND ");
+        for (int i = 0; i < Math.min(leftKeys.size(), rightKeys.size()); i++) {
+            joiner.add(sources.get(0).alias() + "." + leftKeys.get(i) + " = " + sources.get(1).alias() + "." + rightKeys.get(i));
+        }
+        return joiner.toString();
+    }
+}
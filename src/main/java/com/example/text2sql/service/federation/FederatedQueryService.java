@@ -0,0 +1,268 @@
+package com.example.text2sql.service.federation;
+
+import java.nio.file.Path;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.FederationProperties;
+import com.example.text2sql.config.SqlProperties;
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.prompt.PromptTemplateRegistry;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+import com.example.text2sql.service.sql.SqlAnalysis;
+import com.example.text2sql.service.sql.SqlAnalyzer;
+import com.example.text2sql.service.sql.SqlValidation;
+import com.example.text2sql.service.sql.StreamingStatement;
+import com.example.text2sql.service.step.SqlExecution;
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 跨数据源关联查询服务
+ * 问题涉及的表分布在不同数据库时，由模型生成两条子查询和关联方式，子查询分别在各自的数据源上流式读取，
+ * 在本地做哈希关联（构建侧超出内存上限时溢写到磁盘），再做分组聚合、排序和条数限制
+ * 子查询写 SELECT * 时按计划用到的列裁剪；筛选条件由模型写进子查询，在数据库中执行
+ * 耗时记录在 text2sql.federation.duration（success），溢写字节数记录在 text2sql.federation.spilled
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FederatedQueryService {
+
+    private static final String PLAN_PROMPT = "federation-plan";
+
+    private static final String PLAN_INPUT = "federation-plan-input";
+
+    private static final String DURATION_TIMER = "text2sql.federation.duration";
+
+    private static final String SPILLED_SUMMARY = "text2sql.federation.spilled";
+
+    private final ChatClientProfiles chatClientProfiles;
+
+    private final PromptTemplateRegistry promptTemplateRegistry;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final SqlAnalyzer sqlAnalyzer;
+
+    private final DataSourceRouter dataSourceRouter;
+
+    private final FederationProperties properties;
+
+    private final SqlProperties sqlProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 处理跨数据源关联查询
+     *
+     * @param query       用户问题
+     * @param dataSources 问题涉及的数据源，为空时为全部数据源
+     */
+    public FederatedResult processQuery(String query, List<String> dataSources) {
+        List<String> names = DataSourceRouter.requireDataSources(dataSources);
+        log.info("开始跨数据源关联查询，数据源: {}，问题: {}", names, query);
+        long start = System.nanoTime();
+        FederatedResult result = new FederatedResult();
+        result.setQuery(query);
+        try {
+            FederatedPlan plan = plan(query, names);
+            plan = pushDown(validate(plan, names));
+            result.setPlan(plan);
+            result.setExecution(SqlExecution.of(execute(plan, result)));
+            log.info("跨数据源关联完成: {}", result.getStats());
+        } catch (RuntimeException e) {
+            log.error("跨数据源关联查询失败", e);
+            result.setError(e.getMessage());
+        }
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        meterRegistry.timer(DURATION_TIMER, "success", String.valueOf(result.isSuccess()))
+                .record(result.getDurationMillis(), TimeUnit.MILLISECONDS);
+        if (result.getStats() != null) {
+            meterRegistry.summary(SPILLED_SUMMARY).record(result.getStats().spilledBytes());
+        }
+        return result;
+    }
+
+    /**
+     * 调用模型生成查询计划，提示词中带上各数据源的表结构
+     */
+    private FederatedPlan plan(String query, List<String> dataSources) {
+        StringBuilder schemas = new StringBuilder();
+        for (String dataSource : dataSources) {
+            schemas.append("### 数据源 ").append(dataSource).append("\n\n")
+                    .append(schemaCatalogService.getSchemaSnapshot(dataSource).schema()).append("\n\n");
+        }
+        String system = promptTemplateRegistry.get(PLAN_PROMPT).text();
+        String input = promptTemplateRegistry.render(PLAN_INPUT,
+                Map.of("userQuery", query, "schemas", schemas.toString().trim())).text();
+        FederatedPlan plan;
+        try (TraceSpan ignored = RequestTrace.span("stage", "plan")) {
+            plan = chatClientProfiles.prompt(ChatClientProfiles.FEDERATION)
+                    .system(system)
+                    .user(input)
+                    .call()
+                    .entity(FederatedPlan.class);
+        }
+        if (plan == null) {
+            throw new IllegalStateException("模型没有返回查询计划");
+        }
+        return plan;
+    }
+
+    private FederatedPlan validate(FederatedPlan plan, List<String> dataSources) {
+        if (plan.sources() == null || plan.sources().size() != 2) {
+            throw new IllegalArgumentException("查询计划应包含两条子查询");
+        }
+        if (plan.join() == null || plan.join().leftKeys() == null || plan.join().rightKeys() == null
+                || plan.join().leftKeys().isEmpty() || plan.join().leftKeys().size() != plan.join().rightKeys().size()) {
+            throw new IllegalArgumentException("查询计划的关联列为空或两侧数量不一致");
+        }
+        joinType(plan.join());
+        Set<String> aliases = new LinkedHashSet<>();
+        for (FederatedPlan.SubQuery source : plan.sources()) {
+            if (StringUtils.isBlank(source.alias()) || !aliases.add(source.alias().trim().toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("子查询别名为空或重复: " + source.alias());
+            }
+            String dataSource = StringUtils.trimToEmpty(source.dataSource()).toLowerCase(Locale.ROOT);
+            if (!dataSources.contains(dataSource)) {
+                throw new IllegalArgumentException("子查询 " + source.alias() + " 使用了不在范围内的数据源: "
+                        + source.dataSource());
+            }
+            SqlValidation validation = sqlAnalyzer.validate(source.sql(), dataSource);
+            if (!validation.isValid()) {
+                throw new IllegalArgumentException("子查询 " + source.alias() + " 不可执行: " + validation.getMessage());
+            }
+            if (validation.getAnalysis().getLimit() != null) {
+                // 子查询截断后关联结果不完整
+                throw new IllegalArgumentException("子查询 " + source.alias() + " 不能带 LIMIT，条数限制在关联后进行");
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 列裁剪下推：单表子查询写了 SELECT * 时只取计划中用到的列；输出全部列时不裁剪
+     */
+    private FederatedPlan pushDown(FederatedPlan plan) {
+        boolean allColumns = isEmpty(plan.columns()) && isEmpty(plan.groupBy()) && isEmpty(plan.aggregates());
+        List<FederatedPlan.SubQuery> sources = new ArrayList<>(2);
+        for (int side = 0; side < 2; side++) {
+            FederatedPlan.SubQuery source = plan.sources().get(side);
+            Set<String> columns = referencedColumns(plan, source.alias(),
+                    side == 0 ? plan.join().leftKeys() : plan.join().rightKeys());
+            SqlAnalysis analysis = sqlAnalyzer.analyze(source.sql());
+            String sql = source.sql();
+            if (!allColumns && analysis.isSelectAll() && analysis.getTables().size() == 1) {
+                sql = sqlAnalyzer.pruneColumns(analysis, Map.of(analysis.getTables().iterator().next(), columns));
+            }
+            sources.add(new FederatedPlan.SubQuery(source.alias(), source.dataSource().trim().toLowerCase(Locale.ROOT), sql));
+        }
+        return new FederatedPlan(sources, plan.join(), plan.columns(), plan.groupBy(), plan.aggregates(),
+                plan.orderBy(), plan.limit(), plan.explanation());
+    }
+
+    /**
+     * 计划中用到的某一侧的列：关联列，以及输出、分组、聚合、排序中以该别名限定的列
+     */
+    private static Set<String> referencedColumns(FederatedPlan plan, String alias, List<String> keys) {
+        String prefix = alias.trim().toLowerCase(Locale.ROOT) + ".";
+        Set<String> columns = new LinkedHashSet<>();
+        keys.forEach(key -> columns.add(key.trim().toLowerCase(Locale.ROOT)));
+        List<String> references = new ArrayList<>();
+        references.addAll(nullToEmpty(plan.columns()));
+        references.addAll(nullToEmpty(plan.groupBy()));
+        nullToEmpty(plan.aggregates()).forEach(item -> references.add(String.valueOf(item.column())));
+        nullToEmpty(plan.orderBy()).forEach(item -> references.add(String.valueOf(item.column())));
+        for (String reference : references) {
+            String name = reference.trim().toLowerCase(Locale.ROOT);
+            if (name.startsWith(prefix)) {
+                columns.add(name.substring(prefix.length()));
+            }
+        }
+        return columns;
+    }
+
+    private List<Map<String, Object>> execute(FederatedPlan plan, FederatedResult result) {
+        FederatedPlan.SubQuery probe = plan.sources().get(0);
+        FederatedPlan.SubQuery build = plan.sources().get(1);
+        ResultAssembler assembler = new ResultAssembler(plan, sqlProperties.getMaxRows());
+        HashJoin hashJoin = new HashJoin(properties.getMemoryBudget().toBytes(), properties.getSpillPartitions(),
+                properties.getMaxSpillDepth(),
+                StringUtils.isBlank(properties.getSpillDirectory()) ? null : Path.of(properties.getSpillDirectory()));
+        try (TraceSpan span = RequestTrace.span("stage", "join")) {
+            JoinStats stats = hashJoin.join(source(build), plan.join().rightKeys(), source(probe),
+                    plan.join().leftKeys(), joinType(plan.join()), assembler);
+            result.setStats(stats);
+            span.attribute("buildRows", stats.buildRows())
+                    .attribute("probeRows", stats.probeRows())
+                    .attribute("spilledBytes", stats.spilledBytes());
+        }
+        return assembler.result();
+    }
+
+    /**
+     * 在子查询的数据源上流式读取，按配置的 fetchSize 逐批取行，读过的行不在驱动中保留
+     */
+    private RowSource source(FederatedPlan.SubQuery subQuery) {
+        return handler -> {
+            try (DataSourceRouter.DataSourceContext ignored = DataSourceRouter.withDataSource(subQuery.dataSource())) {
+                dataSourceRouter.getDataSourceByName(subQuery.dataSource())
+                        .query(new StreamingStatement(subQuery.sql(), properties.getFetchSize()), rs -> {
+                            ResultSetMetaData metaData = rs.getMetaData();
+                            int width = metaData.getColumnCount();
+                            List<String> columns = new ArrayList<>(width);
+                            for (int i = 1; i <= width; i++) {
+                                columns.add(JdbcUtils.lookupColumnName(metaData, i).toLowerCase(Locale.ROOT));
+                            }
+                            handler.columns(columns);
+                            long rows = 0;
+                            while (rs.next()) {
+                                Object[] values = new Object[width];
+                                for (int i = 0; i < width; i++) {
+                                    values[i] = JdbcUtils.getResultSetValue(rs, i + 1);
+                                }
+                                rows++;
+                                if (!handler.row(values)) {
+                                    break;
+                                }
+                            }
+                            RequestTrace.current().attribute("rows", rows);
+                            return null;
+                        });
+            }
+        };
+    }
+
+    private static HashJoin.Type joinType(FederatedPlan.JoinSpec join) {
+        String type = StringUtils.defaultIfBlank(join.type(), "INNER").trim().toUpperCase(Locale.ROOT);
+        try {
+            return HashJoin.Type.valueOf(type);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的关联方式: " + join.type() + "，可选 INNER / LEFT");
+        }
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.text2sql.service.federation;
+
+import java.util.List;
+
+/**
+ * 跨数据源关联查询请求
+ *
+ * @param query       用户问题
+ * @param dataSources 问题涉及的数据源，为空时提供全部数据源的表结构
+ */
+public record FederatedRequest(String query, List<String> dataSources) {
+}
@@ -0,0 +1,52 @@
+package com.example.text2sql.service.federation;
+
+import com.example.text2sql.service.step.SqlExecution;
+import com.example.text2sql.service.trace.TraceSpan;
+
+import lombok.Data;
+
+/**
+ * 跨数据源关联查询结果
+ */
+@Data
+public class FederatedResult {
+
+    /**
+     * 用户问题
+     */
+    private String query;
+
+    /**
+     * 模型生成的查询计划，子查询为下推列裁剪后实际执行的 SQL
+     */
+    private FederatedPlan plan;
+
+    /**
+     * 关联、聚合和条数限制之后的结果
+     */
+    private SqlExecution execution;
+
+    /**
+     * 两侧读取行数、内存峰值和溢写情况
+     */
+    private JoinStats stats;
+
+    /**
+     * 失败原因，成功时为 null
+     */
+    private String error;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long durationMillis;
+
+    /**
+     * 本次请求的耗时树
+     */
+    private TraceSpan timing;
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,588 @@
+package com.example.text2sql.service.federation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 带溢写的哈希关联
+ * 先完整读取构建侧建哈希表，再流式读取探测侧逐行查找；构建侧估算占用超出内存上限时改为分区关联：
+ * 两侧按关联键的哈希写入同样数量的分区文件，再逐个分区在内存中关联，单个分区仍超出上限时换一个哈希重新分区
+ * 关联键中的整数和小数统一比较（1、1L、1.0 相等），日期统一为 java.time 类型；任一关联列为 NULL 的行不参与匹配
+ */
+@Slf4j
+public class HashJoin {
+
+    public enum Type {
+        INNER, LEFT
+    }
+
+    /**
+     * 关联结果的接收方
+     */
+    public interface Output {
+
+        /**
+         * 两侧的列名，在第一行结果之前回调
+         */
+        default void columns(List<String> probeColumns, List<String> buildColumns) {
+        }
+
+        /**
+         * 一行关联结果；LEFT JOIN 未匹配时 build 为 null
+         *
+         * @return 是否还需要更多结果，返回 false 时提前结束
+         */
+        boolean accept(Object[] probe, Object[] build);
+    }
+
+    /**
+     * 每行的对象头和引用数组的估算开销
+     */
+    private static final long ROW_OVERHEAD = 32;
+
+    /**
+     * 哈希表中每个关联键的条目、键对象和行列表的估算开销
+     */
+    private static final long KEY_OVERHEAD = 96;
+
+    private final long memoryBudget;
+
+    private final int partitions;
+
+    private final int maxDepth;
+
+    private final Path spillDirectory;
+
+    /**
+     * @param memoryBudget   构建侧哈希表的内存上限（字节）
+     * @param partitions     溢写时的分区数
+     * @param maxDepth       重新分区的最大层数
+     * @param spillDirectory 溢写目录，为 null 时使用系统临时目录
+     */
+    public HashJoin(long memoryBudget, int partitions, int maxDepth, Path spillDirectory) {
+        this.memoryBudget = memoryBudget;
+        this.partitions = Math.max(partitions, 2);
+        this.maxDepth = Math.max(maxDepth, 1);
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * 执行关联，构建侧先读完，探测侧后读
+     *
+     * @param build     构建侧，应为行数较少的一侧
+     * @param buildKeys 构建侧的关联列
+     * @param probe     探测侧，LEFT JOIN 时为保留全部行的一侧
+     * @param probeKeys 探测侧的关联列，与 buildKeys 按位置对应
+     * @param type      关联方式
+     * @param output    结果接收方
+     */
+    public JoinStats join(RowSource build, List<String> buildKeys, RowSource probe, List<String> probeKeys, Type type,
+                          Output output) {
+        if (buildKeys.isEmpty() || buildKeys.size() != probeKeys.size()) {
+            throw new IllegalArgumentException("两侧的关联列数量应相同且不为空");
+        }
+        try (Execution execution = new Execution(type, output)) {
+            execution.run(build, buildKeys, probe, probeKeys);
+            return execution.stats();
+        } catch (IOException e) {
+            throw new UncheckedIOException("关联溢写失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 单次关联的状态
+     */
+    private final class Execution implements AutoCloseable {
+
+        private final Type type;
+
+        private final Output output;
+
+        private int[] buildKeyIndexes;
+
+        private int[] probeKeyIndexes;
+
+        private List<String> buildColumns = List.of();
+
+        private long buildRows;
+
+        private long probeRows;
+
+        private long outputRows;
+
+        private long peakMemory;
+
+        private int spilledPartitions;
+
+        private long spilledBytes;
+
+        private int spillDepth;
+
+        private boolean overBudget;
+
+        private boolean stopped;
+
+        private Path directory;
+
+        private int fileSequence;
+
+        Execution(Type type, Output output) {
+            this.type = type;
+            this.output = output;
+        }
+
+        void run(RowSource build, List<String> buildKeys, RowSource probe, List<String> probeKeys) throws IOException {
+            BuildTable table = new BuildTable();
+            Partitions[] buildSpill = new Partitions[1];
+            IOException[] failure = new IOException[1];
+            build.scan(new RowSource.Handler() {
+                @Override
+                public void columns(List<String> columns) {
+                    buildColumns = columns;
+                    buildKeyIndexes = indexes(columns, buildKeys);
+                }
+
+                @Override
+                public boolean row(Object[] values) {
+                    buildRows++;
+                    Object key = key(values, buildKeyIndexes);
+                    if (key == null) {
+                        return true;
+                    }
+                    try {
+                        if (buildSpill[0] == null) {
+                            table.put(key, values);
+                            peakMemory = Math.max(peakMemory, table.bytes);
+                            if (table.bytes > memoryBudget) {
+                                buildSpill[0] = spill(table);
+                            }
+                        } else {
+                            buildSpill[0].write(key, values);
+                        }
+                        return true;
+                    } catch (IOException e) {
+                        failure[0] = e;
+                        return false;
+                    }
+                }
+            });
+            rethrow(failure[0]);
+
+            if (buildSpill[0] == null) {
+                probeInMemory(probe, probeKeys, table);
+                return;
+            }
+
+            // 构建侧超出内存上限：探测侧按同样的方式分区，再逐个分区关联
+            buildSpill[0].close();
+            Partitions probeSpill = new Partitions(0);
+            probe.scan(new RowSource.Handler() {
+                @Override
+                public void columns(List<String> columns) {
+                    probeKeyIndexes = indexes(columns, probeKeys);
+                    output.columns(columns, buildColumns);
+                }
+
+                @Override
+                public boolean row(Object[] values) {
+                    probeRows++;
+                    Object key = key(values, probeKeyIndexes);
+                    try {
+                        if (key != null) {
+                            probeSpill.write(key, values);
+                        } else if (type == Type.LEFT) {
+                            emit(values, null);
+                        }
+                        return !stopped;
+                    } catch (IOException e) {
+                        failure[0] = e;
+                        return false;
+                    }
+                }
+            });
+            probeSpill.close();
+            rethrow(failure[0]);
+            for (int i = 0; i < partitions && !stopped; i++) {
+                joinPartition(buildSpill[0].file(i), probeSpill.file(i), 1);
+            }
+        }
+
+        private void probeInMemory(RowSource probe, List<String> probeKeys, BuildTable table) {
+            probe.scan(new RowSource.Handler() {
+                @Override
+                public void columns(List<String> columns) {
+                    probeKeyIndexes = indexes(columns, probeKeys);
+                    output.columns(columns, buildColumns);
+                }
+
+                @Override
+                public boolean row(Object[] values) {
+                    probeRows++;
+                    probeRow(values, table);
+                    return !stopped;
+                }
+            });
+        }
+
+        private void probeRow(Object[] values, BuildTable table) {
+            Object key = key(values, probeKeyIndexes);
+            List<Object[]> matches = key == null ? null : table.rows.get(key);
+            if (matches == null) {
+                if (type == Type.LEFT) {
+                    emit(values, null);
+                }
+                return;
+            }
+            for (Object[] match : matches) {
+                if (!emit(values, match)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean emit(Object[] probe, Object[] build) {
+            outputRows++;
+            if (!output.accept(probe, build)) {
+                stopped = true;
+            }
+            return !stopped;
+        }
+
+        /**
+         * 关联一对分区文件；构建侧分区装不下时按下一层哈希重新分区
+         */
+        private void joinPartition(Path buildFile, Path probeFile, int depth) throws IOException {
+            if (probeFile == null) {
+                delete(buildFile);
+                return;
+            }
+            BuildTable table = new BuildTable();
+            boolean overflow = false;
+            if (buildFile != null) {
+                try (DataInputStream in = open(buildFile)) {
+                    Object[] row;
+                    while ((row = SpillCodec.read(in)) != null) {
+                        table.put(key(row, buildKeyIndexes), row);
+                        if (table.bytes > memoryBudget) {
+                            if (depth < maxDepth) {
+                                overflow = true;
+                                break;
+                            }
+                            overBudget = true;
+                        }
+                    }
+                }
+                peakMemory = Math.max(peakMemory, table.bytes);
+            }
+
+            if (overflow) {
+                table = null;
+                Partitions buildParts = repartition(buildFile, buildKeyIndexes, depth);
+                Partitions probeParts = repartition(probeFile, probeKeyIndexes, depth);
+                for (int i = 0; i < partitions && !stopped; i++) {
+                    joinPartition(buildParts.file(i), probeParts.file(i), depth + 1);
+                }
+                return;
+            }
+
+            try (DataInputStream in = open(probeFile)) {
+                Object[] row;
+                while (!stopped && (row = SpillCodec.read(in)) != null) {
+                    probeRow(row, table);
+                }
+            }
+            delete(buildFile);
+            delete(probeFile);
+        }
+
+        private Partitions repartition(Path file, int[] keyIndexes, int depth) throws IOException {
+            Partitions parts = new Partitions(depth);
+            try (DataInputStream in = open(file)) {
+                Object[] row;
+                while ((row = SpillCodec.read(in)) != null) {
+                    parts.write(key(row, keyIndexes), row);
+                }
+            }
+            parts.close();
+            delete(file);
+            return parts;
+        }
+
+        private Partitions spill(BuildTable table) throws IOException {
+            log.info("关联构建侧超出内存上限 {} 字节，已读 {} 行，改为分区溢写", memoryBudget, buildRows);
+            Partitions parts = new Partitions(0);
+            for (Map.Entry<Object, List<Object[]>> entry : table.rows.entrySet()) {
+                for (Object[] row : entry.getValue()) {
+                    parts.write(entry.getKey(), row);
+                }
+            }
+            table.clear();
+            return parts;
+        }
+
+        private DataInputStream open(Path file) throws IOException {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        }
+
+        private Path newFile() throws IOException {
+            if (directory == null) {
+                directory = spillDirectory == null ? Files.createTempDirectory("federated-join-")
+                        : Files.createTempDirectory(Files.createDirectories(spillDirectory), "federated-join-");
+            }
+            spilledPartitions++;
+            return directory.resolve("part-" + (fileSequence++) + ".bin");
+        }
+
+        JoinStats stats() {
+            return new JoinStats(buildRows, probeRows, outputRows, peakMemory, spilledPartitions > 0,
+                    spilledPartitions, spilledBytes, spillDepth, overBudget);
+        }
+
+        @Override
+        public void close() {
+            if (directory == null) {
+                return;
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                log.warn("删除关联溢写目录失败: {}", directory, e);
+            }
+        }
+
+        /**
+         * 一组分区文件，按关联键的哈希选择分区，文件在第一次写入时创建
+         */
+        private final class Partitions {
+
+            private final int depth;
+
+            private final Path[] files = new Path[partitions];
+
+            private final DataOutputStream[] outputs = new DataOutputStream[partitions];
+
+            private final CountingOutputStream[] counters = new CountingOutputStream[partitions];
+
+            Partitions(int depth) {
+                this.depth = depth;
+                spillDepth = Math.max(spillDepth, depth + 1);
+            }
+
+            void write(Object key, Object[] row) throws IOException {
+                int partition = partition(key, depth);
+                if (outputs[partition] == null) {
+                    files[partition] = newFile();
+                    counters[partition] = new CountingOutputStream(Files.newOutputStream(files[partition]));
+                    outputs[partition] = new DataOutputStream(new BufferedOutputStream(counters[partition], 64 * 1024));
+                }
+                SpillCodec.write(outputs[partition], row);
+            }
+
+            Path file(int partition) {
+                return files[partition];
+            }
+
+            void close() throws IOException {
+                for (int i = 0; i < partitions; i++) {
+                    if (outputs[i] != null) {
+                        outputs[i].close();
+                        spilledBytes += counters[i].count;
+                        outputs[i] = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 构建侧哈希表，按行估算占用
+     */
+    private static final class BuildTable {
+
+        private final Map<Object, List<Object[]>> rows = new HashMap<>();
+
+        private long bytes;
+
+        void put(Object key, Object[] row) {
+            List<Object[]> list = rows.get(key);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                rows.put(key, list);
+                bytes += KEY_OVERHEAD;
+            }
+            list.add(row);
+            bytes += estimate(row);
+        }
+
+        void clear() {
+            rows.clear();
+            bytes = 0;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static void rethrow(IOException failure) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void delete(Path file) throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 不同层使用不同的哈希，避免重新分区后仍落在同一个分区
+     * 每层的乘子都是奇数（偶数乘子会把哈希低位清零），再用 murmur3 的 fmix32 混合各位
+     */
+    private int partition(Object key, int depth) {
+        int hash = key.hashCode() * (0x9E3779B1 * (2 * depth + 1));
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, partitions);
+    }
+
+    private static int[] indexes(List<String> columns, List<String> keys) {
+        int[] indexes = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i).trim().toLowerCase(Locale.ROOT);
+            indexes[i] = columns.indexOf(key);
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("关联列 " + keys.get(i) + " 不在查询结果中，结果列为 " + columns);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 关联键：单列时为规范化后的值，多列时为值列表；任一列为 NULL 时返回 null
+     */
+    static Object key(Object[] row, int[] indexes) {
+        if (indexes.length == 1) {
+            return normalize(row[indexes[0]]);
+        }
+        Object[] values = new Object[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            values[i] = normalize(row[indexes[i]]);
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return Arrays.asList(values);
+    }
+
+    static Object normalize(Object value) {
+        if (value == null || value instanceof String) {
+            return value;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return Double.isFinite(number) ? normalize(BigDecimal.valueOf(number)) : value;
+        }
+        if (value instanceof BigInteger number) {
+            return normalize(new BigDecimal(number));
+        }
+        if (value instanceof BigDecimal number) {
+            BigDecimal stripped = number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+            if (stripped.scale() <= 0 && stripped.precision() - stripped.scale() < 19) {
+                return stripped.longValueExact();
+            }
+            return stripped;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof Character character) {
+            return character.toString();
+        }
+        return value;
+    }
+
+    /**
+     * 一行的估算占用：对象头、引用数组和各列取值
+     */
+    static long estimate(Object[] row) {
+        long bytes = ROW_OVERHEAD + 4L * row.length;
+        for (Object value : row) {
+            bytes += estimate(value);
+        }
+        return bytes;
+    }
+
+    private static long estimate(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 0;
+        }
+        if (value instanceof String text) {
+            return 48 + 2L * text.length();
+        }
+        if (value instanceof BigDecimal) {
+            return 64;
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value instanceof Number) {
+            return 16;
+        }
+        if (value instanceof java.util.Date || value instanceof Temporal) {
+            return 32;
+        }
+        return 64;
+    }
+}
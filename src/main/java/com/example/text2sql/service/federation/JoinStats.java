@@ -0,0 +1,18 @@
+package com.example.text2sql.service.federation;
+
+/**
+ * 一次哈希关联的执行统计
+ *
+ * @param buildRows         构建侧读取的行数
+ * @param probeRows         探测侧读取的行数
+ * @param outputRows        关联产生的行数（聚合和条数限制之前）
+ * @param peakMemoryBytes   构建侧哈希表估算占用的峰值
+ * @param spilled           是否溢写到磁盘
+ * @param spilledPartitions 写入磁盘的分区文件数，含重新分区产生的文件
+ * @param spilledBytes      写入磁盘的字节数
+ * @param maxSpillDepth     实际用到的最大分区层数，未溢写时为 0
+ * @param overBudget        是否有分区在达到最大层数后仍超出内存上限（通常是单个关联键的行过多）
+ */
+public record JoinStats(long buildRows, long probeRows, long outputRows, long peakMemoryBytes, boolean spilled,
+                        int spilledPartitions, long spilledBytes, int maxSpillDepth, boolean overBudget) {
+}
@@ -0,0 +1,352 @@
+package com.example.text2sql.service.federation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 关联结果的本地处理：分组聚合或列投影，然后排序并截取前 limit 行
+ * 不聚合且不排序时取够 limit 行即通知关联提前结束；只排序时用大小为 limit 的堆保留前几行，不保存全部结果
+ * 列名写成 别名.列名，在两侧结果中唯一时也可以省略别名
+ */
+public class ResultAssembler implements HashJoin.Output {
+
+    private static final Set<String> FUNCTIONS = Set.of("COUNT", "SUM", "AVG", "MIN", "MAX");
+
+    private final FederatedPlan plan;
+
+    private final String probeAlias;
+
+    private final String buildAlias;
+
+    private final int limit;
+
+    private final boolean aggregate;
+
+    private int probeWidth;
+
+    private int[] outputIndexes;
+
+    private List<String> outputNames;
+
+    private int[] groupIndexes;
+
+    private int[] aggregateIndexes;
+
+    private Comparator<Object[]> ordering;
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private PriorityQueue<Object[]> top;
+
+    private final Map<List<Object>, Accumulator[]> groups = new LinkedHashMap<>();
+
+    /**
+     * @param plan    查询计划，第一个子查询为探测侧
+     * @param maxRows 结果行数上限，计划中的 limit 超出时按该值截取
+     */
+    public ResultAssembler(FederatedPlan plan, int maxRows) {
+        this.plan = plan;
+        this.probeAlias = plan.sources().get(0).alias().trim().toLowerCase(Locale.ROOT);
+        this.buildAlias = plan.sources().get(1).alias().trim().toLowerCase(Locale.ROOT);
+        this.limit = plan.limit() == null || plan.limit() <= 0 ? maxRows : Math.min(plan.limit(), maxRows);
+        this.aggregate = !isEmpty(plan.aggregates()) || !isEmpty(plan.groupBy());
+        for (FederatedPlan.Aggregate item : nullToEmpty(plan.aggregates())) {
+            String function = item.function() == null ? "" : item.function().trim().toUpperCase(Locale.ROOT);
+            if (!FUNCTIONS.contains(function)) {
+                throw new IllegalArgumentException("不支持的聚合函数: " + item.function() + "，可选 " + FUNCTIONS);
+            }
+        }
+    }
+
+    @Override
+    public void columns(List<String> probeColumns, List<String> buildColumns) {
+        probeWidth = probeColumns.size();
+        Map<String, Integer> indexes = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        for (int i = 0; i < probeColumns.size(); i++) {
+            register(indexes, ambiguous, probeAlias, probeColumns.get(i), i);
+        }
+        for (int i = 0; i < buildColumns.size(); i++) {
+            register(indexes, ambiguous, buildAlias, buildColumns.get(i), probeWidth + i);
+        }
+        ambiguous.forEach(indexes::remove);
+
+        if (aggregate) {
+            List<String> groupBy = nullToEmpty(plan.groupBy());
+            groupIndexes = groupBy.stream().mapToInt(column -> resolve(indexes, column)).toArray();
+            List<FederatedPlan.Aggregate> aggregates = nullToEmpty(plan.aggregates());
+            aggregateIndexes = aggregates.stream()
+                    .mapToInt(item -> item.column() == null || "*".equals(item.column().trim()) ? -1
+                            : resolve(indexes, item.column()))
+                    .toArray();
+            List<String> names = new ArrayList<>(groupBy.stream().map(ResultAssembler::outputName).toList());
+            aggregates.forEach(item -> names.add(item.as() == null || item.as().isBlank()
+                    ? item.function().toLowerCase(Locale.ROOT) + "_" + outputName(String.valueOf(item.column()))
+                    : item.as().trim()));
+            outputNames = unique(names, groupBy);
+        } else if (isEmpty(plan.columns())) {
+            List<String> names = new ArrayList<>();
+            probeColumns.forEach(column -> names.add(probeAlias + "." + column));
+            buildColumns.forEach(column -> names.add(buildAlias + "." + column));
+            outputIndexes = new int[names.size()];
+            for (int i = 0; i < outputIndexes.length; i++) {
+                outputIndexes[i] = i;
+            }
+            outputNames = unique(names.stream().map(ResultAssembler::outputName).toList(), names);
+        } else {
+            outputIndexes = plan.columns().stream().mapToInt(column -> resolve(indexes, column)).toArray();
+            outputNames = unique(plan.columns().stream().map(ResultAssembler::outputName).toList(), plan.columns());
+        }
+        ordering = ordering();
+        if (!aggregate && ordering != null) {
+            // 堆顶为当前保留的最后一行，新行比它靠前时替换
+            top = new PriorityQueue<>(limit + 1, ordering.reversed());
+        }
+    }
+
+    @Override
+    public boolean accept(Object[] probe, Object[] build) {
+        if (aggregate) {
+            List<Object> key = new ArrayList<>(groupIndexes.length);
+            for (int index : groupIndexes) {
+                key.add(HashJoin.normalize(value(probe, build, index)));
+            }
+            Accumulator[] accumulators = groups.computeIfAbsent(key, k -> newAccumulators());
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].add(aggregateIndexes[i] < 0 ? Boolean.TRUE : value(probe, build, aggregateIndexes[i]));
+            }
+            return true;
+        }
+        Object[] row = new Object[outputIndexes.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = value(probe, build, outputIndexes[i]);
+        }
+        if (top == null) {
+            rows.add(row);
+            return rows.size() < limit;
+        }
+        top.add(row);
+        if (top.size() > limit) {
+            top.poll();
+        }
+        return true;
+    }
+
+    /**
+     * 最终结果，列名为输出列名
+     */
+    public List<Map<String, Object>> result() {
+        if (outputNames == null) {
+            // 探测侧没有返回列信息，关联没有产生任何结果
+            return List.of();
+        }
+        List<Object[]> result;
+        if (aggregate) {
+            result = new ArrayList<>(groups.size());
+            if (groups.isEmpty() && groupIndexes.length == 0) {
+                // 没有分组时与 SQL 一致，空输入也返回一行聚合结果
+                groups.put(List.of(), newAccumulators());
+            }
+            for (Map.Entry<List<Object>, Accumulator[]> entry : groups.entrySet()) {
+                Object[] row = new Object[outputNames.size()];
+                for (int i = 0; i < entry.getKey().size(); i++) {
+                    row[i] = entry.getKey().get(i);
+                }
+                for (int i = 0; i < entry.getValue().length; i++) {
+                    row[entry.getKey().size() + i] = entry.getValue()[i].result();
+                }
+                result.add(row);
+            }
+            if (ordering != null) {
+                result.sort(ordering);
+            }
+            result = result.subList(0, Math.min(result.size(), limit));
+        } else if (top != null) {
+            result = new ArrayList<>(top);
+            result.sort(ordering);
+        } else {
+            result = rows;
+        }
+
+        List<Map<String, Object>> maps = new ArrayList<>(result.size());
+        for (Object[] row : result) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < row.length; i++) {
+                map.put(outputNames.get(i), row[i]);
+            }
+            maps.add(map);
+        }
+        return maps;
+    }
+
+    private Object value(Object[] probe, Object[] build, int index) {
+        if (index < probeWidth) {
+            return probe[index];
+        }
+        return build == null ? null : build[index - probeWidth];
+    }
+
+    private Accumulator[] newAccumulators() {
+        List<FederatedPlan.Aggregate> aggregates = nullToEmpty(plan.aggregates());
+        Accumulator[] accumulators = new Accumulator[aggregates.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new Accumulator(aggregates.get(i).function().trim().toUpperCase(Locale.ROOT));
+        }
+        return accumulators;
+    }
+
+    private Comparator<Object[]> ordering() {
+        Comparator<Object[]> comparator = null;
+        for (FederatedPlan.OrderItem item : nullToEmpty(plan.orderBy())) {
+            int index = outputIndex(item.column());
+            Comparator<Object[]> next = (left, right) -> compare(left[index], right[index]);
+            next = item.descending() ? reverseKeepingNullsLast(index) : next;
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static Comparator<Object[]> reverseKeepingNullsLast(int index) {
+        return (left, right) -> {
+            if (left[index] == null || right[index] == null) {
+                return compare(left[index], right[index]);
+            }
+            return compare(right[index], left[index]);
+        };
+    }
+
+    /**
+     * 排序列在输出中的位置，可以写输出列名、别名.列名或省略别名的列名
+     */
+    private int outputIndex(String column) {
+        String name = column == null ? "" : column.trim();
+        for (String candidate : List.of(name, outputName(name))) {
+            for (int i = 0; i < outputNames.size(); i++) {
+                if (outputNames.get(i).equalsIgnoreCase(candidate)) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException("排序列 " + column + " 不在输出列 " + outputNames + " 中");
+    }
+
+    private static void register(Map<String, Integer> indexes, Set<String> ambiguous, String alias, String column,
+                                 int index) {
+        indexes.put(alias + "." + column, index);
+        if (indexes.putIfAbsent(column, index) != null) {
+            ambiguous.add(column);
+        }
+    }
+
+    private static int resolve(Map<String, Integer> indexes, String column) {
+        Integer index = indexes.get(column.trim().toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new IllegalArgumentException("列 " + column + " 不在子查询结果中，或省略别名后不唯一");
+        }
+        return index;
+    }
+
+    /**
+     * 输出列名去掉别名，去掉后重复的保留原名
+     */
+    private static List<String> unique(List<String> names, List<String> originals) {
+        List<String> result = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            boolean duplicated = names.indexOf(name) != names.lastIndexOf(name);
+            result.add(duplicated && i < originals.size() ? originals.get(i).trim() : name);
+        }
+        return result;
+    }
+
+    private static String outputName(String column) {
+        String name = column.trim();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(dot + 1);
+    }
+
+    /**
+     * 比较两个值：NULL 排在最后，数值按大小比较，同类型按自然顺序，其余按字符串
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : 1) : -1;
+        }
+        if (left instanceof Number a && right instanceof Number b) {
+            return decimal(a).compareTo(decimal(b));
+        }
+        if (left instanceof Comparable comparable && left.getClass() == right.getClass()) {
+            return comparable.compareTo(right);
+        }
+        return left.toString().compareTo(right.toString());
+    }
+
+    private static BigDecimal decimal(Number number) {
+        return number instanceof BigDecimal decimal ? decimal : new BigDecimal(number.toString());
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    /**
+     * 单个聚合项的累计值，NULL 不参与计算
+     */
+    private static final class Accumulator {
+
+        private final String function;
+
+        private long count;
+
+        private BigDecimal sum;
+
+        private Object extreme;
+
+        Accumulator(String function) {
+            this.function = function;
+        }
+
+        void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            count++;
+            switch (function) {
+                case "SUM", "AVG" -> {
+                    if (!(value instanceof Number number)) {
+                        throw new IllegalArgumentException(function + " 只能用于数值列，实际取值: " + value);
+                    }
+                    sum = sum == null ? decimal(number) : sum.add(decimal(number));
+                }
+                case "MIN" -> extreme = extreme == null || compare(value, extreme) < 0 ? value : extreme;
+                case "MAX" -> extreme = extreme == null || compare(value, extreme) > 0 ? value : extreme;
+                default -> {
+                }
+            }
+        }
+
+        Object result() {
+            return switch (function) {
+                case "COUNT" -> count;
+                case "SUM" -> sum;
+                case "AVG" -> sum == null ? null : sum.divide(BigDecimal.valueOf(count), 4, RoundingMode.HALF_UP);
+                default -> extreme;
+            };
+        }
+    }
+}
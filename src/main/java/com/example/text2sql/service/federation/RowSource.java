@@ -0,0 +1,30 @@
+package com.example.text2sql.service.federation;
+
+import java.util.List;
+
+/**
+ * 按行读取的数据来源，读取过程中不保留已读的行
+ */
+@FunctionalInterface
+public interface RowSource {
+
+    /**
+     * 读取全部行：先回调一次列名，再逐行回调；handler 返回 false 时停止读取
+     */
+    void scan(Handler handler);
+
+    interface Handler {
+
+        /**
+         * 列名（小写），在第一行之前回调，没有数据行时也会回调
+         */
+        void columns(List<String> columns);
+
+        /**
+         * 一行数据，数组与列名按位置对应，调用方可以保留该数组
+         *
+         * @return 是否继续读取
+         */
+        boolean row(Object[] values);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.text2sql.service.federation;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * 溢写文件的行格式：列数，然后每列一个类型标记加取值
+ * 覆盖 JDBC 常见的返回类型，其余类型按 toString() 写成字符串
+ */
+final class SpillCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DECIMAL = 6;
+    private static final byte BOOLEAN = 7;
+    private static final byte SQL_DATE = 8;
+    private static final byte TIMESTAMP = 9;
+    private static final byte LOCAL_DATE = 10;
+    private static final byte LOCAL_DATE_TIME = 11;
+    private static final byte LOCAL_TIME = 12;
+    private static final byte BYTES = 13;
+
+    private SpillCodec() {
+    }
+
+    static void write(DataOutputStream out, Object[] row) throws IOException {
+        out.writeInt(row.length);
+        for (Object value : row) {
+            writeValue(out, value);
+        }
+    }
+
+    /**
+     * 读取一行，到文件末尾时返回 null
+     */
+    static Object[] read(DataInputStream in) throws IOException {
+        int width;
+        try {
+            width = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        Object[] row = new Object[width];
+        for (int i = 0; i < width; i++) {
+            row[i] = readValue(in);
+        }
+        return row;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String text) {
+            out.writeByte(STRING);
+            writeString(out, text);
+        } else if (value instanceof Integer number) {
+            out.writeByte(INTEGER);
+            out.writeInt(number);
+        } else if (value instanceof Long number) {
+            out.writeByte(LONG);
+            out.writeLong(number);
+        } else if (value instanceof Double number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(number);
+        } else if (value instanceof Float number) {
+            out.writeByte(FLOAT);
+            out.writeFloat(number);
+        } else if (value instanceof BigDecimal number) {
+            out.writeByte(DECIMAL);
+            writeString(out, number.toString());
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(bool);
+        } else if (value instanceof java.sql.Date date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(date.toLocalDate().toEpochDay());
+        } else if (value instanceof Timestamp timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(timestamp.getTime());
+            out.writeInt(timestamp.getNanos());
+        } else if (value instanceof LocalDate date) {
+            out.writeByte(LOCAL_DATE);
+            out.writeLong(date.toEpochDay());
+        } else if (value instanceof LocalDateTime dateTime) {
+            out.writeByte(LOCAL_DATE_TIME);
+            writeString(out, dateTime.toString());
+        } else if (value instanceof LocalTime time) {
+            out.writeByte(LOCAL_TIME);
+            out.writeLong(time.toNanoOfDay());
+        } else if (value instanceof byte[] bytes) {
+            out.writeByte(BYTES);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Number number) {
+            out.writeByte(DECIMAL);
+            writeString(out, new BigDecimal(number.toString()).toString());
+        } else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case NULL -> null;
+            case STRING -> readString(in);
+            case INTEGER -> in.readInt();
+            case LONG -> in.readLong();
+            case DOUBLE -> in.readDouble();
+            case FLOAT -> in.readFloat();
+            case DECIMAL -> new BigDecimal(readString(in));
+            case BOOLEAN -> in.readBoolean();
+            case SQL_DATE -> java.sql.Date.valueOf(LocalDate.ofEpochDay(in.readLong()));
+            case TIMESTAMP -> {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                yield timestamp;
+            }
+            case LOCAL_DATE -> LocalDate.ofEpochDay(in.readLong());
+            case LOCAL_DATE_TIME -> LocalDateTime.parse(readString(in));
+            case LOCAL_TIME -> LocalTime.ofNanoOfDay(in.readLong());
+            case BYTES -> {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                yield bytes;
+            }
+            default -> throw new IOException("溢写文件损坏，未知的类型标记: " + type);
+        };
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.text2sql.service.intent;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.IntentProperties;
+import com.example.text2sql.config.SchemaCatalogProperties;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+import com.example.text2sql.service.tool.DatabaseTool;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 问题意图预过滤服务
+ * 在调用模型之前用本地索引判断问题是否与数据库有关，明显的闲聊和领域外问题直接拒绝，
+ * 拿不准的交给步骤1的模型判断。索引按数据源构建，与表清单共用缓存有效期
+ * 判断结果记录到指标 text2sql.intent（result 为 rejected / passed）
+ */
+@Slf4j
+@Service
+public class IntentFilterService {
+
+    private static final String INTENT_COUNTER = "text2sql.intent";
+
+    /**
+     * 注释中不代表业务含义的后缀，如"邮箱地址"额外索引"邮箱"，"员工信息表"额外索引"员工"
+     */
+    private static final Pattern COMMENT_SUFFIX = Pattern.compile("(信息|关系|记录|明细|数据|地址|名称|编号|日期|时间|id)?表?$",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 英文列名太短时容易误命中单词片段，如 id
+     */
+    private static final int MIN_IDENTIFIER_LENGTH = 4;
+
+    private static final int MIN_COMMENT_LENGTH = 2;
+
+    private final DatabaseTool databaseTool;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final IntentProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Cache<String, IntentIndex> indexCache;
+
+    public IntentFilterService(DatabaseTool databaseTool, SchemaCatalogService schemaCatalogService,
+                               IntentProperties properties, SchemaCatalogProperties schemaProperties,
+                               MeterRegistry meterRegistry) {
+        this.databaseTool = databaseTool;
+        this.schemaCatalogService = schemaCatalogService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.indexCache = Caffeine.newBuilder()
+                .expireAfterWrite(schemaProperties.getCacheTtl())
+                .build();
+    }
+
+    /**
+     * 判断当前线程数据源上的问题是否应在调用模型前拒绝，未开启时总是放行
+     */
+    public IntentVerdict evaluate(String query) {
+        if (!properties.isEnabled()) {
+            return new IntentVerdict(false, 1, List.of());
+        }
+        IntentVerdict verdict = getIndex(SchemaCatalogService.currentDataSource())
+                .evaluate(query, properties.getRejectBelow());
+        meterRegistry.counter(INTENT_COUNTER, "result", verdict.rejected() ? "rejected" : "passed").increment();
+        if (verdict.rejected()) {
+            log.info("问题判定为非数据库查询（置信度 {}）: {}，命中 {}", String.format("%.2f", verdict.confidence()), query,
+                    verdict.signals());
+        }
+        return verdict;
+    }
+
+    /**
+     * 获取指定数据源的意图索引，读取 Schema 失败时只用内置词表且不缓存
+     */
+    public IntentIndex getIndex(String dataSource) {
+        String key = dataSource.toLowerCase(Locale.ROOT);
+        IntentIndex index = indexCache.getIfPresent(key);
+        if (index != null) {
+            return index;
+        }
+
+        Set<String> terms;
+        try {
+            terms = schemaTerms(key);
+        } catch (Exception e) {
+            log.warn("读取数据源 {} 的 Schema 术语失败，只使用内置词表: {}", key, e.getMessage());
+            return IntentIndex.build(List.of(), properties.getIntentKeywords(), properties.getNoiseKeywords());
+        }
+        index = IntentIndex.build(terms, properties.getIntentKeywords(), properties.getNoiseKeywords());
+        if (!terms.isEmpty()) {
+            indexCache.put(key, index);
+            log.info("已构建数据源 {} 的意图索引，共 {} 个词", key, index.getTermCount());
+        }
+        return index;
+    }
+
+    /**
+     * 使指定数据源的意图索引失效，表结构变更后调用
+     */
+    public void invalidate(String dataSource) {
+        indexCache.invalidate(dataSource.toLowerCase(Locale.ROOT));
+    }
+
+    private Set<String> schemaTerms(String dataSource) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String table : schemaCatalogService.getTableNames(dataSource)) {
+            addIdentifier(terms, table);
+        }
+        schemaCatalogService.getTableComments(dataSource).values().forEach(comment -> addComment(terms, comment));
+
+        List<Map<String, Object>> columns = DataSourceRouter.executeWithDataSource(dataSource,
+                databaseTool::getColumnComments);
+        for (Map<String, Object> column : columns) {
+            addIdentifier(terms, (String) column.get("COLUMN_NAME"));
+            addComment(terms, (String) column.get("COLUMN_COMMENT"));
+        }
+        return terms;
+    }
+
+    private static void addIdentifier(Set<String> terms, String identifier) {
+        if (identifier != null && identifier.length() >= MIN_IDENTIFIER_LENGTH) {
+            terms.add(identifier.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static void addComment(Set<String> terms, String comment) {
+        if (comment == null) {
+            return;
+        }
+        String trimmed = comment.trim();
+        if (trimmed.length() >= MIN_COMMENT_LENGTH) {
+            terms.add(trimmed);
+        }
+        String core = COMMENT_SUFFIX.matcher(trimmed).replaceFirst("");
+        if (core.length() >= MIN_COMMENT_LENGTH) {
+            terms.add(core);
+        }
+    }
+}
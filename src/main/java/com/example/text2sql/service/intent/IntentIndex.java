@@ -0,0 +1,143 @@
+package com.example.text2sql.service.intent;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.example.text2sql.service.rule.KeywordAutomaton;
+
+/**
+ * 问题意图索引
+ * 把 Schema 术语（表名、列名、表和列注释）、查询意图词、闲聊和领域外词编译进一个 Aho-Corasick 自动机，
+ * 一次扫描问题得到各类命中数，再按线性打分和 Sigmoid 换算成"是数据库问题"的置信度
+ * 同一个词出现在多个类别时以 Schema 术语优先，例如库里真有"天气"列时不按闲聊处理
+ * 构建后只读，可在线程间共享
+ */
+public final class IntentIndex {
+
+    /**
+     * 内置查询意图词，与步骤1提示词中的数据库查询特征一致
+     */
+    static final List<String> DEFAULT_INTENT_KEYWORDS = List.of(
+            "查询", "统计", "查找", "获取", "显示", "列出", "计算", "汇总", "分析", "筛选", "排序", "分组",
+            "多少", "哪些", "哪个", "几个", "几条", "是谁", "有谁", "总数", "总共", "平均", "最高", "最低",
+            "最多", "最少", "排名", "明细", "列表", "记录", "数据", "报表", "select", "sql");
+
+    /**
+     * 内置闲聊和领域外词：问候、自我介绍、天气、新闻、娱乐、编程问题
+     */
+    static final List<String> DEFAULT_NOISE_KEYWORDS = List.of(
+            "你好", "您好", "哈喽", "hello", "谢谢", "感谢", "再见", "拜拜", "早上好", "晚上好", "晚安", "在吗",
+            "你是谁", "你叫什么", "介绍一下你", "你能做什么", "天气", "气温", "下雨", "新闻", "笑话", "讲个故事",
+            "唱首歌", "电影", "音乐", "游戏", "翻译", "写一首", "写首诗", "作文", "编程", "代码怎么写", "java",
+            "python", "报错", "怎么安装");
+
+    private static final double BIAS = -0.5;
+
+    private static final double SCHEMA_WEIGHT = 2.5;
+
+    private static final double INTENT_WEIGHT = 1.5;
+
+    private static final double NOISE_WEIGHT = -3.0;
+
+    /**
+     * 既没有 Schema 术语也没有查询意图的极短问题，如"嗯"、"asdf"
+     */
+    private static final double SHORT_QUERY_WEIGHT = -1.0;
+
+    private static final int SHORT_QUERY_LENGTH = 4;
+
+    /**
+     * 每类最多计两次，避免长问题里的重复词把分数推到极端
+     */
+    private static final int MAX_HITS_PER_CATEGORY = 2;
+
+    private enum Category { SCHEMA, INTENT, NOISE }
+
+    private final KeywordAutomaton automaton;
+
+    private final String[] terms;
+
+    private final Category[] categories;
+
+    private IntentIndex(KeywordAutomaton automaton, String[] terms, Category[] categories) {
+        this.automaton = automaton;
+        this.terms = terms;
+        this.categories = categories;
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param schemaTerms    Schema 术语
+     * @param intentKeywords 查询意图词，会与内置词表合并
+     * @param noiseKeywords  闲聊和领域外词，会与内置词表合并
+     */
+    public static IntentIndex build(Collection<String> schemaTerms, Collection<String> intentKeywords,
+                                    Collection<String> noiseKeywords) {
+        Map<String, Category> dictionary = new LinkedHashMap<>();
+        schemaTerms.forEach(term -> put(dictionary, term, Category.SCHEMA));
+        DEFAULT_INTENT_KEYWORDS.forEach(term -> put(dictionary, term, Category.INTENT));
+        intentKeywords.forEach(term -> put(dictionary, term, Category.INTENT));
+        DEFAULT_NOISE_KEYWORDS.forEach(term -> put(dictionary, term, Category.NOISE));
+        noiseKeywords.forEach(term -> put(dictionary, term, Category.NOISE));
+
+        List<String> terms = new ArrayList<>(dictionary.keySet());
+        return new IntentIndex(KeywordAutomaton.build(terms), terms.toArray(String[]::new),
+                dictionary.values().toArray(Category[]::new));
+    }
+
+    private static void put(Map<String, Category> dictionary, String term, Category category) {
+        if (term != null && !term.isBlank()) {
+            dictionary.putIfAbsent(term.trim().toLowerCase(Locale.ROOT), category);
+        }
+    }
+
+    /**
+     * 判断问题是否为数据库问题
+     *
+     * @param query       用户问题
+     * @param rejectBelow 置信度低于该值时判定为拒绝
+     */
+    public IntentVerdict evaluate(String query, double rejectBelow) {
+        int[] hits = new int[Category.values().length];
+        List<String> signals = new ArrayList<>();
+        BitSet matched = automaton.match(query);
+        for (int id = matched.nextSetBit(0); id >= 0; id = matched.nextSetBit(id + 1)) {
+            hits[categories[id].ordinal()]++;
+            signals.add(categories[id].name().toLowerCase(Locale.ROOT) + ":" + terms[id]);
+        }
+
+        int schemaHits = Math.min(hits[Category.SCHEMA.ordinal()], MAX_HITS_PER_CATEGORY);
+        int intentHits = Math.min(hits[Category.INTENT.ordinal()], MAX_HITS_PER_CATEGORY);
+        int noiseHits = Math.min(hits[Category.NOISE.ordinal()], MAX_HITS_PER_CATEGORY);
+        double score = BIAS + SCHEMA_WEIGHT * schemaHits + INTENT_WEIGHT * intentHits + NOISE_WEIGHT * noiseHits;
+        if (schemaHits == 0 && intentHits == 0 && meaningfulLength(query) <= SHORT_QUERY_LENGTH) {
+            score += SHORT_QUERY_WEIGHT;
+        }
+
+        double confidence = 1 / (1 + Math.exp(-score));
+        return new IntentVerdict(confidence < rejectBelow, confidence, signals);
+    }
+
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * 去掉空白和标点后的长度
+     */
+    private static int meaningfulLength(String query) {
+        int length = 0;
+        for (int i = 0; i < query.length(); i++) {
+            if (Character.isLetterOrDigit(query.charAt(i))) {
+                length++;
+            }
+        }
+        return length;
+    }
+}
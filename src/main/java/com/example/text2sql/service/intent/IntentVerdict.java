@@ -0,0 +1,13 @@
+package com.example.text2sql.service.intent;
+
+import java.util.List;
+
+/**
+ * 问题意图的本地判断结果
+ *
+ * @param rejected   是否判定为非数据库问题并直接拒绝
+ * @param confidence 是数据库问题的置信度，0 到 1
+ * @param signals    命中的特征词，前缀 schema: / intent: / noise: 表示类别
+ */
+public record IntentVerdict(boolean rejected, double confidence, List<String> signals) {
+}
@@ -0,0 +1,35 @@
+package com.example.text2sql.service.pipeline;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 流水线定义：按声明顺序排列的阶段，结果也按这个顺序返回
+ * 阶段只能依赖在它之前声明的阶段，因此不会出现环
+ *
+ * @param name   流水线名称，用于指标和缓存
+ * @param stages 阶段
+ */
+public record PipelineDefinition(String name, List<PipelineStage> stages) {
+
+    public PipelineDefinition {
+        stages = List.copyOf(stages);
+        Set<String> declared = new HashSet<>();
+        for (PipelineStage stage : stages) {
+            for (String dependency : stage.dependsOn()) {
+                if (!declared.contains(dependency)) {
+                    throw new IllegalArgumentException("流水线 " + name + " 的阶段 " + stage.name()
+                            + " 依赖的阶段 " + dependency + " 不存在或声明在其后");
+                }
+            }
+            if (!declared.add(stage.name())) {
+                throw new IllegalArgumentException("流水线 " + name + " 中的阶段名重复: " + stage.name());
+            }
+        }
+    }
+
+    public static PipelineDefinition of(String name, PipelineStage... stages) {
+        return new PipelineDefinition(name, List.of(stages));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.text2sql.service.pipeline;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.example.text2sql.config.PipelineProperties;
+import com.example.text2sql.service.Text2SqlStepResult;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流水线执行引擎
+ * 按依赖关系调度阶段：每个阶段在依赖全部完成后提交到 stageExecutor，互不依赖的阶段并发执行；
+ * 依赖失败或被跳过时本阶段也跳过，不出现在结果中。每个阶段单独计时，写入结果的 durationMillis 和
+ * 指标 text2sql.stage.duration（pipeline、stage、outcome 为 success / error / cached）
+ * 阶段配置了缓存时，相同数据源和缓存键的成功结果直接复用，不再执行
+ * 每个执行的阶段记为请求耗时追踪中的一个 stage 节点，阶段内的模型调用和查询是它的子节点
+ */
+@Slf4j
+@Component
+public class PipelineEngine {
+
+    public static final String STAGE_TIMER = "text2sql.stage.duration";
+
+    private final ThreadPoolTaskExecutor stageExecutor;
+
+    private final PipelineProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Cache<Object, Text2SqlStepResult.StepResult>> caches = new ConcurrentHashMap<>();
+
+    public PipelineEngine(@Qualifier("stageExecutor") ThreadPoolTaskExecutor stageExecutor, PipelineProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.stageExecutor = stageExecutor;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 执行流水线中尚无结果的阶段，等待全部完成
+     *
+     * @return 按声明顺序排列的阶段结果，不含被跳过的阶段
+     */
+    public List<Text2SqlStepResult.StepResult> execute(PipelineDefinition pipeline, PipelineRun run) {
+        Map<String, CompletableFuture<?>> futures = new HashMap<>();
+        for (PipelineStage stage : pipeline.stages()) {
+            if (run.result(stage.name()) != null) {
+                futures.put(stage.name(), CompletableFuture.completedFuture(null));
+                continue;
+            }
+            CompletableFuture<?>[] dependencies = stage.dependsOn().stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+            futures.put(stage.name(), CompletableFuture.allOf(dependencies)
+                    .thenRunAsync(() -> runStage(pipeline, stage, run), stageExecutor));
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("流水线 " + pipeline.name() + " 执行失败: " + e.getCause().getMessage(),
+                    e.getCause());
+        } catch (InterruptedException e) {
+            // 调用方取消（如多数据源分支超时）时尚未开始的阶段不再执行，正在执行的阶段跑完当前调用
+            futures.values().forEach(future -> future.cancel(false));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("流水线 " + pipeline.name() + " 已取消", e);
+        }
+        return pipeline.stages().stream()
+                .map(stage -> run.result(stage.name()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private void runStage(PipelineDefinition pipeline, PipelineStage stage, PipelineRun run) {
+        for (String dependency : stage.dependsOn()) {
+            Text2SqlStepResult.StepResult result = run.result(dependency);
+            if (result == null || result.isError()) {
+                log.debug("阶段 {} 的依赖 {} 未成功，跳过", stage.name(), dependency);
+                return;
+            }
+        }
+
+        try (TraceSpan span = RequestTrace.span("stage", stage.name())) {
+            Text2SqlStepResult.StepResult result = executeStage(pipeline, stage, run);
+            span.attribute("status", result.getStatus()).attribute("cached", result.isCached() ? true : null);
+        }
+    }
+
+    private Text2SqlStepResult.StepResult executeStage(PipelineDefinition pipeline, PipelineStage stage,
+                                                       PipelineRun run) {
+        long start = System.nanoTime();
+        Cache<Object, Text2SqlStepResult.StepResult> cache = cache(pipeline, stage);
+        Object key = cache == null ? null : cacheKey(stage, run);
+        Text2SqlStepResult.StepResult cached = key == null ? null : cache.getIfPresent(key);
+        Text2SqlStepResult.StepResult result;
+        String outcome;
+        if (cached != null) {
+            result = copyOf(cached);
+            result.setCached(true);
+            outcome = "cached";
+        } else {
+            try {
+                result = stage.action().apply(run);
+            } catch (RuntimeException e) {
+                log.error("阶段 {} 执行失败", stage.name(), e);
+                result = Text2SqlStepResult.StepResult.error("执行失败: " + e.getMessage());
+            }
+            if (result == null) {
+                result = Text2SqlStepResult.StepResult.error("阶段 " + stage.name() + " 没有返回结果");
+            }
+            outcome = result.isError() ? "error" : "success";
+        }
+        long nanos = System.nanoTime() - start;
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(nanos));
+        run.put(stage.name(), result);
+        if (key != null && cached == null && !result.isError()) {
+            cache.put(key, copyOf(result));
+        }
+        meterRegistry.timer(STAGE_TIMER, "pipeline", pipeline.name(), "stage", stage.name(), "outcome", outcome)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        log.debug("阶段 {} 完成（{}），耗时 {} ms", stage.name(), outcome, result.getDurationMillis());
+        return result;
+    }
+
+    private static Object cacheKey(PipelineStage stage, PipelineRun run) {
+        try {
+            Object key = stage.cacheKey().apply(run);
+            return key == null ? null : List.of(SchemaCatalogService.currentDataSource(), key);
+        } catch (RuntimeException e) {
+            log.warn("阶段 {} 计算缓存键失败，本次不使用缓存: {}", stage.name(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Cache<Object, Text2SqlStepResult.StepResult> cache(PipelineDefinition pipeline, PipelineStage stage) {
+        PipelineProperties.StageCache settings = properties.getCache().get(stage.name());
+        if (stage.cacheKey() == null || settings == null || settings.getMaximumSize() <= 0) {
+            return null;
+        }
+        return caches.computeIfAbsent(pipeline.name() + "." + stage.name(), name -> Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(settings.getTtl())
+                .build());
+    }
+
+    private static Text2SqlStepResult.StepResult copyOf(Text2SqlStepResult.StepResult source) {
+        Text2SqlStepResult.StepResult copy = new Text2SqlStepResult.StepResult();
+        copy.setContent(source.getContent());
+        copy.setStatus(source.getStatus());
+        copy.setData(source.getData());
+        copy.setPromptVersion(source.getPromptVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.text2sql.service.pipeline;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.text2sql.service.Text2SqlStepResult;
+
+/**
+ * 一次流水线执行的输入和各阶段结果，阶段在不同线程中并发写入
+ * 构造时传入的结果视为已完成，执行时跳过这些阶段，续跑和人工修改的步骤由此沿用
+ */
+public class PipelineRun {
+
+    private final String input;
+
+    private final Map<String, Text2SqlStepResult.StepResult> results = new ConcurrentHashMap<>();
+
+    public PipelineRun(String input, List<Text2SqlStepResult.StepResult> completed) {
+        this.input = input;
+        completed.forEach(result -> results.put(result.getStage(), result));
+    }
+
+    /**
+     * 流水线的原始输入，即用户问题
+     */
+    public String input() {
+        return input;
+    }
+
+    /**
+     * 阶段结果，未执行或被跳过时为 null
+     */
+    public Text2SqlStepResult.StepResult result(String stage) {
+        return results.get(stage);
+    }
+
+    /**
+     * 按类型读取已完成阶段的结构化输出
+     */
+    public <T> T output(String stage, Class<T> type) {
+        Text2SqlStepResult.StepResult result = results.get(stage);
+        if (result == null || result.isError()) {
+            throw new IllegalStateException("阶段 " + stage + " 没有可用的结果");
+        }
+        return result.data(type);
+    }
+
+    void put(String stage, Text2SqlStepResult.StepResult result) {
+        result.setStage(stage);
+        results.put(stage, result);
+    }
+}
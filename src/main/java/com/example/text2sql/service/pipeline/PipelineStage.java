@@ -0,0 +1,37 @@
+package com.example.text2sql.service.pipeline;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.example.text2sql.service.Text2SqlStepResult;
+
+/**
+ * 流水线中的一个阶段
+ * 阶段从 {@link PipelineRun} 读取原始输入和依赖阶段的结构化输出，返回本阶段的结果；依赖全部成功后才执行，
+ * 依赖之间没有先后关系的阶段并发执行。返回错误结果即短路：依赖它的阶段不再执行
+ *
+ * @param name      阶段名，在同一流水线内唯一，也是结果中的阶段名
+ * @param dependsOn 依赖的阶段，只能读取这些阶段的输出
+ * @param action    阶段逻辑
+ * @param cacheKey  由输入求出的缓存键，为 null 或返回 null 时不缓存；是否缓存和缓存容量由 text2sql.pipeline.cache 配置
+ */
+public record PipelineStage(String name, List<String> dependsOn,
+                            Function<PipelineRun, Text2SqlStepResult.StepResult> action,
+                            Function<PipelineRun, Object> cacheKey) {
+
+    public PipelineStage {
+        dependsOn = List.copyOf(dependsOn);
+    }
+
+    public static PipelineStage of(String name, Function<PipelineRun, Text2SqlStepResult.StepResult> action,
+                                   String... dependsOn) {
+        return new PipelineStage(name, List.of(dependsOn), action, null);
+    }
+
+    /**
+     * 相同缓存键的成功结果可以复用
+     */
+    public PipelineStage cached(Function<PipelineRun, Object> cacheKey) {
+        return new PipelineStage(name, dependsOn, action, cacheKey);
+    }
+}
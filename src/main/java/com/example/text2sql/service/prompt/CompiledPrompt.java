@@ -0,0 +1,83 @@
+package com.example.text2sql.service.prompt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的提示词模板
+ * 模板文本在加载时切分为固定文本和 {变量} 占位符，渲染时按顺序拼接，不再解析模板
+ *
+ * @param name      模板名，即 prompts/ 下去掉 .txt 的文件名
+ * @param version   模板内容摘要（SHA-256 前 8 位），内容不变时版本不变
+ * @param text      模板原文，已统一换行符并去掉首尾空白
+ * @param segments  按顺序排列的片段，偶数位为固定文本，奇数位为变量名
+ * @param variables 模板中出现的变量名
+ */
+public record CompiledPrompt(String name, String version, String text, List<String> segments, Set<String> variables) {
+
+    /**
+     * 与 Spring AI 默认模板语法一致的变量占位符，大括号内不是标识符时按普通文本处理（如 JSON 示例）
+     */
+    private static final Pattern VARIABLE = Pattern.compile("\\{([A-Za-z_][A-Za-z0-9_]*)}");
+
+    public static CompiledPrompt compile(String name, String source) {
+        String text = source.replace("\r\n", "\n").trim();
+        List<String> segments = new ArrayList<>();
+        Set<String> variables = new LinkedHashSet<>();
+        Matcher matcher = VARIABLE.matcher(text);
+        int last = 0;
+        while (matcher.find()) {
+            segments.add(text.substring(last, matcher.start()));
+            segments.add(matcher.group(1));
+            variables.add(matcher.group(1));
+            last = matcher.end();
+        }
+        segments.add(text.substring(last));
+        return new CompiledPrompt(name, version(text), text, List.copyOf(segments), Set.copyOf(variables));
+    }
+
+    /**
+     * 带版本的模板标识，如 step4-sql-generation@1a2b3c4d，写入步骤结果用于追溯
+     */
+    public String id() {
+        return name + "@" + version;
+    }
+
+    /**
+     * 代入变量，缺少变量时抛出 IllegalStateException；多余的变量忽略
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder builder = new StringBuilder(text.length() + 256);
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (i % 2 == 0) {
+                builder.append(segment);
+                continue;
+            }
+            Object value = values.get(segment);
+            if (value == null && !values.containsKey(segment)) {
+                throw new IllegalStateException("提示词模板 " + id() + " 缺少变量: " + segment);
+            }
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private static String version(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
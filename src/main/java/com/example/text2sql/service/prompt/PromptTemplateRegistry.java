@@ -0,0 +1,163 @@
+package com.example.text2sql.service.prompt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.text2sql.config.PromptProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 提示词模板注册表
+ * 启动时加载 prompts/ 下全部模板并预编译为 {@link CompiledPrompt}，之后按名称取用，不再读取文件和解析模板；
+ * 开启 text2sql.prompt.hot-reload 后定期检查文件修改时间，变更的模板重新编译替换，版本随内容变化
+ * 每次渲染的耗时记录到指标 text2sql.prompt.render（template）
+ */
+@Slf4j
+@Component
+public class PromptTemplateRegistry {
+
+    private static final String RENDER_TIMER = "text2sql.prompt.render";
+
+    private static final String TEMPLATE_SUFFIX = ".txt";
+
+    private final PromptProperties properties;
+
+    private final ResourcePatternResolver resourceResolver;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, LoadedPrompt> prompts = new ConcurrentHashMap<>();
+
+    public PromptTemplateRegistry(PromptProperties properties, ResourceLoader resourceLoader,
+                                  MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.resourceResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        this.meterRegistry = meterRegistry;
+        for (Resource resource : list()) {
+            LoadedPrompt loaded = load(resource);
+            prompts.put(loaded.prompt().name(), loaded);
+        }
+        if (prompts.isEmpty()) {
+            throw new IllegalStateException("提示词目录下没有模板: " + properties.getLocation());
+        }
+        log.info("已加载 {} 个提示词模板: {}", prompts.size(), ids());
+    }
+
+    /**
+     * 按名称获取模板，名称为 prompts/ 下去掉 .txt 的文件名
+     */
+    public CompiledPrompt get(String name) {
+        LoadedPrompt loaded = prompts.get(name);
+        if (loaded == null) {
+            throw new IllegalArgumentException("不存在的提示词模板: " + name + "，可选 " + prompts.keySet());
+        }
+        return loaded.prompt();
+    }
+
+    /**
+     * 代入变量渲染模板，返回文本和所用模板的版本
+     */
+    public RenderedPrompt render(String name, Map<String, ?> variables) {
+        CompiledPrompt prompt = get(name);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return new RenderedPrompt(prompt.id(), prompt.render(variables));
+        } finally {
+            sample.stop(meterRegistry.timer(RENDER_TIMER, "template", name));
+        }
+    }
+
+    /**
+     * 当前全部模板的带版本标识
+     */
+    public List<String> ids() {
+        return prompts.values().stream().map(loaded -> loaded.prompt().id()).sorted().toList();
+    }
+
+    /**
+     * 检查模板文件是否有新增或变更，有则重新编译
+     * 编译失败时保留旧模板继续生效；删除的文件不影响已加载的模板
+     */
+    @Scheduled(fixedDelayString = "${text2sql.prompt.reload-interval:2s}")
+    public void reloadIfModified() {
+        if (!properties.isHotReload()) {
+            return;
+        }
+        Map<String, Resource> resources = new HashMap<>();
+        try {
+            list().forEach(resource -> resources.put(name(resource), resource));
+        } catch (IllegalStateException e) {
+            log.error("检查提示词模板变更失败", e);
+            return;
+        }
+        for (Map.Entry<String, Resource> entry : resources.entrySet()) {
+            LoadedPrompt current = prompts.get(entry.getKey());
+            if (current != null && current.modified() == lastModified(entry.getValue())) {
+                continue;
+            }
+            try {
+                LoadedPrompt loaded = load(entry.getValue());
+                prompts.put(entry.getKey(), loaded);
+                log.info("提示词模板已重新加载: {}", loaded.prompt().id());
+            } catch (Exception e) {
+                log.error("重新加载提示词模板 {} 失败，继续使用旧模板", entry.getKey(), e);
+            }
+        }
+    }
+
+    private List<Resource> list() {
+        String location = properties.getLocation();
+        if (!location.endsWith("/")) {
+            location += "/";
+        }
+        try {
+            return List.of(resourceResolver.getResources(location + "*" + TEMPLATE_SUFFIX));
+        } catch (IOException e) {
+            throw new IllegalStateException("无法读取提示词目录: " + location, e);
+        }
+    }
+
+    private LoadedPrompt load(Resource resource) {
+        long modified = lastModified(resource);
+        try (InputStream inputStream = resource.getInputStream()) {
+            String source = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            return new LoadedPrompt(CompiledPrompt.compile(name(resource), source), modified);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法加载提示词文件: " + resource.getDescription(), e);
+        }
+    }
+
+    private static String name(Resource resource) {
+        String filename = resource.getFilename();
+        return filename.substring(0, filename.length() - TEMPLATE_SUFFIX.length());
+    }
+
+    /**
+     * 模板文件修改时间，无法获取时为 -1
+     */
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private record LoadedPrompt(CompiledPrompt prompt, long modified) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.text2sql.service.prompt;
+
+/**
+ * 代入变量后的提示词
+ *
+ * @param id   模板的带版本标识，见 {@link CompiledPrompt#id()}
+ * @param text 提示词文本
+ */
+public record RenderedPrompt(String id, String text) {
+}
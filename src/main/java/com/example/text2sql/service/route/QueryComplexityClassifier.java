@@ -0,0 +1,208 @@
+package com.example.text2sql.service.route;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.RoutingProperties;
+import com.example.text2sql.service.BusinessRuleService;
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.prompt.PromptTemplateRegistry;
+import com.example.text2sql.service.rule.RuleMatch;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 问题复杂度分类器
+ * 按规则计分：从表名和表注释识别问题涉及的表，再看是否需要多表关联、子查询、分组聚合和时间范围；
+ * 得分达到阈值走分步流水线，否则走直连单次生成。得分在阈值附近时可选地再让模型判断一次
+ */
+@Slf4j
+@Service
+public class QueryComplexityClassifier {
+
+    private static final String CLASSIFY_PROMPT = "route-classification";
+
+    /**
+     * 表注释中不代表业务对象的后缀，如“员工信息表”只取“员工”参与匹配
+     */
+    private static final Pattern COMMENT_SUFFIX = Pattern.compile("(信息|关系|记录|明细|数据)?表$");
+
+    /**
+     * 需要子查询、反连接或跨行比较的说法
+     */
+    private static final Pattern SUBQUERY = Pattern.compile(
+            "高于平均|低于平均|超过平均|大于平均|小于平均|没有|从未|从来没|不在|未参与|未分配|至少|同时|占比|比例|同比|环比|排名第");
+
+    /**
+     * 按维度分组的说法
+     */
+    private static final Pattern GROUPING = Pattern.compile("每个|每位|每名|各个|各(?!种)|按.{1,6}(统计|分组|汇总)|分组|分布|趋势");
+
+    private static final int SUBQUERY_SCORE = 3;
+
+    private static final int EXTRA_TABLE_SCORE = 3;
+
+    private static final int MINOR_SCORE = 1;
+
+    /**
+     * 表注释与问题至少有这么长的公共片段才认为提到了这张表
+     */
+    private static final int MIN_COMMENT_MATCH = 2;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final BusinessRuleService businessRuleService;
+
+    private final ChatClientProfiles chatClientProfiles;
+
+    private final RoutingProperties properties;
+
+    private final PromptTemplateRegistry promptTemplateRegistry;
+
+    public QueryComplexityClassifier(SchemaCatalogService schemaCatalogService, BusinessRuleService businessRuleService,
+                                     ChatClientProfiles chatClientProfiles, RoutingProperties properties,
+                                     PromptTemplateRegistry promptTemplateRegistry) {
+        this.schemaCatalogService = schemaCatalogService;
+        this.businessRuleService = businessRuleService;
+        this.chatClientProfiles = chatClientProfiles;
+        this.properties = properties;
+        this.promptTemplateRegistry = promptTemplateRegistry;
+    }
+
+    /**
+     * 判断当前线程数据源上的问题走哪条路径
+     */
+    public RouteDecision classify(String query) {
+        String dataSource = SchemaCatalogService.currentDataSource();
+        List<String> tables = matchTables(dataSource, query);
+        RuleMatch match = businessRuleService.evaluate(dataSource, query);
+
+        int threshold = properties.getComplexityThreshold();
+        int score = 0;
+        List<String> reasons = new ArrayList<>();
+        if (tables.isEmpty()) {
+            score += threshold;
+            reasons.add("未识别出涉及的表，需要选表步骤");
+        } else if (tables.size() > properties.getMaxDirectTables()) {
+            score += EXTRA_TABLE_SCORE * (tables.size() - properties.getMaxDirectTables());
+            reasons.add("涉及多张表: " + String.join(", ", tables));
+        }
+        Matcher subquery = SUBQUERY.matcher(query);
+        if (subquery.find()) {
+            score += SUBQUERY_SCORE;
+            reasons.add("需要子查询或比较: " + subquery.group());
+        }
+        Matcher grouping = GROUPING.matcher(query);
+        if (grouping.find()) {
+            score += MINOR_SCORE;
+            reasons.add("按维度分组: " + grouping.group());
+        }
+        if (match.getAggregationHint() != null) {
+            score += MINOR_SCORE;
+            reasons.add("需要聚合: " + match.getAggregationHint());
+        }
+        if (match.getTemporalRange() != null) {
+            score += MINOR_SCORE;
+            reasons.add("包含时间范围: " + match.getTemporalRange().describe());
+        }
+
+        QueryRoute route = score >= threshold ? QueryRoute.PIPELINE : QueryRoute.DIRECT;
+        RouteDecision decision = new RouteDecision(route, score, List.copyOf(reasons), tables, RouteDecision.BY_RULE);
+        if (properties.isModelClassifier() && !tables.isEmpty() && Math.abs(score - threshold) <= 1) {
+            decision = classifyWithModel(query, decision);
+        }
+        log.debug("问题路由: {} -> {}，得分 {}，依据 {}", query, decision.route(), score, reasons);
+        return decision;
+    }
+
+    /**
+     * 从表名和表注释识别问题提到的表，按在问题中出现的位置排序
+     * 一张表的匹配片段被另一张表更长的匹配片段包含时（如“项目”之于“项目成员”）只保留后者
+     */
+    private List<String> matchTables(String dataSource, String query) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        Map<String, String> comments = schemaCatalogService.getTableComments(dataSource);
+        Map<String, int[]> ranges = new LinkedHashMap<>();
+        for (String table : schemaCatalogService.getTableNames(dataSource)) {
+            int start = indexOfIdentifier(lowerQuery, table);
+            if (start >= 0) {
+                ranges.put(table, new int[]{start, start + table.length()});
+                continue;
+            }
+            String comment = comments.get(table);
+            if (comment != null) {
+                int[] range = longestCommonRange(COMMENT_SUFFIX.matcher(comment.trim()).replaceFirst(""), lowerQuery);
+                if (range != null) {
+                    ranges.put(table, range);
+                }
+            }
+        }
+
+        return ranges.entrySet().stream()
+                .filter(entry -> ranges.values().stream().noneMatch(other -> contains(other, entry.getValue())))
+                .sorted((a, b) -> Integer.compare(a.getValue()[0], b.getValue()[0]))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private RouteDecision classifyWithModel(String query, RouteDecision ruleDecision) {
+        try {
+            String promptText = promptTemplateRegistry.render(CLASSIFY_PROMPT, Map.of(
+                    "userQuery", query,
+                    "tables", String.join(", ", ruleDecision.tables()))).text();
+            String answer = chatClientProfiles.prompt(ChatClientProfiles.ROUTE).user(promptText)
+                    .call()
+                    .content();
+            QueryRoute route = answer != null && answer.toUpperCase(Locale.ROOT).contains("COMPLEX")
+                    ? QueryRoute.PIPELINE : QueryRoute.DIRECT;
+            return new RouteDecision(route, ruleDecision.score(), ruleDecision.reasons(), ruleDecision.tables(),
+                    RouteDecision.BY_MODEL);
+        } catch (Exception e) {
+            log.warn("模型判断问题复杂度失败，沿用规则结果: {}", e.getMessage());
+            return ruleDecision;
+        }
+    }
+
+    private static int indexOfIdentifier(String text, String identifier) {
+        for (int start = text.indexOf(identifier); start >= 0; start = text.indexOf(identifier, start + 1)) {
+            int end = start + identifier.length();
+            if ((start == 0 || !isIdentifierChar(text.charAt(start - 1)))
+                    && (end == text.length() || !isIdentifierChar(text.charAt(end)))) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return c < 128 && (Character.isLetterOrDigit(c) || c == '_');
+    }
+
+    /**
+     * 注释在问题中出现的最长片段的位置，片段短于 MIN_COMMENT_MATCH 时返回 null
+     * 注释通常只有几个字，直接从长到短逐个子串查找
+     */
+    private static int[] longestCommonRange(String comment, String text) {
+        for (int length = comment.length(); length >= MIN_COMMENT_MATCH; length--) {
+            for (int offset = 0; offset + length <= comment.length(); offset++) {
+                int start = text.indexOf(comment.substring(offset, offset + length));
+                if (start >= 0) {
+                    return new int[]{start, start + length};
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean contains(int[] outer, int[] inner) {
+        return outer != inner && outer[0] <= inner[0] && inner[1] <= outer[1] && outer[1] - outer[0] > inner[1] - inner[0];
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.text2sql.service.route;
+
+/**
+ * 查询处理路径
+ */
+public enum QueryRoute {
+
+    /**
+     * 直连单次生成：只带相关表的结构，一次模型调用生成 SQL 后直接执行
+     */
+    DIRECT,
+
+    /**
+     * 分步流水线：问题改写、选表、信息推理、SQL 生成、执行五个步骤
+     */
+    PIPELINE
+}
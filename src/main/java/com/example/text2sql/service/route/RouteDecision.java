@@ -0,0 +1,41 @@
+package com.example.text2sql.service.route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 路由决策，随结果返回给前端并计入指标
+ *
+ * @param route     选择的路径
+ * @param score     复杂度得分
+ * @param reasons   计分依据
+ * @param tables    从问题中识别出的表
+ * @param decidedBy 决策来源：rule 规则计分，model 模型判断，forced 请求指定，fallback 直连失败后改走流水线
+ */
+public record RouteDecision(QueryRoute route, int score, List<String> reasons, List<String> tables,
+                            String decidedBy) {
+
+    public static final String BY_RULE = "rule";
+
+    public static final String BY_MODEL = "model";
+
+    public static final String BY_FORCED = "forced";
+
+    public static final String BY_FALLBACK = "fallback";
+
+    /**
+     * 请求直接指定路径
+     */
+    public RouteDecision forced(QueryRoute forcedRoute) {
+        return new RouteDecision(forcedRoute, score, reasons, tables, BY_FORCED);
+    }
+
+    /**
+     * 直连路径失败后改走分步流水线
+     */
+    public RouteDecision fallback(String reason) {
+        List<String> allReasons = new ArrayList<>(reasons);
+        allReasons.add(reason);
+        return new RouteDecision(QueryRoute.PIPELINE, score, List.copyOf(allReasons), tables, BY_FALLBACK);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.text2sql.service.rule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.text2sql.config.BusinessRuleProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 业务规则注册表
+ * 按数据源懒加载规则文件（default.yml + {数据源名称}.yml）并编译为 {@link RuleSet}，
+ * 定期检查文件修改时间，变更后重新编译替换，无需重启
+ */
+@Slf4j
+@Component
+public class BusinessRuleRegistry {
+
+    private static final String DEFAULT_RULES = "default";
+
+    private static final String RULE_FILE_SUFFIX = ".yml";
+
+    private static final RuleSet EMPTY = RuleSet.compile(new RuleDefinitions());
+
+    private final BusinessRuleProperties properties;
+
+    private final ResourceLoader resourceLoader;
+
+    private final ObjectMapper yamlMapper = YAMLMapper.builder()
+            .propertyNamingStrategy(PropertyNamingStrategies.KEBAB_CASE)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private final Map<String, LoadedRuleSet> ruleSets = new ConcurrentHashMap<>();
+
+    public BusinessRuleRegistry(BusinessRuleProperties properties, ResourceLoader resourceLoader) {
+        this.properties = properties;
+        this.resourceLoader = resourceLoader;
+    }
+
+    /**
+     * 获取指定数据源的规则集
+     */
+    public RuleSet getRuleSet(String dataSource) {
+        String key = dataSource.toLowerCase(Locale.ROOT);
+        try {
+            return ruleSets.computeIfAbsent(key, this::load).ruleSet();
+        } catch (IllegalStateException e) {
+            // 规则文件有误时不缓存，修正后下次调用即可加载成功
+            log.error("加载数据源 {} 的业务规则失败，本次不使用业务规则", key, e);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * 检查已加载的规则文件是否有变更，有则重新编译
+     * 加载失败时保留旧规则继续生效
+     */
+    @Scheduled(fixedDelayString = "${text2sql.rules.reload-interval:10s}")
+    public void reloadIfModified() {
+        long defaultModified = lastModified(DEFAULT_RULES);
+        for (Map.Entry<String, LoadedRuleSet> entry : ruleSets.entrySet()) {
+            LoadedRuleSet loaded = entry.getValue();
+            if (loaded.defaultModified() == defaultModified && loaded.modified() == lastModified(entry.getKey())) {
+                continue;
+            }
+            try {
+                ruleSets.put(entry.getKey(), load(entry.getKey()));
+                log.info("数据源 {} 的业务规则已重新加载", entry.getKey());
+            } catch (Exception e) {
+                log.error("重新加载数据源 {} 的业务规则失败，继续使用旧规则", entry.getKey(), e);
+            }
+        }
+    }
+
+    private LoadedRuleSet load(String dataSource) {
+        long defaultModified = lastModified(DEFAULT_RULES);
+        long modified = lastModified(dataSource);
+        RuleDefinitions merged = RuleDefinitions.merge(read(dataSource), read(DEFAULT_RULES));
+        return new LoadedRuleSet(RuleSet.compile(merged), defaultModified, modified);
+    }
+
+    private RuleDefinitions read(String name) {
+        Resource resource = resource(name);
+        if (!resource.exists()) {
+            return new RuleDefinitions();
+        }
+        try (InputStream inputStream = resource.getInputStream()) {
+            RuleDefinitions definitions = yamlMapper.readValue(inputStream, RuleDefinitions.class);
+            return definitions != null ? definitions : new RuleDefinitions();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法解析业务规则文件: " + resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * 规则文件修改时间，文件不存在时为 -1
+     */
+    private long lastModified(String name) {
+        Resource resource = resource(name);
+        try {
+            return resource.exists() ? resource.lastModified() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private Resource resource(String name) {
+        String location = properties.getLocation();
+        if (!location.endsWith("/")) {
+            location += "/";
+        }
+        return resourceLoader.getResource(location + name + RULE_FILE_SUFFIX);
+    }
+
+    private record LoadedRuleSet(RuleSet ruleSet, long defaultModified, long modified) {
+    }
+}
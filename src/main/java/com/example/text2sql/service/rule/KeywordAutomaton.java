@@ -0,0 +1,163 @@
+package com.example.text2sql.service.rule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick 多关键词匹配自动机
+ * 所有关键词编译进一个自动机，一次扫描文本即可得到全部命中的关键词；忽略大小写。
+ * 构建完成后只读，可在多个线程间共享
+ */
+public final class KeywordAutomaton {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    /**
+     * 转移表：开放寻址哈希，键为 (状态 << 16 | 字符)
+     */
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+
+    private final int[] fail;
+
+    /**
+     * 每个状态命中的关键词编号，已合并失败链上的输出
+     */
+    private final int[][] outputs;
+
+    private final int keywordCount;
+
+    private KeywordAutomaton(long[] transitionKeys, int[] transitionTargets, int[] fail, int[][] outputs,
+                             int keywordCount) {
+        this.transitionKeys = transitionKeys;
+        this.transitionTargets = transitionTargets;
+        this.transitionMask = transitionKeys.length - 1;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.keywordCount = keywordCount;
+    }
+
+    /**
+     * 构建自动机，关键词编号即其在列表中的下标
+     */
+    public static KeywordAutomaton build(List<String> keywords) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        children.add(new HashMap<>());
+        outputs.add(new ArrayList<>());
+
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id);
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                Integer next = children.get(state).get(c);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    outputs.add(new ArrayList<>());
+                    children.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (state != ROOT) {
+                outputs.get(state).add(id);
+            }
+        }
+
+        // 广度优先计算失败指针，并把失败状态的输出合并进来
+        int stateCount = children.size();
+        int[] fail = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>(children.get(ROOT).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                int child = edge.getValue();
+                int fallback = fail[state];
+                while (fallback != ROOT && !children.get(fallback).containsKey(edge.getKey())) {
+                    fallback = fail[fallback];
+                }
+                Integer target = children.get(fallback).get(edge.getKey());
+                fail[child] = target != null && target != child ? target : ROOT;
+                outputs.get(child).addAll(outputs.get(fail[child]));
+                queue.add(child);
+            }
+        }
+
+        // 压缩为数组
+        int capacity = Integer.highestOneBit(Math.max(stateCount * 2, 16) - 1) << 1;
+        long[] keys = new long[capacity];
+        int[] targets = new int[capacity];
+        Arrays.fill(keys, NONE);
+        int mask = capacity - 1;
+        int[][] outputArrays = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            for (Map.Entry<Character, Integer> edge : children.get(state).entrySet()) {
+                long key = key(state, edge.getKey());
+                int slot = slot(key, mask);
+                while (keys[slot] != NONE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                targets[slot] = edge.getValue();
+            }
+            outputArrays[state] = outputs.get(state).stream().distinct().mapToInt(Integer::intValue).toArray();
+        }
+        return new KeywordAutomaton(keys, targets, fail, outputArrays, keywords.size());
+    }
+
+    /**
+     * 扫描文本，返回命中的关键词编号集合
+     */
+    public BitSet match(CharSequence text) {
+        BitSet matched = new BitSet(keywordCount);
+        if (text == null) {
+            return matched;
+        }
+
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = transition(state, c);
+            while (next == NONE && state != ROOT) {
+                state = fail[state];
+                next = transition(state, c);
+            }
+            state = next == NONE ? ROOT : next;
+            for (int id : outputs[state]) {
+                matched.set(id);
+            }
+        }
+        return matched;
+    }
+
+    private int transition(int state, char c) {
+        long key = key(state, c);
+        int slot = slot(key, transitionMask);
+        long candidate;
+        while ((candidate = transitionKeys[slot]) != NONE) {
+            if (candidate == key) {
+                return transitionTargets[slot];
+            }
+            slot = (slot + 1) & transitionMask;
+        }
+        return NONE;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.text2sql.service.rule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * 规则文件（YAML）的结构定义
+ */
+@Data
+public class RuleDefinitions {
+
+    /**
+     * 出现这些词时尝试解析时间范围
+     */
+    private List<String> timeKeywords = new ArrayList<>();
+
+    /**
+     * 业务术语及同义词
+     */
+    private List<Term> terms = new ArrayList<>();
+
+    /**
+     * 业务逻辑推理规则
+     */
+    private List<Logic> logic = new ArrayList<>();
+
+    /**
+     * 字段需求规则
+     */
+    private List<Field> fields = new ArrayList<>();
+
+    /**
+     * 聚合规则，按声明顺序取第一条命中的规则
+     */
+    private List<Aggregation> aggregations = new ArrayList<>();
+
+    /**
+     * 表关联规则
+     */
+    private List<Join> joins = new ArrayList<>();
+
+    @Data
+    public static class Term {
+        private String term;
+        private List<String> synonyms = new ArrayList<>();
+        private String explanation;
+    }
+
+    @Data
+    public static class Logic {
+        private String name;
+        /**
+         * 命中任意一个即触发
+         */
+        private List<String> keywords = new ArrayList<>();
+        /**
+         * 非空时还需要同时命中其中任意一个
+         */
+        private List<String> requires = new ArrayList<>();
+        private String hint;
+    }
+
+    @Data
+    public static class Field {
+        private String table;
+        private List<String> keywords = new ArrayList<>();
+        private List<String> columns = new ArrayList<>();
+    }
+
+    @Data
+    public static class Aggregation {
+        private List<String> keywords = new ArrayList<>();
+        private String hint;
+    }
+
+    @Data
+    public static class Join {
+        private List<String> tables = new ArrayList<>();
+        private String hint;
+    }
+
+    /**
+     * 合并规则：数据源专属规则在前，通用规则在后
+     */
+    public static RuleDefinitions merge(RuleDefinitions specific, RuleDefinitions common) {
+        RuleDefinitions merged = new RuleDefinitions();
+        for (RuleDefinitions definitions : List.of(specific, common)) {
+            merged.timeKeywords.addAll(definitions.timeKeywords);
+            merged.terms.addAll(definitions.terms);
+            merged.logic.addAll(definitions.logic);
+            merged.fields.addAll(definitions.fields);
+            merged.aggregations.addAll(definitions.aggregations);
+            merged.joins.addAll(definitions.joins);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.text2sql.service.rule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.text2sql.service.temporal.TemporalRange;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 一个问题对规则集的命中结果
+ * 问题只扫描一次，之后各类规则的查询都只做位运算
+ */
+public class RuleMatch {
+
+    private final RuleSet ruleSet;
+
+    private final BitSet matched;
+
+    /**
+     * 解析出的时间范围，问题中没有时间词或无法解析时为 null
+     */
+    @Getter
+    @Setter
+    private TemporalRange temporalRange;
+
+    RuleMatch(RuleSet ruleSet, BitSet matched) {
+        this.ruleSet = ruleSet;
+        this.matched = matched;
+    }
+
+    /**
+     * 问题中是否出现了时间相关的词
+     */
+    public boolean hasTimeKeyword() {
+        return ruleSet.matchesTime(matched);
+    }
+
+    /**
+     * 命中的业务术语及其解释
+     */
+    public Map<String, String> getTermExplanations() {
+        Map<String, String> explanations = new LinkedHashMap<>();
+        for (RuleSet.TermRule term : ruleSet.terms()) {
+            if (term.keywords().intersects(matched)) {
+                explanations.putIfAbsent(term.term(), term.explanation());
+            }
+        }
+        return explanations;
+    }
+
+    /**
+     * 命中的业务逻辑提示
+     */
+    public List<String> getLogicHints() {
+        List<String> hints = new ArrayList<>();
+        for (RuleSet.LogicRule rule : ruleSet.logicRules()) {
+            if (rule.matches(matched)) {
+                hints.add(rule.hint());
+            }
+        }
+        return hints;
+    }
+
+    /**
+     * 业务逻辑推理，每行一条“规则名: 提示”
+     */
+    public String getBusinessLogic() {
+        StringBuilder logic = new StringBuilder();
+        if (temporalRange != null) {
+            logic.append("时间推理: ").append(temporalRange.describe()).append("\n");
+        }
+        for (RuleSet.LogicRule rule : ruleSet.logicRules()) {
+            if (rule.matches(matched)) {
+                logic.append(rule.name()).append(": ").append(rule.hint()).append("\n");
+            }
+        }
+        return logic.toString().trim();
+    }
+
+    /**
+     * 指定表需要的字段，按规则声明顺序去重
+     */
+    public List<String> getRequiredColumns(String table) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (RuleSet.FieldRule rule : ruleSet.fieldRules(table)) {
+            if (rule.keywords().intersects(matched)) {
+                columns.addAll(rule.columns());
+            }
+        }
+        return new ArrayList<>(columns);
+    }
+
+    /**
+     * 第一条命中的聚合规则，没有命中时为 null
+     */
+    public String getAggregationHint() {
+        for (RuleSet.AggregationRule rule : ruleSet.aggregationRules()) {
+            if (rule.keywords().intersects(matched)) {
+                return rule.hint();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 两张表之间的关联规则
+     */
+    public String getJoinRule(String table1, String table2) {
+        return ruleSet.getJoinRule(table1, table2);
+    }
+}
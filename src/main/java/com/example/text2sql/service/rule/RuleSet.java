@@ -0,0 +1,178 @@
+package com.example.text2sql.service.rule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 编译后的规则集
+ * 所有规则的触发词编进同一个 {@link KeywordAutomaton}，规则只保存关键词编号，
+ * 评估时扫描一遍问题得到命中集合，再逐条规则做位运算判断
+ */
+public final class RuleSet {
+
+    private final KeywordAutomaton automaton;
+
+    private final BitSet timeKeywords;
+
+    private final List<TermRule> terms;
+
+    private final Map<String, String> termExplanations;
+
+    private final List<LogicRule> logicRules;
+
+    private final Map<String, List<FieldRule>> fieldRules;
+
+    private final List<AggregationRule> aggregationRules;
+
+    private final Map<String, String> joinRules;
+
+    private RuleSet(Builder builder) {
+        this.automaton = KeywordAutomaton.build(builder.keywords);
+        this.timeKeywords = builder.timeKeywords;
+        this.terms = builder.terms;
+        this.termExplanations = builder.termExplanations;
+        this.logicRules = builder.logicRules;
+        this.fieldRules = builder.fieldRules;
+        this.aggregationRules = builder.aggregationRules;
+        this.joinRules = builder.joinRules;
+    }
+
+    /**
+     * 编译规则定义
+     */
+    public static RuleSet compile(RuleDefinitions definitions) {
+        Builder builder = new Builder();
+        builder.timeKeywords = builder.ids(definitions.getTimeKeywords());
+
+        for (RuleDefinitions.Term term : definitions.getTerms()) {
+            List<String> words = new ArrayList<>();
+            words.add(term.getTerm());
+            words.addAll(term.getSynonyms());
+            builder.terms.add(new TermRule(term.getTerm(), term.getExplanation(), builder.ids(words)));
+            for (String word : words) {
+                builder.termExplanations.putIfAbsent(word.toLowerCase(Locale.ROOT), term.getExplanation());
+            }
+        }
+        for (RuleDefinitions.Logic logic : definitions.getLogic()) {
+            builder.logicRules.add(new LogicRule(logic.getName(), logic.getHint(),
+                    builder.ids(logic.getKeywords()), builder.ids(logic.getRequires())));
+        }
+        for (RuleDefinitions.Field field : definitions.getFields()) {
+            builder.fieldRules.computeIfAbsent(normalizeTable(field.getTable()), key -> new ArrayList<>())
+                    .add(new FieldRule(builder.ids(field.getKeywords()), List.copyOf(field.getColumns())));
+        }
+        for (RuleDefinitions.Aggregation aggregation : definitions.getAggregations()) {
+            builder.aggregationRules.add(new AggregationRule(aggregation.getHint(), builder.ids(aggregation.getKeywords())));
+        }
+        for (RuleDefinitions.Join join : definitions.getJoins()) {
+            if (join.getTables().size() == 2) {
+                builder.joinRules.putIfAbsent(joinKey(join.getTables().get(0), join.getTables().get(1)), join.getHint());
+            }
+        }
+        return new RuleSet(builder);
+    }
+
+    /**
+     * 扫描一遍问题，返回命中结果
+     */
+    public RuleMatch match(String query) {
+        return new RuleMatch(this, automaton.match(query));
+    }
+
+    /**
+     * 术语解释，支持同义词
+     */
+    public String getTermExplanation(String term) {
+        return term == null ? null : termExplanations.get(term.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 两张表之间的关联规则，与表的顺序无关
+     */
+    public String getJoinRule(String table1, String table2) {
+        return joinRules.get(joinKey(table1, table2));
+    }
+
+    boolean matchesTime(BitSet matched) {
+        return timeKeywords.intersects(matched);
+    }
+
+    List<TermRule> terms() {
+        return terms;
+    }
+
+    List<LogicRule> logicRules() {
+        return logicRules;
+    }
+
+    List<FieldRule> fieldRules(String table) {
+        return fieldRules.getOrDefault(normalizeTable(table), List.of());
+    }
+
+    List<AggregationRule> aggregationRules() {
+        return aggregationRules;
+    }
+
+    static String normalizeTable(String table) {
+        return table == null ? "" : table.trim().replace("`", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String joinKey(String table1, String table2) {
+        String t1 = normalizeTable(table1);
+        String t2 = normalizeTable(table2);
+        return t1.compareTo(t2) <= 0 ? t1 + "|" + t2 : t2 + "|" + t1;
+    }
+
+    record TermRule(String term, String explanation, BitSet keywords) {
+    }
+
+    record LogicRule(String name, String hint, BitSet keywords, BitSet requires) {
+
+        boolean matches(BitSet matched) {
+            return keywords.intersects(matched) && (requires.isEmpty() || requires.intersects(matched));
+        }
+    }
+
+    record FieldRule(BitSet keywords, List<String> columns) {
+    }
+
+    record AggregationRule(String hint, BitSet keywords) {
+    }
+
+    private static final class Builder {
+
+        private final List<String> keywords = new ArrayList<>();
+        private final Map<String, Integer> keywordIds = new HashMap<>();
+
+        private BitSet timeKeywords = new BitSet();
+        private final List<TermRule> terms = new ArrayList<>();
+        private final Map<String, String> termExplanations = new HashMap<>();
+        private final List<LogicRule> logicRules = new ArrayList<>();
+        private final Map<String, List<FieldRule>> fieldRules = new LinkedHashMap<>();
+        private final List<AggregationRule> aggregationRules = new ArrayList<>();
+        private final Map<String, String> joinRules = new HashMap<>();
+
+        /**
+         * 登记关键词，相同的关键词只进自动机一次
+         */
+        private BitSet ids(List<String> words) {
+            BitSet ids = new BitSet();
+            for (String word : words) {
+                if (word == null || word.isBlank()) {
+                    continue;
+                }
+                String keyword = word.trim().toLowerCase(Locale.ROOT);
+                ids.set(keywordIds.computeIfAbsent(keyword, key -> {
+                    keywords.add(key);
+                    return keywords.size() - 1;
+                }));
+            }
+            return ids;
+        }
+    }
+}
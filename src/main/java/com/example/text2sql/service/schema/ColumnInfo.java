@@ -0,0 +1,51 @@
+package com.example.text2sql.service.schema;
+
+import java.util.Locale;
+
+/**
+ * 列信息
+ *
+ * @param name    列名
+ * @param type    列类型，如 varchar(100)、date
+ * @param comment 列注释
+ * @param key     索引类型：PRI / UNI / MUL，无索引时为空
+ */
+public record ColumnInfo(String name, String type, String comment, String key) {
+
+    /**
+     * 是否为日期时间类型
+     */
+    public boolean isTemporal() {
+        String lowerType = type == null ? "" : type.toLowerCase(Locale.ROOT);
+        return lowerType.startsWith("date") || lowerType.startsWith("timestamp");
+    }
+
+    /**
+     * 是否为索引列的首列
+     */
+    public boolean isIndexed() {
+        return key != null && !key.isEmpty();
+    }
+
+    /**
+     * 列注释与文本的最长公共子串长度，用于判断问题是否提到了这一列
+     */
+    public int commentMatchLength(String text) {
+        if (comment == null || text == null) {
+            return 0;
+        }
+        int longest = 0;
+        int[] previous = new int[text.length() + 1];
+        int[] current = new int[text.length() + 1];
+        for (int i = 1; i <= comment.length(); i++) {
+            for (int j = 1; j <= text.length(); j++) {
+                current[j] = comment.charAt(i - 1) == text.charAt(j - 1) ? previous[j - 1] + 1 : 0;
+                longest = Math.max(longest, current[j]);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.text2sql.service.schema;
+
+import java.util.List;
+
+/**
+ * 索引信息，列按在索引中的顺序排列
+ *
+ * @param name    索引名，主键为 PRIMARY
+ * @param unique  是否唯一索引
+ * @param columns 索引列
+ */
+public record IndexInfo(String name, boolean unique, List<String> columns) {
+
+    /**
+     * 提示词中的索引写法，如 idx_created_at(created_at)，唯一索引加 UNIQUE 前缀
+     */
+    public String describe() {
+        return (unique ? "UNIQUE " : "") + name + "(" + String.join(", ", columns) + ")";
+    }
+}
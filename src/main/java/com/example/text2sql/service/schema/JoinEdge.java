@@ -0,0 +1,34 @@
+package com.example.text2sql.service.schema;
+
+/**
+ * 两张表之间的关联关系，表名和列名均为小写
+ *
+ * @param table            引用方表
+ * @param column           引用方列
+ * @param referencedTable  被引用表
+ * @param referencedColumn 被引用列
+ * @param inferred         是否由 *_id 命名约定推断，false 表示来自外键约束
+ */
+public record JoinEdge(String table, String column, String referencedTable, String referencedColumn, boolean inferred) {
+
+    /**
+     * 外键约束的关系比推断的关系可靠，求最小关联路径时优先使用
+     */
+    int weight() {
+        return inferred ? 3 : 2;
+    }
+
+    /**
+     * 关联条件，如 project_members.employee_id = employees.id
+     */
+    public String toCondition() {
+        return table + "." + column + " = " + referencedTable + "." + referencedColumn;
+    }
+
+    /**
+     * 从一端走到另一端
+     */
+    String other(String from) {
+        return from.equals(table) ? referencedTable : table;
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.text2sql.service.schema;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 表关联图
+ * 表为顶点、关联关系为边，构建时预先算好任意两表之间的最短关联路径；
+ * 给定一组表时求连接它们的最小斯坦纳树，即总代价最小的关联方案，必要时经过中间表
+ * 构建后不可变，可在线程间共享
+ */
+public final class JoinGraph {
+
+    private static final int INF = Integer.MAX_VALUE / 4;
+
+    /**
+     * 斯坦纳树精确算法的复杂度随表数指数增长，超过该数量时改用最短路径启发式
+     */
+    private static final int MAX_EXACT_TERMINALS = 8;
+
+    private final List<String> tables;
+
+    private final Map<String, Integer> index;
+
+    private final List<List<JoinEdge>> adjacency;
+
+    private final int[] component;
+
+    /**
+     * distance[s][v]：s 到 v 的最短路径代价
+     */
+    private final int[][] distance;
+
+    /**
+     * previous[s][v]：s 到 v 最短路径上进入 v 的边
+     */
+    private final JoinEdge[][] previous;
+
+    private final int edgeCount;
+
+    private JoinGraph(List<String> tables, Map<String, Integer> index, List<List<JoinEdge>> adjacency, int edgeCount) {
+        this.tables = tables;
+        this.index = index;
+        this.adjacency = adjacency;
+        this.edgeCount = edgeCount;
+        this.component = components();
+        this.distance = new int[tables.size()][];
+        this.previous = new JoinEdge[tables.size()][];
+        for (int source = 0; source < tables.size(); source++) {
+            shortestPaths(source);
+        }
+    }
+
+    /**
+     * 构建关联图，同一对表之间有多条关系时只保留代价最低的一条
+     *
+     * @param tableNames 所有表
+     * @param edges      关联关系
+     */
+    public static JoinGraph build(Collection<String> tableNames, Collection<JoinEdge> edges) {
+        List<String> tables = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        for (String table : tableNames) {
+            index.computeIfAbsent(table.toLowerCase(Locale.ROOT), key -> {
+                tables.add(key);
+                return tables.size() - 1;
+            });
+        }
+
+        Map<String, JoinEdge> best = new LinkedHashMap<>();
+        for (JoinEdge edge : edges) {
+            if (!index.containsKey(edge.table()) || !index.containsKey(edge.referencedTable())
+                    || edge.table().equals(edge.referencedTable())) {
+                continue;
+            }
+            String key = edge.table().compareTo(edge.referencedTable()) <= 0
+                    ? edge.table() + "|" + edge.referencedTable()
+                    : edge.referencedTable() + "|" + edge.table();
+            best.merge(key, edge, (current, candidate) -> candidate.weight() < current.weight() ? candidate : current);
+        }
+
+        List<List<JoinEdge>> adjacency = new ArrayList<>(tables.size());
+        for (int i = 0; i < tables.size(); i++) {
+            adjacency.add(new ArrayList<>());
+        }
+        for (JoinEdge edge : best.values()) {
+            adjacency.get(index.get(edge.table())).add(edge);
+            adjacency.get(index.get(edge.referencedTable())).add(edge);
+        }
+        return new JoinGraph(tables, index, adjacency, best.size());
+    }
+
+    public int getTableCount() {
+        return tables.size();
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * 求连接一组表的最小关联方案
+     * 所选表分属不连通的部分时，各部分分别求解，孤立的表记为无关联路径
+     */
+    public JoinPlan connect(Collection<String> selectedTables) {
+        Set<String> selected = new LinkedHashSet<>();
+        selectedTables.forEach(table -> selected.add(table.toLowerCase(Locale.ROOT)));
+        if (selected.size() < 2) {
+            return JoinPlan.EMPTY;
+        }
+
+        List<String> unreachable = new ArrayList<>();
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (String table : selected) {
+            Integer node = index.get(table);
+            if (node == null) {
+                unreachable.add(table);
+            } else {
+                groups.computeIfAbsent(component[node], key -> new ArrayList<>()).add(node);
+            }
+        }
+
+        Set<JoinEdge> edges = new LinkedHashSet<>();
+        for (List<Integer> group : groups.values()) {
+            if (group.size() == 1) {
+                unreachable.add(tables.get(group.get(0)));
+            } else {
+                int[] terminals = group.stream().mapToInt(Integer::intValue).toArray();
+                if (terminals.length <= MAX_EXACT_TERMINALS) {
+                    steinerTree(terminals, edges);
+                } else {
+                    approximateTree(terminals, edges);
+                }
+            }
+        }
+
+        List<JoinEdge> ordered = order(selected, edges);
+        Set<String> intermediate = new LinkedHashSet<>();
+        for (JoinEdge edge : ordered) {
+            for (String table : List.of(edge.table(), edge.referencedTable())) {
+                if (!selected.contains(table)) {
+                    intermediate.add(table);
+                }
+            }
+        }
+        return new JoinPlan(ordered, List.copyOf(intermediate), unreachable);
+    }
+
+    /**
+     * Dreyfus-Wagner 动态规划求最小斯坦纳树
+     * dp[mask][v] 为连接 mask 中的所选表和顶点 v 的最小代价，
+     * 先在 u 处把 mask 拆成两个子集合并，再沿最短路径延伸到 v
+     */
+    private void steinerTree(int[] terminals, Set<JoinEdge> edges) {
+        int k = terminals.length;
+        int full = (1 << k) - 1;
+        int n = tables.size();
+        int[] nodes = nodesOf(component[terminals[0]]);
+
+        int[][] dp = new int[full + 1][n];
+        int[][] via = new int[full + 1][n];
+        int[][] split = new int[full + 1][n];
+        for (int[] row : dp) {
+            Arrays.fill(row, INF);
+        }
+        for (int i = 0; i < k; i++) {
+            for (int v : nodes) {
+                dp[1 << i][v] = distance[terminals[i]][v];
+                via[1 << i][v] = terminals[i];
+            }
+        }
+
+        int[] merged = new int[n];
+        for (int mask = 1; mask <= full; mask++) {
+            if (Integer.bitCount(mask) < 2) {
+                continue;
+            }
+            int lowest = mask & -mask;
+            for (int u : nodes) {
+                merged[u] = INF;
+                // 子集只取包含最低位的一半，避免同一种拆分算两次
+                for (int sub = (mask - 1) & mask; sub > 0; sub = (sub - 1) & mask) {
+                    if ((sub & lowest) == 0) {
+                        continue;
+                    }
+                    int cost = dp[sub][u] + dp[mask ^ sub][u];
+                    if (cost < merged[u]) {
+                        merged[u] = cost;
+                        split[mask][u] = sub;
+                    }
+                }
+            }
+            for (int v : nodes) {
+                for (int u : nodes) {
+                    int cost = merged[u] + distance[u][v];
+                    if (cost < dp[mask][v]) {
+                        dp[mask][v] = cost;
+                        via[mask][v] = u;
+                    }
+                }
+            }
+        }
+
+        rebuild(full, terminals[0], via, split, edges);
+    }
+
+    /**
+     * 按记录的延伸点和拆分方式还原树上的边
+     */
+    private void rebuild(int mask, int v, int[][] via, int[][] split, Set<JoinEdge> edges) {
+        int u = via[mask][v];
+        addPath(u, v, edges);
+        if (Integer.bitCount(mask) == 1) {
+            return;
+        }
+        int sub = split[mask][u];
+        rebuild(sub, u, via, split, edges);
+        rebuild(mask ^ sub, u, via, split, edges);
+    }
+
+    /**
+     * 最短路径启发式：从第一张表出发，每次把离当前树最近的所选表沿最短路径接入
+     */
+    private void approximateTree(int[] terminals, Set<JoinEdge> edges) {
+        Set<Integer> tree = new LinkedHashSet<>();
+        tree.add(terminals[0]);
+        Set<Integer> remaining = new LinkedHashSet<>();
+        for (int i = 1; i < terminals.length; i++) {
+            remaining.add(terminals[i]);
+        }
+
+        while (!remaining.isEmpty()) {
+            int bestFrom = -1;
+            int bestTo = -1;
+            for (int to : remaining) {
+                for (int from : tree) {
+                    if (bestFrom < 0 || distance[from][to] < distance[bestFrom][bestTo]) {
+                        bestFrom = from;
+                        bestTo = to;
+                    }
+                }
+            }
+            for (int node = bestTo; node != bestFrom; ) {
+                JoinEdge edge = previous[bestFrom][node];
+                edges.add(edge);
+                tree.add(node);
+                remaining.remove(node);
+                node = index.get(edge.other(tables.get(node)));
+            }
+        }
+    }
+
+    private void addPath(int source, int target, Set<JoinEdge> edges) {
+        for (int node = target; node != source; ) {
+            JoinEdge edge = previous[source][node];
+            edges.add(edge);
+            node = index.get(edge.other(tables.get(node)));
+        }
+    }
+
+    /**
+     * 从第一张所选表出发广度优先排列关联条件，每个条件都引入一张新表，可按顺序写成 JOIN 链
+     */
+    private static List<JoinEdge> order(Set<String> selected, Set<JoinEdge> edges) {
+        List<JoinEdge> ordered = new ArrayList<>(edges.size());
+        Set<JoinEdge> pending = new LinkedHashSet<>(edges);
+        Set<String> joined = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        for (String table : selected) {
+            if (joined.add(table)) {
+                queue.add(table);
+            }
+            while (!queue.isEmpty()) {
+                String current = queue.poll();
+                for (var iterator = pending.iterator(); iterator.hasNext(); ) {
+                    JoinEdge edge = iterator.next();
+                    if (edge.table().equals(current) || edge.referencedTable().equals(current)) {
+                        iterator.remove();
+                        ordered.add(edge);
+                        String next = edge.other(current);
+                        if (joined.add(next)) {
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private void shortestPaths(int source) {
+        int[] dist = new int[tables.size()];
+        JoinEdge[] prev = new JoinEdge[tables.size()];
+        Arrays.fill(dist, INF);
+        dist[source] = 0;
+
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[1], b[1]));
+        queue.add(new int[]{source, 0});
+        while (!queue.isEmpty()) {
+            int[] entry = queue.poll();
+            int node = entry[0];
+            if (entry[1] > dist[node]) {
+                continue;
+            }
+            for (JoinEdge edge : adjacency.get(node)) {
+                int next = index.get(edge.other(tables.get(node)));
+                int cost = dist[node] + edge.weight();
+                if (cost < dist[next]) {
+                    dist[next] = cost;
+                    prev[next] = edge;
+                    queue.add(new int[]{next, cost});
+                }
+            }
+        }
+        distance[source] = dist;
+        previous[source] = prev;
+    }
+
+    private int[] components() {
+        int[] ids = new int[tables.size()];
+        Arrays.fill(ids, -1);
+        int next = 0;
+        for (int start = 0; start < tables.size(); start++) {
+            if (ids[start] >= 0) {
+                continue;
+            }
+            Deque<Integer> stack = new ArrayDeque<>();
+            stack.push(start);
+            ids[start] = next;
+            while (!stack.isEmpty()) {
+                int node = stack.pop();
+                for (JoinEdge edge : adjacency.get(node)) {
+                    int neighbor = index.get(edge.other(tables.get(node)));
+                    if (ids[neighbor] < 0) {
+                        ids[neighbor] = next;
+                        stack.push(neighbor);
+                    }
+                }
+            }
+            next++;
+        }
+        return ids;
+    }
+
+    private int[] nodesOf(int componentId) {
+        return IntStream.range(0, tables.size())
+                .filter(node -> component[node] == componentId)
+                .toArray();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.text2sql.service.schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.SchemaCatalogProperties;
+import com.example.text2sql.service.tool.DatabaseTool;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 表关联图服务
+ * 按数据源从 KEY_COLUMN_USAGE 读取外键构建关联图，没有外键约束的 *_id 列按命名约定推断关联，
+ * 关联图与表清单共用缓存有效期
+ */
+@Slf4j
+@Service
+public class JoinGraphService {
+
+    private static final String ID_SUFFIX = "_id";
+
+    private static final String PRIMARY_KEY = "PRI";
+
+    private final DatabaseTool databaseTool;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final Cache<String, JoinGraph> graphCache;
+
+    public JoinGraphService(DatabaseTool databaseTool, SchemaCatalogService schemaCatalogService,
+                            SchemaCatalogProperties properties) {
+        this.databaseTool = databaseTool;
+        this.schemaCatalogService = schemaCatalogService;
+        this.graphCache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+    }
+
+    /**
+     * 求当前数据源中连接一组表的最小关联方案
+     */
+    public JoinPlan plan(Collection<String> tables) {
+        if (tables.size() < 2) {
+            return JoinPlan.EMPTY;
+        }
+        return getGraph(SchemaCatalogService.currentDataSource()).connect(tables);
+    }
+
+    /**
+     * 获取指定数据源的关联图，读取表结构失败时返回空图且不缓存
+     */
+    public JoinGraph getGraph(String dataSource) {
+        String key = dataSource.toLowerCase(Locale.ROOT);
+        JoinGraph graph = graphCache.getIfPresent(key);
+        if (graph != null) {
+            return graph;
+        }
+
+        Set<String> tables = schemaCatalogService.getTableNames(key);
+        if (tables.isEmpty()) {
+            return JoinGraph.build(List.of(), List.of());
+        }
+        try {
+            List<JoinEdge> edges = foreignKeys(key);
+            edges.addAll(inferredEdges(key, tables, edges));
+            graph = JoinGraph.build(tables, edges);
+        } catch (Exception e) {
+            log.error("构建数据源 {} 的表关联图失败", key, e);
+            return JoinGraph.build(List.of(), List.of());
+        }
+
+        graphCache.put(key, graph);
+        log.info("已构建数据源 {} 的表关联图，共 {} 张表、{} 条关联", key, graph.getTableCount(), graph.getEdgeCount());
+        return graph;
+    }
+
+    /**
+     * 使指定数据源的关联图失效，表结构变更后调用
+     */
+    public void invalidate(String dataSource) {
+        graphCache.invalidate(dataSource.toLowerCase(Locale.ROOT));
+    }
+
+    private List<JoinEdge> foreignKeys(String dataSource) {
+        List<Map<String, Object>> rows = DataSourceRouter.executeWithDataSource(dataSource, databaseTool::getForeignKeys);
+        List<JoinEdge> edges = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            edges.add(new JoinEdge(lower(row.get("TABLE_NAME")), lower(row.get("COLUMN_NAME")),
+                    lower(row.get("REFERENCED_TABLE_NAME")), lower(row.get("REFERENCED_COLUMN_NAME")), false));
+        }
+        return edges;
+    }
+
+    /**
+     * 按命名约定推断关联：非主键列 xxx_id 指向表 xxx / xxxs / xxxes / xxies 的主键
+     * 已有外键约束的列不再推断
+     */
+    private List<JoinEdge> inferredEdges(String dataSource, Set<String> tables, List<JoinEdge> foreignKeys) {
+        Set<String> declared = new HashSet<>();
+        foreignKeys.forEach(edge -> declared.add(edge.table() + "." + edge.column()));
+
+        List<JoinEdge> edges = new ArrayList<>();
+        for (String table : tables) {
+            for (ColumnInfo column : schemaCatalogService.getColumns(dataSource, table)) {
+                String name = column.name().toLowerCase(Locale.ROOT);
+                if (!name.endsWith(ID_SUFFIX) || PRIMARY_KEY.equals(column.key()) || declared.contains(table + "." + name)) {
+                    continue;
+                }
+                String referenced = referencedTable(name.substring(0, name.length() - ID_SUFFIX.length()), tables);
+                if (referenced == null || referenced.equals(table)) {
+                    continue;
+                }
+                String primaryKey = primaryKey(dataSource, referenced);
+                if (primaryKey != null) {
+                    edges.add(new JoinEdge(table, name, referenced, primaryKey, true));
+                }
+            }
+        }
+        return edges;
+    }
+
+    private static String referencedTable(String prefix, Set<String> tables) {
+        List<String> candidates = new ArrayList<>(List.of(prefix, prefix + "s", prefix + "es"));
+        if (prefix.endsWith("y")) {
+            candidates.add(prefix.substring(0, prefix.length() - 1) + "ies");
+        }
+        return candidates.stream().filter(tables::contains).findFirst().orElse(null);
+    }
+
+    /**
+     * 单列主键的列名，联合主键或没有主键时返回 null
+     */
+    private String primaryKey(String dataSource, String table) {
+        List<String> keys = schemaCatalogService.getColumns(dataSource, table).stream()
+                .filter(column -> PRIMARY_KEY.equals(column.key()))
+                .map(column -> column.name().toLowerCase(Locale.ROOT))
+                .toList();
+        return keys.size() == 1 ? keys.get(0) : null;
+    }
+
+    private static String lower(Object value) {
+        return value == null ? "" : value.toString().toLowerCase(Locale.ROOT);
+    }
+}
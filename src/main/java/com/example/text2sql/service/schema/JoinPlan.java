@@ -0,0 +1,43 @@
+package com.example.text2sql.service.schema;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 连接一组表的最小关联方案
+ *
+ * @param edges              需要的关联条件
+ * @param intermediateTables 不在所选表中、但关联必须经过的中间表
+ * @param unreachableTables  与其他所选表之间没有关联路径的表
+ */
+public record JoinPlan(List<JoinEdge> edges, List<String> intermediateTables, List<String> unreachableTables) {
+
+    public static final JoinPlan EMPTY = new JoinPlan(List.of(), List.of(), List.of());
+
+    public boolean isEmpty() {
+        return edges.isEmpty() && unreachableTables.isEmpty();
+    }
+
+    /**
+     * 生成提示词中的关联说明
+     */
+    public String describe() {
+        if (isEmpty()) {
+            return "无";
+        }
+
+        StringJoiner description = new StringJoiner("；");
+        if (!edges.isEmpty()) {
+            StringJoiner conditions = new StringJoiner("，");
+            edges.forEach(edge -> conditions.add(edge.toCondition()));
+            description.add("JOIN 条件: " + conditions);
+        }
+        if (!intermediateTables.isEmpty()) {
+            description.add("需经过中间表: " + String.join(", ", intermediateTables));
+        }
+        if (!unreachableTables.isEmpty()) {
+            description.add("与其他表无关联路径（不要与其他表直接关联，避免笛卡尔积）: " + String.join(", ", unreachableTables));
+        }
+        return description.toString();
+    }
+}
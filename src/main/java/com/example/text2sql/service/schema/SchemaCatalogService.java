@@ -0,0 +1,192 @@
+package com.example.text2sql.service.schema;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.SchemaCatalogProperties;
+import com.example.text2sql.service.tool.DatabaseTool;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Schema 目录服务
+ * 按数据源缓存表清单和库名，供 SQL 校验时解析引用的表，避免每条 SQL 都查询 INFORMATION_SCHEMA；
+ * 同时缓存完整表结构的快照，作为步骤提示词的固定前缀
+ */
+@Slf4j
+@Service
+public class SchemaCatalogService {
+
+    private final DatabaseTool databaseTool;
+
+    private final Cache<String, Set<String>> tableNamesCache;
+
+    private final Cache<String, String> databaseNameCache;
+
+    private final Cache<String, Map<String, String>> tableCommentsCache;
+
+    /**
+     * 键为 数据源/表名
+     */
+    private final Cache<String, List<ColumnInfo>> columnsCache;
+
+    private final Cache<String, SchemaSnapshot> snapshotCache;
+
+    public SchemaCatalogService(DatabaseTool databaseTool, SchemaCatalogProperties properties) {
+        this.databaseTool = databaseTool;
+        this.tableNamesCache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+        this.databaseNameCache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+        this.tableCommentsCache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+        this.columnsCache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+        this.snapshotCache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+    }
+
+    /**
+     * 获取当前线程数据源的表名集合（小写）
+     */
+    public Set<String> getTableNames() {
+        return getTableNames(currentDataSource());
+    }
+
+    /**
+     * 获取指定数据源的表名集合（小写），获取失败时返回空集合且不缓存
+     */
+    public Set<String> getTableNames(String dataSource) {
+        String key = dataSource.toLowerCase(Locale.ROOT);
+        Set<String> tableNames = tableNamesCache.getIfPresent(key);
+        if (tableNames != null) {
+            return tableNames;
+        }
+
+        List<String> loaded = DataSourceRouter.executeWithDataSource(key, databaseTool::getTableNames);
+        tableNames = loaded.stream()
+                .map(name -> name.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        if (!tableNames.isEmpty()) {
+            tableNamesCache.put(key, tableNames);
+            log.info("已缓存数据源 {} 的表清单，共 {} 张表", key, tableNames.size());
+        }
+        return tableNames;
+    }
+
+    /**
+     * 获取指定数据源连接的库名（小写），获取失败时返回 null 且不缓存
+     */
+    public String getDatabaseName(String dataSource) {
+        String key = dataSource.toLowerCase(Locale.ROOT);
+        String databaseName = databaseNameCache.getIfPresent(key);
+        if (databaseName != null) {
+            return databaseName;
+        }
+
+        databaseName = DataSourceRouter.executeWithDataSource(key, databaseTool::getDatabaseName);
+        if (databaseName != null) {
+            databaseName = databaseName.toLowerCase(Locale.ROOT);
+            databaseNameCache.put(key, databaseName);
+        }
+        return databaseName;
+    }
+
+    /**
+     * 获取指定数据源各表的注释，键为小写表名，没有注释的表不在其中；获取失败时返回空映射且不缓存
+     */
+    public Map<String, String> getTableComments(String dataSource) {
+        String key = dataSource.toLowerCase(Locale.ROOT);
+        Map<String, String> comments = tableCommentsCache.getIfPresent(key);
+        if (comments != null) {
+            return comments;
+        }
+
+        List<Map<String, Object>> rows = DataSourceRouter.executeWithDataSource(key, databaseTool::getTableStatus);
+        comments = rows.stream()
+                .filter(row -> StringUtils.isNotBlank((String) row.get("TABLE_COMMENT")))
+                .collect(Collectors.toUnmodifiableMap(row -> ((String) row.get("TABLE_NAME")).toLowerCase(Locale.ROOT),
+                        row -> (String) row.get("TABLE_COMMENT")));
+        if (!rows.isEmpty()) {
+            tableCommentsCache.put(key, comments);
+        }
+        return comments;
+    }
+
+    /**
+     * 获取指定数据源中某张表的列信息，表不存在时返回空列表且不缓存
+     */
+    public List<ColumnInfo> getColumns(String dataSource, String tableName) {
+        String source = dataSource.toLowerCase(Locale.ROOT);
+        String table = tableName.toLowerCase(Locale.ROOT);
+        String key = source + "/" + table;
+        List<ColumnInfo> columns = columnsCache.getIfPresent(key);
+        if (columns != null) {
+            return columns;
+        }
+
+        List<Map<String, Object>> rows = DataSourceRouter.executeWithDataSource(source,
+                () -> databaseTool.getTableColumns(table));
+        columns = rows.stream()
+                .map(row -> new ColumnInfo((String) row.get("COLUMN_NAME"), (String) row.get("COLUMN_TYPE"),
+                        (String) row.get("COLUMN_COMMENT"), (String) row.get("COLUMN_KEY")))
+                .toList();
+        if (!columns.isEmpty()) {
+            columnsCache.put(key, columns);
+        }
+        return columns;
+    }
+
+    /**
+     * 获取指定数据源的表结构快照，表结构为空时不缓存
+     * 缓存过期后重新读取，表结构没有变化时版本和前缀保持不变
+     */
+    public SchemaSnapshot getSchemaSnapshot(String dataSource) {
+        String key = dataSource.toLowerCase(Locale.ROOT);
+        SchemaSnapshot snapshot = snapshotCache.getIfPresent(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        String schema = DataSourceRouter.executeWithDataSource(key, databaseTool::getDatabaseSchema);
+        snapshot = SchemaSnapshot.of(key, schema);
+        if (StringUtils.isNotBlank(schema)) {
+            snapshotCache.put(key, snapshot);
+            log.info("已缓存数据源 {} 的表结构快照，版本 {}，{} 个字符", key, snapshot.version(), schema.length());
+        }
+        return snapshot;
+    }
+
+    /**
+     * 使指定数据源的缓存失效，表结构变更后调用
+     */
+    public void invalidate(String dataSource) {
+        String source = dataSource.toLowerCase(Locale.ROOT);
+        tableNamesCache.invalidate(source);
+        databaseNameCache.invalidate(source);
+        tableCommentsCache.invalidate(source);
+        snapshotCache.invalidate(source);
+        columnsCache.asMap().keySet().removeIf(key -> key.startsWith(source + "/"));
+    }
+
+    /**
+     * 当前线程使用的数据源名称，未设置时与 {@link DataSourceRouter#getCurrentDataSource()} 的默认值保持一致
+     */
+    public static String currentDataSource() {
+        return StringUtils.defaultIfBlank(DataSourceRouter.getDataSource(), DataSourceRouter.DATASOURCE_TICKET_DISTRIBUTION);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.text2sql.service.schema;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 某个数据源某一版本的完整表结构，作为各步骤提示词的固定前缀
+ * 同一版本的前缀逐字节相同，模型服务端的前缀缓存（如 DeepSeek 上下文缓存）才能命中
+ *
+ * @param dataSource   数据源名称（小写）
+ * @param version      表结构文本的摘要，表结构变化时随之变化
+ * @param schema       CREATE TABLE 形式的表结构
+ * @param promptPrefix 提示词前缀：标题、版本和表结构
+ */
+public record SchemaSnapshot(String dataSource, String version, String schema, String promptPrefix) {
+
+    private static final int VERSION_LENGTH = 12;
+
+    public static SchemaSnapshot of(String dataSource, String schema) {
+        String text = schema == null || schema.isBlank() ? "无" : schema.trim();
+        String version = digest(text);
+        String prefix = "数据库表结构（数据源 " + dataSource + "，版本 " + version + "）：\n\n" + text + "\n\n";
+        return new SchemaSnapshot(dataSource, version, text, prefix);
+    }
+
+    private static String digest(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash).substring(0, VERSION_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
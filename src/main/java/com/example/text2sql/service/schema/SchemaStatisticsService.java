@@ -0,0 +1,279 @@
+package com.example.text2sql.service.schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.SchemaCatalogProperties;
+import com.example.text2sql.service.tool.DatabaseTool;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 表统计服务
+ * 按数据源维护各表的行数、索引和枚举类列的取值字典，注入步骤3、4的提示词，
+ * 让模型第一次就写出与库中实际取值一致的筛选条件，并从小表开始关联
+ * 首次用到某个数据源时只同步采样涉及的表，其余表由后台定时任务增量补齐和刷新
+ */
+@Slf4j
+@Service
+public class SchemaStatisticsService {
+
+    private static final Pattern CHAR_TYPE = Pattern.compile("(?:var)?char\\((\\d+)\\)");
+
+    private static final Pattern ENUM_VALUE = Pattern.compile("'((?:[^']|'')*)'");
+
+    /**
+     * 行数变化超过该比例时重新采样取值
+     */
+    private static final double ROW_COUNT_CHANGE_RATIO = 0.1;
+
+    private final DatabaseTool databaseTool;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final SchemaCatalogProperties.Statistics properties;
+
+    /**
+     * 数据源 -> 表名 -> 统计信息
+     */
+    private final Map<String, Map<String, TableStatistics>> statistics = new ConcurrentHashMap<>();
+
+    public SchemaStatisticsService(DatabaseTool databaseTool, SchemaCatalogService schemaCatalogService,
+                                   SchemaCatalogProperties properties) {
+        this.databaseTool = databaseTool;
+        this.schemaCatalogService = schemaCatalogService;
+        this.properties = properties.getStatistics();
+    }
+
+    /**
+     * 生成提示词中的表统计，每张表一行，按行数升序排列；未开启或没有统计时返回"无"
+     */
+    public String describe(String dataSource, Collection<String> tables) {
+        if (!properties.isEnabled() || tables.isEmpty()) {
+            return "无";
+        }
+        List<TableStatistics> selected;
+        try {
+            selected = getStatistics(dataSource, tables);
+        } catch (Exception e) {
+            log.warn("获取数据源 {} 的表统计失败: {}", dataSource, e.getMessage());
+            return "无";
+        }
+        if (selected.isEmpty()) {
+            return "无";
+        }
+        StringJoiner description = new StringJoiner("\n");
+        selected.stream()
+                .sorted((a, b) -> Long.compare(a.rowCount(), b.rowCount()))
+                .forEach(table -> description.add(table.describe()));
+        return description.toString();
+    }
+
+    /**
+     * 获取指定数据源中一组表的统计信息，尚未采样的表同步采样，不存在的表忽略
+     */
+    public List<TableStatistics> getStatistics(String dataSource, Collection<String> tables) {
+        String source = dataSource.toLowerCase(Locale.ROOT);
+        Map<String, TableStatistics> cached = statistics.computeIfAbsent(source, key -> new ConcurrentHashMap<>());
+        Set<String> existing = schemaCatalogService.getTableNames(source);
+
+        List<String> missing = tables.stream()
+                .map(table -> table.toLowerCase(Locale.ROOT))
+                .filter(table -> existing.contains(table) && !cached.containsKey(table))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            Map<String, Map<String, Object>> status = tableStatus(source);
+            Map<String, List<IndexInfo>> indexes = indexes(source);
+            for (String table : missing) {
+                Map<String, Object> tableStatus = status.get(table);
+                if (tableStatus != null) {
+                    cached.put(table, sample(source, table, tableStatus, indexes.getOrDefault(table, List.of())));
+                }
+            }
+        }
+
+        return tables.stream()
+                .map(table -> cached.get(table.toLowerCase(Locale.ROOT)))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * 增量刷新已用到的数据源：行数小幅变化只更新行数；创建时间、更新时间变化或行数变化较大时重新采样；
+     * 补齐尚未采样的表，移除已删除的表
+     */
+    @Scheduled(initialDelayString = "${text2sql.schema.statistics.refresh-interval:10m}",
+            fixedDelayString = "${text2sql.schema.statistics.refresh-interval:10m}")
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (var entry : statistics.entrySet()) {
+            String source = entry.getKey();
+            try {
+                refresh(source, entry.getValue());
+            } catch (Exception e) {
+                log.warn("刷新数据源 {} 的表统计失败: {}", source, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 使指定数据源的统计失效，表结构变更后调用，下次用到时重新采样
+     */
+    public void invalidate(String dataSource) {
+        statistics.remove(dataSource.toLowerCase(Locale.ROOT));
+    }
+
+    private void refresh(String source, Map<String, TableStatistics> cached) {
+        Map<String, Map<String, Object>> status = tableStatus(source);
+        cached.keySet().retainAll(status.keySet());
+
+        Map<String, List<IndexInfo>> indexes = null;
+        int resampled = 0;
+        for (var entry : status.entrySet()) {
+            String table = entry.getKey();
+            Map<String, Object> tableStatus = entry.getValue();
+            TableStatistics current = cached.get(table);
+            long rowCount = rowCount(tableStatus);
+            if (current != null && current.signature().equals(signature(tableStatus))
+                    && !rowCountChanged(current.rowCount(), rowCount)) {
+                if (current.rowCount() != rowCount) {
+                    cached.put(table, current.withRowCount(rowCount));
+                }
+                continue;
+            }
+            if (indexes == null) {
+                indexes = indexes(source);
+            }
+            cached.put(table, sample(source, table, tableStatus, indexes.getOrDefault(table, List.of())));
+            resampled++;
+        }
+        if (resampled > 0) {
+            log.info("已刷新数据源 {} 的表统计，重新采样 {} 张表", source, resampled);
+        }
+    }
+
+    private static boolean rowCountChanged(long previous, long current) {
+        return Math.abs(current - previous) > Math.max(previous, 1) * ROW_COUNT_CHANGE_RATIO;
+    }
+
+    private TableStatistics sample(String source, String table, Map<String, Object> tableStatus, List<IndexInfo> indexes) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (ColumnInfo column : schemaCatalogService.getColumns(source, table)) {
+            List<String> columnValues = categoricalValues(source, table, column);
+            if (columnValues != null && !columnValues.isEmpty()) {
+                values.put(column.name().toLowerCase(Locale.ROOT), columnValues);
+            }
+        }
+        return new TableStatistics(table, rowCount(tableStatus), indexes, Collections.unmodifiableMap(values), signature(tableStatus));
+    }
+
+    /**
+     * 枚举类列的取值：ENUM 直接取类型定义；短字符列在前 sampleRows 行中统计，
+     * 不同取值超过上限、取值过长或几乎不重复（如姓名）时不记录，返回 null
+     */
+    private List<String> categoricalValues(String source, String table, ColumnInfo column) {
+        String type = column.type() == null ? "" : column.type().toLowerCase(Locale.ROOT);
+        if ("PRI".equals(column.key()) || "UNI".equals(column.key())) {
+            return null;
+        }
+        if (type.startsWith("enum(")) {
+            List<String> values = enumValues(column.type());
+            return values.size() <= properties.getMaxDistinctValues() && fitsLength(values) ? values : null;
+        }
+        Matcher matcher = CHAR_TYPE.matcher(type);
+        if (!matcher.matches() || Integer.parseInt(matcher.group(1)) > properties.getMaxColumnLength()) {
+            return null;
+        }
+
+        List<Map<String, Object>> rows = DataSourceRouter.executeWithDataSource(source,
+                () -> databaseTool.getValueCounts(table, column.name(), properties.getSampleRows(),
+                        properties.getMaxDistinctValues() + 1));
+        if (rows.isEmpty() || rows.size() > properties.getMaxDistinctValues()) {
+            return null;
+        }
+        long sampled = 0;
+        List<String> values = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            values.add(String.valueOf(row.get("VALUE")));
+            sampled += ((Number) row.get("CNT")).longValue();
+        }
+        // 取值各不相同的列（如姓名）不是枚举类列
+        return sampled > values.size() && fitsLength(values) ? values : null;
+    }
+
+    private boolean fitsLength(List<String> values) {
+        return values.stream().allMatch(value -> value.length() <= properties.getMaxValueLength());
+    }
+
+    /**
+     * 解析 enum('a','b') 类型定义中的取值
+     */
+    static List<String> enumValues(String columnType) {
+        List<String> values = new ArrayList<>();
+        Matcher matcher = ENUM_VALUE.matcher(columnType);
+        while (matcher.find()) {
+            values.add(matcher.group(1).replace("''", "'"));
+        }
+        return values;
+    }
+
+    private Map<String, Map<String, Object>> tableStatus(String source) {
+        List<Map<String, Object>> rows = DataSourceRouter.executeWithDataSource(source, databaseTool::getTableStatus);
+        Map<String, Map<String, Object>> status = new LinkedHashMap<>();
+        rows.forEach(row -> status.put(lower(row.get("TABLE_NAME")), row));
+        return status;
+    }
+
+    private Map<String, List<IndexInfo>> indexes(String source) {
+        List<Map<String, Object>> rows = DataSourceRouter.executeWithDataSource(source, databaseTool::getIndexes);
+        Map<String, Map<String, List<String>>> columns = new LinkedHashMap<>();
+        Map<String, Boolean> unique = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            String table = lower(row.get("TABLE_NAME"));
+            String index = String.valueOf(row.get("INDEX_NAME"));
+            columns.computeIfAbsent(table, key -> new LinkedHashMap<>())
+                    .computeIfAbsent(index, key -> new ArrayList<>())
+                    .add(lower(row.get("COLUMN_NAME")));
+            unique.put(table + "/" + index, ((Number) row.get("NON_UNIQUE")).intValue() == 0);
+        }
+
+        Map<String, List<IndexInfo>> indexes = new LinkedHashMap<>();
+        columns.forEach((table, tableIndexes) -> indexes.put(table, tableIndexes.entrySet().stream()
+                .map(entry -> new IndexInfo(entry.getKey(), unique.get(table + "/" + entry.getKey()),
+                        List.copyOf(entry.getValue())))
+                .toList()));
+        return indexes;
+    }
+
+    private static long rowCount(Map<String, Object> tableStatus) {
+        Object rows = tableStatus.get("TABLE_ROWS");
+        return rows instanceof Number number ? number.longValue() : 0;
+    }
+
+    private static String signature(Map<String, Object> tableStatus) {
+        return tableStatus.get("CREATE_TIME") + "|" + tableStatus.get("UPDATE_TIME");
+    }
+
+    private static String lower(Object value) {
+        return value == null ? "" : value.toString().toLowerCase(Locale.ROOT);
+    }
+}
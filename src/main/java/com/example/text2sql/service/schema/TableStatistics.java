@@ -0,0 +1,44 @@
+package com.example.text2sql.service.schema;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 表统计信息
+ *
+ * @param table     表名（小写）
+ * @param rowCount  行数，InnoDB 为估算值
+ * @param indexes   索引
+ * @param values    枚举类列的取值，按出现次数降序；键为列名
+ * @param signature 采样时表的创建时间和更新时间，变化后才需要重新采样取值
+ */
+public record TableStatistics(String table, long rowCount, List<IndexInfo> indexes,
+                              Map<String, List<String>> values, String signature) {
+
+    /**
+     * 行数变化、取值不变时复用已采样的取值
+     */
+    TableStatistics withRowCount(long newRowCount) {
+        return new TableStatistics(table, newRowCount, indexes, values, signature);
+    }
+
+    /**
+     * 生成提示词中的一行表统计，如 employees: 约 20 行；索引 PRIMARY(id)；取值 department=技术部/销售部
+     */
+    public String describe() {
+        StringJoiner description = new StringJoiner("；", table + ": ", "");
+        description.add("约 " + rowCount + " 行");
+        if (!indexes.isEmpty()) {
+            StringJoiner indexDescription = new StringJoiner(", ");
+            indexes.forEach(index -> indexDescription.add(index.describe()));
+            description.add("索引 " + indexDescription);
+        }
+        if (!values.isEmpty()) {
+            StringJoiner valueDescription = new StringJoiner(", ");
+            values.forEach((column, columnValues) -> valueDescription.add(column + "=" + String.join("/", columnValues)));
+            description.add("取值 " + valueDescription);
+        }
+        return description.toString();
+    }
+}
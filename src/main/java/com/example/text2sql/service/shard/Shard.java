@@ -0,0 +1,28 @@
+package com.example.text2sql.service.shard;
+
+import java.time.LocalDate;
+
+/**
+ * 单个分片：所在数据源、表名和覆盖的日期范围 [start, end)
+ *
+ * @param dataSource 分片所在的数据源
+ * @param table      分片表名
+ * @param start      覆盖的第一天（包含）
+ * @param end        覆盖范围的结束日期（不包含）
+ */
+public record Shard(String dataSource, String table, LocalDate start, LocalDate end) {
+
+    /**
+     * 与日期范围 [from, to) 是否有交集，from、to 为 null 表示该方向不限
+     */
+    public boolean overlaps(LocalDate from, LocalDate to) {
+        return (from == null || end.isAfter(from)) && (to == null || start.isBefore(to));
+    }
+
+    /**
+     * 数据源和表名，用于日志和结果说明
+     */
+    public String name() {
+        return dataSource + "." + table;
+    }
+}
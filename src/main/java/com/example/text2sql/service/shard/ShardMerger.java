@@ -0,0 +1,250 @@
+package com.example.text2sql.service.shard;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 合并各分片的结果
+ * 明细查询边取边合并：有 ORDER BY 时对各分片的有序结果做多路归并，否则按分片顺序拼接，取够 offset + limit 行即停止；
+ * 聚合查询逐行把各分片的部分聚合值合并到分组中（COUNT、SUM 相加，MIN、MAX 取极值，AVG 的 SUM 和 COUNT 分别相加后相除），
+ * 再排序和截取
+ * 比较规则与 MySQL 一致：NULL 最小，字符串不区分大小写（对应 _ci 排序规则）
+ */
+final class ShardMerger {
+
+    /**
+     * MySQL AVG 结果比参数多保留的小数位（div_precision_increment）
+     */
+    private static final int AVG_EXTRA_SCALE = 4;
+
+    private ShardMerger() {
+    }
+
+    static List<Map<String, Object>> merge(ShardPlan.Merge merge, List<ShardStream> streams) {
+        if (merge.aggregate()) {
+            return aggregate(merge, streams);
+        }
+        return merge.order().isEmpty() ? concat(merge, streams) : mergeSorted(merge, streams);
+    }
+
+    private static List<Map<String, Object>> concat(ShardPlan.Merge merge, List<ShardStream> streams) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        long skip = merge.offset();
+        for (ShardStream stream : streams) {
+            Object[] row;
+            while (!isFull(result, merge) && (row = stream.next()) != null) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    result.add(toMap(stream, row, merge.hiddenColumns()));
+                }
+            }
+            if (isFull(result, merge)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 多路归并：堆中保存每个分片当前的第一行，每次取出最小的一行后补上该分片的下一行
+     */
+    private static List<Map<String, Object>> mergeSorted(ShardPlan.Merge merge, List<ShardStream> streams) {
+        Comparator<Object[]> rowOrder = rowComparator(merge.order(), merge.hiddenColumns());
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.<Head, Object[]>comparing(Head::row, rowOrder)
+                .thenComparingInt(Head::stream));
+        for (int i = 0; i < streams.size(); i++) {
+            Object[] row = streams.get(i).next();
+            if (row != null) {
+                heads.add(new Head(i, row));
+            }
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        long skip = merge.offset();
+        while (!heads.isEmpty() && !isFull(result, merge)) {
+            Head head = heads.poll();
+            ShardStream stream = streams.get(head.stream());
+            if (skip > 0) {
+                skip--;
+            } else {
+                result.add(toMap(stream, head.row(), merge.hiddenColumns()));
+            }
+            Object[] next = stream.next();
+            if (next != null) {
+                heads.add(new Head(head.stream(), next));
+            }
+        }
+        return result;
+    }
+
+    private static List<Map<String, Object>> aggregate(ShardPlan.Merge merge, List<ShardStream> streams) {
+        List<ShardPlan.Slot> slots = merge.slots();
+        Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+        for (ShardStream stream : streams) {
+            Object[] row;
+            while ((row = stream.next()) != null) {
+                List<Object> key = new ArrayList<>(merge.groupSlots().size());
+                for (int slot : merge.groupSlots()) {
+                    key.add(groupKey(row[slot]));
+                }
+                Object[] group = groups.get(key);
+                if (group == null) {
+                    groups.put(key, row);
+                } else {
+                    combine(slots, group, row);
+                }
+            }
+        }
+        if (groups.isEmpty() && merge.groupSlots().isEmpty()) {
+            // 没有 GROUP BY 的聚合即使没有行也返回一行，与单库查询一致
+            Object[] empty = new Object[slots.size()];
+            for (int i = 0; i < slots.size(); i++) {
+                empty[i] = slots.get(i) == ShardPlan.Slot.COUNT || slots.get(i) == ShardPlan.Slot.AVG_COUNT ? 0L : null;
+            }
+            groups.put(List.of(), empty);
+        }
+
+        List<Object[]> rows = new ArrayList<>(groups.values());
+        for (Object[] row : rows) {
+            for (int i = 0; i < slots.size(); i++) {
+                if (slots.get(i) == ShardPlan.Slot.AVG_SUM) {
+                    row[i] = average(row[i], row[i + 1]);
+                }
+            }
+        }
+        if (!merge.order().isEmpty()) {
+            rows.sort(rowComparator(merge.order(), -1));
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        long skip = merge.offset();
+        for (Object[] row : rows) {
+            if (isFull(result, merge)) {
+                break;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (ShardPlan.Output output : merge.outputs()) {
+                values.put(output.label(), row[output.slot()]);
+            }
+            result.add(values);
+        }
+        return result;
+    }
+
+    private static void combine(List<ShardPlan.Slot> slots, Object[] group, Object[] row) {
+        for (int i = 0; i < slots.size(); i++) {
+            group[i] = switch (slots.get(i)) {
+                case VALUE -> group[i];
+                case COUNT, AVG_COUNT -> ((Number) group[i]).longValue() + ((Number) row[i]).longValue();
+                case SUM, AVG_SUM -> add(group[i], row[i]);
+                case MIN -> group[i] == null || (row[i] != null && compare(row[i], group[i]) < 0) ? row[i] : group[i];
+                case MAX -> group[i] == null || (row[i] != null && compare(row[i], group[i]) > 0) ? row[i] : group[i];
+            };
+        }
+    }
+
+    private static Object add(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == null ? right : left;
+        }
+        Number a = (Number) left;
+        Number b = (Number) right;
+        if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+            return a.doubleValue() + b.doubleValue();
+        }
+        return decimal(a).add(decimal(b));
+    }
+
+    private static Object average(Object sum, Object count) {
+        long rows = count == null ? 0 : ((Number) count).longValue();
+        if (sum == null || rows == 0) {
+            return null;
+        }
+        if (sum instanceof Double || sum instanceof Float) {
+            return ((Number) sum).doubleValue() / rows;
+        }
+        BigDecimal total = decimal((Number) sum);
+        return total.divide(BigDecimal.valueOf(rows), Math.max(total.scale(), 0) + AVG_EXTRA_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 分组键：数值按大小、字符串不区分大小写归为同一组
+     */
+    private static Object groupKey(Object value) {
+        if (value instanceof Number number) {
+            BigDecimal decimal = decimal(number);
+            return decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+        }
+        if (value instanceof String string) {
+            return string.toLowerCase(Locale.ROOT);
+        }
+        return value;
+    }
+
+    /**
+     * 按排序键比较两行
+     *
+     * @param hiddenColumns 明细查询的排序辅助列数，键下标相对于辅助列起点；聚合查询传 -1，键下标即列下标
+     */
+    private static Comparator<Object[]> rowComparator(List<ShardPlan.SortKey> order, int hiddenColumns) {
+        return (left, right) -> {
+            int base = hiddenColumns < 0 ? 0 : left.length - hiddenColumns;
+            for (ShardPlan.SortKey key : order) {
+                int result = compare(left[base + key.index()], right[base + key.index()]);
+                if (result != 0) {
+                    return key.descending() ? -result : result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : -1) : 1;
+        }
+        if (left instanceof Number a && right instanceof Number b) {
+            return decimal(a).compareTo(decimal(b));
+        }
+        if (left instanceof String a && right instanceof String b) {
+            return a.compareToIgnoreCase(b);
+        }
+        if (left instanceof Comparable comparable && left.getClass() == right.getClass()) {
+            return comparable.compareTo(right);
+        }
+        return left.toString().compareTo(right.toString());
+    }
+
+    private static BigDecimal decimal(Number number) {
+        return number instanceof BigDecimal decimal ? decimal : new BigDecimal(number.toString());
+    }
+
+    private static boolean isFull(List<?> result, ShardPlan.Merge merge) {
+        return merge.limit() != null && result.size() >= merge.limit();
+    }
+
+    private static Map<String, Object> toMap(ShardStream stream, Object[] row, int hiddenColumns) {
+        List<String> columns = stream.columns();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < row.length - hiddenColumns; i++) {
+            values.put(columns.get(i), row[i]);
+        }
+        return values;
+    }
+
+    private record Head(int stream, Object[] row) {
+    }
+}
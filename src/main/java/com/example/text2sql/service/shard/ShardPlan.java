@@ -0,0 +1,74 @@
+package com.example.text2sql.service.shard;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 分片执行计划：裁剪后的各分片查询，以及合并各分片结果的方式
+ *
+ * @param from    WHERE 中分片列的下界（包含），没有下界时为 null
+ * @param to      WHERE 中分片列的上界（不包含），没有上界时为 null
+ * @param queries 各分片上执行的查询，按分片日期顺序
+ * @param merge   合并方式
+ */
+public record ShardPlan(LocalDate from, LocalDate to, List<ShardQuery> queries, Merge merge) {
+
+    /**
+     * 单个分片上执行的查询
+     */
+    public record ShardQuery(Shard shard, String sql) {
+    }
+
+    /**
+     * 分片查询结果中一列的含义；聚合查询按列合并各分片的部分聚合值
+     */
+    public enum Slot {
+        /**
+         * 普通列：分组键或依赖分组键的列，取第一个分片的值
+         */
+        VALUE,
+        COUNT,
+        SUM,
+        MIN,
+        MAX,
+        /**
+         * AVG 拆成 SUM 和 COUNT 两列，合并后相除
+         */
+        AVG_SUM,
+        AVG_COUNT
+    }
+
+    /**
+     * 输出列
+     *
+     * @param label 列名
+     * @param slot  对应分片结果中的列下标，AVG 指向 AVG_SUM 列
+     */
+    public record Output(String label, int slot) {
+    }
+
+    /**
+     * 排序键
+     *
+     * @param index      明细查询中为排序辅助列的序号（排在输出列之后），聚合查询中为分片结果的列下标
+     * @param descending 是否降序
+     */
+    public record SortKey(int index, boolean descending) {
+    }
+
+    /**
+     * 合并方式
+     *
+     * @param aggregate     是否为聚合查询（GROUP BY、聚合函数或 DISTINCT）
+     * @param hiddenColumns 明细查询末尾追加的排序辅助列数，输出前去掉
+     * @param slots         聚合查询中分片结果各列的含义
+     * @param outputs       聚合查询的输出列；明细查询的列名取自结果集
+     * @param groupSlots    聚合查询的分组键所在列
+     * @param order         排序键，明细查询的各分片已按它排好序
+     * @param offset        跳过的行数
+     * @param limit         最多返回的行数，不限时为 null
+     */
+    public record Merge(boolean aggregate, int hiddenColumns, List<Slot> slots, List<Output> outputs,
+                        List<Integer> groupSlots, List<SortKey> order, long offset, Long limit) {
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.text2sql.service.shard;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnalyticExpression;
+import net.sf.jsqlparser.expression.DateValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.TimestampValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.ParenthesedExpressionList;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+/**
+ * 把逻辑表上的查询改写为各分片上的查询
+ * 明细查询：排序表达式追加为末尾的辅助列，ORDER BY 保留，LIMIT m, n 改为 LIMIT m + n，各分片返回有序的前 m + n 行，
+ * 由 {@link ShardMerger} 多路归并；聚合查询：去掉 ORDER BY 和 LIMIT，AVG 拆成 SUM 和 COUNT，
+ * 各分片返回部分聚合值，合并后再排序和截取
+ * 只支持单表查询，不支持关联、子查询、HAVING、窗口函数和 COUNT(DISTINCT)，这些情况直接报错，不静默返回错误结果
+ */
+final class ShardPlanner {
+
+    private static final Set<String> AGGREGATES = Set.of("COUNT", "SUM", "AVG", "MIN", "MAX");
+
+    private static final String SORT_COLUMN = "__shard_sort_";
+
+    private ShardPlanner() {
+    }
+
+    /**
+     * 生成分片执行计划
+     *
+     * @param select     查询语法树的副本，会被修改
+     * @param tableNames 查询引用的物理表（小写）
+     * @param table      查询引用的分片表
+     */
+    static ShardPlan plan(PlainSelect select, Set<String> tableNames, ShardedTable table) {
+        Table source = checkShape(select, tableNames, table);
+        LocalDate[] range = dateRange(select.getWhere(), table.column());
+        long offset = offset(select);
+        Long limit = rowCount(select);
+        ShardPlan.Merge merge = isAggregate(select)
+                ? planAggregate(select, offset, limit)
+                : planRows(select, offset, limit);
+
+        // 分片表换了表名，原来没有别名时以逻辑表名作别名，带表名限定的列引用保持有效
+        Alias alias = source.getAlias() != null ? source.getAlias() : new Alias(source.getName(), false);
+        List<ShardPlan.ShardQuery> queries = new ArrayList<>();
+        for (Shard shard : table.prune(range[0], range[1])) {
+            select.setFromItem(new Table("`" + shard.table() + "`").withAlias(alias));
+            queries.add(new ShardPlan.ShardQuery(shard, select.toString()));
+        }
+        return new ShardPlan(range[0], range[1], queries, merge);
+    }
+
+    private static Table checkShape(PlainSelect select, Set<String> tableNames, ShardedTable table) {
+        String prefix = "分片表 " + table.table() + " ";
+        if (!(select.getFromItem() instanceof Table source) || !table.table().equals(unquote(source.getName()))
+                || (select.getJoins() != null && !select.getJoins().isEmpty()) || tableNames.size() != 1) {
+            throw new IllegalArgumentException(prefix + "只支持单表查询，不能与其他表关联");
+        }
+        if (select.getWithItemsList() != null && !select.getWithItemsList().isEmpty()) {
+            throw new IllegalArgumentException(prefix + "不支持 WITH 子句");
+        }
+        if (select.getHaving() != null) {
+            throw new IllegalArgumentException(prefix + "不支持 HAVING，分组在各分片上不完整");
+        }
+        Features features = new Features();
+        select.getSelectItems().forEach(item -> item.getExpression().accept(features, null));
+        if (select.getWhere() != null) {
+            select.getWhere().accept(features, null);
+        }
+        if (select.getOrderByElements() != null) {
+            select.getOrderByElements().forEach(element -> element.getExpression().accept(features, null));
+        }
+        if (features.subquery) {
+            throw new IllegalArgumentException(prefix + "不支持子查询");
+        }
+        if (features.analytic) {
+            throw new IllegalArgumentException(prefix + "不支持窗口函数");
+        }
+        if (features.distinctAggregate) {
+            throw new IllegalArgumentException(prefix + "不支持 DISTINCT 聚合，去重计数无法跨分片合并");
+        }
+        return source;
+    }
+
+    private static boolean isAggregate(PlainSelect select) {
+        if (select.getGroupBy() != null || select.getDistinct() != null) {
+            return true;
+        }
+        return select.getSelectItems().stream().anyMatch(item -> aggregate(item.getExpression()) != null
+                || containsAggregate(item.getExpression()));
+    }
+
+    /**
+     * 明细查询：排序表达式追加为辅助列，分片上的 LIMIT 放宽为 offset + limit
+     */
+    private static ShardPlan.Merge planRows(PlainSelect select, long offset, Long limit) {
+        List<ShardPlan.SortKey> order = new ArrayList<>();
+        List<SelectItem<?>> items = new ArrayList<>(select.getSelectItems());
+        List<OrderByElement> orderBy = select.getOrderByElements() == null ? List.of() : select.getOrderByElements();
+        for (int i = 0; i < orderBy.size(); i++) {
+            Expression expression = resolve(orderBy.get(i).getExpression(), select.getSelectItems());
+            items.add(new SelectItem<>(expression, new Alias(SORT_COLUMN + i)));
+            order.add(new ShardPlan.SortKey(i, !orderBy.get(i).isAsc()));
+        }
+        select.setSelectItems(items);
+        select.setOffset(null);
+        select.setLimit(limit == null ? null : new Limit().withRowCount(new LongValue(offset + limit)));
+        return new ShardPlan.Merge(false, order.size(), List.of(), List.of(), List.of(), order, offset, limit);
+    }
+
+    /**
+     * 聚合查询：各分片按原分组返回部分聚合值，不排序也不截取
+     */
+    private static ShardPlan.Merge planAggregate(PlainSelect select, long offset, Long limit) {
+        List<SelectItem<?>> originalItems = select.getSelectItems();
+        List<Expression> expressions = new ArrayList<>();
+        List<ShardPlan.Slot> slots = new ArrayList<>();
+        List<ShardPlan.Output> outputs = new ArrayList<>();
+        for (SelectItem<?> item : originalItems) {
+            if (item.getExpression() instanceof AllColumns) {
+                throw new IllegalArgumentException("分片聚合查询不支持 *，请列出需要的列");
+            }
+            outputs.add(new ShardPlan.Output(label(item), addSlot(item.getExpression(), expressions, slots)));
+        }
+
+        List<Integer> groupSlots = new ArrayList<>();
+        if (select.getGroupBy() != null) {
+            for (Object groupBy : select.getGroupBy().getGroupByExpressionList()) {
+                groupSlots.add(slotOf(resolve((Expression) groupBy, originalItems), expressions, slots));
+            }
+        } else if (select.getDistinct() != null) {
+            // SELECT DISTINCT 相当于按全部输出列分组
+            for (int i = 0; i < slots.size(); i++) {
+                if (slots.get(i) == ShardPlan.Slot.VALUE) {
+                    groupSlots.add(i);
+                }
+            }
+        }
+
+        List<ShardPlan.SortKey> order = new ArrayList<>();
+        if (select.getOrderByElements() != null) {
+            for (OrderByElement element : select.getOrderByElements()) {
+                Expression expression = resolve(element.getExpression(), originalItems);
+                int output = indexOf(expression, originalItems);
+                int slot = output >= 0 ? outputs.get(output).slot() : slotOf(expression, expressions, slots);
+                order.add(new ShardPlan.SortKey(slot, !element.isAsc()));
+            }
+        }
+
+        List<SelectItem<?>> items = new ArrayList<>(expressions.size());
+        expressions.forEach(expression -> items.add(new SelectItem<>(expression)));
+        select.setSelectItems(items);
+        select.setOrderByElements(null);
+        select.setOffset(null);
+        select.setLimit(null);
+        return new ShardPlan.Merge(true, 0, List.copyOf(slots), outputs, groupSlots, order, offset, limit);
+    }
+
+    private static int indexOf(Expression expression, List<SelectItem<?>> items) {
+        String text = expression.toString();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getExpression().toString().equalsIgnoreCase(text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 复用已有的同一表达式列，没有时追加一列
+     */
+    private static int slotOf(Expression expression, List<Expression> expressions, List<ShardPlan.Slot> slots) {
+        String text = expression.toString();
+        for (int i = 0; i < expressions.size(); i++) {
+            if (slots.get(i) != ShardPlan.Slot.AVG_COUNT && expressions.get(i).toString().equalsIgnoreCase(text)) {
+                return i;
+            }
+        }
+        return addSlot(expression, expressions, slots);
+    }
+
+    private static int addSlot(Expression expression, List<Expression> expressions, List<ShardPlan.Slot> slots) {
+        int index = expressions.size();
+        Function function = aggregate(expression);
+        if (function == null) {
+            if (containsAggregate(expression)) {
+                throw new IllegalArgumentException("分片查询只能合并直接写出的 COUNT / SUM / AVG / MIN / MAX，不支持: " + expression);
+            }
+            expressions.add(expression);
+            slots.add(ShardPlan.Slot.VALUE);
+            return index;
+        }
+
+        String name = function.getName().toUpperCase(Locale.ROOT);
+        if ("AVG".equals(name)) {
+            Function sum = new Function();
+            sum.setName("SUM");
+            sum.setParameters(function.getParameters());
+            Function count = new Function();
+            count.setName("COUNT");
+            count.setParameters(function.getParameters());
+            expressions.add(sum);
+            slots.add(ShardPlan.Slot.AVG_SUM);
+            expressions.add(count);
+            slots.add(ShardPlan.Slot.AVG_COUNT);
+        } else {
+            expressions.add(expression);
+            slots.add(ShardPlan.Slot.valueOf(name));
+        }
+        return index;
+    }
+
+    /**
+     * 把 ORDER BY / GROUP BY 中的别名和列序号换成对应的查询列表达式
+     */
+    private static Expression resolve(Expression expression, List<SelectItem<?>> items) {
+        if (expression instanceof LongValue position) {
+            int index = (int) position.getValue() - 1;
+            if (index < 0 || index >= items.size() || items.get(index).getExpression() instanceof AllColumns
+                    || items.subList(0, index).stream().anyMatch(item -> item.getExpression() instanceof AllColumns)) {
+                throw new IllegalArgumentException("无法确定列序号对应的列: " + position);
+            }
+            return items.get(index).getExpression();
+        }
+        if (expression instanceof Column column && column.getTable() == null) {
+            String name = unquote(column.getColumnName());
+            for (SelectItem<?> item : items) {
+                if (item.getAlias() != null && unquote(item.getAlias().getName()).equals(name)) {
+                    return item.getExpression();
+                }
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * 输出列名：别名、列名，否则为表达式原文
+     */
+    private static String label(SelectItem<?> item) {
+        if (item.getAlias() != null) {
+            return stripQuotes(item.getAlias().getName());
+        }
+        if (item.getExpression() instanceof Column column) {
+            return stripQuotes(column.getColumnName());
+        }
+        return item.getExpression().toString();
+    }
+
+    private static Function aggregate(Expression expression) {
+        return expression instanceof Function function
+                && AGGREGATES.contains(function.getName().toUpperCase(Locale.ROOT)) ? function : null;
+    }
+
+    private static boolean containsAggregate(Expression expression) {
+        Features features = new Features();
+        expression.accept(features, null);
+        return features.aggregates > (aggregate(expression) != null ? 1 : 0);
+    }
+
+    private static long offset(PlainSelect select) {
+        Expression offset = select.getOffset() != null ? select.getOffset().getOffset()
+                : select.getLimit() != null ? select.getLimit().getOffset() : null;
+        if (offset == null) {
+            return 0;
+        }
+        if (offset instanceof LongValue value) {
+            return value.getValue();
+        }
+        throw new IllegalArgumentException("分片查询的 OFFSET 需为常量: " + offset);
+    }
+
+    private static Long rowCount(PlainSelect select) {
+        if (select.getLimit() == null || select.getLimit().getRowCount() == null) {
+            return null;
+        }
+        if (select.getLimit().getRowCount() instanceof LongValue value) {
+            return value.getValue();
+        }
+        throw new IllegalArgumentException("分片查询的 LIMIT 需为常量: " + select.getLimit().getRowCount());
+    }
+
+    /**
+     * 从 WHERE 的 AND 条件中取出分片列的日期范围 [from, to)，按天取整并向外放宽；OR 等其他条件不参与裁剪
+     */
+    static LocalDate[] dateRange(Expression where, String column) {
+        LocalDate[] range = new LocalDate[2];
+        collectRange(where, unquote(column), range);
+        return range;
+    }
+
+    private static void collectRange(Expression expression, String column, LocalDate[] range) {
+        if (expression instanceof AndExpression and) {
+            collectRange(and.getLeftExpression(), column, range);
+            collectRange(and.getRightExpression(), column, range);
+        } else if (expression instanceof ParenthesedExpressionList<?> list && list.size() == 1) {
+            collectRange(list.get(0), column, range);
+        } else if (expression instanceof Between between && !between.isNot() && isColumn(between.getLeftExpression(), column)) {
+            lower(range, day(between.getBetweenExpressionStart()));
+            upper(range, nextDay(between.getBetweenExpressionEnd()));
+        } else if (expression instanceof ComparisonOperator comparison) {
+            boolean columnLeft = isColumn(comparison.getLeftExpression(), column);
+            if (!columnLeft && !isColumn(comparison.getRightExpression(), column)) {
+                return;
+            }
+            Expression value = columnLeft ? comparison.getRightExpression() : comparison.getLeftExpression();
+            // 列在右侧时把比较方向翻转过来
+            boolean greater = comparison instanceof GreaterThan || comparison instanceof GreaterThanEquals;
+            boolean less = comparison instanceof MinorThan || comparison instanceof MinorThanEquals;
+            if (comparison instanceof EqualsTo) {
+                lower(range, day(value));
+                upper(range, nextDay(value));
+            } else if (columnLeft ? greater : less) {
+                lower(range, day(value));
+            } else if (columnLeft ? less : greater) {
+                boolean inclusive = comparison instanceof MinorThanEquals || comparison instanceof GreaterThanEquals;
+                upper(range, inclusive ? nextDay(value) : ceilDay(value));
+            }
+        }
+    }
+
+    private static void lower(LocalDate[] range, LocalDate from) {
+        if (from != null && (range[0] == null || from.isAfter(range[0]))) {
+            range[0] = from;
+        }
+    }
+
+    private static void upper(LocalDate[] range, LocalDate to) {
+        if (to != null && (range[1] == null || to.isBefore(range[1]))) {
+            range[1] = to;
+        }
+    }
+
+    private static LocalDate day(Expression value) {
+        LocalDateTime time = dateTime(value);
+        return time == null ? null : time.toLocalDate();
+    }
+
+    private static LocalDate nextDay(Expression value) {
+        LocalDate day = day(value);
+        return day == null ? null : day.plusDays(1);
+    }
+
+    /**
+     * 作为开区间上界：整天时为当天，带时间时为次日
+     */
+    private static LocalDate ceilDay(Expression value) {
+        LocalDateTime time = dateTime(value);
+        if (time == null) {
+            return null;
+        }
+        return time.toLocalTime().equals(LocalTime.MIDNIGHT) ? time.toLocalDate() : time.toLocalDate().plusDays(1);
+    }
+
+    private static LocalDateTime dateTime(Expression value) {
+        if (value instanceof DateValue date) {
+            return date.getValue().toLocalDate().atStartOfDay();
+        }
+        if (value instanceof TimestampValue timestamp) {
+            return timestamp.getValue().toLocalDateTime();
+        }
+        if (value instanceof StringValue string) {
+            String text = string.getValue().trim();
+            try {
+                if (text.length() == 10) {
+                    return LocalDate.parse(text).atStartOfDay();
+                }
+                return Timestamp.valueOf(text).toLocalDateTime();
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isColumn(Expression expression, String column) {
+        return expression instanceof Column candidate && unquote(candidate.getColumnName()).equals(column);
+    }
+
+    private static String stripQuotes(String identifier) {
+        if (identifier.length() >= 2 && (identifier.charAt(0) == '`' || identifier.charAt(0) == '"')) {
+            return identifier.substring(1, identifier.length() - 1);
+        }
+        return identifier;
+    }
+
+    private static String unquote(String identifier) {
+        return stripQuotes(identifier).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 查找表达式中无法跨分片处理的写法
+     */
+    private static final class Features extends ExpressionVisitorAdapter<Void> {
+
+        private boolean subquery;
+
+        private boolean analytic;
+
+        private boolean distinctAggregate;
+
+        private int aggregates;
+
+        @Override
+        public <S> Void visit(Function function, S context) {
+            if (aggregate(function) != null) {
+                aggregates++;
+                distinctAggregate |= function.isDistinct();
+            }
+            return super.visit(function, context);
+        }
+
+        @Override
+        public <S> Void visit(Select select, S context) {
+            subquery = true;
+            return null;
+        }
+
+        @Override
+        public <S> Void visit(AnalyticExpression expression, S context) {
+            analytic = true;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.text2sql.service.shard;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 单个分片的结果流
+ * 查询线程边读结果集边把行放入队列，合并线程从队列头部取行；合并已取够行数时取消语句，
+ * Connector/J 关闭流式结果集前会读完剩余的行，只停止读取不够，需要 Statement.cancel 让服务端中止查询
+ * 队列不设上限：多路归并需要同时拿到每个分片的第一行，有界队列在分片数多于线程数时会互相等待，
+ * 行数由下推到分片的 LIMIT 或分组数限定
+ */
+@Slf4j
+final class ShardStream implements ResultSetExtractor<Long> {
+
+    private static final Object[] END = new Object[0];
+
+    private final Shard shard;
+
+    private final Duration timeout;
+
+    private final BlockingQueue<Object[]> rows = new LinkedBlockingQueue<>();
+
+    private volatile List<String> columns = List.of();
+
+    private volatile RuntimeException error;
+
+    private volatile boolean cancelled;
+
+    /**
+     * 正在执行的语句，语句执行结束后清空，避免取消到归还连接池后被复用的连接
+     */
+    private Statement statement;
+
+    ShardStream(Shard shard, Duration timeout) {
+        this.shard = shard;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Long extractData(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int width = metaData.getColumnCount();
+        List<String> labels = new ArrayList<>(width);
+        for (int i = 1; i <= width; i++) {
+            labels.add(JdbcUtils.lookupColumnName(metaData, i));
+        }
+        columns = labels;
+
+        long count = 0;
+        try {
+            while (!cancelled && rs.next()) {
+                Object[] values = new Object[width];
+                for (int i = 0; i < width; i++) {
+                    values[i] = JdbcUtils.getResultSetValue(rs, i + 1);
+                }
+                rows.add(values);
+                count++;
+            }
+        } finally {
+            detach();
+        }
+        return count;
+    }
+
+    /**
+     * 查询线程创建语句后登记，合并线程取消时中止该语句
+     */
+    synchronized void attach(Statement statement) {
+        this.statement = statement;
+    }
+
+    /**
+     * 语句执行结束，之后的取消不再作用于语句
+     */
+    synchronized void detach() {
+        statement = null;
+    }
+
+    /**
+     * 查询线程读完结果集
+     */
+    void complete() {
+        rows.add(END);
+    }
+
+    /**
+     * 查询线程执行失败，合并线程取到末尾时抛出
+     */
+    void fail(RuntimeException e) {
+        error = e;
+        rows.add(END);
+    }
+
+    /**
+     * 合并线程不再需要后续的行
+     */
+    synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.debug("取消分片 {} 的查询失败: {}", shard.name(), e.getMessage());
+            }
+            statement = null;
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    Shard shard() {
+        return shard;
+    }
+
+    /**
+     * 结果集的列名，取到第一行之后可用
+     */
+    List<String> columns() {
+        return columns;
+    }
+
+    /**
+     * 取下一行，分片读完时返回 null；分片查询失败或超时未返回时抛出异常
+     */
+    Object[] next() {
+        Object[] row;
+        try {
+            row = rows.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待分片 " + shard.name() + " 的结果时被中断", e);
+        }
+        if (row == null) {
+            throw new IllegalStateException("分片 " + shard.name() + " 超过 " + timeout.toSeconds() + " 秒未返回结果");
+        }
+        if (row == END) {
+            // 保留结束标记，重复调用仍返回 null
+            rows.add(END);
+            if (error != null) {
+                throw new IllegalStateException("分片 " + shard.name() + " 查询失败: " + error.getMessage(), error);
+            }
+            return null;
+        }
+        return row;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.text2sql.service.shard;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.ShardingProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 分片拓扑
+ * 启动时把 text2sql.sharding 中的分片范围展开为具体的分片表：表名含 {yyyyMM} 时每月一张，含 {yyyy} 时每年一张，
+ * 否则整个范围一张；配置有误（数据源不存在、范围颠倒或分片重叠）时启动失败
+ */
+@Slf4j
+@Component
+public class ShardTopology {
+
+    private static final String MONTHLY = "{yyyyMM}";
+
+    private static final String YEARLY = "{yyyy}";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    /**
+     * 数据源 + 逻辑表（小写）-> 分片表
+     */
+    private final Map<String, ShardedTable> tables = new HashMap<>();
+
+    public ShardTopology(ShardingProperties properties) {
+        for (ShardingProperties.ShardedTable config : properties.getTables()) {
+            ShardedTable table = build(config);
+            if (tables.put(key(table.dataSource(), table.table()), table) != null) {
+                throw new IllegalArgumentException("分片表重复配置: " + table.dataSource() + "." + table.table());
+            }
+            log.info("分片表 {}.{} 按 {} 拆分为 {} 个分片", table.dataSource(), table.table(), table.column(),
+                    table.shards().size());
+        }
+    }
+
+    public boolean isEmpty() {
+        return tables.isEmpty();
+    }
+
+    /**
+     * 查找查询引用的表中属于指定数据源的分片表
+     *
+     * @param dataSource 查询所在的数据源
+     * @param tableNames 查询引用的表名（小写）
+     * @return 第一张分片表，都不是分片表时返回 null
+     */
+    public ShardedTable find(String dataSource, Collection<String> tableNames) {
+        for (String tableName : tableNames) {
+            ShardedTable table = tables.get(key(dataSource, tableName));
+            if (table != null) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private static ShardedTable build(ShardingProperties.ShardedTable config) {
+        if (StringUtils.isAnyBlank(config.getTable(), config.getColumn()) || config.getShards().isEmpty()) {
+            throw new IllegalArgumentException("分片表需要配置 table、column 和 shards: " + config);
+        }
+        String dataSource = DataSourceRouter.requireDataSources(List.of(config.getDataSource())).get(0);
+
+        List<Shard> shards = new ArrayList<>();
+        for (ShardingProperties.ShardRange range : config.getShards()) {
+            expand(range, shards);
+        }
+        shards.sort(Comparator.comparing(Shard::start));
+        for (int i = 1; i < shards.size(); i++) {
+            if (shards.get(i).start().isBefore(shards.get(i - 1).end())) {
+                throw new IllegalArgumentException("分片范围重叠: " + shards.get(i - 1).name() + " 与 " + shards.get(i).name());
+            }
+        }
+        return new ShardedTable(dataSource, config.getTable().toLowerCase(Locale.ROOT), config.getColumn(), List.copyOf(shards));
+    }
+
+    private static void expand(ShardingProperties.ShardRange range, List<Shard> shards) {
+        if (StringUtils.isBlank(range.getTable()) || range.getFrom() == null || range.getTo() == null
+                || range.getFrom().isAfter(range.getTo())) {
+            throw new IllegalArgumentException("分片范围需要配置 table、from 和不早于 from 的 to: " + range);
+        }
+        String dataSource = DataSourceRouter.requireDataSources(List.of(range.getDataSource())).get(0);
+        LocalDate end = range.getTo().plusMonths(1).atDay(1);
+
+        if (range.getTable().contains(MONTHLY)) {
+            for (YearMonth month = range.getFrom(); !month.isAfter(range.getTo()); month = month.plusMonths(1)) {
+                shards.add(new Shard(dataSource, range.getTable().replace(MONTHLY, month.format(MONTH_FORMAT)),
+                        month.atDay(1), month.plusMonths(1).atDay(1)));
+            }
+        } else if (range.getTable().contains(YEARLY)) {
+            LocalDate start = range.getFrom().atDay(1);
+            while (start.isBefore(end)) {
+                LocalDate nextYear = LocalDate.of(start.getYear() + 1, 1, 1);
+                LocalDate shardEnd = nextYear.isBefore(end) ? nextYear : end;
+                shards.add(new Shard(dataSource, range.getTable().replace(YEARLY, String.valueOf(start.getYear())),
+                        start, shardEnd));
+                start = shardEnd;
+            }
+        } else {
+            shards.add(new Shard(dataSource, range.getTable(), range.getFrom().atDay(1), end));
+        }
+    }
+
+    private static String key(String dataSource, String table) {
+        return dataSource.toLowerCase(Locale.ROOT) + "/" + table.toLowerCase(Locale.ROOT);
+    }
+}
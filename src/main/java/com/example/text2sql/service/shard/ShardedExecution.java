@@ -0,0 +1,31 @@
+package com.example.text2sql.service.shard;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.text2sql.service.step.SqlExecution;
+
+/**
+ * 分片查询的执行结果
+ *
+ * @param execution   合并后的结果
+ * @param table       分片表
+ * @param from        用于裁剪的日期下界（包含），没有时为 null
+ * @param to          用于裁剪的日期上界（不包含），没有时为 null
+ * @param shards      实际查询的分片，按日期顺序
+ * @param totalShards 分片总数
+ */
+public record ShardedExecution(SqlExecution execution, ShardedTable table, LocalDate from, LocalDate to,
+                               List<String> shards, int totalShards) {
+
+    /**
+     * 页面展示的文本：执行结果之后附上分片裁剪情况
+     */
+    public String describe() {
+        String range = from == null && to == null ? "无时间条件"
+                : (from == null ? "" : from.toString()) + " 至 " + (to == null ? "" : to.minusDays(1).toString());
+        return execution.describe() + "\n\n分片查询：" + table.table() + " 按 " + table.column() + " 拆分为 "
+                + totalShards + " 个分片，范围 " + range + "，访问 " + shards.size() + " 个"
+                + (shards.isEmpty() ? "" : "：" + String.join("、", shards));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.text2sql.service.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.ShardingProperties;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+import com.example.text2sql.service.sql.SqlAnalysis;
+import com.example.text2sql.service.sql.SqlAnalyzer;
+import com.example.text2sql.service.sql.StreamingStatement;
+import com.example.text2sql.service.step.SqlExecution;
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+
+/**
+ * 分片查询服务
+ * 查询引用了当前数据源配置的分片表时，按 WHERE 中分片列的日期范围裁剪分片，改写为各分片上的查询，
+ * 在 SQL 线程池中并发执行（各分片走各自数据源的连接池），结果边读边合并：
+ * 明细查询多路归并后取前 offset + limit 行即取消其余分片，聚合查询合并各分片的部分聚合值
+ * 每个分片查询记为耗时追踪中的一个 shard 节点，耗时记录在 text2sql.shard.query（dataSource、success）
+ */
+@Slf4j
+@Service
+public class ShardedQueryService {
+
+    private static final String DURATION_TIMER = "text2sql.shard.query";
+
+    private final ShardTopology topology;
+
+    private final SqlAnalyzer sqlAnalyzer;
+
+    private final DataSourceRouter dataSourceRouter;
+
+    private final ShardingProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolTaskExecutor sqlExecutor;
+
+    public ShardedQueryService(ShardTopology topology,
+                               SqlAnalyzer sqlAnalyzer,
+                               DataSourceRouter dataSourceRouter,
+                               ShardingProperties properties,
+                               MeterRegistry meterRegistry,
+                               @Qualifier("sqlExecutor") ThreadPoolTaskExecutor sqlExecutor) {
+        this.topology = topology;
+        this.sqlAnalyzer = sqlAnalyzer;
+        this.dataSourceRouter = dataSourceRouter;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.sqlExecutor = sqlExecutor;
+    }
+
+    /**
+     * 在当前数据源上按分片执行查询
+     *
+     * @param sql 已通过校验的 SQL
+     * @return 执行结果；SQL 没有引用分片表时返回 null，由调用方直接执行
+     * @throws IllegalArgumentException 查询写法无法按分片执行，或裁剪后的分片数超过上限
+     */
+    public ShardedExecution execute(String sql) {
+        if (topology.isEmpty()) {
+            return null;
+        }
+        SqlAnalysis analysis = sqlAnalyzer.analyze(sql);
+        ShardedTable table = topology.find(SchemaCatalogService.currentDataSource(), analysis.getTables());
+        if (table == null) {
+            return null;
+        }
+        if (!(analysis.getStatement() instanceof PlainSelect)) {
+            throw new IllegalArgumentException("分片表 " + table.table() + " 不支持 UNION 等组合查询");
+        }
+
+        ShardPlan plan;
+        try {
+            plan = ShardPlanner.plan((PlainSelect) sqlAnalyzer.parseCopy(analysis.getSql()), analysis.getTables(), table);
+        } catch (JSQLParserException e) {
+            throw new IllegalArgumentException("SQL 解析失败: " + e.getMessage(), e);
+        }
+        if (plan.queries().size() > properties.getMaxShards()) {
+            throw new IllegalArgumentException("查询需要访问 " + plan.queries().size() + " 个分片，超过上限 "
+                    + properties.getMaxShards() + "，请补充 " + table.column() + " 的时间范围");
+        }
+        log.info("分片查询 {}：范围 [{}, {})，访问 {}/{} 个分片", table.table(), plan.from(), plan.to(),
+                plan.queries().size(), table.shards().size());
+
+        List<ShardStream> streams = new ArrayList<>(plan.queries().size());
+        for (ShardPlan.ShardQuery query : plan.queries()) {
+            ShardStream stream = new ShardStream(query.shard(), properties.getQueryTimeout());
+            streams.add(stream);
+            try {
+                sqlExecutor.execute(() -> run(query, stream));
+            } catch (TaskRejectedException e) {
+                stream.fail(e);
+            }
+        }
+
+        List<Map<String, Object>> rows;
+        try {
+            rows = ShardMerger.merge(plan.merge(), streams);
+        } finally {
+            streams.forEach(ShardStream::cancel);
+        }
+        List<String> shards = plan.queries().stream().map(query -> query.shard().name()).toList();
+        return new ShardedExecution(SqlExecution.of(rows), table, plan.from(), plan.to(), shards, table.shards().size());
+    }
+
+    /**
+     * 在分片所在的数据源上流式读取，行放入分片的结果流
+     */
+    private void run(ShardPlan.ShardQuery query, ShardStream stream) {
+        if (stream.isCancelled()) {
+            stream.complete();
+            return;
+        }
+        String dataSource = query.shard().dataSource();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean success = false;
+        try (DataSourceRouter.DataSourceContext ignored = DataSourceRouter.withDataSource(dataSource);
+             TraceSpan span = RequestTrace.span("shard", query.shard().table())) {
+            Long rows = dataSourceRouter.getDataSourceByName(dataSource)
+                    .query(new StreamingStatement(query.sql(), properties.getFetchSize(),
+                            (int) properties.getQueryTimeout().toSeconds(), stream::attach), stream);
+            span.attribute("rows", rows);
+            if (stream.isCancelled()) {
+                span.attribute("cancelled", true);
+            }
+            success = true;
+            stream.complete();
+        } catch (RuntimeException e) {
+            if (stream.isCancelled()) {
+                // 合并已结束，取消语句导致的异常不是分片故障
+                stream.complete();
+                return;
+            }
+            log.warn("分片 {} 查询失败: {}", query.shard().name(), e.getMessage());
+            stream.fail(e);
+        } finally {
+            stream.detach();
+            sample.stop(meterRegistry.timer(DURATION_TIMER, "dataSource", dataSource, "success", String.valueOf(success)));
+        }
+    }
+}
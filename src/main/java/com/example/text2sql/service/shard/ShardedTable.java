@@ -0,0 +1,24 @@
+package com.example.text2sql.service.shard;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 按日期水平拆分的逻辑表
+ *
+ * @param dataSource 逻辑表所属的数据源
+ * @param table      逻辑表名（小写）
+ * @param column     分片依据的日期列
+ * @param shards     各分片，按日期顺序排列且互不重叠
+ */
+public record ShardedTable(String dataSource, String table, String column, List<Shard> shards) {
+
+    /**
+     * 裁剪出与日期范围 [from, to) 有交集的分片，from、to 为 null 表示该方向不限
+     */
+    public List<Shard> prune(LocalDate from, LocalDate to) {
+        return shards.stream()
+                .filter(shard -> shard.overlaps(from, to))
+                .toList();
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.text2sql.service.sql;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.NotExpression;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+import net.sf.jsqlparser.expression.operators.relational.ExistsExpression;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.LikeExpression;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.ParenthesedExpressionList;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.ParenthesedSelect;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.statement.select.WithItem;
+
+/**
+ * 可索引化改写
+ * 把 WHERE / ON 中对列套日期函数的比较改写为等价的列范围条件，
+ * 如 YEAR(hire_date) = 2025 改写为 hire_date >= '2025-01-01' AND hire_date < '2026-01-01'；
+ * 无法等价改写的写法（其他函数包列、前导通配符 LIKE 等）只记录提示
+ * 直接修改传入的语法树，调用方需传入副本
+ */
+final class SargableRewriter {
+
+    private final List<String> rewrites = new ArrayList<>();
+
+    private final List<String> warnings = new ArrayList<>();
+
+    List<String> rewrites() {
+        return rewrites;
+    }
+
+    List<String> warnings() {
+        return warnings;
+    }
+
+    /**
+     * 递归改写查询各层的 WHERE 和 JOIN 条件，包括 WITH、子查询和 UNION 成员
+     */
+    void rewrite(Select select) {
+        if (select.getWithItemsList() != null) {
+            for (WithItem<?> withItem : select.getWithItemsList()) {
+                if (withItem.getSelect() != null) {
+                    rewrite(withItem.getSelect());
+                }
+            }
+        }
+
+        if (select instanceof PlainSelect plainSelect) {
+            rewrite(plainSelect.getFromItem());
+            if (plainSelect.getJoins() != null) {
+                for (Join join : plainSelect.getJoins()) {
+                    rewrite(join.getFromItem());
+                    if (join.getOnExpressions() != null && !join.getOnExpressions().isEmpty()) {
+                        List<Expression> onExpressions = new ArrayList<>();
+                        for (Expression on : join.getOnExpressions()) {
+                            onExpressions.add(rewrite(on, true));
+                        }
+                        join.setOnExpressions(onExpressions);
+                    }
+                }
+            }
+            if (plainSelect.getWhere() != null) {
+                plainSelect.setWhere(rewrite(plainSelect.getWhere(), true));
+            }
+        } else if (select instanceof SetOperationList setOperationList) {
+            for (Select member : setOperationList.getSelects()) {
+                rewrite(member);
+            }
+        } else if (select instanceof ParenthesedSelect parenthesedSelect) {
+            rewrite(parenthesedSelect.getSelect());
+        }
+    }
+
+    private void rewrite(FromItem fromItem) {
+        if (fromItem instanceof Select select) {
+            rewrite(select);
+        }
+    }
+
+    /**
+     * 改写条件表达式，返回替换后的节点
+     *
+     * @param conjunct 节点是否直接处于 AND 链中，是则范围条件可以不加括号
+     */
+    @SuppressWarnings("unchecked")
+    private Expression rewrite(Expression expression, boolean conjunct) {
+        if (expression instanceof AndExpression and) {
+            and.setLeftExpression(rewrite(and.getLeftExpression(), true));
+            and.setRightExpression(rewrite(and.getRightExpression(), true));
+            return and;
+        }
+        if (expression instanceof OrExpression or) {
+            or.setLeftExpression(rewrite(or.getLeftExpression(), false));
+            or.setRightExpression(rewrite(or.getRightExpression(), false));
+            return or;
+        }
+        if (expression instanceof NotExpression not) {
+            not.setExpression(rewrite(not.getExpression(), false));
+            return not;
+        }
+        if (expression instanceof ParenthesedSelect subquery) {
+            rewrite(subquery.getSelect());
+            return subquery;
+        }
+        if (expression instanceof ParenthesedExpressionList<?> list && list.size() == 1) {
+            ((ParenthesedExpressionList<Expression>) list).set(0, rewrite(list.get(0), true));
+            return list;
+        }
+        if (expression instanceof ExistsExpression exists) {
+            rewrite(exists.getRightExpression(), false);
+            return exists;
+        }
+        if (expression instanceof ComparisonOperator comparison) {
+            rewrite(comparison.getRightExpression(), false);
+            return rewriteComparison(comparison, conjunct);
+        }
+        if (expression instanceof Between between) {
+            return rewriteBetween(between, conjunct);
+        }
+        if (expression instanceof LikeExpression like) {
+            checkLike(like);
+            return like;
+        }
+        if (expression instanceof InExpression in) {
+            rewrite(in.getRightExpression(), false);
+            warnIfWrapped(in.getLeftExpression());
+            return in;
+        }
+        return expression;
+    }
+
+    /**
+     * 改写 f(col) op 字面量 形式的比较，字面量在左侧时先交换两边
+     */
+    private Expression rewriteComparison(ComparisonOperator comparison, boolean conjunct) {
+        Expression left = comparison.getLeftExpression();
+        Expression right = comparison.getRightExpression();
+        String operator = comparison.getStringExpression();
+        if (!(left instanceof Function) && right instanceof Function) {
+            Expression swap = left;
+            left = right;
+            right = swap;
+            operator = mirror(operator);
+        }
+        if (!(left instanceof Function function) || wrappedColumn(function) == null) {
+            return comparison;
+        }
+
+        Column column = wrappedColumn(function);
+        Bucket bucket = bucket(function, right);
+        if (bucket == null || operator == null) {
+            warnWrapped(function, column);
+            return comparison;
+        }
+
+        // f(col) 对列单调且把列值划分为连续区间，比较可以换成对区间端点的比较
+        Expression replacement = switch (operator) {
+            case "=" -> range(column, bucket.start(), bucket.end(), conjunct);
+            case ">" -> new GreaterThanEquals(column, literal(bucket.end()));
+            case ">=" -> new GreaterThanEquals(column, literal(bucket.start()));
+            case "<" -> new MinorThan(column, literal(bucket.start()));
+            case "<=" -> new MinorThan(column, literal(bucket.end()));
+            default -> null;
+        };
+        if (replacement == null) {
+            warnWrapped(function, column);
+            return comparison;
+        }
+        rewrites.add(comparison + " → " + replacement);
+        return replacement;
+    }
+
+    /**
+     * 改写 f(col) BETWEEN a AND b，区间取 [a 的起点, b 的终点)
+     */
+    private Expression rewriteBetween(Between between, boolean conjunct) {
+        if (!(between.getLeftExpression() instanceof Function function) || wrappedColumn(function) == null) {
+            return between;
+        }
+
+        Column column = wrappedColumn(function);
+        Bucket start = bucket(function, between.getBetweenExpressionStart());
+        Bucket end = bucket(function, between.getBetweenExpressionEnd());
+        if (between.isNot() || start == null || end == null) {
+            warnWrapped(function, column);
+            return between;
+        }
+
+        Expression replacement = range(column, start.start(), end.end(), conjunct);
+        rewrites.add(between + " → " + replacement);
+        return replacement;
+    }
+
+    private void checkLike(LikeExpression like) {
+        warnIfWrapped(like.getLeftExpression());
+        if (like.getRightExpression() instanceof StringValue pattern && !pattern.getValue().isEmpty()) {
+            char first = pattern.getValue().charAt(0);
+            if (first == '%' || first == '_') {
+                warnings.add(like + "：以通配符开头的 LIKE 无法使用索引，会扫描全表");
+            }
+        }
+    }
+
+    private void warnIfWrapped(Expression expression) {
+        if (expression instanceof Function function && wrappedColumn(function) != null) {
+            warnWrapped(function, wrappedColumn(function));
+        }
+    }
+
+    private void warnWrapped(Function function, Column column) {
+        warnings.add(function + "：对列 " + column.getColumnName() + " 使用函数，无法使用该列上的索引");
+    }
+
+    /**
+     * 函数的第一个参数为列时返回该列
+     */
+    private static Column wrappedColumn(Function function) {
+        ExpressionList<?> parameters = function.getParameters();
+        if (parameters == null || parameters.isEmpty() || !(parameters.get(0) instanceof Column column)) {
+            return null;
+        }
+        return column;
+    }
+
+    /**
+     * 函数值为字面量时对应的列值区间 [start, end)，不支持的函数或字面量返回 null
+     */
+    private static Bucket bucket(Function function, Expression value) {
+        String literal = literalValue(value);
+        if (literal == null) {
+            return null;
+        }
+
+        ExpressionList<?> parameters = function.getParameters();
+        try {
+            switch (function.getName().toUpperCase(Locale.ROOT)) {
+                case "YEAR":
+                    return parameters.size() == 1 ? yearBucket(literal) : null;
+                case "DATE":
+                    return parameters.size() == 1 ? dayBucket(literal) : null;
+                case "DATE_FORMAT":
+                    if (parameters.size() != 2 || !(parameters.get(1) instanceof StringValue format)) {
+                        return null;
+                    }
+                    return switch (format.getValue()) {
+                        case "%Y" -> yearBucket(literal);
+                        case "%Y-%m" -> monthBucket(literal);
+                        case "%Y-%m-%d" -> dayBucket(literal);
+                        default -> null;
+                    };
+                default:
+                    return null;
+            }
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Bucket yearBucket(String literal) {
+        LocalDate start = LocalDate.of(Integer.parseInt(literal), 1, 1);
+        return new Bucket(start, start.plusYears(1));
+    }
+
+    private static Bucket monthBucket(String literal) {
+        LocalDate start = YearMonth.parse(literal).atDay(1);
+        return new Bucket(start, start.plusMonths(1));
+    }
+
+    private static Bucket dayBucket(String literal) {
+        LocalDate start = LocalDate.parse(literal);
+        return new Bucket(start, start.plusDays(1));
+    }
+
+    private static String literalValue(Expression value) {
+        if (value instanceof LongValue longValue) {
+            return longValue.getStringValue();
+        }
+        if (value instanceof StringValue stringValue) {
+            return stringValue.getValue().trim();
+        }
+        return null;
+    }
+
+    private static Expression range(Column column, LocalDate start, LocalDate end, boolean conjunct) {
+        Expression range = new AndExpression(new GreaterThanEquals(column, literal(start)), new MinorThan(column, literal(end)));
+        return conjunct ? range : new ParenthesedExpressionList<>(range);
+    }
+
+    private static StringValue literal(LocalDate date) {
+        return new StringValue(date.toString());
+    }
+
+    /**
+     * 交换比较两边后的运算符
+     */
+    private static String mirror(String operator) {
+        return switch (operator) {
+            case "=" -> "=";
+            case ">" -> "<";
+            case ">=" -> "<=";
+            case "<" -> ">";
+            case "<=" -> ">=";
+            default -> null;
+        };
+    }
+
+    private record Bucket(LocalDate start, LocalDate end) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.text2sql.service.sql;
+
+import java.util.Set;
+
+import net.sf.jsqlparser.statement.Statement;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 单条 SQL 的解析结果
+ * 由 {@link SqlAnalyzer} 按指纹缓存并在多个线程间共享，其中的 AST 只读，改写时需要重新解析出副本
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class SqlAnalysis {
+
+    /**
+     * 规范化后 SQL 的指纹
+     */
+    private final String fingerprint;
+
+    /**
+     * 规范化后的 SQL：折叠空白、去掉末尾分号，字符串字面量保持原样
+     */
+    private final String sql;
+
+    /**
+     * 解析得到的语法树，解析失败时为 null
+     */
+    private final Statement statement;
+
+    /**
+     * 解析失败原因
+     */
+    private final String parseError;
+
+    /**
+     * 引用的物理表名（小写，去掉库名和反引号，不含 CTE 名称）
+     */
+    private final Set<String> tables;
+
+    /**
+     * 表名前带的库名（小写，去掉反引号），没有带库名的引用时为空
+     */
+    private final Set<String> schemas;
+
+    /**
+     * 最外层 LIMIT 的行数，没有 LIMIT 或行数不是常量时为 null
+     */
+    private final Long limit;
+
+    /**
+     * 最外层查询是否使用了 * 或 t.*
+     */
+    private final boolean selectAll;
+
+    /**
+     * 是否解析成功
+     */
+    public boolean isParsed() {
+        return statement != null;
+    }
+}
@@ -0,0 +1,554 @@
+package com.example.text2sql.service.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.SqlProperties;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+import com.example.text2sql.util.SqlSafetyScanner;
+import com.example.text2sql.util.SqlUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.ParenthesedExpressionList;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.AllTableColumns;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.ParenthesedSelect;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectItem;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+
+/**
+ * SQL 解析服务
+ * 每条生成的 SQL 只解析一次，解析结果按规范化 SQL 缓存；
+ * 校验（只读白名单、表名解析）和改写（LIMIT 注入、列裁剪）都基于语法树完成
+ */
+@Slf4j
+@Service
+public class SqlAnalyzer {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final SqlProperties properties;
+
+    private final Cache<String, SqlAnalysis> analysisCache;
+
+    /**
+     * JSqlParser 在独立线程中解析以支持超时，共享线程池避免每次解析都新建线程
+     */
+    private final ExecutorService parserExecutor;
+
+    public SqlAnalyzer(SchemaCatalogService schemaCatalogService, SqlProperties properties) {
+        this.schemaCatalogService = schemaCatalogService;
+        this.properties = properties;
+        this.analysisCache = Caffeine.newBuilder()
+                .maximumSize(properties.getParseCacheSize())
+                .build();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sql-parser-");
+        threadFactory.setDaemon(true);
+        this.parserExecutor = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parserExecutor.shutdownNow();
+    }
+
+    /**
+     * 解析 SQL，相同指纹的 SQL 直接返回缓存结果
+     */
+    public SqlAnalysis analyze(String sql) {
+        return analysisCache.get(normalize(sql), this::parse);
+    }
+
+    /**
+     * 按当前数据源的表清单和库名校验 SQL
+     */
+    public SqlValidation validate(String sql) {
+        return validate(sql, SchemaCatalogService.currentDataSource());
+    }
+
+    /**
+     * 按指定数据源的表清单和库名校验 SQL
+     */
+    public SqlValidation validate(String sql, String dataSource) {
+        return validate(sql, schemaCatalogService.getTableNames(dataSource), schemaCatalogService.getDatabaseName(dataSource));
+    }
+
+    /**
+     * 校验 SQL，带库名限定的表引用一律拒绝
+     *
+     * @param sql         待校验的 SQL
+     * @param knownTables 已知表名（小写），为空时视为校验失败
+     */
+    public SqlValidation validate(String sql, Set<String> knownTables) {
+        return validate(sql, knownTables, null);
+    }
+
+    /**
+     * 校验 SQL：词法安全检查 + 只读白名单 + 引用表解析
+     * 表清单读取失败时无法确认引用的表，直接判为不通过，不放行未经表名校验的 SQL
+     *
+     * @param sql         待校验的 SQL
+     * @param knownTables 已知表名（小写），为空时视为校验失败
+     * @param database    数据源连接的库名，表名前只允许带这个库名；为 null 时不允许带库名
+     */
+    public SqlValidation validate(String sql, Set<String> knownTables, String database) {
+        // 词法扫描不分配内存，先挡掉注释、堆叠语句等注入特征
+        SqlSafetyScanner.Verdict verdict = SqlUtils.checkSqlSafety(sql);
+        if (!verdict.isSafe()) {
+            return SqlValidation.invalid(verdict.getMessage(), null);
+        }
+
+        SqlAnalysis analysis = analyze(sql);
+        if (!analysis.isParsed()) {
+            return SqlValidation.invalid("SQL 语法错误: " + analysis.getParseError(), analysis);
+        }
+        if (!(analysis.getStatement() instanceof Select select)) {
+            return SqlValidation.invalid("只允许执行 SELECT 查询", analysis);
+        }
+
+        String error = checkReadOnly(select);
+        if (error != null) {
+            return SqlValidation.invalid(error, analysis);
+        }
+
+        // 表名按去掉库名后比对，其他库的同名表会被误认为本库的表，所以库名必须是本库
+        String currentDatabase = database == null ? null : unquote(database);
+        List<String> otherSchemas = analysis.getSchemas().stream()
+                .filter(schema -> !schema.equals(currentDatabase))
+                .toList();
+        if (!otherSchemas.isEmpty()) {
+            return SqlValidation.invalid("不允许引用其他库的表: " + String.join(", ", otherSchemas), analysis);
+        }
+        if (knownTables == null || knownTables.isEmpty()) {
+            return SqlValidation.invalid("无法读取数据源的表清单，不能校验 SQL 引用的表", analysis);
+        }
+        List<String> unknownTables = analysis.getTables().stream()
+                .filter(table -> !knownTables.contains(table))
+                .toList();
+        if (!unknownTables.isEmpty()) {
+            return SqlValidation.invalid("引用了不存在的表: " + String.join(", ", unknownTables), analysis);
+        }
+        return SqlValidation.valid(analysis);
+    }
+
+    /**
+     * 按配置的最大行数注入 LIMIT
+     */
+    public String enforceLimit(SqlAnalysis analysis) {
+        return enforceLimit(analysis, properties.getMaxRows());
+    }
+
+    /**
+     * 注入 LIMIT：没有 LIMIT 时追加，超出上限时收紧，其余情况原样返回
+     */
+    public String enforceLimit(SqlAnalysis analysis, int maxRows) {
+        if (!(analysis.getStatement() instanceof Select)) {
+            return analysis.getSql();
+        }
+
+        Long limit = analysis.getLimit();
+        if (limit != null && limit <= maxRows) {
+            return analysis.getSql();
+        }
+
+        Select select = (Select) analysis.getStatement();
+        if (select.getLimit() == null) {
+            // 最外层没有 LIMIT 时它必然是语句的最后一个子句，直接追加即可保留原始写法
+            return analysis.getSql() + " LIMIT " + maxRows;
+        }
+
+        try {
+            Select copy = (Select) parseStatement(analysis.getSql());
+            copy.getLimit().setRowCount(new LongValue(maxRows));
+            return copy.toString();
+        } catch (JSQLParserException e) {
+            log.warn("改写 LIMIT 失败，保留原始 SQL: {}", analysis.getSql(), e);
+            return analysis.getSql();
+        }
+    }
+
+    /**
+     * 列裁剪：把最外层的 * 和 t.* 展开为指定的列
+     * 只展开能确定对应表且给出了列清单的部分，其余保持原样
+     *
+     * @param analysis       解析结果
+     * @param columnsByTable 每张表（小写表名）需要的列
+     */
+    public String pruneColumns(SqlAnalysis analysis, Map<String, ? extends Collection<String>> columnsByTable) {
+        if (!analysis.isSelectAll() || !(analysis.getStatement() instanceof PlainSelect)) {
+            return analysis.getSql();
+        }
+
+        PlainSelect copy;
+        try {
+            copy = (PlainSelect) parseStatement(analysis.getSql());
+        } catch (JSQLParserException e) {
+            log.warn("列裁剪时解析 SQL 失败，保留原始 SQL: {}", analysis.getSql(), e);
+            return analysis.getSql();
+        }
+
+        // 限定名（别名或表名，小写）-> 表名（小写），保持 FROM 中的顺序；子查询等非物理表记为 null
+        Map<String, Table> sources = new LinkedHashMap<>();
+        boolean onlyTables = collectSource(copy.getFromItem(), sources);
+        if (copy.getJoins() != null) {
+            for (Join join : copy.getJoins()) {
+                onlyTables &= collectSource(join.getFromItem(), sources);
+            }
+        }
+
+        List<SelectItem<?>> items = new ArrayList<>();
+        boolean changed = false;
+        for (SelectItem<?> item : copy.getSelectItems()) {
+            List<SelectItem<?>> expanded = null;
+            if (item.getExpression() instanceof AllTableColumns tableColumns) {
+                Table table = sources.get(unquote(tableColumns.getTable().getName()));
+                expanded = expand(table, tableColumns.getTable(), columnsByTable);
+            } else if (item.getExpression() instanceof AllColumns allColumns && allColumns.getExceptColumns() == null
+                    && onlyTables && !sources.isEmpty()) {
+                expanded = expandAll(sources, columnsByTable);
+            }
+
+            if (expanded != null) {
+                items.addAll(expanded);
+                changed = true;
+            } else {
+                items.add(item);
+            }
+        }
+
+        if (!changed) {
+            return analysis.getSql();
+        }
+        copy.setSelectItems(items);
+        return copy.toString();
+    }
+
+    /**
+     * 在最外层 WHERE 上追加条件
+     * 表不在最外层 FROM/JOIN 中，或 WHERE 已经引用了 skipColumns 中的任意一列（不区分表限定名）时原样返回，
+     * 不与已有的筛选叠加
+     *
+     * @param analysis    解析结果
+     * @param table       条件所在的表
+     * @param column      条件约束的列
+     * @param skipColumns WHERE 已引用其中任意一列时不追加，通常为同一口径的全部列
+     * @param condition   根据列引用（多表时带限定名）生成条件 SQL
+     */
+    public String addCondition(SqlAnalysis analysis, String table, String column, Collection<String> skipColumns,
+                               Function<String, String> condition) {
+        if (!(analysis.getStatement() instanceof PlainSelect) || !analysis.getTables().contains(tableName(table))) {
+            return analysis.getSql();
+        }
+
+        try {
+            PlainSelect copy = (PlainSelect) parseStatement(analysis.getSql());
+            Map<String, Table> sources = new LinkedHashMap<>();
+            collectSource(copy.getFromItem(), sources);
+            if (copy.getJoins() != null) {
+                for (Join join : copy.getJoins()) {
+                    collectSource(join.getFromItem(), sources);
+                }
+            }
+
+            Table target = sources.values().stream()
+                    .filter(source -> source != null && tableName(source.getFullyQualifiedName()).equals(tableName(table)))
+                    .findFirst()
+                    .orElse(null);
+            if (target == null || (copy.getWhere() != null && referencesAny(copy.getWhere(), skipColumns))) {
+                return analysis.getSql();
+            }
+
+            String columnRef = "`" + column + "`";
+            if (sources.size() > 1) {
+                columnRef = qualifierOf(target).getName() + "." + columnRef;
+            }
+            Expression added = CCJSqlParserUtil.parseCondExpression(condition.apply(columnRef));
+            copy.setWhere(copy.getWhere() == null ? added
+                    : new AndExpression(new ParenthesedExpressionList<>(copy.getWhere()), added));
+            return copy.toString();
+        } catch (JSQLParserException e) {
+            log.warn("追加条件失败，保留原始 SQL: {}", analysis.getSql(), e);
+            return analysis.getSql();
+        }
+    }
+
+    /**
+     * 规范化 SQL：折叠引号外的空白，去掉末尾分号
+     */
+    static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+
+        StringBuilder normalized = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                normalized.append(c);
+                if (c == '\\' && quote != '`' && i + 1 < sql.length()) {
+                    normalized.append(sql.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+            normalized.append(c);
+        }
+
+        int end = normalized.length();
+        while (end > 0 && (normalized.charAt(end - 1) == ';' || normalized.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    /**
+     * 64 位 FNV-1a 指纹
+     */
+    static String fingerprint(String normalizedSql) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < normalizedSql.length(); i++) {
+            hash ^= normalizedSql.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return String.format("%016x", hash);
+    }
+
+    private SqlAnalysis parse(String normalizedSql) {
+        String fingerprint = fingerprint(normalizedSql);
+        try {
+            Statement statement = parseStatement(normalizedSql);
+            Long limit = null;
+            boolean selectAll = false;
+            if (statement instanceof Select select) {
+                limit = limitOf(select);
+                selectAll = select instanceof PlainSelect plainSelect && plainSelect.getSelectItems().stream()
+                        .anyMatch(item -> item.getExpression() instanceof AllColumns);
+            }
+            Set<String> qualifiedTables = extractTables(statement);
+            Set<String> tables = qualifiedTables.stream()
+                    .map(SqlAnalyzer::tableName)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            Set<String> schemas = qualifiedTables.stream()
+                    .filter(table -> table.lastIndexOf('.') > 0)
+                    .map(table -> table.substring(0, table.lastIndexOf('.')))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            return new SqlAnalysis(fingerprint, normalizedSql, statement, null, tables, schemas, limit, selectAll);
+        } catch (JSQLParserException | RuntimeException e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage().lines().findFirst().orElse("");
+            log.debug("SQL 解析失败 [{}]: {}", fingerprint, message);
+            return new SqlAnalysis(fingerprint, normalizedSql, null, message, Set.of(), Set.of(), null, false);
+        }
+    }
+
+    /**
+     * 重新解析出一份可修改的语法树，缓存中的语法树是共享的，改写时不能直接修改
+     */
+    public Statement parseCopy(String sql) throws JSQLParserException {
+        return parseStatement(sql);
+    }
+
+    private Statement parseStatement(String sql) throws JSQLParserException {
+        return CCJSqlParserUtil.parse(sql, parserExecutor, parser -> parser
+                .withTimeOut(properties.getParseTimeoutMillis())
+                .withBackslashEscapeCharacter(true));
+    }
+
+    /**
+     * 引用的物理表，保留库名限定（各段去掉反引号并转小写），如 ticket_booking.orders
+     */
+    private static Set<String> extractTables(Statement statement) {
+        Set<String> tables = new TablesNamesFinder<>().getTables(statement);
+        return tables.stream()
+                .map(SqlAnalyzer::qualifiedName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Long limitOf(Select select) {
+        Limit limit = select.getLimit();
+        if (limit != null && limit.getRowCount() instanceof LongValue rowCount) {
+            return rowCount.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * 只读检查：递归检查各层查询，禁止 SELECT INTO 和加锁读
+     */
+    private static String checkReadOnly(Select select) {
+        if (select.getForMode() != null) {
+            return "不允许加锁读（FOR UPDATE / FOR SHARE）";
+        }
+
+        if (select instanceof PlainSelect plainSelect) {
+            if (plainSelect.getIntoTables() != null && !plainSelect.getIntoTables().isEmpty()) {
+                return "不允许 SELECT INTO";
+            }
+            String error = checkReadOnly(plainSelect.getFromItem());
+            if (error == null && plainSelect.getJoins() != null) {
+                for (Join join : plainSelect.getJoins()) {
+                    error = checkReadOnly(join.getFromItem());
+                    if (error != null) {
+                        break;
+                    }
+                }
+            }
+            return error;
+        }
+        if (select instanceof SetOperationList setOperationList) {
+            for (Select member : setOperationList.getSelects()) {
+                String error = checkReadOnly(member);
+                if (error != null) {
+                    return error;
+                }
+            }
+            return null;
+        }
+        if (select instanceof ParenthesedSelect parenthesedSelect) {
+            return checkReadOnly(parenthesedSelect.getSelect());
+        }
+        return null;
+    }
+
+    private static String checkReadOnly(FromItem fromItem) {
+        return fromItem instanceof Select select ? checkReadOnly(select) : null;
+    }
+
+    /**
+     * 记录 FROM 中的数据来源，返回是否为物理表
+     */
+    private static boolean collectSource(FromItem fromItem, Map<String, Table> sources) {
+        if (fromItem instanceof Table table) {
+            String qualifier = table.getAlias() != null ? table.getAlias().getName() : table.getName();
+            sources.put(unquote(qualifier), table);
+            return true;
+        }
+        if (fromItem != null && fromItem.getAlias() != null) {
+            sources.put(unquote(fromItem.getAlias().getName()), null);
+        }
+        return false;
+    }
+
+    /**
+     * 表达式中是否引用了任意一个指定列（不区分表限定名）
+     */
+    private static boolean referencesAny(Expression expression, Collection<String> columns) {
+        Set<String> targets = columns.stream().map(SqlAnalyzer::unquote).collect(Collectors.toSet());
+        boolean[] found = {false};
+        expression.accept(new ExpressionVisitorAdapter<Void>() {
+            @Override
+            public <S> Void visit(Column candidate, S context) {
+                found[0] |= targets.contains(unquote(candidate.getColumnName()));
+                return null;
+            }
+        }, null);
+        return found[0];
+    }
+
+    private static List<SelectItem<?>> expandAll(Map<String, Table> sources,
+                                                 Map<String, ? extends Collection<String>> columnsByTable) {
+        List<SelectItem<?>> expanded = new ArrayList<>();
+        boolean qualify = sources.size() > 1;
+        for (Table table : sources.values()) {
+            Table qualifier = qualify ? qualifierOf(table) : null;
+            List<SelectItem<?>> columns = expand(table, qualifier, columnsByTable);
+            if (columns == null) {
+                // 任意一张表缺少列清单时无法安全展开 *
+                return null;
+            }
+            expanded.addAll(columns);
+        }
+        return expanded;
+    }
+
+    private static List<SelectItem<?>> expand(Table table, Table qualifier,
+                                              Map<String, ? extends Collection<String>> columnsByTable) {
+        if (table == null) {
+            return null;
+        }
+        Collection<String> columns = columnsByTable.get(tableName(table.getFullyQualifiedName()));
+        if (columns == null || columns.isEmpty()) {
+            return null;
+        }
+        List<SelectItem<?>> items = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            items.add(new SelectItem<>(new Column(qualifier, "`" + column + "`")));
+        }
+        return items;
+    }
+
+    private static Table qualifierOf(Table table) {
+        return table.getAlias() != null ? new Table(table.getAlias().getName()) : new Table(table.getName());
+    }
+
+    /**
+     * 去掉库名和反引号并转小写
+     */
+    private static String tableName(String qualifiedName) {
+        int dot = qualifiedName.lastIndexOf('.');
+        return unquote(dot >= 0 ? qualifiedName.substring(dot + 1) : qualifiedName);
+    }
+
+    private static String qualifiedName(String name) {
+        return Arrays.stream(name.split("\\."))
+                .map(SqlAnalyzer::unquote)
+                .collect(Collectors.joining("."));
+    }
+
+    private static String unquote(String identifier) {
+        String name = identifier;
+        if (name.length() >= 2 && (name.charAt(0) == '`' || name.charAt(0) == '"')) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.text2sql.service.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * SQL 改写记录
+ * 保留模型生成的原始 SQL，依次记录每一步改写和发现的不可索引写法，供页面对比展示
+ */
+@Getter
+public class SqlRewrite {
+
+    /**
+     * 模型生成的原始 SQL
+     */
+    private final String originalSql;
+
+    /**
+     * 当前（最终执行的）SQL
+     */
+    private String sql;
+
+    /**
+     * 已应用的改写说明
+     */
+    private final List<String> rewrites = new ArrayList<>();
+
+    /**
+     * 无法自动改写的不可索引写法
+     */
+    private final List<String> warnings = new ArrayList<>();
+
+    public SqlRewrite(String originalSql) {
+        this.originalSql = originalSql;
+        this.sql = originalSql;
+    }
+
+    /**
+     * 应用一次改写，SQL 没有变化时不记录
+     */
+    public SqlRewrite apply(String rewritten, String description) {
+        if (rewritten != null && !rewritten.equals(sql)) {
+            sql = rewritten;
+            rewrites.add(description);
+        }
+        return this;
+    }
+
+    public SqlRewrite warn(String warning) {
+        if (!warnings.contains(warning)) {
+            warnings.add(warning);
+        }
+        return this;
+    }
+
+    /**
+     * 最终 SQL 是否与原始 SQL 不同
+     */
+    public boolean isRewritten() {
+        return !rewrites.isEmpty();
+    }
+}
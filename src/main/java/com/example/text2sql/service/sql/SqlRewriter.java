@@ -0,0 +1,114 @@
+package com.example.text2sql.service.sql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.config.SqlProperties;
+import com.example.text2sql.service.rule.RuleMatch;
+import com.example.text2sql.service.schema.ColumnInfo;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.statement.select.Select;
+
+/**
+ * SQL 改写服务
+ * 在模型生成 SQL 之后、执行之前做两类改写：
+ * 把 SELECT * 展开为问题需要的列，减少读取和传输的数据量；
+ * 把对日期列套函数的比较改写为范围条件，使条件能够走索引。
+ * 无法等价改写的不可索引写法只记录提示，不改变查询语义
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SqlRewriter {
+
+    /**
+     * 注释与问题的公共子串达到该长度时认为问题提到了这一列
+     */
+    private static final int MIN_COMMENT_MATCH = 2;
+
+    private final SqlAnalyzer sqlAnalyzer;
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    private final SqlProperties properties;
+
+    /**
+     * 在改写记录上依次应用列展开和可索引化改写
+     *
+     * @param rewrite        改写记录，当前 SQL 须已通过校验
+     * @param columnsByTable 每张表（小写表名）需要的列
+     */
+    public SqlRewrite rewrite(SqlRewrite rewrite, Map<String, ? extends Collection<String>> columnsByTable) {
+        SqlAnalysis analysis = sqlAnalyzer.analyze(rewrite.getSql());
+        if (!(analysis.getStatement() instanceof Select)) {
+            return rewrite;
+        }
+
+        if (properties.isExpandSelectAll() && analysis.isSelectAll()) {
+            rewrite.apply(sqlAnalyzer.pruneColumns(analysis, columnsByTable), "SELECT * 展开为问题需要的列");
+            analysis = sqlAnalyzer.analyze(rewrite.getSql());
+            if (analysis.isSelectAll()) {
+                rewrite.warn("SELECT * 未展开：无法确定问题需要的列，会读取整行数据");
+            }
+        }
+
+        // 没有函数调用和 LIKE 时不会有可改写或需提示的条件，省掉一次解析
+        String sql = analysis.getSql();
+        if (sql.indexOf('(') < 0 && !sql.toUpperCase(Locale.ROOT).contains("LIKE")) {
+            return rewrite;
+        }
+
+        try {
+            Select copy = (Select) sqlAnalyzer.parseCopy(sql);
+            SargableRewriter sargable = new SargableRewriter();
+            sargable.rewrite(copy);
+            if (!sargable.rewrites().isEmpty()) {
+                rewrite.apply(copy.toString(), "日期函数比较改写为范围条件: " + String.join("; ", sargable.rewrites()));
+            }
+            sargable.warnings().forEach(rewrite::warn);
+        } catch (JSQLParserException e) {
+            log.warn("可索引化改写时解析 SQL 失败，保留原始 SQL: {}", sql, e);
+        }
+        return rewrite;
+    }
+
+    /**
+     * 问题需要的列：业务规则要求的列，以及列名或列注释在问题中出现的列，按表结构中的顺序排列
+     * 一列都没有命中的表不出现在结果中，它的 * 会保持原样
+     *
+     * @param query  问题
+     * @param match  业务规则命中结果
+     * @param tables 选中的表
+     */
+    public Map<String, List<String>> selectColumns(String query, RuleMatch match, Collection<String> tables) {
+        String dataSource = SchemaCatalogService.currentDataSource();
+        String lowerQuery = query == null ? "" : query.toLowerCase(Locale.ROOT);
+        Map<String, List<String>> columnsByTable = new LinkedHashMap<>();
+        for (String table : tables) {
+            Set<String> required = Set.copyOf(match.getRequiredColumns(table));
+            List<String> columns = new ArrayList<>();
+            for (ColumnInfo column : schemaCatalogService.getColumns(dataSource, table)) {
+                if (required.contains(column.name())
+                        || lowerQuery.contains(column.name().toLowerCase(Locale.ROOT))
+                        || column.commentMatchLength(query) >= MIN_COMMENT_MATCH) {
+                    columns.add(column.name());
+                }
+            }
+            if (!columns.isEmpty()) {
+                columnsByTable.put(table.toLowerCase(Locale.ROOT), columns);
+            }
+        }
+        return columnsByTable;
+    }
+}
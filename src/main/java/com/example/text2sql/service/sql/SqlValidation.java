@@ -0,0 +1,26 @@
+package com.example.text2sql.service.sql;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * SQL 校验结果
+ */
+@Data
+@AllArgsConstructor
+public class SqlValidation {
+
+    private boolean valid;
+
+    private String message;
+
+    private SqlAnalysis analysis;
+
+    public static SqlValidation valid(SqlAnalysis analysis) {
+        return new SqlValidation(true, null, analysis);
+    }
+
+    public static SqlValidation invalid(String message, SqlAnalysis analysis) {
+        return new SqlValidation(false, message, analysis);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.text2sql.service.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+
+/**
+ * 只读、单向滚动的查询语句，按 fetchSize 逐批取行；实现 SqlProvider 让耗时追踪记录 SQL
+ * MySQL Connector/J 取 Integer.MIN_VALUE 时逐行流式读取，不把整个结果集读入内存
+ *
+ * @param sql          查询语句
+ * @param fetchSize    JDBC fetchSize
+ * @param queryTimeout 语句执行超时（秒），0 表示不限
+ * @param onCreate     语句创建后回调，调用方借此在其他线程取消语句
+ */
+public record StreamingStatement(String sql, int fetchSize, int queryTimeout, Consumer<PreparedStatement> onCreate)
+        implements PreparedStatementCreator, SqlProvider {
+
+    public StreamingStatement(String sql, int fetchSize) {
+        this(sql, fetchSize, 0, statement -> {
+        });
+    }
+
+    @Override
+    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        if (queryTimeout > 0) {
+            statement.setQueryTimeout(queryTimeout);
+        }
+        onCreate.accept(statement);
+        return statement;
+    }
+
+    @Override
+    public String getSql() {
+        return sql;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.text2sql.service.step;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * 步骤3结构化输出：查询字段、筛选条件、关联、分组、排序和结果限制
+ * 步骤4只拿到 {@link #compact()} 的一行摘要，不再带上整段说明文字
+ *
+ * @param columns  需要查询的字段
+ * @param filters  筛选条件，每项一个 WHERE 条件
+ * @param joins    表关联说明
+ * @param grouping 分组统计说明
+ * @param ordering 排序说明
+ * @param limit    结果条数上限
+ * @param purpose  查询的业务含义
+ */
+public record InformationInference(
+        @JsonPropertyDescription("需要查询的字段名，多表时写成 表名.字段名")
+        List<String> columns,
+        @JsonPropertyDescription("筛选条件，每项一个 WHERE 条件，取值与表统计中的实际取值一致；没有条件时为空数组")
+        List<String> filters,
+        @JsonPropertyDescription("表关联条件，单表时为 单表查询")
+        String joins,
+        @JsonPropertyDescription("GROUP BY 和聚合说明，不需要时为 无")
+        String grouping,
+        @JsonPropertyDescription("ORDER BY 说明，不需要时为 无")
+        String ordering,
+        @JsonPropertyDescription("结果条数上限，最多 1000")
+        Integer limit,
+        @JsonPropertyDescription("一句话说明查询的业务含义")
+        String purpose) {
+
+    /**
+     * 传给步骤4的一行摘要，空项省略
+     */
+    public String compact() {
+        StringJoiner summary = new StringJoiner("；");
+        add(summary, "字段", columns == null ? null : String.join(", ", columns));
+        add(summary, "筛选", filters == null ? null : String.join(" AND ", filters));
+        add(summary, "关联", joins);
+        add(summary, "分组", grouping);
+        add(summary, "排序", ordering);
+        add(summary, "限制", limit == null ? null : String.valueOf(limit));
+        return summary.length() == 0 ? "无" : summary.toString();
+    }
+
+    /**
+     * 页面展示的文本
+     */
+    public String describe() {
+        return "信息推理，本次推理参考业务信息是：\n\n"
+                + "- 需要查询的字段：" + orDefault(columns == null ? null : String.join(", ", columns), "全部字段") + "\n"
+                + "- 筛选条件：" + orDefault(filters == null ? null : String.join(" AND ", filters), "无特定筛选条件") + "\n"
+                + "- 表关联关系：" + orDefault(joins, "单表查询，无需表关联") + "\n"
+                + "- 排序规则：" + orDefault(ordering, "无") + "\n"
+                + "- 分组统计：" + orDefault(grouping, "无需分组统计") + "\n"
+                + "- 结果限制：" + (limit == null ? "无" : "LIMIT " + limit) + "\n"
+                + "- 业务含义：" + orDefault(purpose, "无");
+    }
+
+    private static void add(StringJoiner summary, String label, String value) {
+        if (value != null && !value.isBlank() && !"无".equals(value.trim())) {
+            summary.add(label + ": " + value.trim());
+        }
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.text2sql.service.step;
+
+import com.example.text2sql.service.schema.JoinPlan;
+import com.example.text2sql.service.temporal.TemporalPredicate;
+
+/**
+ * 步骤3到5共用的查询上下文，由规则匹配结果和选中的表求出，不调用模型
+ *
+ * @param temporalPredicate 可走索引的时间条件，问题中没有时间范围或找不到日期列时为 null
+ * @param joinPlan          选中表之间的最小关联方案
+ * @param businessRules     提供给步骤3的业务规则参考
+ */
+public record QueryContext(TemporalPredicate temporalPredicate, JoinPlan joinPlan, String businessRules) {
+
+    /**
+     * 页面展示的文本
+     */
+    public String describe() {
+        return "查询上下文，业务规则参考为：" + businessRules;
+    }
+}
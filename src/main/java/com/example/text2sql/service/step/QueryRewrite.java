@@ -0,0 +1,39 @@
+package com.example.text2sql.service.step;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * 步骤1结构化输出：问题是否为数据库查询，以及改写后的查询描述
+ * 后续步骤只使用 rewrittenQuery，不再传递整段回复
+ *
+ * @param verdict        判断结果
+ * @param rewrittenQuery 改写后的查询描述，不是数据库查询时为空
+ */
+public record QueryRewrite(
+        @JsonPropertyDescription("判断结果：DATABASE_QUERY 为与现有表相关的数据库查询，NOT_DATABASE_QUERY 为非数据库查询，NO_RELEVANT_TABLE 为数据库中没有相关的表")
+        Verdict verdict,
+        @JsonPropertyDescription("改写后的查询描述，判断结果不是 DATABASE_QUERY 时为空字符串")
+        String rewrittenQuery) {
+
+    public enum Verdict { DATABASE_QUERY, NOT_DATABASE_QUERY, NO_RELEVANT_TABLE }
+
+    /**
+     * 是否继续后续步骤：判断为数据库查询且给出了改写结果
+     */
+    public boolean accepted() {
+        return verdict == Verdict.DATABASE_QUERY && rewrittenQuery != null && !rewrittenQuery.isBlank();
+    }
+
+    /**
+     * 页面展示的文本
+     */
+    public String describe() {
+        if (verdict == Verdict.NO_RELEVANT_TABLE) {
+            return "提示：当前数据库中没有相关的业务表";
+        }
+        if (!accepted()) {
+            return "提示：请输入与数据库查询相关的问题";
+        }
+        return "问题改写，改写为：" + rewrittenQuery.trim();
+    }
+}
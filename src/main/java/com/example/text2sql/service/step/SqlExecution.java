@@ -0,0 +1,51 @@
+package com.example.text2sql.service.step;
+
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 步骤5输出：SQL 执行结果
+ * SQL 由服务直接执行，不再让模型调用工具后把结果重新排版成表格
+ *
+ * @param rowCount 返回行数
+ * @param rows     查询结果
+ */
+public record SqlExecution(int rowCount, List<Map<String, Object>> rows) {
+
+    /**
+     * 页面上最多展示的行数
+     */
+    private static final int MAX_DISPLAY_ROWS = 100;
+
+    public static SqlExecution of(List<Map<String, Object>> rows) {
+        return new SqlExecution(rows.size(), rows);
+    }
+
+    /**
+     * 页面展示的文本：第一行为执行结果，其后为 Markdown 表格
+     */
+    public String describe() {
+        return "执行成功，找到 " + rowCount + " 条记录\n\n" + toMarkdownTable();
+    }
+
+    private String toMarkdownTable() {
+        if (rows.isEmpty()) {
+            return "无查询结果";
+        }
+        List<String> columns = List.copyOf(rows.get(0).keySet());
+        StringBuilder table = new StringBuilder();
+        table.append(markdownRow(columns)).append('\n');
+        table.append(markdownRow(columns.stream().map(column -> "---").toList())).append('\n');
+        for (Map<String, Object> row : rows.subList(0, Math.min(rows.size(), MAX_DISPLAY_ROWS))) {
+            table.append(markdownRow(columns.stream().map(column -> String.valueOf(row.get(column))).toList())).append('\n');
+        }
+        return table.toString().trim();
+    }
+
+    private static String markdownRow(List<String> cells) {
+        StringJoiner row = new StringJoiner(" | ", "| ", " |");
+        cells.forEach(cell -> row.add(cell.replace("|", "\\|").replace("\n", " ")));
+        return row.toString();
+    }
+}
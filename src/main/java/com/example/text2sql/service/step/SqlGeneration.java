@@ -0,0 +1,24 @@
+package com.example.text2sql.service.step;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * 步骤4结构化输出：生成的 SQL 和简短说明
+ *
+ * @param sql         SELECT 语句
+ * @param explanation 查询目的和关键逻辑
+ */
+public record SqlGeneration(
+        @JsonPropertyDescription("一条 MySQL SELECT 语句，不含代码块标记和注释")
+        String sql,
+        @JsonPropertyDescription("一两句话说明查询目的和关键的筛选、关联、排序逻辑")
+        String explanation) {
+
+    /**
+     * 页面展示的文本
+     */
+    public String describe() {
+        String description = "查询SQL生成，生成SQL查询语句为：\n\n```sql\n" + (sql == null ? "" : sql.trim()) + "\n```";
+        return explanation == null || explanation.isBlank() ? description : description + "\n\n> " + explanation.trim();
+    }
+}
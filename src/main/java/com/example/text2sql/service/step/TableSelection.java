@@ -0,0 +1,22 @@
+package com.example.text2sql.service.step;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * 步骤2结构化输出：选中的表
+ *
+ * @param tables 表名，按查询的主次排列
+ */
+public record TableSelection(
+        @JsonPropertyDescription("选中的表名，只填写数据库中实际存在的表")
+        List<String> tables) {
+
+    /**
+     * 页面展示的文本
+     */
+    public String describe() {
+        return "数据表选取，选择表为：" + String.join(", ", tables == null ? List.of() : tables);
+    }
+}
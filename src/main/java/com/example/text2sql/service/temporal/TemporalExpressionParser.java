@@ -0,0 +1,394 @@
+package com.example.text2sql.service.temporal;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 中文时间表达式解析
+ * 支持绝对日期、年/季度/月/周/日、相对时间（今年、上季度、上周、昨天）、滚动窗口（近3个月）、
+ * 至今类表达式（本月至今、年初至今、2024年以来）、上下半年、中文数字以及“A到B”形式的区间，
+ * 统一输出左闭右开的 {@link TemporalRange}
+ */
+public final class TemporalExpressionParser {
+
+    /**
+     * 年份前缀：2024年 / 今年 / 去年 ...
+     */
+    private static final String YEAR = "(?:(\\d{4})年|(今年|本年|去年|前年|大前年|明年))";
+
+    private static final Pattern FULL_DATE = Pattern.compile("(\\d{4})[年\\-/.](\\d{1,2})[月\\-/.](\\d{1,2})[日号]?");
+    private static final Pattern MONTH_DAY = Pattern.compile(YEAR + "?(\\d{1,2})月(\\d{1,2})[日号]");
+    private static final Pattern MONTH = Pattern.compile(YEAR + "?(\\d{1,2})月份?");
+    private static final Pattern QUARTER = Pattern.compile(YEAR + "?(?:第([1-4])季度?|([1-4])季度|[qQ]([1-4]))");
+    private static final Pattern HALF_YEAR = Pattern.compile(YEAR + "?([上下])半年");
+    private static final Pattern YEAR_ONLY = Pattern.compile(YEAR);
+    private static final Pattern RELATIVE_QUARTER = Pattern.compile("(本|这个?|当|上个?|下个?)季度?");
+    private static final Pattern RELATIVE_MONTH = Pattern.compile("(本|这个?|当|上上个?|上个?|下个?)月");
+    private static final Pattern RELATIVE_WEEK = Pattern.compile("(本|这个?|上上个?|上个?|下个?)(?:周|星期|礼拜)");
+    private static final Pattern RELATIVE_DAY = Pattern.compile("今天|今日|昨天|昨日|前天|明天");
+    private static final Pattern ROLLING = Pattern.compile("(?:近|最近|过去|前)(\\d+)(个?月|个?季度|年|周|个?星期|天|日)");
+    private static final Pattern ROLLING_HALF_YEAR = Pattern.compile("(?:近|最近|过去)半年");
+    private static final Pattern PERIOD_START = Pattern.compile("(?:本|今|这个?)?(年|季|月|周)初");
+
+    /**
+     * 区间连接词
+     */
+    private static final Pattern RANGE_CONNECTOR = Pattern.compile("\\s*(?:到|至|~|～|-|—|－)\\s*");
+
+    /**
+     * 至今类后缀
+     */
+    private static final Pattern TO_DATE_SUFFIX = Pattern.compile("\\s*(?:至今|迄今|以来|到现在|到今天|到目前)");
+
+    private static final String CHINESE_DIGITS = "零〇一二两三四五六七八九";
+
+    /**
+     * 中文数字后面的时间单位，没有单位的数字（如“前三名”）不是时间表达式
+     */
+    private static final Pattern TIME_UNIT = Pattern.compile("个?(?:年|月|季|日|号|周|天|星期|礼拜)");
+
+    /**
+     * 中文数字前面允许出现的汉字：时间前缀、年月日的延续、区间连接词和问句中常见的介词、动词结尾，
+     * 其余汉字可能与数字组成词语（统一、万一、唯一），这时数字不是时间
+     */
+    private static final String NUMERAL_PREFIXES = "第今去上下前本近年月日号到至从自截在于和与及或的计询查看按";
+    private static final int[] CHINESE_DIGIT_VALUES = {0, 0, 1, 2, 2, 3, 4, 5, 6, 7, 8, 9};
+
+    private static final List<Rule> RULES = List.of(
+            new Rule(FULL_DATE, false, TemporalExpressionParser::fullDate),
+            new Rule(MONTH_DAY, true, TemporalExpressionParser::monthDay),
+            new Rule(MONTH, true, TemporalExpressionParser::month),
+            new Rule(QUARTER, true, TemporalExpressionParser::quarter),
+            new Rule(HALF_YEAR, true, TemporalExpressionParser::halfYear),
+            new Rule(YEAR_ONLY, false, TemporalExpressionParser::yearOnly),
+            new Rule(RELATIVE_QUARTER, false, TemporalExpressionParser::relativeQuarter),
+            new Rule(RELATIVE_MONTH, false, TemporalExpressionParser::relativeMonth),
+            new Rule(RELATIVE_WEEK, false, TemporalExpressionParser::relativeWeek),
+            new Rule(RELATIVE_DAY, false, TemporalExpressionParser::relativeDay),
+            new Rule(ROLLING, false, TemporalExpressionParser::rolling),
+            new Rule(ROLLING_HALF_YEAR, false, (matcher, today) ->
+                    new TemporalRange(today.minusMonths(6), today.plusDays(1), matcher.group())),
+            new Rule(PERIOD_START, false, TemporalExpressionParser::periodStart));
+
+    private TemporalExpressionParser() {
+    }
+
+    /**
+     * 解析问题中的第一个时间表达式
+     */
+    public static Optional<TemporalRange> parse(String text, LocalDate today) {
+        List<TemporalRange> ranges = parseAll(text, today);
+        return ranges.isEmpty() ? Optional.empty() : Optional.of(ranges.get(0));
+    }
+
+    /**
+     * 按出现顺序解析问题中的全部时间表达式，相邻且由“到/至”连接的两个表达式合并为一个区间
+     */
+    public static List<TemporalRange> parseAll(String text, LocalDate today) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        String normalized = normalizeNumerals(text);
+        List<Candidate> candidates = findCandidates(normalized, today);
+
+        List<TemporalRange> ranges = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate first = candidates.get(i);
+            LocalDate start = first.range().start();
+            LocalDate end = first.range().end();
+            int from = first.from();
+            int to = first.to();
+
+            // A 到 B
+            if (i + 1 < candidates.size()) {
+                Candidate next = candidates.get(i + 1);
+                if (RANGE_CONNECTOR.matcher(normalized.substring(to, next.from())).matches()) {
+                    // “2024年1月到3月”：区间终点没写年份时沿用起点的年份
+                    TemporalRange nextRange = next.inheritsYear()
+                            ? next.rule().resolver().apply(next.match(), LocalDate.of(start.getYear(), 1, 1))
+                            : next.range();
+                    end = nextRange.end();
+                    to = next.to();
+                    i++;
+                }
+            }
+
+            // A 至今
+            Matcher suffix = TO_DATE_SUFFIX.matcher(normalized).region(to, normalized.length());
+            if (suffix.lookingAt()) {
+                end = today.plusDays(1);
+                to = suffix.end();
+            }
+
+            if (start.isBefore(end)) {
+                ranges.add(new TemporalRange(start, end, normalized.substring(from, to)));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * 所有规则的匹配结果，重叠时保留最长的，按出现位置排序
+     */
+    private static List<Candidate> findCandidates(String text, LocalDate today) {
+        List<Candidate> all = new ArrayList<>();
+        for (Rule rule : RULES) {
+            Matcher matcher = rule.pattern().matcher(text);
+            while (matcher.find()) {
+                TemporalRange range = rule.resolver().apply(matcher, today);
+                if (range != null) {
+                    all.add(new Candidate(matcher.start(), matcher.end(), range, rule, matcher.toMatchResult()));
+                }
+            }
+        }
+
+        all.sort(Comparator.comparingInt((Candidate candidate) -> candidate.to() - candidate.from()).reversed()
+                .thenComparingInt(Candidate::from));
+        List<Candidate> selected = new ArrayList<>();
+        for (Candidate candidate : all) {
+            if (selected.stream().noneMatch(other -> candidate.from() < other.to() && other.from() < candidate.to())) {
+                selected.add(candidate);
+            }
+        }
+        selected.sort(Comparator.comparingInt(Candidate::from));
+        return selected;
+    }
+
+    /**
+     * 把中文数字转换为阿拉伯数字：三 -> 3，十二 -> 12，二十三 -> 23，二〇二四 -> 2024
+     * 只转换后面紧跟时间单位、且不与前一个汉字组成词的数字，“统一月份”“万一月底”中的“一”保持原样
+     */
+    static String normalizeNumerals(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            int end = i;
+            while (end < text.length() && isChineseNumeral(text.charAt(end))) {
+                end++;
+            }
+            if (end == i) {
+                result.append(text.charAt(i++));
+                continue;
+            }
+            boolean temporal = TIME_UNIT.matcher(text).region(end, text.length()).lookingAt()
+                    && (i == 0 || !isHan(text.charAt(i - 1)) || NUMERAL_PREFIXES.indexOf(text.charAt(i - 1)) >= 0);
+            result.append(temporal ? chineseToNumber(text.substring(i, end)) : text.substring(i, end));
+            i = end;
+        }
+        return result.toString();
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    private static boolean isChineseNumeral(char c) {
+        return CHINESE_DIGITS.indexOf(c) >= 0 || c == '十' || c == '百';
+    }
+
+    private static String chineseToNumber(String numeral) {
+        if (numeral.indexOf('十') < 0 && numeral.indexOf('百') < 0) {
+            // 逐位读法：二〇二四
+            StringBuilder digits = new StringBuilder(numeral.length());
+            for (int i = 0; i < numeral.length(); i++) {
+                digits.append(CHINESE_DIGIT_VALUES[CHINESE_DIGITS.indexOf(numeral.charAt(i))]);
+            }
+            return digits.toString();
+        }
+
+        int total = 0;
+        int current = 0;
+        for (int i = 0; i < numeral.length(); i++) {
+            char c = numeral.charAt(i);
+            if (c == '百') {
+                total += (current == 0 ? 1 : current) * 100;
+                current = 0;
+            } else if (c == '十') {
+                total += (current == 0 ? 1 : current) * 10;
+                current = 0;
+            } else {
+                current = CHINESE_DIGIT_VALUES[CHINESE_DIGITS.indexOf(c)];
+            }
+        }
+        return String.valueOf(total + current);
+    }
+
+    private static TemporalRange fullDate(MatchResult matcher, LocalDate today) {
+        LocalDate date = date(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                Integer.parseInt(matcher.group(3)));
+        return date == null ? null : new TemporalRange(date, date.plusDays(1), matcher.group());
+    }
+
+    private static TemporalRange monthDay(MatchResult matcher, LocalDate today) {
+        LocalDate date = date(year(matcher, today), Integer.parseInt(matcher.group(3)), Integer.parseInt(matcher.group(4)));
+        return date == null ? null : new TemporalRange(date, date.plusDays(1), matcher.group());
+    }
+
+    private static TemporalRange month(MatchResult matcher, LocalDate today) {
+        int month = Integer.parseInt(matcher.group(3));
+        if (month < 1 || month > 12) {
+            return null;
+        }
+        LocalDate start = LocalDate.of(year(matcher, today), month, 1);
+        return new TemporalRange(start, start.plusMonths(1), matcher.group());
+    }
+
+    private static TemporalRange quarter(MatchResult matcher, LocalDate today) {
+        String quarter = firstNonNull(matcher.group(3), matcher.group(4), matcher.group(5));
+        LocalDate start = LocalDate.of(year(matcher, today), (Integer.parseInt(quarter) - 1) * 3 + 1, 1);
+        return new TemporalRange(start, start.plusMonths(3), matcher.group());
+    }
+
+    private static TemporalRange halfYear(MatchResult matcher, LocalDate today) {
+        LocalDate start = LocalDate.of(year(matcher, today), "上".equals(matcher.group(3)) ? 1 : 7, 1);
+        return new TemporalRange(start, start.plusMonths(6), matcher.group());
+    }
+
+    private static TemporalRange yearOnly(MatchResult matcher, LocalDate today) {
+        LocalDate start = LocalDate.of(year(matcher, today), 1, 1);
+        return new TemporalRange(start, start.plusYears(1), matcher.group());
+    }
+
+    private static TemporalRange relativeQuarter(MatchResult matcher, LocalDate today) {
+        LocalDate current = today.withMonth((today.getMonthValue() - 1) / 3 * 3 + 1).withDayOfMonth(1);
+        LocalDate start = current.plusMonths(3L * offset(matcher.group(1)));
+        return new TemporalRange(start, start.plusMonths(3), matcher.group());
+    }
+
+    private static TemporalRange relativeMonth(MatchResult matcher, LocalDate today) {
+        LocalDate start = today.withDayOfMonth(1).plusMonths(offset(matcher.group(1)));
+        return new TemporalRange(start, start.plusMonths(1), matcher.group());
+    }
+
+    private static TemporalRange relativeWeek(MatchResult matcher, LocalDate today) {
+        LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate start = monday.plusWeeks(offset(matcher.group(1)));
+        return new TemporalRange(start, start.plusWeeks(1), matcher.group());
+    }
+
+    private static TemporalRange relativeDay(MatchResult matcher, LocalDate today) {
+        LocalDate day = switch (matcher.group()) {
+            case "昨天", "昨日" -> today.minusDays(1);
+            case "前天" -> today.minusDays(2);
+            case "明天" -> today.plusDays(1);
+            default -> today;
+        };
+        return new TemporalRange(day, day.plusDays(1), matcher.group());
+    }
+
+    /**
+     * 滚动窗口，包含今天：近7天 = [今天-6天, 明天)，近3个月 = [今天-3个月, 明天)
+     */
+    private static TemporalRange rolling(MatchResult matcher, LocalDate today) {
+        int amount = Integer.parseInt(matcher.group(1));
+        if (amount <= 0) {
+            return null;
+        }
+        String unit = matcher.group(2);
+        LocalDate start;
+        if (unit.endsWith("天") || unit.endsWith("日")) {
+            start = today.minusDays(amount - 1L);
+        } else if (unit.endsWith("周") || unit.endsWith("星期")) {
+            start = today.minusWeeks(amount);
+        } else if (unit.endsWith("季度")) {
+            start = today.minusMonths(3L * amount);
+        } else if (unit.endsWith("月")) {
+            start = today.minusMonths(amount);
+        } else {
+            start = today.minusYears(amount);
+        }
+        return new TemporalRange(start, today.plusDays(1), matcher.group());
+    }
+
+    /**
+     * 年初/季初/月初/周初，一般与“至今”连用
+     */
+    private static TemporalRange periodStart(MatchResult matcher, LocalDate today) {
+        LocalDate start = switch (matcher.group(1)) {
+            case "年" -> today.withDayOfYear(1);
+            case "季" -> today.withMonth((today.getMonthValue() - 1) / 3 * 3 + 1).withDayOfMonth(1);
+            case "月" -> today.withDayOfMonth(1);
+            default -> today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        };
+        return new TemporalRange(start, start.plusDays(1), matcher.group());
+    }
+
+    /**
+     * 年份前缀对应的年份，没有前缀时取今年
+     */
+    private static int year(MatchResult matcher, LocalDate today) {
+        if (matcher.group(1) != null) {
+            return Integer.parseInt(matcher.group(1));
+        }
+        String relative = matcher.group(2);
+        if (relative == null) {
+            return today.getYear();
+        }
+        return today.getYear() + switch (relative) {
+            case "去年" -> -1;
+            case "前年" -> -2;
+            case "大前年" -> -3;
+            case "明年" -> 1;
+            default -> 0;
+        };
+    }
+
+    /**
+     * 本/上/下 等相对前缀的偏移量
+     */
+    private static int offset(String prefix) {
+        if (prefix.startsWith("上上")) {
+            return -2;
+        }
+        if (prefix.startsWith("上")) {
+            return -1;
+        }
+        if (prefix.startsWith("下")) {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static LocalDate date(int year, int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        LocalDate first = LocalDate.of(year, month, 1);
+        return day > first.lengthOfMonth() ? null : first.withDayOfMonth(day);
+    }
+
+    private static String firstNonNull(String... values) {
+        for (String value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param yearPrefixed 是否以可选的年份前缀开头（第1、2组）
+     */
+    private record Rule(Pattern pattern, boolean yearPrefixed, BiFunction<MatchResult, LocalDate, TemporalRange> resolver) {
+    }
+
+    private record Candidate(int from, int to, TemporalRange range, Rule rule, MatchResult match) {
+
+        /**
+         * 没有写年份、默认取今年的表达式
+         */
+        boolean inheritsYear() {
+            return rule.yearPrefixed() && match.group(1) == null && match.group(2) == null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.text2sql.service.temporal;
+
+import java.util.List;
+
+/**
+ * 绑定到具体日期列的时间范围条件
+ *
+ * @param table  表名
+ * @param column 日期列名
+ * @param range  时间范围
+ * @param temporalColumns 表中全部日期列，SQL 已按其中任意一列筛选时不再补充条件
+ */
+public record TemporalPredicate(String table, String column, TemporalRange range, List<String> temporalColumns) {
+
+    /**
+     * 带表名限定的条件，用于提示词
+     */
+    public String toSql() {
+        return range.toPredicate(table + "." + column);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.text2sql.service.temporal;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.example.text2sql.service.schema.ColumnInfo;
+import com.example.text2sql.service.schema.SchemaCatalogService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 时间条件服务
+ * 为解析出的时间范围在选中表中找到对应的日期列，生成可走索引的范围条件
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TemporalPredicateService {
+
+    /**
+     * 没有明确指向时，这些注释关键字说明列更可能是业务发生时间
+     */
+    private static final List<String> EVENT_HINTS = List.of("创建", "下单", "订单", "交易", "支付", "发生", "日期");
+
+    /**
+     * 这些列通常不是查询的时间口径
+     */
+    private static final List<String> AUDIT_HINTS = List.of("更新", "修改", "删除");
+
+    private final SchemaCatalogService schemaCatalogService;
+
+    /**
+     * 为时间范围选择日期列
+     *
+     * @param range  时间范围，为 null 时直接返回 null
+     * @param query  问题，用于和列注释匹配
+     * @param tables 选中的表
+     * @return 绑定了日期列的条件，找不到日期列时返回 null
+     */
+    public TemporalPredicate resolve(TemporalRange range, String query, List<String> tables) {
+        if (range == null || tables.isEmpty()) {
+            return null;
+        }
+
+        String dataSource = SchemaCatalogService.currentDataSource();
+        TemporalPredicate best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (String table : tables) {
+            List<ColumnInfo> temporalColumns = schemaCatalogService.getColumns(dataSource, table).stream()
+                    .filter(ColumnInfo::isTemporal)
+                    .toList();
+            List<String> names = temporalColumns.stream().map(ColumnInfo::name).toList();
+            for (ColumnInfo column : temporalColumns) {
+                int score = score(column, query);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = new TemporalPredicate(table, column.name(), range, names);
+                }
+            }
+        }
+
+        if (best != null) {
+            log.info("时间表达式 [{}] 绑定到 {}.{}", range.expression(), best.table(), best.column());
+        }
+        return best;
+    }
+
+    /**
+     * 列注释与问题的最长公共子串越长越优先，其次是业务时间类列，审计类列最后
+     */
+    private static int score(ColumnInfo column, String query) {
+        String comment = column.comment() == null ? "" : column.comment();
+        int score = column.commentMatchLength(query) * 10;
+        if (score < 20) {
+            score = 0;
+        }
+        if (EVENT_HINTS.stream().anyMatch(comment::contains)) {
+            score += 2;
+        }
+        if (AUDIT_HINTS.stream().anyMatch(comment::contains)) {
+            score -= 5;
+        }
+        if (column.isIndexed()) {
+            score += 1;
+        }
+        return score;
+    }
+}
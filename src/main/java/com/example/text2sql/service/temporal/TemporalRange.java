@@ -0,0 +1,32 @@
+package com.example.text2sql.service.temporal;
+
+import java.time.LocalDate;
+
+/**
+ * 时间范围，左闭右开 [start, end)
+ * 生成的条件形如 {@code col >= '2024-01-01' AND col < '2024-04-01'}，对 DATE 和 DATETIME 列都成立，
+ * 且不在列上套函数，可以走索引和分区裁剪
+ *
+ * @param start      开始日期（包含）
+ * @param end        结束日期（不包含）
+ * @param expression 问题中对应的时间表达式
+ */
+public record TemporalRange(LocalDate start, LocalDate end, String expression) {
+
+    /**
+     * 生成可走索引的范围条件
+     *
+     * @param column 列引用，可以带表别名
+     */
+    public String toPredicate(String column) {
+        return column + " >= '" + start + "' AND " + column + " < '" + end + "'";
+    }
+
+    /**
+     * 便于阅读的闭区间描述
+     */
+    public String describe() {
+        LocalDate last = end.minusDays(1);
+        return last.equals(start) ? start.toString() : start + " 至 " + last;
+    }
+}
@@ -3,11 +3,16 @@ package com.example.text2sql.service.tool;
 import com.example.text2sql.config.DataSourceRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -43,13 +48,37 @@ public class DatabaseTool {
         }
     }
 
+    /**
+     * 获取当前连接的库名（不作为工具暴露给模型），获取失败时返回 null
+     */
+    public String getDatabaseName() {
+        try {
+            return dataSourceRouter.getCurrentDataSource().queryForObject("SELECT DATABASE()", String.class);
+        } catch (Exception e) {
+            log.error("获取库名失败", e);
+            return null;
+        }
+    }
+
     /**
      * 获取指定表的 schema 信息
      */
     @Tool(name = "getTableSchema", description = "获取指定表的完整结构信息，包括列定义、主键、唯一键等")
     public String getTableSchema(@ToolParam(description = "表名") String tableName) {
     	log.info("tableName: {}",tableName);
-        return getDatabaseSchema(tableName);
+        return getDatabaseSchema(List.of(tableName));
+    }
+
+    /**
+     * 一次查询获取多张表的 schema 信息，代替逐表调用 getTableSchema
+     */
+    @Tool(name = "getTablesSchema", description = "一次获取多张表的完整结构信息，需要多张表时优先使用")
+    public String getTablesSchema(@ToolParam(description = "表名列表") List<String> tableNames) {
+        log.info("tableNames: {}", tableNames);
+        if (tableNames == null || tableNames.isEmpty()) {
+            return "";
+        }
+        return getDatabaseSchema(tableNames);
     }
 
     @Tool(name = "getDatabaseSchema", description = "获取数据库中所有表的结构信息")
@@ -57,7 +86,10 @@ public class DatabaseTool {
         return getDatabaseSchema(null);
     }
 
-    private String getDatabaseSchema(String table) {
+    /**
+     * 表结构查询，tables 为 null 时查询全部表，否则只查询指定的表（按参数绑定）
+     */
+    private String getDatabaseSchema(List<String> tables) {
         // 一次查询获取所有表结构
         String sql = """
                 SELECT 
@@ -88,11 +120,13 @@ public class DatabaseTool {
                 ORDER BY t.TABLE_NAME
                 """;
 
-        if (table != null) {
-            sql = sql.replace("1=1", "t.TABLE_NAME='" + table + "'");
+        Object[] args = new Object[0];
+        if (tables != null) {
+            sql = sql.replace("1=1", "t.TABLE_NAME IN (" + String.join(", ", Collections.nCopies(tables.size(), "?")) + ")");
+            args = tables.toArray();
         }
         JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
-        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql);
+        List<Map<String, Object>> results = jdbcTemplate.queryForList(sql, args);
 
         StringBuilder schema = new StringBuilder();
         for (Map<String, Object> row : results) {
@@ -172,8 +206,125 @@ public class DatabaseTool {
         return jdbcTemplate.queryForList(sql, tableName);
     }
 
+    /**
+     * 获取当前库中所有外键关系（不作为工具暴露给模型）
+     */
+    public List<Map<String, Object>> getForeignKeys() {
+        String sql = """
+                SELECT
+                    TABLE_NAME,
+                    COLUMN_NAME,
+                    REFERENCED_TABLE_NAME,
+                    REFERENCED_COLUMN_NAME
+                FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE
+                WHERE TABLE_SCHEMA = DATABASE() AND REFERENCED_TABLE_NAME IS NOT NULL
+                ORDER BY TABLE_NAME, ORDINAL_POSITION
+                """;
+        log.info("获取数据库中的外键关系");
+        JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
+        return jdbcTemplate.queryForList(sql);
+    }
+
+    /**
+     * 获取当前库中各表的注释、行数（InnoDB 为估算值）和创建、更新时间（不作为工具暴露给模型）
+     */
+    public List<Map<String, Object>> getTableStatus() {
+        String sql = """
+                SELECT
+                    TABLE_NAME,
+                    TABLE_COMMENT,
+                    TABLE_ROWS,
+                    CREATE_TIME,
+                    UPDATE_TIME
+                FROM INFORMATION_SCHEMA.TABLES
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE'
+                """;
+        JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
+        return jdbcTemplate.queryForList(sql);
+    }
+
+    /**
+     * 获取当前库中所有列的列名和注释（不作为工具暴露给模型）
+     */
+    public List<Map<String, Object>> getColumnComments() {
+        String sql = """
+                SELECT
+                    TABLE_NAME,
+                    COLUMN_NAME,
+                    COLUMN_COMMENT
+                FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE()
+                """;
+        JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
+        return jdbcTemplate.queryForList(sql);
+    }
+
+    /**
+     * 获取当前库中所有索引及其列（不作为工具暴露给模型）
+     */
+    public List<Map<String, Object>> getIndexes() {
+        String sql = """
+                SELECT
+                    TABLE_NAME,
+                    INDEX_NAME,
+                    NON_UNIQUE,
+                    COLUMN_NAME
+                FROM INFORMATION_SCHEMA.STATISTICS
+                WHERE TABLE_SCHEMA = DATABASE()
+                ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX
+                """;
+        JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
+        return jdbcTemplate.queryForList(sql);
+    }
+
+    /**
+     * 在表的前 sampleRows 行中统计某列的取值分布，按出现次数降序，最多返回 limit 个取值（不作为工具暴露给模型）
+     * 表名和列名来自 INFORMATION_SCHEMA，按标识符转义后拼接
+     */
+    public List<Map<String, Object>> getValueCounts(String tableName, String columnName, int sampleRows, int limit) {
+        String column = quoteIdentifier(columnName);
+        String sql = "SELECT " + column + " AS VALUE, COUNT(*) AS CNT FROM (SELECT " + column + " FROM "
+                + quoteIdentifier(tableName) + " WHERE " + column + " IS NOT NULL LIMIT ?) sampled"
+                + " GROUP BY " + column + " ORDER BY CNT DESC LIMIT ?";
+        JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
+        return jdbcTemplate.queryForList(sql, sampleRows, limit);
+    }
+
+    /**
+     * 获取查询的执行计划，用于在执行前确认 SQL 能被数据库解析（不作为工具暴露给模型）
+     * 调用方需先完成只读校验
+     */
+    public List<Map<String, Object>> explain(String sql) {
+        JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
+        return jdbcTemplate.queryForList("EXPLAIN " + sql);
+    }
+
+    private static String quoteIdentifier(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
     @Tool(name = "executeQuery", description = "执行 SQL 查询并返回结果（仅支持 SELECT 查询）")
-    public List<Map<String, Object>> executeQuery(@ToolParam(description = "SQL 查询语句") String sql) {
+    public List<Map<String, Object>> executeQuery(@ToolParam(description = "SQL 查询语句") String sql,
+                                                  ToolContext toolContext) {
+        Duration remaining = ParallelToolCallingManager.remaining(toolContext.getContext());
+        if (remaining == null) {
+            return executeQuery(sql);
+        }
+        // 工具调用超出预算被取消时数据库端的查询不会随线程中断停止，用剩余预算作为查询超时
+        int timeoutSeconds = (int) Math.max(1, (remaining.toMillis() + 999) / 1000);
+        JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
+        log.info("执行 SQL 查询并返回结果（仅支持 SELECT 查询），超时 {} 秒", timeoutSeconds);
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setQueryTimeout(timeoutSeconds);
+            return statement;
+        }, new ColumnMapRowMapper());
+    }
+
+    /**
+     * 执行 SQL 查询（服务直接调用，不限制查询时间）
+     */
+    public List<Map<String, Object>> executeQuery(String sql) {
         JdbcTemplate jdbcTemplate = dataSourceRouter.getCurrentDataSource();
         log.info("执行 SQL 查询并返回结果（仅支持 SELECT 查询）");
         return jdbcTemplate.queryForList(sql);
@@ -0,0 +1,216 @@
+package com.example.text2sql.service.tool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 并行执行工具调用的 ToolCallingManager
+ * 模型在同一轮返回多个工具调用时（如分别查询三张表的结构），拆成单个调用交给 Spring AI 默认实现，
+ * 在工具线程池中并发执行，结果按调用顺序合并；线程池的任务装饰器负责传递数据源上下文
+ * 同时限制单次模型调用中的工具调用轮次和时间预算，限制由 {@link #limits} 写入工具上下文，超出时抛出 IllegalStateException 中止本次调用，
+ * 并以中断取消仍在执行的工具调用；查询类工具按 {@link #remaining} 设置 JDBC 查询超时，数据库端的查询也在预算内结束
+ */
+@Slf4j
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    /**
+     * 工具上下文中的最大工具调用轮次
+     */
+    public static final String MAX_ITERATIONS = "text2sql.tool.max-iterations";
+
+    /**
+     * 工具上下文中的截止时间（毫秒时间戳）
+     */
+    public static final String DEADLINE = "text2sql.tool.deadline";
+
+    private final ToolCallingManager delegate;
+
+    private final AsyncTaskExecutor toolExecutor;
+
+    public ParallelToolCallingManager(ToolCallingManager delegate, AsyncTaskExecutor toolExecutor) {
+        this.delegate = delegate;
+        this.toolExecutor = toolExecutor;
+    }
+
+    /**
+     * 从现在开始计算的工具调用限制，作为本次调用的工具上下文
+     */
+    public static Map<String, Object> limits(int maxIterations, Duration budget) {
+        return Map.of(MAX_ITERATIONS, maxIterations, DEADLINE, System.currentTimeMillis() + budget.toMillis());
+    }
+
+    /**
+     * 工具上下文中剩余的时间预算，没有设置预算时返回 null
+     */
+    public static Duration remaining(Map<String, Object> toolContext) {
+        if (toolContext == null || !(toolContext.get(DEADLINE) instanceof Long deadline)) {
+            return null;
+        }
+        return Duration.ofMillis(Math.max(deadline - System.currentTimeMillis(), 0));
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        Map<String, Object> toolContext = prompt.getOptions() instanceof ToolCallingChatOptions options
+                ? options.getToolContext() : Map.of();
+        checkIterations(prompt, toolContext);
+        long deadline = toolContext.get(DEADLINE) instanceof Long value ? value : Long.MAX_VALUE;
+        checkDeadline(deadline);
+
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(output -> output != null && output.hasToolCalls())
+                .findFirst()
+                .orElse(null);
+        if (assistantMessage == null || assistantMessage.getToolCalls().size() == 1) {
+            return execute(prompt, chatResponse, assistantMessage == null ? List.of() : assistantMessage.getToolCalls());
+        }
+
+        List<AssistantMessage.ToolCall> toolCalls = assistantMessage.getToolCalls();
+        log.info("并行执行 {} 个工具调用: {}", toolCalls.size(),
+                toolCalls.stream().map(AssistantMessage.ToolCall::name).toList());
+        List<Future<ToolExecutionResult>> futures = new ArrayList<>(toolCalls.size());
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            ChatResponse single = new ChatResponse(List.of(new Generation(AssistantMessage.builder()
+                    .content(assistantMessage.getText())
+                    .properties(assistantMessage.getMetadata())
+                    .toolCalls(List.of(toolCall))
+                    .build())));
+            futures.add(submit(() -> execute(prompt, single, List.of(toolCall))));
+        }
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(toolCalls.size());
+        boolean returnDirect = true;
+        for (ToolExecutionResult result : await(futures, deadline)) {
+            List<Message> history = result.conversationHistory();
+            responses.addAll(((ToolResponseMessage) history.get(history.size() - 1)).getResponses());
+            returnDirect &= result.returnDirect();
+        }
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(ToolResponseMessage.builder().responses(responses).build());
+        return ToolExecutionResult.builder()
+                .conversationHistory(conversationHistory)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    /**
+     * 交给默认实现执行，并记为请求耗时追踪中的一个 tool 节点
+     */
+    private ToolExecutionResult execute(Prompt prompt, ChatResponse chatResponse,
+                                        List<AssistantMessage.ToolCall> toolCalls) {
+        String name = String.join(",", toolCalls.stream().map(AssistantMessage.ToolCall::name).toList());
+        try (TraceSpan span = RequestTrace.span("tool", name.isEmpty() ? "tool" : name)) {
+            if (toolCalls.size() == 1) {
+                span.attribute("arguments", toolCalls.get(0).arguments());
+            }
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+    }
+
+    /**
+     * 提示词中已有的工具调用轮次加上本轮不能超过上限
+     */
+    private static void checkIterations(Prompt prompt, Map<String, Object> toolContext) {
+        if (!(toolContext.get(MAX_ITERATIONS) instanceof Integer maxIterations)) {
+            return;
+        }
+        long iteration = prompt.getInstructions().stream()
+                .filter(message -> message instanceof AssistantMessage assistant && assistant.hasToolCalls())
+                .count() + 1;
+        if (iteration > maxIterations) {
+            throw new IllegalStateException("工具调用超过 " + maxIterations + " 轮，已中止");
+        }
+    }
+
+    private static void checkDeadline(long deadline) {
+        if (System.currentTimeMillis() >= deadline) {
+            throw new IllegalStateException("工具调用超出时间预算，已中止");
+        }
+    }
+
+    /**
+     * 提交到工具线程池，线程池已满时在当前线程执行
+     * 线程池返回 FutureTask，取消时会中断执行中的工具调用
+     */
+    private Future<ToolExecutionResult> submit(Callable<ToolExecutionResult> task) {
+        try {
+            return toolExecutor.submit(task);
+        } catch (TaskRejectedException e) {
+            log.warn("工具线程池已满，在当前线程执行工具调用");
+            try {
+                return CompletableFuture.completedFuture(task.call());
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IllegalStateException("工具调用失败", ex);
+            }
+        }
+    }
+
+    /**
+     * 按调用顺序等待结果，任意一个失败、超出预算或等待被中断时取消其余调用
+     */
+    private static List<ToolExecutionResult> await(List<Future<ToolExecutionResult>> futures, long deadline) {
+        List<ToolExecutionResult> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<ToolExecutionResult> future : futures) {
+                if (deadline == Long.MAX_VALUE) {
+                    results.add(future.get());
+                } else {
+                    results.add(future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS));
+                }
+            }
+            return results;
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("工具调用超出时间预算，已中止");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待工具调用结果时被中断", e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("工具调用已被取消", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("工具调用失败", e.getCause());
+        } finally {
+            // 已完成的调用取消无效果，未完成的在工具线程中被中断
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+}
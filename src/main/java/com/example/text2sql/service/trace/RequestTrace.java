@@ -0,0 +1,126 @@
+package com.example.text2sql.service.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 单次请求的耗时追踪
+ * 控制器用 {@link #start} 开启追踪，步骤、模型调用、工具调用和 JDBC 查询用 {@link #span} 记录为当前节点的子节点；
+ * 当前节点保存在线程变量中，由线程池的任务装饰器传到工作线程。没有开启追踪时 span 返回空节点，不产生开销
+ */
+public final class RequestTrace {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final ThreadLocal<TraceSpan> CURRENT = new ThreadLocal<>();
+
+    private RequestTrace() {
+    }
+
+    /**
+     * 开启一次请求的追踪，返回根节点；关闭根节点即结束追踪
+     */
+    public static TraceSpan start(String name) {
+        TraceSpan root = new TraceSpan(null, "request", name);
+        CURRENT.set(root);
+        return root;
+    }
+
+    /**
+     * 在当前节点下开始一个子节点，并设为当前线程的节点
+     */
+    public static TraceSpan span(String type, String name) {
+        TraceSpan current = CURRENT.get();
+        if (current == null) {
+            return TraceSpan.NOOP;
+        }
+        TraceSpan child = current.child(type, name);
+        CURRENT.set(child);
+        return child;
+    }
+
+    /**
+     * 当前线程的节点，没有开启追踪时为空节点
+     */
+    public static TraceSpan current() {
+        TraceSpan current = CURRENT.get();
+        return current == null ? TraceSpan.NOOP : current;
+    }
+
+    /**
+     * 捕获提交任务时的当前节点，任务在工作线程中执行时以它为父节点
+     */
+    public static Runnable wrap(Runnable runnable) {
+        TraceSpan captured = CURRENT.get();
+        if (captured == null) {
+            return runnable;
+        }
+        return () -> {
+            TraceSpan previous = CURRENT.get();
+            CURRENT.set(captured);
+            try {
+                runnable.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    static void restore(TraceSpan closed, TraceSpan parent) {
+        if (parent == null) {
+            // 根节点关闭即结束追踪，即使有子节点未关闭也不留在线程中
+            CURRENT.remove();
+        } else if (CURRENT.get() == closed) {
+            CURRENT.set(parent);
+        }
+    }
+
+    /**
+     * 生成 Server-Timing 响应头：总耗时、根节点下的各节点，以及模型调用、工具调用和 JDBC 查询各自的累计耗时和次数
+     */
+    public static String serverTiming(TraceSpan root) {
+        StringJoiner header = new StringJoiner(", ");
+        header.add(metric("total", root.getDurationMillis(), root.getName()));
+        int index = 0;
+        for (TraceSpan child : root.getChildren()) {
+            header.add(metric(child.getType() + "-" + ++index + "-" + child.getName(), child.getDurationMillis(),
+                    child.getName()));
+        }
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        totals.put("llm", new long[2]);
+        totals.put("tool", new long[2]);
+        totals.put("jdbc", new long[2]);
+        accumulate(root, totals);
+        totals.forEach((type, total) -> {
+            if (total[1] > 0) {
+                header.add(metric(type, total[0], total[1] + " calls"));
+            }
+        });
+        return header.toString();
+    }
+
+    private static void accumulate(TraceSpan span, Map<String, long[]> totals) {
+        for (TraceSpan child : span.getChildren()) {
+            long[] total = totals.get(child.getType());
+            if (total != null && child.getDurationMillis() != null) {
+                total[0] += child.getDurationMillis();
+                total[1]++;
+            }
+            accumulate(child, totals);
+        }
+    }
+
+    private static String metric(String name, Long durationMillis, String description) {
+        String metric = name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_-]", "_")
+                + ";dur=" + (durationMillis == null ? 0 : durationMillis);
+        // 响应头只能是 ASCII，描述中的中文等字符省略
+        String desc = description == null ? "" : description.replaceAll("[^\\x20-\\x7E]", "").replace("\"", "'").trim();
+        return desc.isEmpty() ? metric : metric + ";desc=\"" + desc + "\"";
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.text2sql.service.trace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 耗时树中的一个节点：一个步骤、一次模型调用、一次工具调用或一次 JDBC 查询
+ * 由 {@link RequestTrace} 创建，关闭时记录耗时；子节点可能来自不同线程，按开始顺序排列
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class TraceSpan implements AutoCloseable {
+
+    /**
+     * 不在请求追踪中时使用的空节点，记录的内容全部丢弃
+     */
+    static final TraceSpan NOOP = new TraceSpan(null, "noop", "noop");
+
+    private final TraceSpan parent;
+
+    private final String type;
+
+    private final String name;
+
+    private final String dataSource;
+
+    private final long startNanos;
+
+    private final long rootStartNanos;
+
+    private final Map<String, Object> attributes = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private final List<TraceSpan> children = new CopyOnWriteArrayList<>();
+
+    private volatile Long durationMillis;
+
+    TraceSpan(TraceSpan parent, String type, String name) {
+        this.parent = parent;
+        this.type = type;
+        this.name = name;
+        this.dataSource = DataSourceRouter.getDataSource();
+        this.startNanos = System.nanoTime();
+        this.rootStartNanos = parent == null ? startNanos : parent.rootStartNanos;
+    }
+
+    /**
+     * 节点类型：request、stage、llm、tool、jdbc、branch（多数据源分支）、shard（分片查询）
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 开始时所在线程的数据源
+     */
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * 相对请求开始的时间（毫秒）
+     */
+    public long getStartMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(startNanos - rootStartNanos);
+    }
+
+    /**
+     * 耗时（毫秒），未结束时为 null
+     */
+    public Long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Token 数、缓存命中、返回行数等附加信息
+     */
+    public Map<String, Object> getAttributes() {
+        synchronized (attributes) {
+            return new LinkedHashMap<>(attributes);
+        }
+    }
+
+    public List<TraceSpan> getChildren() {
+        return children;
+    }
+
+    @JsonIgnore
+    TraceSpan getParent() {
+        return parent;
+    }
+
+    @JsonIgnore
+    boolean isNoop() {
+        return this == NOOP;
+    }
+
+    /**
+     * 记录附加信息，value 为 null 时忽略
+     */
+    public TraceSpan attribute(String key, Object value) {
+        if (!isNoop() && value != null) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    TraceSpan child(String type, String name) {
+        TraceSpan child = new TraceSpan(this, type, name);
+        children.add(child);
+        return child;
+    }
+
+    /**
+     * 结束计时并把当前线程的节点恢复为父节点
+     */
+    @Override
+    public void close() {
+        if (isNoop()) {
+            return;
+        }
+        if (durationMillis == null) {
+            durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+        RequestTrace.restore(this, parent);
+    }
+}
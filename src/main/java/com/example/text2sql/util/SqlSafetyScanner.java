@@ -0,0 +1,452 @@
+package com.example.text2sql.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * SQL 安全扫描器
+ * 单次遍历完成词法切分与安全检查：引号字符串、反引号标识符和注释中的内容不会被当作关键字，
+ * 关键字与系统库名通过预先构建的字典树按字符匹配，只匹配完整的标识符（updated_at 不会命中 UPDATE）。
+ * 扫描过程不分配对象，返回预先创建好的检查结果
+ */
+public final class SqlSafetyScanner {
+
+    // 危险操作黑名单
+    private static final Set<String> DANGEROUS_KEYWORDS = Set.of(
+        "DROP", "DELETE", "UPDATE", "INSERT", "ALTER", "CREATE",
+        "TRUNCATE", "EXEC", "EXECUTE", "CALL", "MERGE", "REPLACE",
+        "UNION", "INFORMATION_SCHEMA"
+    );
+
+    // 同名的字符串函数，后面紧跟括号时不视为危险操作，例如 REPLACE(name, 'a', 'b')
+    private static final Set<String> FUNCTION_KEYWORDS = Set.of("REPLACE", "INSERT");
+
+    // 系统库黑名单，作为库名限定（mysql.user）出现时拒绝
+    private static final Set<String> SYSTEM_TABLES = Set.of(
+        "information_schema", "mysql", "performance_schema",
+        "sys", "test", "tmp"
+    );
+
+    /**
+     * 检查结果类型，按优先级从高到低排列
+     */
+    public enum Reason {
+        EMPTY,
+        NOT_SELECT,
+        DANGEROUS_KEYWORD,
+        SYSTEM_TABLE,
+        INJECTION,
+        SAFE
+    }
+
+    /**
+     * 检查结果
+     */
+    public static final class Verdict {
+        private final Reason reason;
+        private final String detail;
+        private final String message;
+
+        private Verdict(Reason reason, String detail, String message) {
+            this.reason = reason;
+            this.detail = detail;
+            this.message = message;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        /**
+         * 命中的关键字或系统库名，其他类型为 null
+         */
+        public String getDetail() {
+            return detail;
+        }
+
+        /**
+         * 面向用户的错误信息
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isSafe() {
+            return reason == Reason.SAFE;
+        }
+
+        @Override
+        public String toString() {
+            return message;
+        }
+    }
+
+    public static final Verdict SAFE = new Verdict(Reason.SAFE, null, "SQL语句安全");
+    public static final Verdict EMPTY = new Verdict(Reason.EMPTY, null, "SQL语句不能为空");
+    public static final Verdict NOT_SELECT = new Verdict(Reason.NOT_SELECT, null, "只允许执行SELECT查询语句");
+    public static final Verdict INJECTION = new Verdict(Reason.INJECTION, null, "检测到SQL注入攻击模式");
+
+    // 字典树：字母不区分大小写，数字和下划线各占一个符号
+    private static final int ALPHABET_SIZE = 37;
+    private static final int NO_STATE = -1;
+
+    private static final int FLAG_SELECT = 1;
+    private static final int FLAG_LOGICAL = 1 << 1;
+    private static final int FLAG_FUNCTION = 1 << 2;
+
+    private static final int[][] TRANSITIONS;
+    private static final int[] FLAGS;
+    private static final Verdict[] DANGEROUS_VERDICTS;
+    private static final Verdict[] SYSTEM_VERDICTS;
+
+    static {
+        TrieBuilder builder = new TrieBuilder();
+        for (String keyword : DANGEROUS_KEYWORDS) {
+            int state = builder.add(keyword);
+            builder.dangerous.set(state, new Verdict(Reason.DANGEROUS_KEYWORD, keyword, "检测到危险操作: " + keyword));
+            if (FUNCTION_KEYWORDS.contains(keyword)) {
+                builder.flags.set(state, builder.flags.get(state) | FLAG_FUNCTION);
+            }
+        }
+        for (String systemTable : SYSTEM_TABLES) {
+            int state = builder.add(systemTable);
+            builder.system.set(state, new Verdict(Reason.SYSTEM_TABLE, systemTable, "禁止访问系统表: " + systemTable));
+        }
+        int select = builder.add("SELECT");
+        builder.flags.set(select, builder.flags.get(select) | FLAG_SELECT);
+        for (String logical : List.of("OR", "AND")) {
+            int state = builder.add(logical);
+            builder.flags.set(state, builder.flags.get(state) | FLAG_LOGICAL);
+        }
+
+        TRANSITIONS = builder.transitions.toArray(new int[0][]);
+        FLAGS = builder.flags.stream().mapToInt(Integer::intValue).toArray();
+        DANGEROUS_VERDICTS = builder.dangerous.toArray(new Verdict[0]);
+        SYSTEM_VERDICTS = builder.system.toArray(new Verdict[0]);
+    }
+
+    // 恒真条件检测状态：OR/AND 之后依次出现 字面量、=、相同字面量
+    private static final int TAUTOLOGY_NONE = 0;
+    private static final int TAUTOLOGY_AFTER_LOGICAL = 1;
+    private static final int TAUTOLOGY_AFTER_LEFT = 2;
+    private static final int TAUTOLOGY_AFTER_EQUALS = 3;
+
+    private SqlSafetyScanner() {
+    }
+
+    /**
+     * 扫描 SQL 并返回优先级最高的问题
+     * 优先级：非 SELECT 语句 > 危险关键字 > 系统库访问 > 注入特征
+     */
+    public static Verdict scan(CharSequence sql) {
+        if (sql == null) {
+            return EMPTY;
+        }
+
+        int length = sql.length();
+        Verdict found = SAFE;
+        boolean firstToken = true;
+        boolean statementEnded = false;
+        int tautologyState = TAUTOLOGY_NONE;
+        int leftStart = 0;
+        int leftEnd = 0;
+
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            // 块注释内容忽略，MySQL 可执行注释 /*! ... */ 视为注入
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                if (i + 2 < length && sql.charAt(i + 2) == '!') {
+                    return firstToken ? NOT_SELECT : worse(found, INJECTION);
+                }
+                int end = indexOf(sql, "*/", i + 2);
+                if (end < 0) {
+                    return firstToken ? NOT_SELECT : worse(found, INJECTION);
+                }
+                i = end + 2;
+                continue;
+            }
+
+            if (firstToken && !isIdentifierStart(c)) {
+                return NOT_SELECT;
+            }
+
+            // 行注释会截断后续语句，是典型的注入手法
+            if (c == '#' || (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-')) {
+                found = worse(found, INJECTION);
+                int end = indexOf(sql, "\n", i);
+                i = end < 0 ? length : end + 1;
+                continue;
+            }
+
+            // 分号之后还有内容，说明存在多条语句
+            if (statementEnded) {
+                found = worse(found, INJECTION);
+            }
+
+            if (c == ';') {
+                statementEnded = true;
+                tautologyState = TAUTOLOGY_NONE;
+                i++;
+                continue;
+            }
+
+            if (c == '\'' || c == '"') {
+                int end = skipQuoted(sql, i, c);
+                if (end < 0) {
+                    // 引号不闭合
+                    return worse(found, INJECTION);
+                }
+                if (tautologyState == TAUTOLOGY_AFTER_LOGICAL) {
+                    leftStart = i;
+                    leftEnd = end;
+                    tautologyState = TAUTOLOGY_AFTER_LEFT;
+                } else if (tautologyState == TAUTOLOGY_AFTER_EQUALS) {
+                    if (regionEquals(sql, leftStart, leftEnd, i, end)) {
+                        found = worse(found, INJECTION);
+                    }
+                    tautologyState = TAUTOLOGY_NONE;
+                } else {
+                    tautologyState = TAUTOLOGY_NONE;
+                }
+                i = end;
+                continue;
+            }
+
+            if (c == '`') {
+                int state = 0;
+                int j = i + 1;
+                while (j < length) {
+                    char ch = sql.charAt(j);
+                    if (ch == '`') {
+                        if (j + 1 < length && sql.charAt(j + 1) == '`') {
+                            state = NO_STATE;
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    state = advance(state, ch);
+                    j++;
+                }
+                if (j >= length) {
+                    return worse(found, INJECTION);
+                }
+                i = j + 1;
+                // 反引号中的内容只作为标识符，仅检查是否为系统库限定
+                if (state != NO_STATE && SYSTEM_VERDICTS[state] != null && nextNonWhitespace(sql, i) == '.') {
+                    found = worse(found, SYSTEM_VERDICTS[state]);
+                }
+                tautologyState = TAUTOLOGY_NONE;
+                continue;
+            }
+
+            if (Character.isDigit(c)) {
+                int start = i;
+                while (i < length && (isIdentifierPart(c = sql.charAt(i)) || c == '.')) {
+                    i++;
+                }
+                if (tautologyState == TAUTOLOGY_AFTER_LOGICAL) {
+                    leftStart = start;
+                    leftEnd = i;
+                    tautologyState = TAUTOLOGY_AFTER_LEFT;
+                } else if (tautologyState == TAUTOLOGY_AFTER_EQUALS) {
+                    if (regionEquals(sql, leftStart, leftEnd, start, i)) {
+                        found = worse(found, INJECTION);
+                    }
+                    tautologyState = TAUTOLOGY_NONE;
+                } else {
+                    tautologyState = TAUTOLOGY_NONE;
+                }
+                continue;
+            }
+
+            if (isIdentifierStart(c)) {
+                int state = 0;
+                while (i < length && isIdentifierPart(c = sql.charAt(i))) {
+                    state = advance(state, c);
+                    i++;
+                }
+
+                int flags = state == NO_STATE ? 0 : FLAGS[state];
+                if (firstToken) {
+                    if ((flags & FLAG_SELECT) == 0) {
+                        return NOT_SELECT;
+                    }
+                    firstToken = false;
+                }
+
+                if (state != NO_STATE) {
+                    Verdict dangerous = DANGEROUS_VERDICTS[state];
+                    if (dangerous != null && !((flags & FLAG_FUNCTION) != 0 && nextNonWhitespace(sql, i) == '(')) {
+                        // 危险关键字之上只有非 SELECT 一种更高优先级，已在首个标识符处检查过
+                        return dangerous;
+                    }
+                    Verdict system = SYSTEM_VERDICTS[state];
+                    if (system != null && nextNonWhitespace(sql, i) == '.') {
+                        found = worse(found, system);
+                    }
+                }
+                tautologyState = (flags & FLAG_LOGICAL) != 0 ? TAUTOLOGY_AFTER_LOGICAL : TAUTOLOGY_NONE;
+                continue;
+            }
+
+            // 运算符：只有单独的 = 参与恒真条件检测（排除 <=、>=、!=、<=>）
+            if (c == '=' && tautologyState == TAUTOLOGY_AFTER_LEFT
+                    && (i + 1 >= length || !isComparisonChar(sql.charAt(i + 1)))) {
+                tautologyState = TAUTOLOGY_AFTER_EQUALS;
+            } else if (!(c == '(' || c == ')') || tautologyState != TAUTOLOGY_AFTER_LOGICAL) {
+                tautologyState = TAUTOLOGY_NONE;
+            }
+            i++;
+        }
+
+        return firstToken ? EMPTY : found;
+    }
+
+    /**
+     * 保留优先级更高（枚举序号更小）的结果
+     */
+    private static Verdict worse(Verdict current, Verdict candidate) {
+        return candidate.reason.ordinal() < current.reason.ordinal() ? candidate : current;
+    }
+
+    private static int advance(int state, char c) {
+        if (state == NO_STATE) {
+            return NO_STATE;
+        }
+        int symbol = symbol(c);
+        if (symbol < 0) {
+            return NO_STATE;
+        }
+        int next = TRANSITIONS[state][symbol];
+        return next == 0 ? NO_STATE : next;
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        }
+        return c == '_' ? 36 : -1;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_' || c == '$' || c >= 0x80;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isComparisonChar(char c) {
+        return c == '=' || c == '<' || c == '>';
+    }
+
+    /**
+     * 跳过引号字符串，支持反斜杠转义和双写引号，返回结束引号之后的位置，不闭合时返回 -1
+     */
+    private static int skipQuoted(CharSequence sql, int start, char quote) {
+        int length = sql.length();
+        int i = start + 1;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static char nextNonWhitespace(CharSequence sql, int from) {
+        for (int i = from; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static int indexOf(CharSequence sql, String target, int from) {
+        int last = sql.length() - target.length();
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < target.length(); j++) {
+                if (sql.charAt(i + j) != target.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(CharSequence sql, int start1, int end1, int start2, int end2) {
+        if (end1 - start1 != end2 - start2) {
+            return false;
+        }
+        for (int i = 0; i < end1 - start1; i++) {
+            if (sql.charAt(start1 + i) != sql.charAt(start2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 字典树构建器，仅在类初始化时使用
+     */
+    private static final class TrieBuilder {
+        private final List<int[]> transitions = new ArrayList<>();
+        private final List<Integer> flags = new ArrayList<>();
+        private final List<Verdict> dangerous = new ArrayList<>();
+        private final List<Verdict> system = new ArrayList<>();
+
+        private TrieBuilder() {
+            newState();
+        }
+
+        private int add(String word) {
+            int state = 0;
+            for (char c : word.toUpperCase(Locale.ROOT).toCharArray()) {
+                int symbol = symbol(c);
+                if (transitions.get(state)[symbol] == 0) {
+                    transitions.get(state)[symbol] = newState();
+                }
+                state = transitions.get(state)[symbol];
+            }
+            return state;
+        }
+
+        private int newState() {
+            transitions.add(new int[ALPHABET_SIZE]);
+            flags.add(0);
+            dangerous.add(null);
+            system.add(null);
+            return transitions.size() - 1;
+        }
+    }
+}
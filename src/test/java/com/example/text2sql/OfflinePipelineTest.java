@@ -0,0 +1,329 @@
+package com.example.text2sql;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.text2sql.config.ChatProfileProperties;
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.service.AdaptiveText2SqlService;
+import com.example.text2sql.service.McpText2SqlService;
+import com.example.text2sql.service.StepBasedText2SqlService;
+import com.example.text2sql.service.Text2SqlResult;
+import com.example.text2sql.service.Text2SqlStepResult;
+import com.example.text2sql.service.chat.ChatClientProfiles;
+import com.example.text2sql.service.fanout.FanOutBranch;
+import com.example.text2sql.service.fanout.FanOutResult;
+import com.example.text2sql.service.fanout.FanOutText2SqlService;
+import com.example.text2sql.service.federation.FederatedQueryService;
+import com.example.text2sql.service.federation.FederatedResult;
+import com.example.text2sql.service.chat.ChatProfileUsage;
+import com.example.text2sql.service.checkpoint.ResumeRequest;
+import com.example.text2sql.service.route.QueryRoute;
+import com.example.text2sql.service.schema.SchemaStatisticsService;
+import com.example.text2sql.service.shard.ShardedExecution;
+import com.example.text2sql.service.shard.ShardedQueryService;
+import com.example.text2sql.service.schema.TableStatistics;
+import com.example.text2sql.service.step.SqlExecution;
+import com.example.text2sql.service.step.SqlGeneration;
+import com.example.text2sql.service.step.TableSelection;
+import com.example.text2sql.service.trace.RequestTrace;
+import com.example.text2sql.service.trace.TraceSpan;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 离线模式端到端测试：回放模型 + 嵌入式 MariaDB
+ */
+@SpringBootTest
+@ActiveProfiles("offline")
+class OfflinePipelineTest {
+
+    private static final String QUERY = "查询技术部的员工";
+
+    @Autowired
+    private McpText2SqlService mcpText2SqlService;
+
+    @Autowired
+    private StepBasedText2SqlService stepBasedText2SqlService;
+
+    @Autowired
+    private SchemaStatisticsService schemaStatisticsService;
+
+    @Autowired
+    private AdaptiveText2SqlService adaptiveText2SqlService;
+
+    @Autowired
+    private FanOutText2SqlService fanOutText2SqlService;
+
+    @Autowired
+    private FederatedQueryService federatedQueryService;
+
+    @Autowired
+    private ShardedQueryService shardedQueryService;
+
+    @Autowired
+    private DataSourceRouter dataSourceRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ChatClientProfiles chatClientProfiles;
+
+    @Autowired
+    private ChatProfileProperties chatProfileProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void clearDataSource() {
+        DataSourceRouter.clearDataSource();
+    }
+
+    @Test
+    void testMcpPipeline() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+
+        Text2SqlResult result = mcpText2SqlService.processQuery(QUERY);
+
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals(3, result.getData().size());
+    }
+
+    @Test
+    void testToolIterationLimit() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+        ChatProfileProperties.Profile mcp = chatProfileProperties.getProfiles().get(ChatClientProfiles.MCP);
+        int maxToolIterations = mcp.getMaxToolIterations();
+        // 回放脚本需要两轮工具调用
+        mcp.setMaxToolIterations(1);
+        try {
+            assertFalse(mcpText2SqlService.processQuery(QUERY).isSuccess());
+        } finally {
+            mcp.setMaxToolIterations(maxToolIterations);
+        }
+    }
+
+    @Test
+    void testStepPipeline() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+
+        Text2SqlStepResult result = stepBasedText2SqlService.processQueryWithSteps(QUERY);
+
+        assertFalse(result.getStep4SqlGeneration().isError(), result.getStep4SqlGeneration().getContent());
+        assertFalse(result.getStep5SqlExecution().isError(), result.getStep5SqlExecution().getContent());
+        assertTrue(result.getStep5SqlExecution().getContent().contains("周九"));
+        assertEquals(List.of("employees"), result.getStep2TableSelection().data(TableSelection.class).tables());
+        assertTrue(result.getStep4SqlGeneration().data(SqlGeneration.class).sql().startsWith("SELECT"));
+        assertEquals(3, result.getStep5SqlExecution().data(SqlExecution.class).rowCount());
+        assertTrue(result.getStep4SqlGeneration().getPromptVersion()
+                .matches("step4-sql-generation@\\p{XDigit}{8},step4-sql-generation-input@\\p{XDigit}{8}"));
+        assertNull(result.getStep5SqlExecution().getPromptVersion());
+        assertEquals(List.of("step1", "step2", "rules", "statistics", "context", "step3", "step4", "rewrite", "step5"),
+                result.getStages().stream().map(Text2SqlStepResult.StepResult::getStage).toList());
+        assertTrue(result.getStages().stream().allMatch(stage -> stage.getDurationMillis() != null));
+        assertTrue(assertDoesNotThrow(() -> objectMapper.writeValueAsString(result)).contains("\"step5SqlExecution\""));
+    }
+
+    @Test
+    void testRequestTiming() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+
+        TraceSpan trace = RequestTrace.start("steps");
+        try (trace) {
+            stepBasedText2SqlService.processQueryWithSteps(QUERY);
+        }
+
+        Map<String, TraceSpan> stages = trace.getChildren().stream()
+                .filter(span -> "stage".equals(span.getType()))
+                .collect(Collectors.toMap(TraceSpan::getName, span -> span));
+        assertTrue(stages.keySet().containsAll(List.of("step1", "step2", "step3", "step4", "step5")), stages.keySet().toString());
+        TraceSpan llm = stages.get("step4").getChildren().stream()
+                .filter(span -> "llm".equals(span.getType()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("step4", llm.getName());
+        assertTrue(llm.getAttributes().containsKey("promptTokens"));
+        TraceSpan query = stages.get("step5").getChildren().stream()
+                .filter(span -> "jdbc".equals(span.getType()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(3, query.getAttributes().get("rows"));
+        assertEquals(DataSourceRouter.DATASOURCE_TEXT2SQL_DB, query.getDataSource());
+        String serverTiming = RequestTrace.serverTiming(trace);
+        assertTrue(serverTiming.startsWith("total;dur="), serverTiming);
+        assertTrue(serverTiming.contains("llm;dur=") && serverTiming.contains("jdbc;dur="), serverTiming);
+    }
+
+    @Test
+    void testResumeWithEditedSql() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+        Text2SqlStepResult result = stepBasedText2SqlService.processQueryWithSteps(QUERY);
+        assertNotNull(result.getRunId());
+        Map<String, Long> callsBefore = stepCalls();
+
+        // 在另一个数据源上下文中续跑，仍使用原运行的数据源
+        DataSourceRouter.clearDataSource();
+        Text2SqlStepResult resumed = stepBasedText2SqlService.resume(result.getRunId(), new ResumeRequest(null, null,
+                null, "SELECT name FROM employees WHERE department = '技术部'"));
+
+        assertEquals(result.getRunId(), resumed.getRunId());
+        assertFalse(resumed.getStep5SqlExecution().isError(), resumed.getStep5SqlExecution().getContent());
+        assertEquals(3, resumed.getStep5SqlExecution().data(SqlExecution.class).rowCount());
+        assertEquals(result.getStep3InformationInference(), resumed.getStep3InformationInference());
+        assertEquals(callsBefore, stepCalls());
+        assertEquals(resumed, stepBasedText2SqlService.getRun(result.getRunId()));
+    }
+
+    private Map<String, Long> stepCalls() {
+        return chatClientProfiles.report().stream()
+                .filter(usage -> usage.profile().startsWith("step"))
+                .collect(Collectors.toMap(ChatProfileUsage::profile, ChatProfileUsage::calls));
+    }
+
+    @Test
+    void testChatProfiles() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+
+        Text2SqlStepResult result = stepBasedText2SqlService.processQueryWithSteps(QUERY);
+        assertFalse(result.getStep5SqlExecution().isError(), result.getStep5SqlExecution().getContent());
+
+        Map<String, ChatProfileUsage> report = chatClientProfiles.report().stream()
+                .collect(Collectors.toMap(ChatProfileUsage::profile, usage -> usage));
+        for (int step = 1; step <= 4; step++) {
+            ChatProfileUsage usage = report.get(ChatClientProfiles.step(step));
+            assertTrue(usage.calls() > 0, "step" + step);
+            assertTrue(usage.promptTokens() > 0, "step" + step);
+        }
+        assertEquals(200, report.get("step1").maxTokens());
+        assertTrue(report.get("step1").tools().isEmpty());
+        assertTrue(report.get("step3").tools().isEmpty());
+        assertTrue(report.get("step4").advisors().contains("re2"));
+        // 后续步骤的系统消息与步骤1共享表结构前缀，命中模拟的前缀缓存
+        assertTrue(report.get("step4").cachedTokens() > 0);
+        assertTrue(report.get("mcp").tools().contains("executeQuery"));
+    }
+
+    @Test
+    void testSchemaStatistics() {
+        List<TableStatistics> statistics = schemaStatisticsService.getStatistics(
+                DataSourceRouter.DATASOURCE_TEXT2SQL_DB, List.of("employees"));
+
+        assertEquals(1, statistics.size());
+        TableStatistics employees = statistics.get(0);
+        assertTrue(employees.rowCount() > 0);
+        assertTrue(employees.indexes().stream().anyMatch(index -> index.name().equals("PRIMARY")));
+        // 部门取值重复出现，记为枚举类列；姓名几乎不重复、邮箱有唯一索引，均不记录
+        assertTrue(employees.values().get("department").contains("技术部"));
+        assertFalse(employees.values().containsKey("name"));
+        assertFalse(employees.values().containsKey("email"));
+    }
+
+    @Test
+    void testAdaptiveRouting() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+
+        // 单表筛选走直连，只有步骤4和步骤5
+        Text2SqlStepResult simple = adaptiveText2SqlService.processQuery(QUERY, null);
+        assertEquals(QueryRoute.DIRECT, simple.getRoute().route());
+        assertEquals(List.of("employees"), simple.getRoute().tables());
+        assertNull(simple.getStep1ProblemRewriting());
+        assertTrue(simple.getStep5SqlExecution().getContent().contains("周九"));
+
+        // 多表关联走分步流水线
+        Text2SqlStepResult complex = adaptiveText2SqlService.processQuery("统计每个部门参与项目的员工人数", null);
+        assertEquals(QueryRoute.PIPELINE, complex.getRoute().route());
+        assertNotNull(complex.getStep1ProblemRewriting());
+    }
+
+    @Test
+    void testFanOut() {
+        TraceSpan trace = RequestTrace.start("fan-out");
+        FanOutResult result;
+        try (trace) {
+            result = fanOutText2SqlService.processQuery(QUERY,
+                    List.of(DataSourceRouter.DATASOURCE_TEXT2SQL_DB, DataSourceRouter.DATASOURCE_TICKET_BOOKING));
+        }
+
+        // 分支按请求顺序返回，各自在自己的数据源上执行
+        assertEquals(List.of(DataSourceRouter.DATASOURCE_TEXT2SQL_DB, DataSourceRouter.DATASOURCE_TICKET_BOOKING),
+                result.getBranches().stream().map(FanOutBranch::dataSource).toList());
+        FanOutBranch employees = result.getBranches().get(0);
+        assertTrue(employees.isSuccess(), String.valueOf(employees.error()));
+        assertTrue(employees.result().getStep5SqlExecution().getContent().contains("周九"));
+        assertNull(result.getBranches().get(1).error());
+        assertEquals(2, trace.getChildren().stream().filter(span -> "branch".equals(span.getType())).count());
+        assertThrows(IllegalArgumentException.class, () -> fanOutText2SqlService.processQuery(QUERY, List.of("unknown")));
+    }
+
+    @Test
+    void testFederatedJoin() {
+        FederatedResult result = federatedQueryService.processQuery("按办公地点统计员工人数",
+                List.of(DataSourceRouter.DATASOURCE_TEXT2SQL_DB, DataSourceRouter.DATASOURCE_TICKET_BOOKING));
+
+        // 员工在 text2sql-db，部门在 ticket-booking，按部门名称关联后按办公地点统计
+        assertTrue(result.isSuccess(), result.getError());
+        assertEquals(List.of(Map.of("location", "北京", "employee_count", 5L), Map.of("location", "上海", "employee_count", 3L)),
+                result.getExecution().rows());
+        assertEquals(8, result.getStats().probeRows());
+        assertEquals(5, result.getStats().buildRows());
+        assertFalse(result.getStats().spilled());
+        // 构建侧的 SELECT * 按计划用到的列裁剪
+        String buildSql = result.getPlan().sources().get(1).sql();
+        assertFalse(buildSql.contains("*"), buildSql);
+        assertTrue(buildSql.contains("location") && buildSql.contains("name"), buildSql);
+    }
+
+    @Test
+    void testShardedQuery() {
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TICKET_DISTRIBUTION);
+
+        // employees 按入职年份拆到两个库的 4 张分表，逻辑表保留全量数据用于对照
+        String rowsSql = "SELECT name, hire_date FROM employees WHERE hire_date >= '2022-01-01' ORDER BY salary DESC, name LIMIT 3";
+        ShardedExecution rows = shardedQueryService.execute(rowsSql);
+        assertEquals(List.of("ticket-booking.employees_2022", "ticket-booking.employees_2023"), rows.shards());
+        assertEquals(4, rows.totalShards());
+        assertEquals(direct(rowsSql), rows.execution().rows());
+
+        String aggregateSql = "SELECT department, COUNT(*) AS cnt, SUM(salary) AS total, AVG(salary) AS avg_salary, "
+                + "MAX(hire_date) AS latest FROM employees GROUP BY department ORDER BY cnt DESC, department";
+        ShardedExecution aggregate = shardedQueryService.execute(aggregateSql);
+        assertEquals(4, aggregate.shards().size());
+        assertEquals(direct(aggregateSql), aggregate.execution().rows());
+
+        assertThrows(IllegalArgumentException.class, () -> shardedQueryService.execute(
+                "SELECT e.name FROM employees e JOIN departments d ON d.name = e.department"));
+
+        // 直连路径同样按分片执行，不查询逻辑表
+        double shardQueries = meterRegistry.find("text2sql.shard.query").timers().stream().mapToLong(Timer::count).sum();
+        Text2SqlStepResult direct = adaptiveText2SqlService.processQuery(QUERY, QueryRoute.DIRECT);
+        assertTrue(direct.getStep5SqlExecution().getContent().contains("周九"), direct.getStep5SqlExecution().getContent());
+        assertTrue(meterRegistry.find("text2sql.shard.query").timers().stream().mapToLong(Timer::count).sum() > shardQueries);
+
+        // 分片表只在 ticket-distribution 上配置
+        DataSourceRouter.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+        assertNull(shardedQueryService.execute(rowsSql));
+    }
+
+    private List<Map<String, Object>> direct(String sql) {
+        return dataSourceRouter.getDataSourceByName(DataSourceRouter.DATASOURCE_TICKET_DISTRIBUTION).queryForList(sql);
+    }
+}
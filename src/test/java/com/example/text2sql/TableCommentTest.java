@@ -6,10 +6,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
 
 import com.example.text2sql.service.tool.DatabaseTool;
 
 @SpringBootTest
+@ActiveProfiles("offline")
 class TableCommentTest {
 
     @Autowired
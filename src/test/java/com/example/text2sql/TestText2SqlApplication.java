@@ -0,0 +1,19 @@
+package com.example.text2sql;
+
+import com.example.text2sql.offline.EmbeddedMariaDbEnvironmentPostProcessor;
+
+import org.springframework.boot.SpringApplication;
+
+/**
+ * 离线模式启动类
+ * 使用嵌入式 MariaDB 和回放模型运行完整应用，无需网络：
+ * mvn spring-boot:test-run
+ */
+public class TestText2SqlApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.from(Text2SqlApplication::main)
+                .withAdditionalProfiles(EmbeddedMariaDbEnvironmentPostProcessor.OFFLINE_PROFILE)
+                .run(args);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.text2sql.offline;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 嵌入式 MariaDB 实例
+ * 每个 JVM 只启动一次，为每个业务库建库并执行 schema.sql / data.sql 和该库的分片表脚本 shards/{库名}.sql，JVM 退出时自动停止
+ */
+@Slf4j
+public final class EmbeddedMariaDb {
+
+    /**
+     * 离线模式下创建的业务库，与 application.yml 中的三个数据源一一对应
+     */
+    public static final List<String> DATABASES = List.of("ticket_distribution", "ticket_booking", "text2sql_db");
+
+    private static final String URL_OPTIONS = "?allowMultiQueries=true&useUnicode=true&characterEncoding=UTF-8"
+            + "&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=Asia/Shanghai";
+
+    private static EmbeddedMariaDb instance;
+
+    private final DB db;
+
+    private final DBConfiguration configuration;
+
+    private EmbeddedMariaDb(DB db) {
+        this.db = db;
+        this.configuration = db.getConfiguration();
+    }
+
+    /**
+     * 启动（或复用已启动的）嵌入式数据库
+     */
+    public static synchronized EmbeddedMariaDb start() {
+        if (instance != null) {
+            return instance;
+        }
+
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        // 0 表示自动选择空闲端口
+        builder.setPort(0);
+        builder.addArg("--character-set-server=utf8mb4");
+        builder.addArg("--collation-server=utf8mb4_unicode_ci");
+        if ("root".equals(System.getProperty("user.name"))) {
+            // mariadbd 拒绝以 root 身份运行，除非显式指定
+            builder.addArg("--user=root");
+        }
+
+        try {
+            DB db = DB.newEmbeddedDB(builder.build());
+            db.start();
+            EmbeddedMariaDb embedded = new EmbeddedMariaDb(db);
+            embedded.initDatabases();
+            instance = embedded;
+            log.info("嵌入式 MariaDB 已启动，端口: {}", embedded.getPort());
+            return instance;
+        } catch (Exception e) {
+            throw new IllegalStateException("嵌入式 MariaDB 启动失败", e);
+        }
+    }
+
+    /**
+     * 立即停止数据库
+     * 短生命周期的 JVM（如 JMH 的 fork）退出时来不及执行关闭钩子，需要显式停止，否则会遗留 mariadbd 进程
+     */
+    public static synchronized void stop() {
+        if (instance == null) {
+            return;
+        }
+        try {
+            instance.db.stop();
+        } catch (Exception e) {
+            log.warn("嵌入式 MariaDB 停止失败", e);
+        }
+        instance = null;
+    }
+
+    public int getPort() {
+        return configuration.getPort();
+    }
+
+    public String getJdbcUrl(String databaseName) {
+        return "jdbc:mysql://localhost:" + getPort() + "/" + databaseName + URL_OPTIONS;
+    }
+
+    /**
+     * 建库并导入示例表结构与数据
+     * 不使用 MariaDB4j 的 createDB/source，它们依赖命令行客户端及其本地库
+     */
+    private void initDatabases() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(getJdbcUrl("mysql"), "root", "");
+             Statement statement = connection.createStatement()) {
+            for (String database : DATABASES) {
+                statement.execute("CREATE DATABASE IF NOT EXISTS `" + database
+                        + "` DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci");
+            }
+        }
+
+        for (String database : DATABASES) {
+            try (Connection connection = DriverManager.getConnection(getJdbcUrl(database), "root", "")) {
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(new ClassPathResource("schema.sql"), "UTF-8"));
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(new ClassPathResource("data.sql"), "UTF-8"));
+                ClassPathResource shards = new ClassPathResource("shards/" + database + ".sql");
+                if (shards.exists()) {
+                    ScriptUtils.executeSqlScript(connection, new EncodedResource(shards, "UTF-8"));
+                }
+            }
+        }
+    }
+}
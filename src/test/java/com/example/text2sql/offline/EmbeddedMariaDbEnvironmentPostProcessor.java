@@ -0,0 +1,49 @@
+package com.example.text2sql.offline;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.Profiles;
+
+/**
+ * 离线模式数据源配置
+ * 激活 offline 配置文件时启动嵌入式 MariaDB，并把所有数据源指向它。
+ * 需要在数据源 Bean 绑定配置之前确定端口，因此在环境准备阶段完成
+ */
+public class EmbeddedMariaDbEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    public static final String OFFLINE_PROFILE = "offline";
+
+    private static final Map<String, String> DATASOURCE_DATABASES = Map.of(
+            "spring.datasource", "ticket_distribution",
+            "spring.datasource.ticket-distribution", "ticket_distribution",
+            "spring.datasource.ticket-booking", "ticket_booking",
+            "spring.datasource.text2sql-db", "text2sql_db");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.acceptsProfiles(Profiles.of(OFFLINE_PROFILE))) {
+            return;
+        }
+
+        EmbeddedMariaDb db = EmbeddedMariaDb.start();
+        Map<String, Object> properties = new HashMap<>();
+        DATASOURCE_DATABASES.forEach((prefix, database) -> {
+            properties.put(prefix + ".jdbc-url", db.getJdbcUrl(database));
+            properties.put(prefix + ".username", "root");
+            properties.put(prefix + ".password", "");
+        });
+        environment.getPropertySources().addFirst(new MapPropertySource("embeddedMariaDb", properties));
+    }
+
+    @Override
+    public int getOrder() {
+        // 在 application-offline.yml 加载之后执行
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.text2sql.offline;
+
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 离线模式模型配置
+ * application-offline.yml 关闭了 OpenAI 自动配置，由回放模型作为唯一的 ChatModel
+ */
+@Configuration
+@Profile(EmbeddedMariaDbEnvironmentPostProcessor.OFFLINE_PROFILE)
+@EnableConfigurationProperties(ReplayChatProperties.class)
+public class OfflineChatModelConfiguration {
+
+    @Bean
+    public ReplayChatModel replayChatModel(ReplayChatProperties properties, ToolCallingManager toolCallingManager) {
+        return new ReplayChatModel(properties, toolCallingManager);
+    }
+}
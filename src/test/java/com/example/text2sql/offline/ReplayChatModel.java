@@ -0,0 +1,219 @@
+package com.example.text2sql.offline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolExecutionEligibilityPredicate;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionEligibilityPredicate;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 离线回放模型
+ * 替代 DeepSeek 接口，按配置返回预置的文本或工具调用，并模拟延迟和 Token 消耗。
+ * 工具调用与真实模型一样通过 ToolCallingManager 执行，因此会真正访问数据库
+ * 模拟模型服务的前缀缓存：系统消息与之前某次调用的系统消息相同的前缀部分计为命中缓存的 Token
+ */
+@Slf4j
+public class ReplayChatModel implements ChatModel {
+
+    private static final String MODEL_NAME = "offline-replay";
+    private static final String TOOL_RESULT_PLACEHOLDER = "{toolResult}";
+    private static final Pattern GROUP_REFERENCE = Pattern.compile("\\$(\\d)");
+
+    private final ReplayChatProperties properties;
+    private final ToolCallingManager toolCallingManager;
+    private final ToolExecutionEligibilityPredicate toolExecutionEligibilityPredicate = new DefaultToolExecutionEligibilityPredicate();
+    private final List<CompiledResponse> responses = new ArrayList<>();
+    private final Set<String> seenPrefixes = ConcurrentHashMap.newKeySet();
+
+    public ReplayChatModel(ReplayChatProperties properties, ToolCallingManager toolCallingManager) {
+        this.properties = properties;
+        this.toolCallingManager = toolCallingManager;
+        for (ReplayChatProperties.Response response : properties.getResponses()) {
+            responses.add(new CompiledResponse(response, Pattern.compile(response.getMatch(), Pattern.DOTALL)));
+        }
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        // 返回工具调用选项，ChatClient 才会把 defaultTools 注册进请求
+        return ToolCallingChatOptions.builder().build();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String promptText = prompt.getInstructions().stream()
+                .filter(message -> message instanceof SystemMessage || message instanceof UserMessage)
+                .map(Message::getText)
+                .collect(Collectors.joining("\n"));
+
+        Matcher matcher = null;
+        ReplayChatProperties.Response response = null;
+        for (CompiledResponse candidate : responses) {
+            Matcher candidateMatcher = candidate.pattern().matcher(promptText);
+            if (candidateMatcher.find()) {
+                matcher = candidateMatcher;
+                response = candidate.response();
+                break;
+            }
+        }
+        if (response == null) {
+            throw new IllegalStateException("离线回放脚本中没有匹配的响应，提示词: "
+                    + (promptText.length() > 200 ? promptText.substring(0, 200) + "..." : promptText));
+        }
+
+        // 已经发生的工具调用轮次决定本次返回第几轮响应
+        int round = (int) prompt.getInstructions().stream()
+                .filter(message -> message instanceof AssistantMessage assistant && assistant.hasToolCalls())
+                .count();
+        if (round >= response.getTurns().size()) {
+            throw new IllegalStateException("离线回放响应 " + response.getName() + " 没有第 " + (round + 1) + " 轮");
+        }
+        ReplayChatProperties.Turn turn = response.getTurns().get(round);
+        log.debug("离线回放响应: {}，第 {} 轮", response.getName(), round + 1);
+
+        simulateLatency(turn);
+
+        AssistantMessage assistantMessage;
+        String outputText;
+        if (!turn.getToolCalls().isEmpty()) {
+            List<AssistantMessage.ToolCall> toolCalls = new ArrayList<>();
+            for (int i = 0; i < turn.getToolCalls().size(); i++) {
+                ReplayChatProperties.ToolCall toolCall = turn.getToolCalls().get(i);
+                String arguments = substituteGroups(toolCall.getArguments(), matcher, true);
+                toolCalls.add(new AssistantMessage.ToolCall("call_" + round + "_" + i, "function", toolCall.getName(), arguments));
+            }
+            outputText = toolCalls.toString();
+            assistantMessage = AssistantMessage.builder().content("").toolCalls(toolCalls).build();
+        } else {
+            outputText = substituteGroups(turn.getText() != null ? turn.getText() : "", matcher, false)
+                    .replace(TOOL_RESULT_PLACEHOLDER, lastToolResult(prompt));
+            assistantMessage = new AssistantMessage(outputText);
+        }
+
+        int promptTokens = turn.getPromptTokens() != null ? turn.getPromptTokens() : estimateTokens(prompt.getContents());
+        int completionTokens = turn.getCompletionTokens() != null ? turn.getCompletionTokens() : estimateTokens(outputText);
+        int cachedTokens = Math.min(promptTokens, cachedTokens(prompt));
+        OpenAiApi.Usage nativeUsage = new OpenAiApi.Usage(completionTokens, promptTokens, promptTokens + completionTokens,
+                new OpenAiApi.Usage.PromptTokensDetails(null, cachedTokens), null);
+        ChatResponse chatResponse = new ChatResponse(List.of(new Generation(assistantMessage)),
+                ChatResponseMetadata.builder().model(MODEL_NAME)
+                        .usage(new DefaultUsage(promptTokens, completionTokens, promptTokens + completionTokens, nativeUsage))
+                        .build());
+
+        // 与真实模型一致：执行工具调用后带着工具结果再次调用模型
+        if (toolExecutionEligibilityPredicate.isToolExecutionRequired(prompt.getOptions(), chatResponse)) {
+            ToolExecutionResult toolExecutionResult = toolCallingManager.executeToolCalls(prompt, chatResponse);
+            if (toolExecutionResult.returnDirect()) {
+                return ChatResponse.builder().from(chatResponse)
+                        .generations(ToolExecutionResult.buildGenerations(toolExecutionResult))
+                        .build();
+            }
+            return call(new Prompt(toolExecutionResult.conversationHistory(), prompt.getOptions()));
+        }
+        return chatResponse;
+    }
+
+    private void simulateLatency(ReplayChatProperties.Turn turn) {
+        long millis = (turn.getLatency() != null ? turn.getLatency() : properties.getLatency()).toMillis();
+        long jitter = properties.getJitter().toMillis();
+        if (jitter > 0) {
+            millis += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("离线回放模型调用被中断", e);
+        }
+    }
+
+    /**
+     * 系统消息与之前见过的系统消息的最长公共前缀折算成 Token，没有系统消息时为 0
+     */
+    private int cachedTokens(Prompt prompt) {
+        String system = prompt.getInstructions().stream()
+                .filter(message -> message instanceof SystemMessage)
+                .map(Message::getText)
+                .collect(Collectors.joining("\n"));
+        if (system.isEmpty()) {
+            return 0;
+        }
+        int longest = 0;
+        for (String seen : seenPrefixes) {
+            int length = Math.min(seen.length(), system.length());
+            int common = 0;
+            while (common < length && seen.charAt(common) == system.charAt(common)) {
+                common++;
+            }
+            longest = Math.max(longest, common);
+        }
+        seenPrefixes.add(system);
+        return (int) (longest / properties.getCharsPerToken());
+    }
+
+    private int estimateTokens(String text) {
+        return (int) Math.ceil(text.length() / properties.getCharsPerToken());
+    }
+
+    /**
+     * 替换 $1、$2 等捕获组引用，用于工具参数时对捕获内容做 JSON 转义
+     */
+    private String substituteGroups(String template, Matcher matcher, boolean jsonEscape) {
+        Matcher reference = GROUP_REFERENCE.matcher(template);
+        StringBuilder result = new StringBuilder();
+        while (reference.find()) {
+            int group = Integer.parseInt(reference.group(1));
+            String value = group <= matcher.groupCount() && matcher.group(group) != null ? matcher.group(group).trim() : "";
+            if (jsonEscape) {
+                value = new String(JsonStringEncoder.getInstance().quoteAsString(value));
+            }
+            reference.appendReplacement(result, Matcher.quoteReplacement(value));
+        }
+        reference.appendTail(result);
+        return result.toString();
+    }
+
+    private String lastToolResult(Prompt prompt) {
+        List<Message> instructions = prompt.getInstructions();
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            if (instructions.get(i) instanceof ToolResponseMessage toolResponseMessage) {
+                return toolResponseMessage.getResponses().stream()
+                        .map(ToolResponseMessage.ToolResponse::responseData)
+                        .collect(Collectors.joining("\n"));
+            }
+        }
+        return "";
+    }
+
+    private record CompiledResponse(ReplayChatProperties.Response response, Pattern pattern) {
+    }
+}
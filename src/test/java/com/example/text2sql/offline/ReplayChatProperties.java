@@ -0,0 +1,88 @@
+package com.example.text2sql.offline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * 离线回放模型配置
+ * 按提示词内容匹配预置的多轮响应，每一轮可以是工具调用或最终文本
+ */
+@Data
+@ConfigurationProperties(prefix = "text2sql.offline.chat")
+public class ReplayChatProperties {
+
+    /**
+     * 每次模型调用的模拟延迟
+     */
+    private Duration latency = Duration.ofMillis(200);
+
+    /**
+     * 在模拟延迟基础上叠加的随机抖动上限
+     */
+    private Duration jitter = Duration.ZERO;
+
+    /**
+     * 估算 Token 数时每个 Token 对应的字符数
+     */
+    private double charsPerToken = 2.0;
+
+    /**
+     * 预置响应，按顺序匹配，第一个匹配的生效
+     */
+    private List<Response> responses = new ArrayList<>();
+
+    @Data
+    public static class Response {
+        private String name;
+
+        /**
+         * 匹配系统提示词与用户提示词的正则表达式，捕获组可在工具参数和文本中以 $1、$2 引用
+         */
+        private String match;
+
+        /**
+         * 按工具调用轮次依次返回的响应
+         */
+        private List<Turn> turns = new ArrayList<>();
+    }
+
+    @Data
+    public static class Turn {
+        /**
+         * 最终回复文本，{toolResult} 会被替换为上一轮工具返回的内容
+         */
+        private String text;
+
+        private List<ToolCall> toolCalls = new ArrayList<>();
+
+        /**
+         * 覆盖全局模拟延迟
+         */
+        private Duration latency;
+
+        /**
+         * 覆盖按字符数估算的输入 Token 数
+         */
+        private Integer promptTokens;
+
+        /**
+         * 覆盖按字符数估算的输出 Token 数
+         */
+        private Integer completionTokens;
+    }
+
+    @Data
+    public static class ToolCall {
+        private String name;
+
+        /**
+         * JSON 格式的工具参数
+         */
+        private String arguments = "{}";
+    }
+}
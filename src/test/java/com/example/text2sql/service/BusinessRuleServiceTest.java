@@ -0,0 +1,74 @@
+package com.example.text2sql.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import com.example.text2sql.config.BusinessRuleProperties;
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.service.rule.BusinessRuleRegistry;
+import com.example.text2sql.service.rule.RuleMatch;
+
+public class BusinessRuleServiceTest {
+
+    private static BusinessRuleRegistry registry(String location) {
+        BusinessRuleProperties properties = new BusinessRuleProperties();
+        properties.setLocation(location);
+        return new BusinessRuleRegistry(properties, new DefaultResourceLoader());
+    }
+
+    @Test
+    public void testEvaluate() {
+        BusinessRuleService service = new BusinessRuleService(registry("classpath:rules/"));
+
+        RuleMatch match = service.evaluate(DataSourceRouter.DATASOURCE_TEXT2SQL_DB, "统计近3年每个部门员工的薪水，取前5个");
+
+        assertNotNull(match.getTemporalRange());
+        assertEquals(List.of("需要添加ORDER BY子句进行排序", "需要添加GROUP BY子句进行分组统计", "需要添加LIMIT子句限制返回结果数量"),
+                match.getLogicHints());
+        assertEquals(List.of("salary", "department"), match.getRequiredColumns("employees"));
+        assertEquals("salary字段，使用decimal(10,2)类型存储", match.getTermExplanations().get("工资"));
+        assertEquals("数值型指标，建议使用SUM聚合函数", match.getAggregationHint());
+        assertEquals("通过employee_id字段关联员工表和项目成员表", match.getJoinRule("project_members", "employees"));
+
+        // 其他数据源只使用通用规则
+        RuleMatch common = service.evaluate(DataSourceRouter.DATASOURCE_TICKET_BOOKING, "统计每个部门员工的薪水");
+        assertTrue(common.getRequiredColumns("employees").isEmpty());
+        assertNull(common.getAggregationHint());
+    }
+
+    @Test
+    public void testReload(@TempDir Path directory) throws Exception {
+        Path ruleFile = directory.resolve("ticket-booking.yml");
+        Files.writeString(ruleFile, """
+                aggregations:
+                  - keywords: [票量]
+                    hint: 使用SUM(ticket_count)
+                """, StandardCharsets.UTF_8);
+        BusinessRuleRegistry registry = registry(directory.toUri().toString());
+        BusinessRuleService service = new BusinessRuleService(registry);
+
+        assertEquals("使用SUM(ticket_count)", service.evaluate("ticket-booking", "查询本月票量").getAggregationHint());
+
+        Files.writeString(ruleFile, """
+                aggregations:
+                  - keywords: [票量]
+                    hint: 使用COUNT(*)
+                """, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(ruleFile, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        registry.reloadIfModified();
+
+        assertEquals("使用COUNT(*)", service.evaluate("ticket-booking", "查询本月票量").getAggregationHint());
+    }
+}
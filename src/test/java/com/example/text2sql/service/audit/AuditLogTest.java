@@ -0,0 +1,158 @@
+package com.example.text2sql.service.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.util.unit.DataSize;
+
+import com.example.text2sql.config.AuditProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testWritesCompressedRecordsAndTruncatesLongBodies() throws IOException {
+        AuditProperties properties = properties();
+        properties.setMaxBodyChars(10);
+        AuditLog auditLog = new AuditLog(properties, new SimpleMeterRegistry());
+
+        Prompt prompt = new Prompt(List.of(new SystemMessage("表结构快照很长很长很长很长很长"), new UserMessage("查询订单数")));
+        ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("SELECT COUNT(*) FROM t_order"))));
+        auditLog.record("step4", prompt, response, 5_000_000, null);
+        auditLog.record("step4", prompt, null, 1_000_000, new IllegalStateException("超时"));
+        auditLog.close();
+
+        List<JsonNode> records = read();
+        assertEquals(2, records.size());
+        JsonNode first = records.get(0);
+        assertEquals("step4", first.get("profile").asText());
+        assertEquals(5, first.get("durationMillis").asLong());
+        JsonNode system = first.get("messages").get(0);
+        assertEquals("system", system.get("role").asText());
+        assertEquals(10, system.get("text").asText().length());
+        assertTrue(system.get("truncated").asBoolean());
+        assertEquals(64, system.get("sha256").asText().length());
+        JsonNode user = first.get("messages").get(1);
+        assertEquals("查询订单数", user.get("text").asText());
+        assertNull(user.get("sha256"));
+        assertEquals("SELECT COU", first.get("response").get("text").asText());
+        assertFalse(records.get(1).get("success").asBoolean());
+        assertEquals("超时", records.get(1).get("error").asText());
+    }
+
+    @Test
+    void testHashOnlyAndSampling() throws IOException {
+        AuditProperties properties = properties();
+        properties.setHashOnly(true);
+        properties.setSampleRate(0);
+        AuditLog auditLog = new AuditLog(properties, new SimpleMeterRegistry());
+
+        Prompt prompt = new Prompt(List.of(new UserMessage("查询订单数")));
+        auditLog.record("direct", prompt, null, 0, null);
+        auditLog.record("direct", prompt, null, 0, new IllegalStateException("失败"));
+        auditLog.close();
+
+        // 采样比例为 0 时只记录失败的调用
+        List<JsonNode> records = read();
+        assertEquals(1, records.size());
+        JsonNode message = records.get(0).get("messages").get(0);
+        assertNull(message.get("text"));
+        assertEquals(5, message.get("length").asInt());
+    }
+
+    @Test
+    void testRollsToNewFilesWithoutOverwriting() throws IOException {
+        AuditProperties properties = properties();
+        properties.setMaxFileSize(DataSize.ofBytes(1));
+        AuditLog auditLog = new AuditLog(properties, new SimpleMeterRegistry());
+
+        // 每条记录都超过上限，同一毫秒内连续切换文件，序号递增而不是覆盖
+        Prompt prompt = new Prompt(List.of(new UserMessage("查询订单数")));
+        for (int i = 0; i < 3; i++) {
+            auditLog.record("direct", prompt, null, 0, null);
+        }
+        auditLog.close();
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.sorted().toList();
+        }
+        assertEquals(3, files.size());
+        for (Path file : files) {
+            assertEquals(1, lines(file).size());
+        }
+    }
+
+    @Test
+    void testDisabledWritesNothing() throws IOException {
+        AuditProperties properties = properties();
+        properties.setEnabled(false);
+        AuditLog auditLog = new AuditLog(properties, new SimpleMeterRegistry());
+
+        auditLog.record("direct", new Prompt(List.of(new UserMessage("查询订单数"))), null, 0, null);
+        auditLog.close();
+
+        assertFalse(auditLog.isEnabled());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private AuditProperties properties() {
+        AuditProperties properties = new AuditProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        return properties;
+    }
+
+    private List<JsonNode> read() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.toList();
+        }
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getFileName().toString().endsWith(".jsonl.gz"));
+        return lines(files.get(0));
+    }
+
+    private List<JsonNode> lines(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().map(line -> {
+                try {
+                    return objectMapper.readTree(line);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).toList();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.text2sql.service.chat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.example.text2sql.config.HedgingProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class HedgedCallServiceTest {
+
+    private static final String PROFILE = "step4";
+
+    private final HedgingProperties properties = new HedgingProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ThreadPoolTaskExecutor executor;
+
+    private HedgedCallService service;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setInitialDelay(Duration.ofMillis(50));
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.initialize();
+        service = new HedgedCallService(properties, executor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testHedgeWinsAndCancelsSlowPrimary() throws InterruptedException {
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        Supplier<String> call = () -> {
+            if (attempts.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    primaryCancelled.countDown();
+                }
+                return "slow";
+            }
+            return "fast";
+        };
+
+        assertEquals("fast", service.call(PROFILE, call));
+        assertTrue(primaryCancelled.await(1, TimeUnit.SECONDS));
+        assertEquals(1, count("hedge-won"));
+    }
+
+    @Test
+    void testNoHedgeWithoutBudget() {
+        properties.setBudgetBurst(0);
+        properties.setBudgetRatio(0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = service.call(PROFILE, () -> {
+            attempts.incrementAndGet();
+            sleep(200);
+            return "primary";
+        });
+
+        assertEquals("primary", result);
+        assertEquals(1, attempts.get());
+        assertEquals(1, count("no-budget"));
+    }
+
+    @Test
+    void testRaceReturnsFirstAcceptedCandidate() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = service.race(PROFILE, 3, () -> {
+            int attempt = attempts.incrementAndGet();
+            sleep(attempt * 20L);
+            return attempt;
+        }, value -> value % 2 == 0);
+
+        assertEquals(0, result % 2);
+        assertEquals(1, count("accepted"));
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("text2sql.hedge.calls", "profile", PROFILE,
+                "mode", outcome.equals("accepted") ? "speculative" : "hedge", "outcome", outcome).count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
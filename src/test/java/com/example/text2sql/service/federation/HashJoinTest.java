@@ -0,0 +1,117 @@
+package com.example.text2sql.service.federation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HashJoinTest {
+
+    private static final int CUSTOMERS = 2_000;
+
+    private static final int ORDERS = 10_000;
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void testSpilledJoinMatchesInMemoryJoin() throws Exception {
+        List<String> inMemory = join(new HashJoin(Long.MAX_VALUE, 8, 3, spillDirectory), HashJoin.Type.INNER);
+        // 64KB 的上限远小于构建侧，需要溢写并重新分区
+        HashJoin spilling = new HashJoin(64 * 1024, 4, 3, spillDirectory);
+        List<String> spilled = new ArrayList<>();
+        JoinStats stats = spilling.join(customers(), List.of("id"), orders(), List.of("customer_id"), HashJoin.Type.INNER,
+                collect(spilled));
+
+        assertEquals(ORDERS, inMemory.size());
+        assertEquals(inMemory.stream().sorted().toList(), spilled.stream().sorted().toList());
+        assertTrue(stats.spilled());
+        assertTrue(stats.spilledBytes() > 0);
+        assertTrue(stats.maxSpillDepth() > 1, String.valueOf(stats));
+        assertEquals(CUSTOMERS, stats.buildRows());
+        assertEquals(ORDERS, stats.probeRows());
+        // 关联结束后删除溢写文件
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testLeftJoinKeepsUnmatchedAndNullKeys() {
+        RowSource build = rows(List.of("id", "name"), new Object[] {1L, "a"}, new Object[] {2L, "b"});
+        // 关联键类型不同（Integer、BigDecimal）时按数值比较；NULL 键不匹配
+        RowSource probe = rows(List.of("ref"), new Object[] {1}, new Object[] {new BigDecimal("2.00")},
+                new Object[] {3}, new Object[] {null});
+        for (long budget : new long[] {Long.MAX_VALUE, 1}) {
+            List<String> joined = new ArrayList<>();
+            new HashJoin(budget, 4, 2, spillDirectory).join(build, List.of("id"), probe, List.of("ref"),
+                    HashJoin.Type.LEFT, collect(joined));
+            assertEquals(List.of("1=a", "2.00=b", "3=null", "null=null"), joined.stream().sorted().toList());
+        }
+    }
+
+    @Test
+    void testStopsWhenOutputIsSatisfied() {
+        List<String> joined = new ArrayList<>();
+        JoinStats stats = new HashJoin(Long.MAX_VALUE, 4, 2, spillDirectory).join(customers(), List.of("id"), orders(),
+                List.of("customer_id"), HashJoin.Type.INNER, (probe, build) -> {
+                    joined.add(probe[0] + "=" + build[1]);
+                    return joined.size() < 10;
+                });
+
+        assertEquals(10, joined.size());
+        assertTrue(stats.probeRows() < ORDERS);
+        assertFalse(stats.spilled());
+    }
+
+    private List<String> join(HashJoin hashJoin, HashJoin.Type type) {
+        List<String> joined = new ArrayList<>();
+        hashJoin.join(customers(), List.of("id"), orders(), List.of("customer_id"), type, collect(joined));
+        return joined;
+    }
+
+    private static HashJoin.Output collect(List<String> joined) {
+        return (probe, build) -> {
+            joined.add(probe[0] + "=" + (build == null ? null : build[1]));
+            return true;
+        };
+    }
+
+    private static RowSource customers() {
+        return handler -> {
+            handler.columns(List.of("id", "name"));
+            for (long id = 0; id < CUSTOMERS; id++) {
+                handler.row(new Object[] {id, "customer-" + id});
+            }
+        };
+    }
+
+    private static RowSource orders() {
+        return handler -> {
+            handler.columns(List.of("order_id", "customer_id"));
+            for (int id = 0; id < ORDERS; id++) {
+                if (!handler.row(new Object[] {"order-" + id, id % CUSTOMERS})) {
+                    return;
+                }
+            }
+        };
+    }
+
+    private static RowSource rows(List<String> columns, Object[]... rows) {
+        return handler -> {
+            handler.columns(columns);
+            for (Object[] row : rows) {
+                handler.row(row);
+            }
+        };
+    }
+}
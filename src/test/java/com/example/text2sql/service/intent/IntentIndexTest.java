@@ -0,0 +1,41 @@
+package com.example.text2sql.service.intent;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class IntentIndexTest {
+
+    private static final double REJECT_BELOW = 0.2;
+
+    private final IntentIndex index = IntentIndex.build(
+            List.of("employees", "员工信息表", "员工", "部门", "工资", "入职"), List.of(), List.of());
+
+    @Test
+    void testRejectsChitChatAndOutOfDomain() {
+        assertTrue(index.evaluate("你好", REJECT_BELOW).rejected());
+        assertTrue(index.evaluate("今天天气怎么样？", REJECT_BELOW).rejected());
+        assertTrue(index.evaluate("帮我用 Python 写一个排序算法", REJECT_BELOW).rejected());
+        assertTrue(index.evaluate("asdf", REJECT_BELOW).rejected());
+    }
+
+    @Test
+    void testPassesDatabaseAndAmbiguousQuestions() {
+        assertFalse(index.evaluate("查询技术部的员工", REJECT_BELOW).rejected());
+        assertFalse(index.evaluate("employees 表里有多少人", REJECT_BELOW).rejected());
+        // 没有 Schema 术语但有查询意图，交给模型判断
+        assertFalse(index.evaluate("技术部有谁", REJECT_BELOW).rejected());
+        // 问候后跟着真正的问题
+        assertFalse(index.evaluate("你好，帮我查询工资最高的员工", REJECT_BELOW).rejected());
+    }
+
+    @Test
+    void testSchemaTermsTakePriorityOverNoiseKeywords() {
+        IntentIndex weatherIndex = IntentIndex.build(List.of("天气"), List.of(), List.of());
+
+        assertFalse(weatherIndex.evaluate("上周的天气", REJECT_BELOW).rejected());
+    }
+}
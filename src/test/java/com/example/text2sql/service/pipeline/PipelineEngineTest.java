@@ -0,0 +1,138 @@
+package com.example.text2sql.service.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.example.text2sql.config.PipelineProperties;
+import com.example.text2sql.service.Text2SqlStepResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PipelineEngineTest {
+
+    private final PipelineProperties properties = new PipelineProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ThreadPoolTaskExecutor executor;
+
+    private PipelineEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.initialize();
+        engine = new PipelineEngine(executor, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testIndependentStagesRunConcurrently() {
+        // a 和 b 互相等待对方开始，顺序执行时会超时失败
+        CountDownLatch started = new CountDownLatch(2);
+        PipelineDefinition pipeline = PipelineDefinition.of("test",
+                PipelineStage.of("a", run -> awaitBoth(started, "a")),
+                PipelineStage.of("b", run -> awaitBoth(started, "b")),
+                PipelineStage.of("c", run -> Text2SqlStepResult.StepResult.success(
+                        run.output("a", String.class) + run.output("b", String.class)), "a", "b"));
+
+        List<Text2SqlStepResult.StepResult> results = engine.execute(pipeline, new PipelineRun("q", List.of()));
+
+        assertEquals(List.of("a", "b", "c"), results.stream().map(Text2SqlStepResult.StepResult::getStage).toList());
+        assertTrue(results.stream().noneMatch(Text2SqlStepResult.StepResult::isError));
+        assertEquals("ab", results.get(2).getContent());
+    }
+
+    @Test
+    void testFailedStageSkipsDependents() {
+        AtomicInteger dependentRuns = new AtomicInteger();
+        PipelineDefinition pipeline = PipelineDefinition.of("test",
+                PipelineStage.of("a", run -> {
+                    throw new IllegalStateException("boom");
+                }),
+                PipelineStage.of("b", run -> {
+                    dependentRuns.incrementAndGet();
+                    return Text2SqlStepResult.StepResult.success("b");
+                }, "a"),
+                PipelineStage.of("c", run -> Text2SqlStepResult.StepResult.success("c")));
+        PipelineRun run = new PipelineRun("q", List.of());
+
+        List<Text2SqlStepResult.StepResult> results = engine.execute(pipeline, run);
+
+        assertEquals(List.of("a", "c"), results.stream().map(Text2SqlStepResult.StepResult::getStage).toList());
+        assertTrue(run.result("a").isError());
+        assertNull(run.result("b"));
+        assertEquals(0, dependentRuns.get());
+    }
+
+    @Test
+    void testCompletedAndCachedStagesAreNotRerun() {
+        PipelineProperties.StageCache cache = new PipelineProperties.StageCache();
+        cache.setMaximumSize(10);
+        properties.getCache().put("b", cache);
+        AtomicInteger runs = new AtomicInteger();
+        PipelineDefinition pipeline = PipelineDefinition.of("test",
+                PipelineStage.of("a", run -> {
+                    throw new IllegalStateException("已有结果的阶段不应执行");
+                }),
+                PipelineStage.of("b", run -> {
+                    runs.incrementAndGet();
+                    return Text2SqlStepResult.StepResult.success("b", run.output("a", String.class));
+                }, "a").cached(run -> run.output("a", String.class)));
+
+        engine.execute(pipeline, new PipelineRun("q", List.of(completed("a", "input"))));
+        engine.execute(pipeline, new PipelineRun("q", List.of(completed("a", "input"))));
+        PipelineRun run = new PipelineRun("q", List.of(completed("a", "input")));
+        engine.execute(pipeline, run);
+
+        assertEquals(1, runs.get());
+        assertTrue(run.result("b").isCached());
+        assertFalse(run.result("b").isError());
+        assertEquals(2, meterRegistry.get(PipelineEngine.STAGE_TIMER).tag("stage", "b").tag("outcome", "cached")
+                .timer().count());
+    }
+
+    @Test
+    void testDependencyMustBeDeclaredFirst() {
+        assertThrows(IllegalArgumentException.class, () -> PipelineDefinition.of("test",
+                PipelineStage.of("b", run -> null, "a"),
+                PipelineStage.of("a", run -> null)));
+    }
+
+    private static Text2SqlStepResult.StepResult completed(String stage, Object data) {
+        Text2SqlStepResult.StepResult result = Text2SqlStepResult.StepResult.success(stage, data);
+        result.setStage(stage);
+        return result;
+    }
+
+    private static Text2SqlStepResult.StepResult awaitBoth(CountDownLatch started, String output) {
+        started.countDown();
+        try {
+            if (!started.await(5, TimeUnit.SECONDS)) {
+                return Text2SqlStepResult.StepResult.error("未与另一阶段并发执行");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Text2SqlStepResult.StepResult.error("被中断");
+        }
+        return Text2SqlStepResult.StepResult.success(output, output);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.text2sql.service.prompt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class CompiledPromptTest {
+
+    @Test
+    void testRendersVariablesAndKeepsLiteralBraces() {
+        CompiledPrompt prompt = CompiledPrompt.compile("demo", "问题：{userQuery}\r\n表：{tables}\n示例：{\"tables\": []}\n");
+
+        assertEquals(Set.of("userQuery", "tables"), prompt.variables());
+        assertEquals("问题：技术部有谁\n表：employees\n示例：{\"tables\": []}",
+                prompt.render(Map.of("userQuery", "技术部有谁", "tables", "employees", "unused", "x")));
+    }
+
+    @Test
+    void testMissingVariableFails() {
+        CompiledPrompt prompt = CompiledPrompt.compile("demo", "问题：{userQuery}");
+
+        assertThrows(IllegalStateException.class, () -> prompt.render(Map.of()));
+    }
+
+    @Test
+    void testVersionFollowsContent() {
+        CompiledPrompt prompt = CompiledPrompt.compile("demo", "问题：{userQuery}");
+
+        assertEquals(prompt.id(), CompiledPrompt.compile("demo", "问题：{userQuery}\n").id());
+        assertNotEquals(prompt.version(), CompiledPrompt.compile("demo", "用户问题：{userQuery}").version());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.text2sql.service.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class JoinGraphTest {
+
+    private final JoinGraph graph = JoinGraph.build(
+            List.of("employees", "departments", "projects", "project_members", "clients", "audit_logs"),
+            List.of(
+                    new JoinEdge("project_members", "employee_id", "employees", "id", false),
+                    new JoinEdge("project_members", "project_id", "projects", "id", false),
+                    new JoinEdge("employees", "department_id", "departments", "id", true),
+                    new JoinEdge("projects", "client_id", "clients", "id", true),
+                    // 推断关系与外键指向同一对表时保留外键
+                    new JoinEdge("project_members", "project_id", "projects", "id", true)));
+
+    @Test
+    public void testConnectThroughIntermediateTable() {
+        JoinPlan plan = graph.connect(List.of("employees", "projects"));
+
+        assertEquals(List.of(
+                "project_members.employee_id = employees.id",
+                "project_members.project_id = projects.id"), conditions(plan));
+        assertEquals(List.of("project_members"), plan.intermediateTables());
+        assertTrue(plan.unreachableTables().isEmpty());
+    }
+
+    @Test
+    public void testSteinerTree() {
+        JoinPlan plan = graph.connect(List.of("departments", "clients", "project_members"));
+
+        // 最小树经过 employees 和 projects，每个条件都引入一张新表
+        assertEquals(List.of(
+                "employees.department_id = departments.id",
+                "project_members.employee_id = employees.id",
+                "project_members.project_id = projects.id",
+                "projects.client_id = clients.id"), conditions(plan));
+        assertEquals(List.of("employees", "projects"), plan.intermediateTables());
+    }
+
+    @Test
+    public void testUnreachableTables() {
+        JoinPlan plan = graph.connect(List.of("employees", "audit_logs", "unknown_table", "project_members"));
+
+        assertEquals(List.of("project_members.employee_id = employees.id"), conditions(plan));
+        assertEquals(List.of("unknown_table", "audit_logs"), plan.unreachableTables());
+        assertTrue(graph.connect(List.of("employees")).isEmpty());
+    }
+
+    private static List<String> conditions(JoinPlan plan) {
+        return plan.edges().stream().map(JoinEdge::toCondition).toList();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.text2sql.service.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.text2sql.config.DataSourceRouter;
+import com.example.text2sql.config.ShardingProperties;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+
+public class ShardPlannerTest {
+
+    private final ShardedTable orders = topology().find(DataSourceRouter.DATASOURCE_TICKET_BOOKING, List.of("orders"));
+
+    /**
+     * 订单表 2024 年按月分表，前半年在订单库、后半年在本地库
+     */
+    private static ShardTopology topology() {
+        ShardingProperties.ShardRange firstHalf = new ShardingProperties.ShardRange();
+        firstHalf.setDataSource(DataSourceRouter.DATASOURCE_TICKET_BOOKING);
+        firstHalf.setTable("orders_{yyyyMM}");
+        firstHalf.setFrom(YearMonth.of(2024, 1));
+        firstHalf.setTo(YearMonth.of(2024, 6));
+        ShardingProperties.ShardRange secondHalf = new ShardingProperties.ShardRange();
+        secondHalf.setDataSource(DataSourceRouter.DATASOURCE_TEXT2SQL_DB);
+        secondHalf.setTable("orders_{yyyyMM}");
+        secondHalf.setFrom(YearMonth.of(2024, 7));
+        secondHalf.setTo(YearMonth.of(2024, 12));
+
+        ShardingProperties.ShardedTable table = new ShardingProperties.ShardedTable();
+        table.setDataSource(DataSourceRouter.DATASOURCE_TICKET_BOOKING);
+        table.setTable("orders");
+        table.setColumn("create_time");
+        table.setShards(List.of(secondHalf, firstHalf));
+        ShardingProperties properties = new ShardingProperties();
+        properties.setTables(List.of(table));
+        return new ShardTopology(properties);
+    }
+
+    private ShardPlan plan(String sql) throws Exception {
+        return ShardPlanner.plan((PlainSelect) CCJSqlParserUtil.parse(sql), Set.of("orders"), orders);
+    }
+
+    @Test
+    public void testPruneAndRewriteRows() throws Exception {
+        assertEquals(12, orders.shards().size());
+        assertEquals("orders_202401", orders.shards().get(0).table());
+        assertEquals(DataSourceRouter.DATASOURCE_TEXT2SQL_DB, orders.shards().get(11).dataSource());
+
+        ShardPlan plan = plan("SELECT id, amount AS total FROM orders WHERE create_time >= '2024-05-10' "
+                + "AND create_time < '2024-07-01 12:00:00' AND status = 'PAID' ORDER BY total DESC LIMIT 20, 10");
+
+        // 5 月、6 月和 7 月的分片，上界带时间时按天向上取整
+        assertEquals(LocalDate.of(2024, 5, 10), plan.from());
+        assertEquals(LocalDate.of(2024, 7, 2), plan.to());
+        assertEquals(List.of("orders_202405", "orders_202406", "orders_202407"),
+                plan.queries().stream().map(query -> query.shard().table()).toList());
+        // 别名换成排序表达式追加在末尾，各分片取前 offset + limit 行
+        assertEquals("SELECT id, amount AS total, amount AS __shard_sort_0 FROM `orders_202405` orders "
+                + "WHERE create_time >= '2024-05-10' AND create_time < '2024-07-01 12:00:00' AND status = 'PAID' "
+                + "ORDER BY total DESC LIMIT 30", plan.queries().get(0).sql());
+        assertEquals(new ShardPlan.Merge(false, 1, List.of(), List.of(), List.of(),
+                List.of(new ShardPlan.SortKey(0, true)), 20, 10L), plan.merge());
+
+        // 字面量在左侧、BETWEEN 和 OR 中的条件
+        assertEquals(List.of("orders_202403"), plan("SELECT id FROM orders o WHERE '2024-03-31' >= o.create_time "
+                + "AND o.create_time BETWEEN '2024-03-01' AND '2024-04-15'").queries().stream()
+                .map(query -> query.shard().table()).toList());
+        ShardPlan unbounded = plan("SELECT id FROM orders WHERE create_time < '2024-01-01' OR status = 'PAID'");
+        assertNull(unbounded.from());
+        assertEquals(12, unbounded.queries().size());
+    }
+
+    @Test
+    public void testRewriteAggregate() throws Exception {
+        ShardPlan plan = plan("SELECT status, COUNT(*) AS cnt, AVG(amount) FROM orders "
+                + "WHERE create_time >= '2024-12-01' GROUP BY status ORDER BY AVG(amount) DESC LIMIT 5");
+
+        assertEquals(1, plan.queries().size());
+        // AVG 拆成 SUM 和 COUNT，排序和截取在合并后进行
+        assertEquals("SELECT status, COUNT(*), SUM(amount), COUNT(amount) FROM `orders_202412` orders "
+                + "WHERE create_time >= '2024-12-01' GROUP BY status", plan.queries().get(0).sql());
+        ShardPlan.Merge merge = plan.merge();
+        assertTrue(merge.aggregate());
+        assertEquals(List.of(ShardPlan.Slot.VALUE, ShardPlan.Slot.COUNT, ShardPlan.Slot.AVG_SUM, ShardPlan.Slot.AVG_COUNT),
+                merge.slots());
+        assertEquals(List.of(new ShardPlan.Output("status", 0), new ShardPlan.Output("cnt", 1),
+                new ShardPlan.Output("AVG(amount)", 2)), merge.outputs());
+        assertEquals(List.of(0), merge.groupSlots());
+        assertEquals(List.of(new ShardPlan.SortKey(2, true)), merge.order());
+        assertEquals(5L, merge.limit());
+    }
+
+    @Test
+    public void testUnsupportedQueries() {
+        assertThrows(IllegalArgumentException.class, () -> ShardPlanner.plan((PlainSelect) CCJSqlParserUtil.parse(
+                "SELECT o.id FROM orders o JOIN users u ON u.id = o.user_id"), Set.of("orders", "users"), orders));
+        assertThrows(IllegalArgumentException.class, () -> plan("SELECT COUNT(DISTINCT user_id) FROM orders"));
+        assertThrows(IllegalArgumentException.class, () -> plan("SELECT status, SUM(amount) / COUNT(*) FROM orders GROUP BY status"));
+        assertThrows(IllegalArgumentException.class, () -> plan("SELECT status FROM orders GROUP BY status HAVING COUNT(*) > 1"));
+        assertThrows(IllegalArgumentException.class, () -> plan("SELECT id FROM orders WHERE amount > (SELECT AVG(amount) FROM orders)"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.text2sql.service.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.text2sql.config.SqlProperties;
+import com.example.text2sql.service.temporal.TemporalRange;
+
+public class SqlAnalyzerTest {
+
+    private static final Set<String> TABLES = Set.of("employees", "departments", "projects", "project_members");
+
+    private final SqlAnalyzer analyzer = new SqlAnalyzer(null, new SqlProperties());
+
+    @AfterEach
+    public void shutdown() {
+        analyzer.shutdown();
+    }
+
+    @Test
+    public void testParseCache() {
+        SqlAnalysis first = analyzer.analyze("SELECT name\n  FROM employees;");
+        SqlAnalysis second = analyzer.analyze("SELECT name FROM   employees");
+
+        assertSame(first, second);
+        assertEquals("SELECT name FROM employees", first.getSql());
+        assertEquals(Set.of("employees"), first.getTables());
+        // 字符串字面量中的空白不参与折叠
+        assertEquals("SELECT * FROM employees WHERE name = 'a  b'",
+                analyzer.analyze("SELECT *  FROM employees WHERE name = 'a  b'").getSql());
+    }
+
+    @Test
+    public void testValidate() {
+        assertTrue(analyzer.validate("SELECT e.name, d.name FROM employees e JOIN departments d ON e.department = d.name", TABLES).isValid());
+        assertTrue(analyzer.validate("SELECT * FROM (SELECT name FROM employees) t", TABLES).isValid());
+
+        assertFalse(analyzer.validate("DELETE FROM employees", TABLES).isValid());
+        assertFalse(analyzer.validate("SELECT * FROM employees FOR UPDATE", TABLES).isValid());
+        assertFalse(analyzer.validate("SELECT FROM WHERE", TABLES).isValid());
+
+        SqlValidation unknown = analyzer.validate("SELECT * FROM employees JOIN salaries s ON s.id = employees.id", TABLES);
+        assertFalse(unknown.isValid());
+        assertTrue(unknown.getMessage().contains("salaries"));
+
+        // 其他库的同名表不能当作本库的表放行
+        assertTrue(analyzer.validate("SELECT * FROM `Text2sql_db`.employees", TABLES, "text2sql_db").isValid());
+        assertFalse(analyzer.validate("SELECT * FROM ticket_booking.employees", TABLES, "text2sql_db").isValid());
+        assertFalse(analyzer.validate("SELECT * FROM text2sql_db.employees", TABLES).isValid());
+        // 表清单读取失败时不放行
+        assertFalse(analyzer.validate("SELECT * FROM employees", Set.of()).isValid());
+    }
+
+    @Test
+    public void testEnforceLimit() {
+        assertEquals("SELECT name FROM employees LIMIT 1000",
+                analyzer.enforceLimit(analyzer.analyze("SELECT name FROM employees")));
+        assertEquals("SELECT name FROM employees LIMIT 10",
+                analyzer.enforceLimit(analyzer.analyze("SELECT name FROM employees LIMIT 10")));
+        assertEquals("SELECT name FROM employees LIMIT 1000",
+                analyzer.enforceLimit(analyzer.analyze("SELECT name FROM employees LIMIT 50000")));
+        // 子查询中的 LIMIT 不影响最外层
+        assertEquals("SELECT * FROM (SELECT name FROM employees LIMIT 5) t LIMIT 100",
+                analyzer.enforceLimit(analyzer.analyze("SELECT * FROM (SELECT name FROM employees LIMIT 5) t"), 100));
+    }
+
+    @Test
+    public void testPruneColumns() {
+        Map<String, List<String>> columns = Map.of(
+                "employees", List.of("name", "salary"),
+                "departments", List.of("name"));
+
+        assertEquals("SELECT `name`, `salary` FROM employees WHERE salary > 100",
+                analyzer.pruneColumns(analyzer.analyze("SELECT * FROM employees WHERE salary > 100"), columns));
+        assertEquals("SELECT e.`name`, e.`salary`, d.name FROM employees e JOIN departments d ON e.department = d.name",
+                analyzer.pruneColumns(analyzer.analyze("SELECT e.*, d.name FROM employees e JOIN departments d ON e.department = d.name"), columns));
+        // 缺少列清单的表保持 * 不变
+        assertEquals("SELECT * FROM projects",
+                analyzer.pruneColumns(analyzer.analyze("SELECT * FROM projects"), columns));
+    }
+
+    @Test
+    public void testAddCondition() {
+        TemporalRange range = new TemporalRange(LocalDate.of(2025, 1, 1), LocalDate.of(2026, 1, 1), "2025年");
+
+        assertEquals("SELECT name FROM employees WHERE (department = '技术部') AND `hire_date` >= '2025-01-01' AND `hire_date` < '2026-01-01'",
+                analyzer.addCondition(analyzer.analyze("SELECT name FROM employees WHERE department = '技术部'"),
+                        "employees", "hire_date", List.of("hire_date"), range::toPredicate));
+        // 已经约束了该列时不再追加
+        String constrained = "SELECT name FROM employees WHERE YEAR(hire_date) = 2025";
+        assertEquals(constrained, analyzer.addCondition(analyzer.analyze(constrained), "employees", "hire_date",
+                List.of("hire_date"), range::toPredicate));
+        // 按同表的其他日期列筛选时不叠加第二个范围
+        String otherColumn = "SELECT name FROM employees WHERE leave_date >= '2025-06-01'";
+        assertEquals(otherColumn, analyzer.addCondition(analyzer.analyze(otherColumn), "employees", "hire_date",
+                List.of("hire_date", "leave_date"), range::toPredicate));
+    }
+}
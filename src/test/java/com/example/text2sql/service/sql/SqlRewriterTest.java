@@ -0,0 +1,75 @@
+package com.example.text2sql.service.sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.text2sql.config.SqlProperties;
+
+public class SqlRewriterTest {
+
+    private final SqlProperties properties = new SqlProperties();
+
+    private final SqlAnalyzer analyzer = new SqlAnalyzer(null, properties);
+
+    private final SqlRewriter rewriter = new SqlRewriter(analyzer, null, properties);
+
+    @AfterEach
+    public void shutdown() {
+        analyzer.shutdown();
+    }
+
+    private SqlRewrite rewrite(String sql) {
+        return rewriter.rewrite(new SqlRewrite(sql), Map.of());
+    }
+
+    @Test
+    public void testRewriteDateFunctions() {
+        assertEquals("SELECT name FROM employees WHERE hire_date >= '2025-01-01' AND hire_date < '2026-01-01'",
+                rewrite("SELECT name FROM employees WHERE YEAR(hire_date) = 2025").getSql());
+        assertEquals("SELECT name FROM employees WHERE hire_date >= '2025-03-02' AND department = '技术部'",
+                rewrite("SELECT name FROM employees WHERE DATE(hire_date) > '2025-03-01' AND department = '技术部'").getSql());
+        // 字面量在左侧
+        assertEquals("SELECT name FROM employees WHERE hire_date < '2024-01-01'",
+                rewrite("SELECT name FROM employees WHERE 2023 >= YEAR(hire_date)").getSql());
+        // OR 分支中的范围条件加括号
+        assertEquals("SELECT name FROM employees WHERE (hire_date >= '2025-03-01' AND hire_date < '2025-04-01') OR salary > 10000",
+                rewrite("SELECT name FROM employees WHERE DATE_FORMAT(hire_date, '%Y-%m') = '2025-03' OR salary > 10000").getSql());
+        assertEquals("SELECT e.name FROM employees e JOIN project_members pm ON pm.employee_id = e.id "
+                        + "WHERE pm.join_date >= '2023-01-01' AND pm.join_date < '2025-01-01'",
+                rewrite("SELECT e.name FROM employees e JOIN project_members pm ON pm.employee_id = e.id "
+                        + "WHERE YEAR(pm.join_date) BETWEEN 2023 AND 2024").getSql());
+    }
+
+    @Test
+    public void testWarnings() {
+        String sql = "SELECT name FROM employees WHERE MONTH(hire_date) = 3 AND name LIKE '%伟'";
+        SqlRewrite rewrite = rewrite(sql);
+
+        assertFalse(rewrite.isRewritten());
+        assertEquals(sql, rewrite.getSql());
+        assertEquals(2, rewrite.getWarnings().size());
+        assertTrue(rewrite.getWarnings().get(0).startsWith("MONTH(hire_date)"));
+        assertTrue(rewrite.getWarnings().get(1).contains("LIKE"));
+    }
+
+    @Test
+    public void testExpandSelectAll() {
+        SqlRewrite rewrite = rewriter.rewrite(new SqlRewrite("SELECT * FROM employees WHERE YEAR(hire_date) = 2025"),
+                Map.of("employees", List.of("name", "hire_date")));
+
+        assertEquals("SELECT `name`, `hire_date` FROM employees WHERE hire_date >= '2025-01-01' AND hire_date < '2026-01-01'",
+                rewrite.getSql());
+        assertEquals(2, rewrite.getRewrites().size());
+        assertEquals("SELECT * FROM employees WHERE YEAR(hire_date) = 2025", rewrite.getOriginalSql());
+
+        // 没有列清单时保持 * 并给出提示
+        assertTrue(rewrite("SELECT * FROM projects").getWarnings().get(0).startsWith("SELECT *"));
+    }
+}
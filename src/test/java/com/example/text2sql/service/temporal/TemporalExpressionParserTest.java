@@ -0,0 +1,84 @@
+package com.example.text2sql.service.temporal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+public class TemporalExpressionParserTest {
+
+    /**
+     * 2025-05-14，星期三
+     */
+    private static final LocalDate TODAY = LocalDate.of(2025, 5, 14);
+
+    private static void assertRange(String text, String start, String end) {
+        TemporalRange range = TemporalExpressionParser.parse(text, TODAY).orElseThrow(() -> new AssertionError(text));
+        assertEquals(LocalDate.parse(start), range.start(), text);
+        assertEquals(LocalDate.parse(end), range.end(), text);
+    }
+
+    @Test
+    public void testYearsAndQuarters() {
+        assertRange("今年入职的员工", "2025-01-01", "2026-01-01");
+        assertRange("去年的项目", "2024-01-01", "2025-01-01");
+        assertRange("2023年的订单", "2023-01-01", "2024-01-01");
+        assertRange("二〇二三年的订单", "2023-01-01", "2024-01-01");
+        assertRange("2024年第三季度的销量", "2024-07-01", "2024-10-01");
+        assertRange("去年Q4", "2024-10-01", "2025-01-01");
+        assertRange("一季度的订单", "2025-01-01", "2025-04-01");
+        assertRange("上季度", "2025-01-01", "2025-04-01");
+        assertRange("本季度", "2025-04-01", "2025-07-01");
+        assertRange("去年下半年", "2024-07-01", "2025-01-01");
+    }
+
+    @Test
+    public void testMonthsWeeksAndDays() {
+        assertRange("三月份入职", "2025-03-01", "2025-04-01");
+        assertRange("2024年十二月", "2024-12-01", "2025-01-01");
+        assertRange("上个月的订单", "2025-04-01", "2025-05-01");
+        assertRange("本周", "2025-05-12", "2025-05-19");
+        assertRange("上周", "2025-05-05", "2025-05-12");
+        assertRange("昨天", "2025-05-13", "2025-05-14");
+        assertRange("2024年2月29日", "2024-02-29", "2024-03-01");
+        assertRange("5月1号", "2025-05-01", "2025-05-02");
+    }
+
+    @Test
+    public void testRollingAndToDate() {
+        assertRange("近3个月入职的员工", "2025-02-14", "2025-05-15");
+        assertRange("近三年", "2022-05-14", "2025-05-15");
+        assertRange("最近7天", "2025-05-08", "2025-05-15");
+        assertRange("过去两周", "2025-04-30", "2025-05-15");
+        assertRange("本月至今的销量", "2025-05-01", "2025-05-15");
+        assertRange("月初至今", "2025-05-01", "2025-05-15");
+        assertRange("年初至今", "2025-01-01", "2025-05-15");
+        assertRange("2024年以来", "2024-01-01", "2025-05-15");
+    }
+
+    @Test
+    public void testRanges() {
+        assertRange("2024年1月到3月", "2024-01-01", "2024-04-01");
+        assertRange("2023年至2024年", "2023-01-01", "2025-01-01");
+        assertRange("从2024-01-15到2024-02-10", "2024-01-15", "2024-02-11");
+    }
+
+    @Test
+    public void testPredicate() {
+        TemporalRange range = TemporalExpressionParser.parse("去年", TODAY).orElseThrow();
+        assertEquals("e.hire_date >= '2024-01-01' AND e.hire_date < '2025-01-01'", range.toPredicate("e.hire_date"));
+        assertEquals("2024-01-01 至 2024-12-31", range.describe());
+
+        assertTrue(TemporalExpressionParser.parse("查询工资最高的前3名员工", TODAY).isEmpty());
+        // 与前一个汉字组成词语或后面没有时间单位的中文数字不是时间
+        assertTrue(TemporalExpressionParser.parseAll("统一月份", TODAY).isEmpty());
+        assertTrue(TemporalExpressionParser.parseAll("按统一月份口径统计各部门人数", TODAY).isEmpty());
+        assertTrue(TemporalExpressionParser.parseAll("万一月底前没完成", TODAY).isEmpty());
+        assertTrue(TemporalExpressionParser.parseAll("唯一号码", TODAY).isEmpty());
+        assertTrue(TemporalExpressionParser.parseAll("查询工资最高的前三名员工", TODAY).isEmpty());
+        assertEquals("按统一月份统计2024年3月5日以来", TemporalExpressionParser.normalizeNumerals("按统一月份统计二〇二四年三月五日以来"));
+        assertRange("查询三月份入职的员工", "2025-03-01", "2025-04-01");
+    }
+}
@@ -86,4 +86,36 @@ public class SqlUtilsTest {
         // 测试安全的SQL
         assertEquals("SQL语句安全", SqlUtils.getSecurityError("SELECT * FROM employees"));
     }
+
+    @Test
+    public void testIdentifiersContainingKeywords() {
+        // 只匹配完整的标识符，包含关键字的列名和表名不应被拒绝
+        assertTrue(SqlUtils.isSqlSafe("SELECT id, updated_at, created_by FROM test_results"));
+        assertTrue(SqlUtils.isSqlSafe("SELECT `delete`, call_count FROM orders WHERE mysql_version = 8"));
+        assertTrue(SqlUtils.isSqlSafe("SELECT REPLACE(name, '张', '李') FROM employees"));
+
+        // 字符串和块注释中的内容不参与关键字检查
+        assertTrue(SqlUtils.isSqlSafe("SELECT * FROM projects WHERE description = 'DROP 旧系统; 迁移 union 数据'"));
+        assertTrue(SqlUtils.isSqlSafe("SELECT /* 删除 DELETE 前确认 */ name FROM employees"));
+    }
+
+    @Test
+    public void testCheckSqlSafety() {
+        SqlSafetyScanner.Verdict verdict = SqlUtils.checkSqlSafety("SELECT * FROM employees WHERE id = 1; delete FROM employees");
+        assertEquals(SqlSafetyScanner.Reason.DANGEROUS_KEYWORD, verdict.getReason());
+        assertEquals("DELETE", verdict.getDetail());
+
+        verdict = SqlUtils.checkSqlSafety("SELECT * FROM `performance_schema`.threads");
+        assertEquals(SqlSafetyScanner.Reason.SYSTEM_TABLE, verdict.getReason());
+        assertEquals("performance_schema", verdict.getDetail());
+
+        assertEquals(SqlSafetyScanner.Reason.INJECTION,
+                SqlUtils.checkSqlSafety("SELECT * FROM employees WHERE name = 'a' OR 'x'='x'").getReason());
+        assertEquals(SqlSafetyScanner.Reason.INJECTION,
+                SqlUtils.checkSqlSafety("SELECT * FROM employees WHERE name = 'a").getReason());
+        assertEquals(SqlSafetyScanner.Reason.INJECTION,
+                SqlUtils.checkSqlSafety("SELECT /*!50000 name */ FROM employees").getReason());
+        assertEquals(SqlSafetyScanner.Reason.SAFE,
+                SqlUtils.checkSqlSafety("SELECT * FROM employees WHERE salary >= 1 AND id = 1;").getReason());
+    }
 }
@@ -0,0 +1,5 @@
+-- 员工表按入职年份拆分的分片，对应 application-offline.yml 中的 text2sql.sharding：2022、2023 年在订单库
+CREATE TABLE IF NOT EXISTS employees_2022 LIKE employees;
+CREATE TABLE IF NOT EXISTS employees_2023 LIKE employees;
+INSERT IGNORE INTO employees_2022 SELECT * FROM employees WHERE hire_date >= '2022-01-01' AND hire_date < '2023-01-01';
+INSERT IGNORE INTO employees_2023 SELECT * FROM employees WHERE hire_date >= '2023-01-01' AND hire_date < '2024-01-01';
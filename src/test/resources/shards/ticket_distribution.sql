@@ -0,0 +1,5 @@
+-- 员工表按入职年份拆分的分片，对应 application-offline.yml 中的 text2sql.sharding：2020、2021 年在分销库
+CREATE TABLE IF NOT EXISTS employees_2020 LIKE employees;
+CREATE TABLE IF NOT EXISTS employees_2021 LIKE employees;
+INSERT IGNORE INTO employees_2020 SELECT * FROM employees WHERE hire_date >= '2020-01-01' AND hire_date < '2021-01-01';
+INSERT IGNORE INTO employees_2021 SELECT * FROM employees WHERE hire_date >= '2021-01-01' AND hire_date < '2022-01-01';